@@ -130,6 +130,9 @@ batch
 /system-property=bbfhir.db.username:add(value="${dbUsername}")
 /system-property=bbfhir.db.password:add(value="${dbPassword}")
 
+# Run with the second-level cache enabled, so that the ITs cover it, too.
+/system-property=bbfhir.cache.enabled:add(value="true")
+
 # Enable and configure HTTPS.
 /subsystem=undertow/server=default-server/https-listener=https/:add(socket-binding=https,security-realm=ApplicationRealm)
 /socket-binding-group=standard-sockets/socket-binding=https/:write-attribute(name=port,value="${httpsPort}")
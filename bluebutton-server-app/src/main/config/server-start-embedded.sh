@@ -0,0 +1,181 @@
+#!/bin/bash
+
+# Starts the Blue Button API backend server in an embedded servlet container
+# (see EmbeddedServerLauncher), rather than in Wildfly. Accepts the same options
+# as `server-start.sh`.
+
+# Constants.
+serverPortHttps=9094
+serverTimeoutSeconds=120
+warArtifact='bluebutton-server-app.war'
+embeddedInstall='embedded'
+embeddedLibs='embedded-lib'
+launcherClass='gov.hhs.cms.bluebutton.server.app.EmbeddedServerLauncher'
+
+# Calculate the directory that this script is in.
+scriptDirectory="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+
+# Check to see if we are running in Cygwin.
+case "$( uname )" in
+	CYGWIN*) cygwin=true ;;
+	*) cygwin=false ;;
+esac
+
+# Use GNU getopt to parse the options passed to this script.
+TEMP=`getopt \
+	-o j:m:v:d:k:t:u:n:p: \
+	--long javahome:,maxheaparg:,visualvm:,directory:,keystore:,truststore:,dburl:,dbusername:,dbpassword: \
+	-n 'bluebutton-fhir-server-start-embedded.sh' -- "$@"`
+if [ $? != 0 ] ; then echo "Terminating." >&2 ; exit 1 ; fi
+
+# Note the quotes around `$TEMP': they are essential!
+eval set -- "$TEMP"
+
+# Parse the getopt results.
+javaHome=""
+maxHeapArg="-Xmx4g"
+visualVm=""
+directory=
+keyStore=
+trustStore=
+dbUrl="jdbc:hsqldb:mem:test"
+dbUsername=""
+dbPassword=""
+while true; do
+	case "$1" in
+		-j | --javahome )
+			javaHome="$2"; shift 2 ;;
+		-m | --maxheaparg )
+			maxHeapArg="$2"; shift 2 ;;
+		-v | --visualvm )
+			visualVm="$2"; shift 2 ;;
+		-d | --directory )
+			directory="$2"; shift 2 ;;
+		-k | --keystore )
+			keyStore="$2"; shift 2 ;;
+		-t | --truststore )
+			trustStore="$2"; shift 2 ;;
+		-u | --dburl )
+			dbUrl="$2"; shift 2 ;;
+		-n | --dbusername )
+			dbUsername="$2"; shift 2 ;;
+		-p | --dbpassword )
+			dbPassword="$2"; shift 2 ;;
+		-- ) shift; break ;;
+		* ) break ;;
+	esac
+done
+
+# Verify that all required options were specified.
+if [[ -z "${directory}" ]]; then >&2 echo 'The --directory option is required.'; exit 1; fi
+if [[ -z "${keyStore}" ]]; then >&2 echo 'The --keystore option is required.'; exit 1; fi
+if [[ -z "${trustStore}" ]]; then >&2 echo 'The --truststore option is required.'; exit 1; fi
+
+# Verify that java was found.
+if [[ -z "${javaHome}" ]]; then
+	command -v java >/dev/null 2>&1 || { echo >&2 "Java not found. Specify --javahome option."; exit 1; }
+	javaCommand="java"
+else
+	if [[ "${cygwin}" = true ]]; then javaHome=$(cygpath --unix "${javaHome}"); fi
+	command -v "${javaHome}/bin/java" >/dev/null 2>&1 || { echo >&2 "Java not found in --javahome: '${javaHome}'"; exit 1; }
+	javaCommand="${javaHome}/bin/java"
+fi
+
+# Munge paths for Cygwin.
+if [[ "${cygwin}" = true ]]; then directory=$(cygpath --unix "${directory}"); fi
+
+# Exit immediately if something fails.
+error() {
+	local parent_lineno="$1"
+	local message="$2"
+	local code="${3:-1}"
+
+	if [[ -n "$message" ]] ; then
+		>&2 echo "Error on or near line ${parent_lineno}: ${message}."
+	else
+		>&2 echo "Error on or near line ${parent_lineno}."
+	fi
+	
+	# Before bailing, always try to stop any running servers.
+	>&2 echo "Trying to stop any running servers before exiting..."
+	"${scriptDirectory}/bluebutton-server-app-server-stop-embedded.sh" --directory "${directory}"
+
+	>&2 echo "Exiting with status ${code}."
+	exit "${code}"
+}
+trap 'error ${LINENO}' ERR
+
+# Check for required files.
+for f in "${directory}/${warArtifact}" "${directory}/${embeddedLibs}" "${keyStore}" "${trustStore}"; do
+	if [[ ! -e "${f}" ]]; then
+		>&2 echo "The following file is required but is missing: '${f}'."
+		exit 1
+	fi
+done
+
+# If the unpacked WAR already exists, clean it out to start fresh.
+if [[ -d "${directory}/${embeddedInstall}" ]]; then
+	echo "Previous embedded server install found. Removing..."
+	rm -rf "${directory}/${embeddedInstall}"
+	echo "Previous embedded server install removed."
+fi
+
+# Unpack the WAR, so that its classes and libraries can be used directly.
+mkdir -p "${directory}/${embeddedInstall}/webapp"
+unzip -q "${directory}/${warArtifact}" -d "${directory}/${embeddedInstall}/webapp"
+echo "Unpacked WAR: '${directory}/${embeddedInstall}/webapp'"
+
+# Build the args to pass to the server for VisualVM (if any).
+if [[ -f "${visualVm}/profiler/lib/deployed/jdk16/linux-amd64/libprofilerinterface.so" ]]; then
+	echo "Found VisualVM directory: '${visualVm}'"
+	visualVmArgs="-agentpath:${visualVm}/profiler/lib/deployed/jdk16/linux-amd64/libprofilerinterface.so=${visualVm}/profiler/lib,5140"
+else
+	echo "VisualVM directory not found: '${visualVm}'"
+	visualVmArgs=""
+fi
+
+# Launch the server in the background.
+#
+# Note: the `-Dbluebutton-server-embedded` arg just adds a searchable bit of 
+# text to the command line, so we can determine which java processes were 
+# started by this script.
+serverLog="${directory}/${embeddedInstall}/server-console.log"
+appLog="${directory}/${embeddedInstall}/bluebutton-server-app.log"
+classpath="${directory}/${embeddedInstall}/webapp/WEB-INF/classes"
+classpath="${classpath}:${directory}/${embeddedInstall}/webapp/WEB-INF/lib/*"
+classpath="${classpath}:${directory}/${embeddedLibs}/*"
+"${javaCommand}" \
+	-Xms64m ${maxHeapArg} \
+	-Djava.net.preferIPv4Stack=true \
+	-Djava.awt.headless=true \
+	${visualVmArgs} \
+	-Dbluebutton-server-embedded \
+	-Dbbfhir.logs.dir="${directory}/${embeddedInstall}/" \
+	-Dbbfhir.embedded.port="${serverPortHttps}" \
+	-Dbbfhir.embedded.keystore="${keyStore}" \
+	-Dbbfhir.embedded.truststore="${trustStore}" \
+	-Dbbfhir.db.url="${dbUrl}" \
+	-Dbbfhir.db.username="${dbUsername}" \
+	-Dbbfhir.db.password="${dbPassword}" \
+	-Dbbfhir.cache.enabled=true \
+	-cp "${classpath}" \
+	"${launcherClass}" \
+	&> "${serverLog}" \
+	&
+
+# Wait for the server to be ready.
+echo "Server launched, logging to '${serverLog}' and '${appLog}'. Waiting for it to finish starting..."
+startSeconds=$SECONDS
+endSeconds=$(($startSeconds + $serverTimeoutSeconds))
+while true; do
+	if grep --quiet "Embedded Blue Button API backend server started" "${appLog}" 2>/dev/null; then
+		echo "Server started in $(($SECONDS - $startSeconds)) seconds."
+		break
+	fi
+	if [[ $SECONDS -gt $endSeconds ]]; then
+		>&2 echo "Error: Server failed to start within ${serverTimeoutSeconds} seconds. Trying to stop it..."
+		"${scriptDirectory}/bluebutton-server-app-server-stop-embedded.sh" --directory "${directory}"
+		exit 3
+	fi
+	sleep 1
+done
@@ -0,0 +1,59 @@
+#!/bin/bash
+
+# Stops any Blue Button API backend servers that were started via 
+# `server-start-embedded.sh`.
+
+# Use GNU getopt to parse the options passed to this script.
+TEMP=`getopt \
+	-o d: \
+	--long directory: \
+	-n 'bluebutton-fhir-server-stop-embedded.sh' -- "$@"`
+if [ $? != 0 ] ; then echo "Terminating." >&2 ; exit 1 ; fi
+
+# Note the quotes around `$TEMP': they are essential!
+eval set -- "$TEMP"
+
+# Parse the getopt results.
+directory=
+while true; do
+	case "$1" in
+		-d | --directory )
+			directory="$2"; shift 2 ;;
+		-- ) shift; break ;;
+		* ) break ;;
+	esac
+done
+
+# Verify that all required options were specified.
+if [[ -z "${directory}" ]]; then >&2 echo 'The --directory option is required.'; exit 1; fi
+
+# If the server isn't actually running, just exit.
+serverPids=$(pgrep --full ".*java.*-Dbluebutton-server-embedded.*")
+if [[ -z "${serverPids}" ]]; then echo 'No 'bluebutton-server-embedded' processes found to stop.'; exit 0; fi
+
+# Ask the server to stop. Its shutdown hook gives in-flight requests a chance to 
+# complete.
+pkill -TERM --full ".*java.*-Dbluebutton-server-embedded.*"
+
+# Wait for the server to stop.
+echo "Stop request issued. Waiting for server to stop..."
+serverTimeoutSeconds=60
+startSeconds=$SECONDS
+endSeconds=$(($startSeconds + $serverTimeoutSeconds))
+while true; do
+	serverPids=$(pgrep --full ".*java.*-Dbluebutton-server-embedded.*")
+	if [[ -z "${serverPids}" ]]; then
+		echo "Server stopped in $(($SECONDS - $startSeconds)) seconds."
+		exit 0
+	fi
+	if [[ $SECONDS -gt $endSeconds ]]; then
+		>&2 echo "Error: Server failed to stop within ${serverTimeoutSeconds} seconds."
+		break
+	fi
+	sleep 1
+done
+
+# Kill it the mean way, if needed.
+>&2 echo "Server processes still found. Sending KILL signal to all 'bluebutton-server-embedded' processes."
+pkill -KILL --full ".*java.*-Dbluebutton-server-embedded.*"
+>&2 echo "Server processes sent KILL signal."
@@ -0,0 +1,210 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * Limits the number of requests that may be in flight at once, adjusting that
+ * limit based on the latencies that are being observed. This is a gradient
+ * limiter: it tracks the lowest recent latency (the "no load" latency), and
+ * whenever the average latency climbs well past that, it takes that as a sign
+ * that requests are queueing up somewhere downstream (e.g. on the database
+ * connection pool) and lowers the limit to match. When latencies are back to
+ * normal, the limit creeps back up.
+ * </p>
+ * <p>
+ * Requests that arrive when the limit has been reached will wait (briefly)
+ * for a permit, and are rejected if none frees up in time. Failing a few
+ * requests fast is much better than letting every request's latency explode.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+final class AdaptiveConcurrencyLimiter {
+	/**
+	 * The number of completed requests that each limit adjustment is based
+	 * on.
+	 */
+	static final int WINDOW_SAMPLES = 20;
+
+	/**
+	 * The number of windows after which the tracked "no load" latency is
+	 * reset, so that it can drift upwards if (e.g.) the database has just
+	 * gotten bigger.
+	 */
+	static final int MIN_RTT_RESET_WINDOWS = 50;
+
+	/**
+	 * How far above the "no load" latency the average latency can get before
+	 * the limit will be reduced.
+	 */
+	private static final double RTT_TOLERANCE = 1.5;
+
+	/**
+	 * How much of each newly computed limit is blended into the current limit,
+	 * which keeps a single noisy window from swinging it too far.
+	 */
+	private static final double SMOOTHING = 0.2;
+
+	private final int limitMin;
+	private final int limitMax;
+	private final long queueTimeoutNanos;
+	private final ReentrantLock lock;
+	private final Condition permitReleased;
+
+	private double limit;
+	private int inFlight;
+	private long windowRttSumNanos;
+	private int windowSamples;
+	private int windowMaxInFlight;
+	private double minRttNanos;
+	private int windowsSinceMinRttReset;
+
+	/**
+	 * Constructs a new {@link AdaptiveConcurrencyLimiter}, with its limit
+	 * initially set to the maximum.
+	 *
+	 * @param limitMin
+	 *            the lowest that the limit will ever be set to
+	 * @param limitMax
+	 *            the highest that the limit will ever be set to
+	 * @param queueTimeoutMillis
+	 *            how long (in milliseconds) {@link #acquire()} will wait for a
+	 *            permit before giving up
+	 */
+	AdaptiveConcurrencyLimiter(int limitMin, int limitMax, long queueTimeoutMillis) {
+		if (limitMin < 1)
+			throw new IllegalArgumentException();
+		if (limitMax < limitMin)
+			throw new IllegalArgumentException();
+		if (queueTimeoutMillis < 0)
+			throw new IllegalArgumentException();
+
+		this.limitMin = limitMin;
+		this.limitMax = limitMax;
+		this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+		this.lock = new ReentrantLock();
+		this.permitReleased = lock.newCondition();
+
+		this.limit = limitMax;
+		this.inFlight = 0;
+		this.minRttNanos = Double.MAX_VALUE;
+		resetWindow();
+		this.windowsSinceMinRttReset = 0;
+	}
+
+	/**
+	 * Acquires a permit, waiting up to the configured queue timeout for one to
+	 * become available. Each successful call must be followed by a call to
+	 * {@link #release(long)}.
+	 *
+	 * @return <code>true</code> if a permit was acquired, <code>false</code>
+	 *         if the request should be rejected
+	 */
+	boolean acquire() {
+		lock.lock();
+		try {
+			long remainingNanos = queueTimeoutNanos;
+			while (inFlight >= (int) limit) {
+				if (remainingNanos <= 0L)
+					return false;
+				remainingNanos = permitReleased.awaitNanos(remainingNanos);
+			}
+
+			inFlight++;
+			windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Releases a permit that was acquired via {@link #acquire()}.
+	 *
+	 * @param rttNanos
+	 *            how long (in nanoseconds) the request took to complete, once
+	 *            it had been admitted
+	 */
+	void release(long rttNanos) {
+		lock.lock();
+		try {
+			inFlight--;
+			windowRttSumNanos += rttNanos;
+			windowSamples++;
+			if (windowSamples >= WINDOW_SAMPLES)
+				updateLimit();
+
+			permitReleased.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Computes a new {@link #limit} from the just-completed window of samples.
+	 * Must only be called while holding the {@link #lock}.
+	 */
+	private void updateLimit() {
+		double sampleRttNanos = (double) windowRttSumNanos / windowSamples;
+		if (windowsSinceMinRttReset >= MIN_RTT_RESET_WINDOWS) {
+			minRttNanos = sampleRttNanos;
+			windowsSinceMinRttReset = 0;
+		} else {
+			minRttNanos = Math.min(minRttNanos, sampleRttNanos);
+			windowsSinceMinRttReset++;
+		}
+
+		double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * minRttNanos / sampleRttNanos));
+		double newLimit = limit * gradient + Math.sqrt(limit);
+
+		// Don't grow the limit unless there's actually been demand for it.
+		if (newLimit > limit && windowMaxInFlight < limit / 2)
+			newLimit = limit;
+
+		limit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+		limit = Math.max(limitMin, Math.min(limitMax, limit));
+
+		resetWindow();
+	}
+
+	/**
+	 * Resets the per-window sample tracking fields. Must only be called while
+	 * holding the {@link #lock} (or from the constructor).
+	 */
+	private void resetWindow() {
+		windowRttSumNanos = 0L;
+		windowSamples = 0;
+		windowMaxInFlight = inFlight;
+	}
+
+	/**
+	 * @return the current concurrency limit
+	 */
+	int getLimit() {
+		lock.lock();
+		try {
+			return (int) limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of requests that currently hold a permit
+	 */
+	int getInFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
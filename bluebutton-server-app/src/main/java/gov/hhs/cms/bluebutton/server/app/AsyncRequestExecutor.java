@@ -0,0 +1,348 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * <p>
+ * Runs long-running requests (i.e. {@link ExplanationOfBenefit} searches) on
+ * dedicated worker threads (per the configured {@link ExecutorMode}), via
+ * Servlet 3 async processing. Each such request only holds a container request
+ * thread long enough to be handed off, which leaves the container's threads
+ * free to serve the cheap <code>Patient</code> and <code>Coverage</code>
+ * requests, no matter how many slow searches are in flight.
+ * </p>
+ * <p>
+ * The application's {@link javax.servlet.Filter}s were written to do their
+ * cleanup once the filter chain returns, which is no longer the end of the
+ * request for dispatched requests. So, any {@link javax.servlet.Filter} that
+ * has cleanup to do must register it via
+ * {@link #addCompletionTask(ServletRequest, CompletionTask)} before
+ * continuing down the chain, and then skip it if
+ * {@link #isDispatched(ServletRequest)} once the chain returns. The worker
+ * thread will run those tasks (in reverse order) once it has finished with
+ * the request.
+ * </p>
+ */
+public final class AsyncRequestExecutor implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncRequestExecutor.class);
+
+	/**
+	 * The number of requests that may be queued up for each worker thread.
+	 * The {@link LoadSheddingFilter} should keep the queue from ever filling
+	 * up, but it's better to be safe than have an unbounded queue.
+	 */
+	static final int QUEUED_REQUESTS_PER_THREAD = 2;
+
+	/**
+	 * Matches the {@link HttpServletRequest#getPathInfo()} of
+	 * {@link ExplanationOfBenefit} search requests (both <code>GET</code> and
+	 * <code>POST</code> style).
+	 */
+	private static final Pattern PATH_INFO_EOB_SEARCH = Pattern
+			.compile("/" + ExplanationOfBenefit.class.getSimpleName() + "/?(_search)?");
+
+	private static final String ATTRIBUTE_DISPATCHED = AsyncRequestExecutor.class.getName() + ".dispatched";
+	private static final String ATTRIBUTE_COMPLETION_TASKS = AsyncRequestExecutor.class.getName()
+			+ ".completionTasks";
+
+	private final boolean enabled;
+	private final Bulkheads bulkheads;
+	private final ExecutorService executor;
+	private final AtomicInteger queued;
+	private final AtomicInteger active;
+	private final Meter rejected;
+	private final Timer queueWait;
+
+	/**
+	 * Constructs a new {@link AsyncRequestExecutor}.
+	 *
+	 * @param enabled
+	 *            <code>false</code> if all requests should be processed
+	 *            synchronously (as normal), <code>true</code> if long-running
+	 *            requests should be handed off to worker threads
+	 * @param mode
+	 *            the {@link ExecutorMode} for the worker threads
+	 * @param threads
+	 *            the number of worker threads to use, for
+	 *            {@link ExecutorMode#PLATFORM} (which are otherwise unbounded)
+	 * @param bulkheads
+	 *            the {@link Bulkheads} for the application, whose current
+	 *            {@link Bulkhead} must be carried over to the worker threads
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 */
+	public AsyncRequestExecutor(boolean enabled, ExecutorMode mode, int threads, Bulkheads bulkheads,
+			MetricRegistry metricRegistry) {
+		if (threads < 1)
+			throw new IllegalArgumentException();
+
+		this.enabled = enabled;
+		this.bulkheads = bulkheads;
+		if (mode == ExecutorMode.VIRTUAL) {
+			this.executor = ExecutorMode.newVirtualThreadExecutor();
+		} else {
+			ThreadPoolExecutor threadPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<>(threads * QUEUED_REQUESTS_PER_THREAD), new WorkerThreadFactory());
+			threadPool.allowCoreThreadTimeOut(true);
+			this.executor = threadPool;
+		}
+		this.queued = new AtomicInteger(0);
+		this.active = new AtomicInteger(0);
+
+		this.rejected = metricRegistry.meter(MetricRegistry.name(getClass(), "rejected"));
+		this.queueWait = metricRegistry.timer(MetricRegistry.name(getClass(), "queueWait"));
+		metricRegistry.register(MetricRegistry.name(getClass(), "active"), (Gauge<Integer>) active::get);
+		metricRegistry.register(MetricRegistry.name(getClass(), "queued"), (Gauge<Integer>) queued::get);
+	}
+
+	/**
+	 * Hands the specified request off to a worker thread, if it's a
+	 * long-running request and async processing is available for it.
+	 *
+	 * @param request
+	 *            the {@link HttpServletRequest} to be processed
+	 * @param response
+	 *            the {@link HttpServletResponse} for the request
+	 * @param handler
+	 *            the {@link RequestHandler} that will actually process the
+	 *            request
+	 * @return <code>true</code> if the request was handed off (and must not be
+	 *         processed by the caller), <code>false</code> if the caller
+	 *         should just process it as normal
+	 */
+	public boolean dispatch(HttpServletRequest request, HttpServletResponse response, RequestHandler handler) {
+		if (!enabled || !request.isAsyncSupported() || request.getPathInfo() == null
+				|| !PATH_INFO_EOB_SEARCH.matcher(request.getPathInfo()).matches())
+			return false;
+
+		AsyncContext asyncContext = request.startAsync();
+		// Request duration is instead bounded by the QueryDeadline.
+		asyncContext.setTimeout(0);
+		request.setAttribute(ATTRIBUTE_DISPATCHED, Boolean.TRUE);
+
+		Optional<Bulkhead> bulkhead = bulkheads.getCurrent();
+		Optional<ReplicaPin> replicaPin = ReplicaPin.getCurrent();
+		Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+		Timer.Context queueWaitTimer = queueWait.time();
+		queued.incrementAndGet();
+		try {
+			executor.execute(() -> {
+				queueWaitTimer.stop();
+				queued.decrementAndGet();
+				active.incrementAndGet();
+				try {
+					process(request, response, handler, asyncContext, bulkhead, replicaPin, mdcContext);
+				} finally {
+					active.decrementAndGet();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			queued.decrementAndGet();
+			rejected.mark();
+			try {
+				response.setHeader(LoadSheddingFilter.HEADER_RETRY_AFTER,
+						String.valueOf(LoadSheddingFilter.RETRY_AFTER_SECONDS));
+				response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+						"The server is overloaded. Please try again later.");
+			} catch (IOException e2) {
+				LOGGER.debug("Unable to send rejection for request.", e2);
+			} finally {
+				complete(request, asyncContext);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Processes the specified dispatched request, on a worker thread.
+	 *
+	 * @param request
+	 *            the {@link HttpServletRequest} to be processed
+	 * @param response
+	 *            the {@link HttpServletResponse} for the request
+	 * @param handler
+	 *            the {@link RequestHandler} that will actually process the
+	 *            request
+	 * @param asyncContext
+	 *            the request's {@link AsyncContext}
+	 * @param bulkhead
+	 *            the request's {@link Bulkhead}, if any
+	 * @param replicaPin
+	 *            the request's {@link ReplicaPin}, if any
+	 * @param mdcContext
+	 *            the logging {@link MDC} context of the thread that
+	 *            dispatched the request, or <code>null</code>
+	 */
+	private void process(HttpServletRequest request, HttpServletResponse response, RequestHandler handler,
+			AsyncContext asyncContext, Optional<Bulkhead> bulkhead, Optional<ReplicaPin> replicaPin,
+			Map<String, String> mdcContext) {
+		if (mdcContext != null)
+			MDC.setContextMap(mdcContext);
+		bulkheads.setCurrent(bulkhead);
+		ReplicaPin.setCurrent(replicaPin);
+
+		try {
+			handler.handle();
+		} catch (IOException | ServletException | RuntimeException e) {
+			LOGGER.error("Dispatched request failed.", e);
+			if (!response.isCommitted()) {
+				try {
+					response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+				} catch (IOException e2) {
+					LOGGER.debug("Unable to send error for request.", e2);
+				}
+			}
+		} finally {
+			try {
+				complete(request, asyncContext);
+			} finally {
+				bulkheads.setCurrent(Optional.empty());
+				ReplicaPin.clear();
+				MDC.clear();
+			}
+		}
+	}
+
+	/**
+	 * Runs the specified dispatched request's completion tasks, and then
+	 * completes it.
+	 *
+	 * @param request
+	 *            the dispatched {@link ServletRequest} to complete
+	 * @param asyncContext
+	 *            the request's {@link AsyncContext}
+	 */
+	private static void complete(ServletRequest request, AsyncContext asyncContext) {
+		@SuppressWarnings("unchecked")
+		Deque<CompletionTask> completionTasks = (Deque<CompletionTask>) request
+				.getAttribute(ATTRIBUTE_COMPLETION_TASKS);
+		if (completionTasks != null) {
+			for (CompletionTask completionTask : completionTasks) {
+				try {
+					completionTask.run();
+				} catch (IOException | RuntimeException e) {
+					LOGGER.warn("Completion task failed for dispatched request.", e);
+				}
+			}
+		}
+
+		asyncContext.complete();
+	}
+
+	/**
+	 * @param request
+	 *            the {@link ServletRequest} to check
+	 * @return <code>true</code> if the specified {@link ServletRequest} was
+	 *         handed off to a worker thread (in which case its
+	 *         {@link CompletionTask}s will be run there), <code>false</code>
+	 *         if it's being processed synchronously
+	 */
+	static boolean isDispatched(ServletRequest request) {
+		return Boolean.TRUE.equals(request.getAttribute(ATTRIBUTE_DISPATCHED));
+	}
+
+	/**
+	 * Registers a {@link CompletionTask} to be run once the specified request
+	 * has been processed, if it's dispatched to a worker thread. Tasks are run
+	 * in the reverse order that they were added, just as the
+	 * {@link javax.servlet.Filter}s' own cleanup would have been.
+	 *
+	 * @param request
+	 *            the {@link ServletRequest} to register the task for
+	 * @param completionTask
+	 *            the {@link CompletionTask} to register
+	 */
+	static void addCompletionTask(ServletRequest request, CompletionTask completionTask) {
+		@SuppressWarnings("unchecked")
+		Deque<CompletionTask> completionTasks = (Deque<CompletionTask>) request
+				.getAttribute(ATTRIBUTE_COMPLETION_TASKS);
+		if (completionTasks == null) {
+			completionTasks = new ArrayDeque<>();
+			request.setAttribute(ATTRIBUTE_COMPLETION_TASKS, completionTasks);
+		}
+		completionTasks.addFirst(completionTask);
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Actually processes a request, wherever it's run.
+	 */
+	@FunctionalInterface
+	public interface RequestHandler {
+		/**
+		 * @throws IOException
+		 *             Any {@link IOException}s encountered will be bubbled up.
+		 * @throws ServletException
+		 *             Any {@link ServletException}s encountered will be bubbled
+		 *             up.
+		 */
+		void handle() throws IOException, ServletException;
+	}
+
+	/**
+	 * Cleanup to run once a dispatched request has been processed.
+	 */
+	@FunctionalInterface
+	interface CompletionTask {
+		/**
+		 * @throws IOException
+		 *             Any {@link IOException}s encountered will be bubbled up.
+		 */
+		void run() throws IOException;
+	}
+
+	/**
+	 * A {@link ThreadFactory} for the worker threads, which gives them
+	 * recognizable names (for thread dumps, logs, etc.).
+	 */
+	private static final class WorkerThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadCount = new AtomicInteger(0);
+
+		/**
+		 * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+		 */
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "bbfhir-async-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
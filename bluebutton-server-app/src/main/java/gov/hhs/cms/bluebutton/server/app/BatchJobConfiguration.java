@@ -0,0 +1,222 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.util.Collections;
+import java.util.concurrent.Executor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.support.PersistenceAnnotationBeanPostProcessor;
+
+import com.codahale.metrics.MetricRegistry;
+import com.zaxxer.hikari.HikariDataSource;
+
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.BeneficiaryChangeMonitor;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.ClaimLineItems;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.ClaimTransformExecutor;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.EobSegmentFile;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.EobSegmentFileBuilder;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.EobSnapshotBuilder;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.EobSnapshotStore;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.ExplanationOfBenefitResourceProvider;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.SecondLevelCache;
+
+/**
+ * The Spring {@link Configuration} for the application's batch jobs (e.g.
+ * {@link EobSnapshotBuilder} and {@link EobSegmentFileBuilder}). It provides
+ * just the persistence beans and the {@link ExplanationOfBenefitResourceProvider}
+ * that the jobs need, all connected to the primary database (any
+ * {@link SpringConfiguration#PROP_DB_REPLICAS_URLS} are ignored), and none of
+ * the application's request handling, warmup, or change polling. It's
+ * configured via the same Java system properties as {@link SpringConfiguration}.
+ */
+@Configuration
+public class BatchJobConfiguration {
+	/**
+	 * @return the {@link MetricRegistry} for the batch job
+	 */
+	@Bean
+	public MetricRegistry metricRegistry() {
+		return new MetricRegistry();
+	}
+
+	/**
+	 * @param url
+	 *            the JDBC URL of the (primary) database
+	 * @param username
+	 *            the database username to use
+	 * @param password
+	 *            the database password to use
+	 * @param connectionsMaxText
+	 *            the maximum number of database connections to use
+	 * @param prepareThresholdText
+	 *            the number of times that a statement must be run before it's
+	 *            prepared on the (PostgreSQL) database server
+	 * @param statementCacheSizeText
+	 *            the number of prepared statements to cache (per PostgreSQL
+	 *            connection)
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the batch job
+	 * @return the {@link HikariDataSource} for the primary database, which
+	 *         the batch job both reads and writes via
+	 */
+	@Bean(name = SpringConfiguration.PRIMARY_DATA_SOURCE, destroyMethod = "close")
+	public HikariDataSource primaryDataSource(@Value("${" + SpringConfiguration.PROP_DB_URL + "}") String url,
+			@Value("${" + SpringConfiguration.PROP_DB_USERNAME + "}") String username,
+			@Value("${" + SpringConfiguration.PROP_DB_PASSWORD + "}") String password,
+			@Value("${" + SpringConfiguration.PROP_DB_CONNECTIONS_MAX + ":-1}") String connectionsMaxText,
+			@Value("${" + SpringConfiguration.PROP_DB_PREPARE_THRESHOLD + ":5}") String prepareThresholdText,
+			@Value("${" + SpringConfiguration.PROP_DB_STATEMENT_CACHE_SIZE + ":256}") String statementCacheSizeText,
+			MetricRegistry metricRegistry) {
+		return SpringConfiguration.createPrimaryDataSource(url, username, password, connectionsMaxText,
+				prepareThresholdText, statementCacheSizeText, metricRegistry);
+	}
+
+	/**
+	 * @param primaryDataSource
+	 *            the {@link #primaryDataSource} for the batch job
+	 * @param fetchSizeText
+	 *            the number of rows to fetch from the database at a time, for
+	 *            each query
+	 * @return the {@link LocalContainerEntityManagerFactoryBean} for the batch
+	 *         job, which has no second-level cache
+	 */
+	@Bean
+	public LocalContainerEntityManagerFactoryBean entityManagerFactory(
+			@Qualifier(SpringConfiguration.PRIMARY_DATA_SOURCE) DataSource primaryDataSource,
+			@Value("${" + SpringConfiguration.PROP_DB_FETCH_SIZE + ":100}") String fetchSizeText) {
+		return SpringConfiguration.createEntityManagerFactory(primaryDataSource,
+				SpringConfiguration.jpaProperties(fetchSizeText));
+	}
+
+	/**
+	 * @param entityManagerFactory
+	 *            the batch job's {@link EntityManagerFactory}
+	 * @return the {@link JpaTransactionManager} for the batch job, which the
+	 *         {@link ExplanationOfBenefitResourceProvider} runs its claim
+	 *         reads via
+	 */
+	@Bean
+	public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+		JpaTransactionManager retVal = new JpaTransactionManager();
+		retVal.setEntityManagerFactory(entityManagerFactory);
+		return retVal;
+	}
+
+	/**
+	 * @return a Spring {@link PersistenceAnnotationBeanPostProcessor}, which
+	 *         injects the {@link ExplanationOfBenefitResourceProvider}'s
+	 *         {@link EntityManager}
+	 */
+	@Bean
+	public PersistenceAnnotationBeanPostProcessor persistenceAnnotationProcessor() {
+		return new PersistenceAnnotationBeanPostProcessor();
+	}
+
+	/**
+	 * @param entityManagerFactory
+	 *            the batch job's {@link EntityManagerFactory}
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the batch job
+	 * @return a disabled {@link SecondLevelCache}, as the batch jobs read
+	 *         each claim just once
+	 */
+	@Bean
+	public SecondLevelCache secondLevelCache(EntityManagerFactory entityManagerFactory,
+			MetricRegistry metricRegistry) {
+		return new SecondLevelCache(false, 1, 1, entityManagerFactory, metricRegistry);
+	}
+
+	/**
+	 * @param primaryDataSource
+	 *            the {@link #primaryDataSource} for the batch job
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the batch job
+	 * @return a {@link BeneficiaryChangeMonitor} that doesn't poll, as the
+	 *         batch jobs always query the claim tables directly
+	 */
+	@Bean(destroyMethod = "close")
+	public BeneficiaryChangeMonitor beneficiaryChangeMonitor(
+			@Qualifier(SpringConfiguration.PRIMARY_DATA_SOURCE) DataSource primaryDataSource,
+			MetricRegistry metricRegistry) {
+		return new BeneficiaryChangeMonitor(primaryDataSource, 0, 1, Collections.emptyList(), metricRegistry);
+	}
+
+	/**
+	 * @param primaryDataSource
+	 *            the {@link #primaryDataSource} for the batch job
+	 * @param beneficiaryChangeMonitor
+	 *            the {@link BeneficiaryChangeMonitor} for the batch job
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the batch job
+	 * @return an {@link EobSnapshotStore} that reads and writes via the
+	 *         primary database, and which isn't used to serve searches
+	 */
+	@Bean
+	public EobSnapshotStore eobSnapshotStore(
+			@Qualifier(SpringConfiguration.PRIMARY_DATA_SOURCE) DataSource primaryDataSource,
+			BeneficiaryChangeMonitor beneficiaryChangeMonitor, MetricRegistry metricRegistry) {
+		return new EobSnapshotStore(false, primaryDataSource, primaryDataSource,
+				beneficiaryChangeMonitor::getDataVersion, metricRegistry);
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the batch job
+	 * @return an empty {@link EobSegmentFile}, as the batch jobs always query
+	 *         the claim tables directly
+	 */
+	@Bean
+	public EobSegmentFile eobSegmentFile(MetricRegistry metricRegistry) {
+		return EobSegmentFile.empty(metricRegistry);
+	}
+
+	/**
+	 * @return the {@link Executor} that each search's per-claim-type queries
+	 *         will be run via, which just runs them one after the other
+	 */
+	@Bean(name = ExplanationOfBenefitResourceProvider.CLAIM_QUERY_EXECUTOR)
+	public Executor claimQueryExecutor() {
+		return Runnable::run;
+	}
+
+	/**
+	 * @return the {@link ClaimLineItems} for the batch job, which transforms
+	 *         each claim's lines one after the other
+	 */
+	@Bean(destroyMethod = "close")
+	public ClaimLineItems claimLineItems() {
+		return new ClaimLineItems(0, 1);
+	}
+
+	/**
+	 * @param claimLineItems
+	 *            the {@link ClaimLineItems} for the batch job
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the batch job
+	 * @return the {@link ClaimTransformExecutor} for the batch job, which
+	 *         transforms each search's claims one after the other
+	 */
+	@Bean(destroyMethod = "close")
+	public ClaimTransformExecutor claimTransformExecutor(ClaimLineItems claimLineItems,
+			MetricRegistry metricRegistry) {
+		return new ClaimTransformExecutor(1, 0, claimLineItems, metricRegistry);
+	}
+
+	/**
+	 * @return the {@link ExplanationOfBenefitResourceProvider} for the batch
+	 *         job, which the other beans here (and an {@link EntityManager}
+	 *         from the {@link EntityManagerFactory}) are injected into
+	 */
+	@Bean
+	public ExplanationOfBenefitResourceProvider eobResourceProvider() {
+		return new ExplanationOfBenefitResourceProvider();
+	}
+}
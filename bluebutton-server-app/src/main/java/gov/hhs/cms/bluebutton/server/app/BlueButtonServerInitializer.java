@@ -1,5 +1,6 @@
 package gov.hhs.cms.bluebutton.server.app;
 
+import javax.servlet.FilterRegistration;
 import javax.servlet.ServletContainerInitializer;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -17,6 +18,8 @@ import org.springframework.web.context.support.AnnotationConfigWebApplicationCon
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.servlet.InstrumentedFilter;
 
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.ServerWarmup;
+
 /**
  * <p>
  * Initializes the Blue Button API FHIR backend application.
@@ -61,12 +64,63 @@ public final class BlueButtonServerInitializer implements WebApplicationInitiali
 		cxfServletReg.setLoadOnStartup(1);
 		cxfServletReg.addMapping("/baseDstu3/*");
 
+		/*
+		 * ExplanationOfBenefit searches may be handed off to the
+		 * AsyncRequestExecutor's worker threads, so the Servlet and all of the
+		 * Filters must support async processing.
+		 */
+		cxfServletReg.setAsyncSupported(true);
+
 		/*
 		 * Register the MetricRegistry into the ServletContext, so that
 		 * `InstrumentedFilter` (configured in web.xml) can work.
 		 */
 		servletContext.setAttribute(InstrumentedFilter.REGISTRY_ATTRIBUTE, springContext.getBean(MetricRegistry.class));
 
+		/*
+		 * Register the load shedding Filter. It's registered ahead of the
+		 * compression Filter, so that rejected requests skip that entirely.
+		 */
+		FilterRegistration.Dynamic loadSheddingFilterReg = servletContext.addFilter("loadSheddingFilter",
+				springContext.getBean(LoadSheddingFilter.class));
+		loadSheddingFilterReg.setAsyncSupported(true);
+		loadSheddingFilterReg.addMappingForUrlPatterns(null, true, "/*");
+
+		/*
+		 * Register the bulkhead Filter, which gives each type of request its
+		 * own isolated share of the request threads and DB connections.
+		 */
+		FilterRegistration.Dynamic bulkheadFilterReg = servletContext.addFilter("bulkheadFilter",
+				springContext.getBean(BulkheadFilter.class));
+		bulkheadFilterReg.setAsyncSupported(true);
+		bulkheadFilterReg.addMappingForUrlPatterns(null, true, "/*");
+
+		/*
+		 * Register the replica pinning Filter, so that each request's queries
+		 * all go to the same read replica.
+		 */
+		FilterRegistration.Dynamic replicaPinFilterReg = servletContext.addFilter("replicaPinFilter",
+				new ReplicaPinFilter());
+		replicaPinFilterReg.setAsyncSupported(true);
+		replicaPinFilterReg.addMappingForUrlPatterns(null, true, "/*");
+
+		/*
+		 * Register the response compression Filter. It's registered after the
+		 * filters in web.xml, so that InstrumentedFilter's timings include the
+		 * compression work.
+		 */
+		FilterRegistration.Dynamic compressionFilterReg = servletContext.addFilter("responseCompressionFilter",
+				springContext.getBean(ResponseCompressionFilter.class));
+		compressionFilterReg.setAsyncSupported(true);
+		compressionFilterReg.addMappingForUrlPatterns(null, true, "/*");
+
+		/*
+		 * Warm up the application before it's reported as ready, so that the
+		 * first real requests don't have to pay for all of the lazy
+		 * initialization.
+		 */
+		springContext.getBean(ServerWarmup.class).warmUp(stu3Servlet.getFhirContext());
+
 		LOGGER.info("Initialized Blue Button API backend server.");
 	}
 }
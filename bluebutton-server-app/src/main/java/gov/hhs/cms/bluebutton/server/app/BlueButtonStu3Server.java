@@ -11,6 +11,8 @@ import java.util.Properties;
 
 import javax.servlet.Servlet;
 import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.hl7.fhir.dstu3.hapi.rest.server.ServerCapabilityStatementProvider;
 import org.hl7.fhir.dstu3.model.CapabilityStatement;
@@ -26,6 +28,7 @@ import ca.uhn.fhir.rest.server.IResourceProvider;
 import ca.uhn.fhir.rest.server.RestfulServer;
 import ca.uhn.fhir.rest.server.interceptor.CorsInterceptor;
 import ca.uhn.fhir.rest.server.interceptor.IServerInterceptor;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.QueryDeadline;
 
 /**
  * <p>
@@ -42,6 +45,12 @@ public class BlueButtonStu3Server extends RestfulServer {
 	static final String CAPABILITIES_PUBLISHER = "Centers for Medicare & Medicaid Services";
 	static final String CAPABILITIES_SERVER_NAME = "Blue Button API: Direct";
 
+	/**
+	 * The {@link AsyncRequestExecutor} that long-running requests will be
+	 * handed off to, which is set once this {@link Servlet} is initialized.
+	 */
+	private transient AsyncRequestExecutor asyncRequestExecutor;
+
 	/**
 	 * Constructs a new {@link BlueButtonStu3Server} instance.
 	 */
@@ -98,6 +107,8 @@ public class BlueButtonStu3Server extends RestfulServer {
 				.getBean(SpringConfiguration.BLUEBUTTON_STU3_RESOURCE_PROVIDERS, List.class);
 		setResourceProviders(resourceProviders);
 
+		asyncRequestExecutor = springContext.getBean(AsyncRequestExecutor.class);
+
 		/*
 		 * Each "plain" provider has one or more annotated methods that provides
 		 * support for non-resource-type methods, such as transaction, and
@@ -128,11 +139,67 @@ public class BlueButtonStu3Server extends RestfulServer {
 		config.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
 		registerInterceptor(corsInterceptor);
 
+		/*
+		 * Serve `/metadata` from a pre-encoded copy of the CapabilityStatement,
+		 * as health checkers hit it constantly. (Registered after CORS, so that
+		 * those headers still get added.)
+		 */
+		registerInterceptor(new CapabilityStatementCacheInterceptor(this));
+
 		// Enable ETag Support (this is already the default)
 		setETagSupport(ETagSupportEnum.ENABLED);
 
-		// Default to XML and pretty printing.
-		setDefaultResponseEncoding(EncodingEnum.XML);
-		setDefaultPrettyPrint(true);
+		/*
+		 * Default to compact JSON, which is much cheaper to produce and much
+		 * smaller on the wire than (pretty) XML. Clients can still ask for XML
+		 * via the Accept header or `_format`, and for pretty printing via
+		 * `_pretty=true`. Compression is handled separately, by
+		 * ResponseCompressionFilter.
+		 */
+		setDefaultResponseEncoding(EncodingEnum.JSON);
+		setDefaultPrettyPrint(false);
+	}
+
+	/**
+	 * Hands long-running requests off to the {@link AsyncRequestExecutor},
+	 * and processes everything else as normal. Either way, the request's
+	 * {@link QueryDeadline} (started by {@link QueryDeadlineInterceptor}) is
+	 * cleared from the processing thread once HAPI is done with it, even if
+	 * some other interceptor cut the processing short.
+	 *
+	 * @see ca.uhn.fhir.rest.server.RestfulServer#service(javax.servlet.http.HttpServletRequest,
+	 *      javax.servlet.http.HttpServletResponse)
+	 */
+	@Override
+	protected void service(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		if (asyncRequestExecutor != null
+				&& asyncRequestExecutor.dispatch(request, response, () -> serviceWithDeadline(request, response)))
+			return;
+
+		serviceWithDeadline(request, response);
+	}
+
+	/**
+	 * Processes the specified request via HAPI, and then clears its
+	 * {@link QueryDeadline}.
+	 *
+	 * @param request
+	 *            the {@link HttpServletRequest} to process
+	 * @param response
+	 *            the {@link HttpServletResponse} for the request
+	 * @throws ServletException
+	 *             Any {@link ServletException}s encountered will be bubbled
+	 *             up.
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	private void serviceWithDeadline(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		try {
+			super.service(request, response);
+		} finally {
+			QueryDeadline.clear();
+		}
 	}
 }
@@ -0,0 +1,97 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.util.Optional;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.hl7.fhir.dstu3.model.Coverage;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.dstu3.model.Patient;
+
+/**
+ * Enumerates the isolated execution lanes that the application's requests are
+ * divided into by {@link Bulkheads}, so that a burst of one kind of request
+ * can't starve the others of request threads or database connections. The
+ * {@link #getConnectionsShare()}s of all the {@link Bulkhead}s add up to
+ * exactly <code>1.0</code>, so that together they never hand out more
+ * connections than the pool has.
+ */
+public enum Bulkhead {
+	/**
+	 * {@link Patient} searches by identifier, which are on the login path of
+	 * the application's clients, and so must never be starved.
+	 */
+	PATIENT_IDENTIFIER("patientIdentifier", 0.2),
+
+	/**
+	 * All other {@link Patient} requests.
+	 */
+	PATIENT("patient", 0.15),
+
+	/**
+	 * All {@link Coverage} requests.
+	 */
+	COVERAGE("coverage", 0.15),
+
+	/**
+	 * All {@link ExplanationOfBenefit} requests, which are by far the most
+	 * expensive.
+	 */
+	EOB("eob", 0.5);
+
+	private final String metricName;
+	private final double connectionsShare;
+
+	/**
+	 * Enum constant constructor.
+	 *
+	 * @param metricName
+	 *            the value to use for {@link #getMetricName()}
+	 * @param connectionsShare
+	 *            the value to use for {@link #getConnectionsShare()}
+	 */
+	private Bulkhead(String metricName, double connectionsShare) {
+		this.metricName = metricName;
+		this.connectionsShare = connectionsShare;
+	}
+
+	/**
+	 * @return the name to use for this {@link Bulkhead} in metrics
+	 */
+	public String getMetricName() {
+		return metricName;
+	}
+
+	/**
+	 * @return the fraction of the application's database connections that
+	 *         requests in this {@link Bulkhead} may hold at once
+	 */
+	public double getConnectionsShare() {
+		return connectionsShare;
+	}
+
+	/**
+	 * @param request
+	 *            the {@link HttpServletRequest} to be processed
+	 * @return the {@link Bulkhead} that the specified request belongs in, or
+	 *         {@link Optional#empty()} if it's not for one of the resource
+	 *         types that this application queries the database for
+	 */
+	static Optional<Bulkhead> select(HttpServletRequest request) {
+		String pathInfo = request.getPathInfo();
+		if (pathInfo == null)
+			return Optional.empty();
+
+		if (pathInfo.startsWith("/" + Patient.class.getSimpleName())) {
+			if (request.getParameter(Patient.SP_IDENTIFIER) != null)
+				return Optional.of(PATIENT_IDENTIFIER);
+			return Optional.of(PATIENT);
+		}
+		if (pathInfo.startsWith("/" + Coverage.class.getSimpleName()))
+			return Optional.of(COVERAGE);
+		if (pathInfo.startsWith("/" + ExplanationOfBenefit.class.getSimpleName()))
+			return Optional.of(EOB);
+
+		return Optional.empty();
+	}
+}
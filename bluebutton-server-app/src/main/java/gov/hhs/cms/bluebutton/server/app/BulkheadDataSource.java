@@ -0,0 +1,131 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * A {@link DataSource} that divides up another {@link DataSource}'s
+ * connections between the application's {@link Bulkhead}s: each
+ * {@link Connection} handed out counts against the current thread's
+ * {@link Bulkhead} (if any) until it's closed. This gives each
+ * {@link Bulkhead} its own sub-pool of connections, without having to
+ * maintain a separate physical connection pool for each one. Requests that
+ * can't get a permit in time fail with a
+ * {@link SQLTransientConnectionException}, which
+ * {@link ConnectionUnavailableInterceptor} turns into a
+ * <code>503 Service Unavailable</code>.
+ */
+final class BulkheadDataSource extends AbstractDataSource {
+	private final DataSource targetDataSource;
+	private final Bulkheads bulkheads;
+
+	/**
+	 * Constructs a new {@link BulkheadDataSource}.
+	 *
+	 * @param targetDataSource
+	 *            the {@link DataSource} to get the actual {@link Connection}s
+	 *            from
+	 * @param bulkheads
+	 *            the {@link Bulkheads} for the application
+	 */
+	BulkheadDataSource(DataSource targetDataSource, Bulkheads bulkheads) {
+		this.targetDataSource = targetDataSource;
+		this.bulkheads = bulkheads;
+	}
+
+	/**
+	 * @see javax.sql.DataSource#getConnection()
+	 */
+	@Override
+	public Connection getConnection() throws SQLException {
+		Optional<Bulkhead> bulkhead = bulkheads.getCurrent();
+		if (!bulkhead.isPresent())
+			return targetDataSource.getConnection();
+
+		if (!bulkheads.acquireConnection(bulkhead.get()))
+			throw new SQLTransientConnectionException(String.format(
+					"No database connections available for bulkhead '%s'.", bulkhead.get().getMetricName()));
+
+		try {
+			Connection connection = targetDataSource.getConnection();
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class },
+					new PermitReleasingHandler(connection, bulkheads, bulkhead.get()));
+		} catch (SQLException | RuntimeException e) {
+			bulkheads.releaseConnection(bulkhead.get());
+			throw e;
+		}
+	}
+
+	/**
+	 * @see javax.sql.DataSource#getConnection(java.lang.String,
+	 *      java.lang.String)
+	 */
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException("Connections are only available with the configured credentials.");
+	}
+
+	/**
+	 * Proxies a {@link Connection}, releasing its {@link Bulkhead} connection
+	 * permit (exactly once) when it's closed.
+	 */
+	private static final class PermitReleasingHandler implements InvocationHandler {
+		private final Connection connection;
+		private final Bulkheads bulkheads;
+		private final Bulkhead bulkhead;
+		private final AtomicBoolean released;
+
+		/**
+		 * Constructs a new {@link PermitReleasingHandler}.
+		 *
+		 * @param connection
+		 *            the {@link Connection} being proxied
+		 * @param bulkheads
+		 *            the {@link Bulkheads} that the permit came from
+		 * @param bulkhead
+		 *            the {@link Bulkhead} that the permit is for
+		 */
+		PermitReleasingHandler(Connection connection, Bulkheads bulkheads, Bulkhead bulkhead) {
+			this.connection = connection;
+			this.bulkheads = bulkheads;
+			this.bulkhead = bulkhead;
+			this.released = new AtomicBoolean(false);
+		}
+
+		/**
+		 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object,
+		 *      java.lang.reflect.Method, java.lang.Object[])
+		 */
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getName().equals("close") && method.getParameterCount() == 0) {
+				try {
+					connection.close();
+				} finally {
+					if (released.compareAndSet(false, true))
+						bulkheads.releaseConnection(bulkhead);
+				}
+				return null;
+			}
+
+			try {
+				return method.invoke(connection, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A {@link Filter} that admits each request through its {@link Bulkhead}, as
+ * managed by the application's {@link Bulkheads}. Requests whose
+ * {@link Bulkhead} is full are rejected with a
+ * <code>503 Service Unavailable</code> and a <code>Retry-After</code> header,
+ * just as {@link LoadSheddingFilter} does.
+ */
+public final class BulkheadFilter implements Filter {
+	private final Bulkheads bulkheads;
+
+	/**
+	 * Constructs a new {@link BulkheadFilter}.
+	 *
+	 * @param bulkheads
+	 *            the {@link Bulkheads} for the application
+	 */
+	public BulkheadFilter(Bulkheads bulkheads) {
+		this.bulkheads = bulkheads;
+	}
+
+	/**
+	 * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+	 */
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		// Nothing to do here.
+	}
+
+	/**
+	 * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
+	 *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
+	 */
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		if (!bulkheads.isEnabled() || !(request instanceof HttpServletRequest)
+				|| !(response instanceof HttpServletResponse)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		Optional<Bulkhead> bulkhead = Bulkhead.select((HttpServletRequest) request);
+		if (!bulkhead.isPresent()) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		if (!bulkheads.enter(bulkhead.get())) {
+			HttpServletResponse httpResponse = (HttpServletResponse) response;
+			httpResponse.setHeader(LoadSheddingFilter.HEADER_RETRY_AFTER,
+					String.valueOf(LoadSheddingFilter.RETRY_AFTER_SECONDS));
+			httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+					"The server is overloaded. Please try again later.");
+			return;
+		}
+
+		// Requests handed off to a worker thread hold their permit until done.
+		AsyncRequestExecutor.addCompletionTask(request, () -> bulkheads.exit(bulkhead.get()));
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			if (AsyncRequestExecutor.isDispatched(request))
+				bulkheads.setCurrent(Optional.empty());
+			else
+				bulkheads.exit(bulkhead.get());
+		}
+	}
+
+	/**
+	 * @see javax.servlet.Filter#destroy()
+	 */
+	@Override
+	public void destroy() {
+		// Nothing to do here.
+	}
+}
@@ -0,0 +1,226 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * <p>
+ * Manages the application's {@link Bulkhead}s: each one gets its own
+ * dedicated set of request permits and database connection permits, so that
+ * (for example) a burst of expensive <code>ExplanationOfBenefit</code> searches
+ * can tie up at most its own share of the container's threads and the
+ * database connection pool, leaving the rest for the login-path
+ * <code>Patient</code> lookups.
+ * </p>
+ * <p>
+ * Request permits are taken by the {@link BulkheadFilter}, which also records
+ * the current request's {@link Bulkhead} for its thread. Connection permits
+ * are taken by the {@link BulkheadDataSource}, based on that.
+ * </p>
+ */
+public final class Bulkheads {
+	/**
+	 * The number of request permits that each {@link Bulkhead} gets, per
+	 * connection permit. Requests only hold a connection for part of their
+	 * processing time (they also have to transform and encode the results),
+	 * so it's worth admitting a few more requests than there are connections.
+	 */
+	static final int REQUESTS_PER_CONNECTION = 2;
+
+	private static final ThreadLocal<Bulkhead> CURRENT_BULKHEAD = new ThreadLocal<>();
+
+	private final boolean enabled;
+	private final long queueTimeoutMillis;
+	private final Map<Bulkhead, Compartment> compartments;
+
+	/**
+	 * Constructs a new {@link Bulkheads} instance.
+	 *
+	 * @param enabled
+	 *            <code>false</code> if the {@link Bulkhead}s should not be
+	 *            enforced, <code>true</code> if they should be
+	 * @param connectionsMax
+	 *            the maximum number of database connections available to the
+	 *            application, which will be divided up according to each
+	 *            {@link Bulkhead#getConnectionsShare()} (rounded down)
+	 * @param queueTimeoutMillis
+	 *            how long (in milliseconds) to wait for a permit before giving
+	 *            up
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 */
+	public Bulkheads(boolean enabled, int connectionsMax, long queueTimeoutMillis, MetricRegistry metricRegistry) {
+		if (connectionsMax < 1)
+			throw new IllegalArgumentException();
+		if (queueTimeoutMillis < 0)
+			throw new IllegalArgumentException();
+
+		this.enabled = enabled;
+		this.queueTimeoutMillis = queueTimeoutMillis;
+		this.compartments = new EnumMap<>(Bulkhead.class);
+		for (Bulkhead bulkhead : Bulkhead.values()) {
+			/*
+			 * Rounding down keeps the total within connectionsMax, except for
+			 * tiny pools, where every Bulkhead still needs at least one.
+			 */
+			int connectionPermits = Math.max(1, (int) Math.floor(connectionsMax * bulkhead.getConnectionsShare()));
+			compartments.put(bulkhead, new Compartment(bulkhead, connectionPermits * REQUESTS_PER_CONNECTION,
+					connectionPermits, metricRegistry));
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the {@link Bulkhead}s should not be
+	 *         enforced, <code>true</code> if they should be
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @return the {@link Bulkhead} for the request being processed by the
+	 *         current thread, or {@link Optional#empty()} if there isn't one
+	 */
+	public Optional<Bulkhead> getCurrent() {
+		return Optional.ofNullable(CURRENT_BULKHEAD.get());
+	}
+
+	/**
+	 * Sets the current thread's {@link Bulkhead}, without acquiring or
+	 * releasing any permits. This is used to carry a request's
+	 * {@link Bulkhead} over to the thread that it's been handed off to, by
+	 * {@link AsyncRequestExecutor}.
+	 *
+	 * @param bulkhead
+	 *            the {@link Bulkhead} for the request being processed by the
+	 *            current thread, or {@link Optional#empty()} to clear it
+	 */
+	void setCurrent(Optional<Bulkhead> bulkhead) {
+		if (bulkhead.isPresent())
+			CURRENT_BULKHEAD.set(bulkhead.get());
+		else
+			CURRENT_BULKHEAD.remove();
+	}
+
+	/**
+	 * Acquires a request permit for the specified {@link Bulkhead}, and (if
+	 * successful) marks it as the current thread's {@link Bulkhead}. Each
+	 * successful call must be followed by a call to {@link #exit(Bulkhead)}.
+	 *
+	 * @param bulkhead
+	 *            the {@link Bulkhead} to enter
+	 * @return <code>true</code> if a permit was acquired, <code>false</code>
+	 *         if the request should be rejected
+	 */
+	public boolean enter(Bulkhead bulkhead) {
+		Compartment compartment = compartments.get(bulkhead);
+		if (!tryAcquire(compartment.requestPermits)) {
+			compartment.requestsRejected.mark();
+			return false;
+		}
+
+		CURRENT_BULKHEAD.set(bulkhead);
+		return true;
+	}
+
+	/**
+	 * Releases a request permit acquired via {@link #enter(Bulkhead)}, and
+	 * clears the current thread's {@link Bulkhead}.
+	 *
+	 * @param bulkhead
+	 *            the {@link Bulkhead} to exit
+	 */
+	public void exit(Bulkhead bulkhead) {
+		CURRENT_BULKHEAD.remove();
+		compartments.get(bulkhead).requestPermits.release();
+	}
+
+	/**
+	 * Acquires a database connection permit for the specified
+	 * {@link Bulkhead}. Each successful call must be followed by a call to
+	 * {@link #releaseConnection(Bulkhead)}.
+	 *
+	 * @param bulkhead
+	 *            the {@link Bulkhead} to acquire a connection permit for
+	 * @return <code>true</code> if a permit was acquired, <code>false</code>
+	 *         if not
+	 */
+	boolean acquireConnection(Bulkhead bulkhead) {
+		Compartment compartment = compartments.get(bulkhead);
+		if (!tryAcquire(compartment.connectionPermits)) {
+			compartment.connectionsRejected.mark();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Releases a database connection permit acquired via
+	 * {@link #acquireConnection(Bulkhead)}.
+	 *
+	 * @param bulkhead
+	 *            the {@link Bulkhead} to release a connection permit for
+	 */
+	void releaseConnection(Bulkhead bulkhead) {
+		compartments.get(bulkhead).connectionPermits.release();
+	}
+
+	/**
+	 * @param permits
+	 *            the {@link Semaphore} to acquire a permit from
+	 * @return <code>true</code> if a permit was acquired within the
+	 *         {@link #queueTimeoutMillis}, <code>false</code> if not
+	 */
+	private boolean tryAcquire(Semaphore permits) {
+		try {
+			return permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * The permits and metrics for a single {@link Bulkhead}.
+	 */
+	private static final class Compartment {
+		private final Semaphore requestPermits;
+		private final Semaphore connectionPermits;
+		private final Meter requestsRejected;
+		private final Meter connectionsRejected;
+
+		/**
+		 * Constructs a new {@link Compartment}.
+		 *
+		 * @param bulkhead
+		 *            the {@link Bulkhead} that this {@link Compartment} is for
+		 * @param requestPermits
+		 *            the number of requests that may be in flight at once
+		 * @param connectionPermits
+		 *            the number of database connections that may be held at
+		 *            once
+		 * @param metricRegistry
+		 *            the {@link MetricRegistry} for the application
+		 */
+		Compartment(Bulkhead bulkhead, int requestPermits, int connectionPermits, MetricRegistry metricRegistry) {
+			this.requestPermits = new Semaphore(requestPermits, true);
+			this.connectionPermits = new Semaphore(connectionPermits, true);
+
+			String metricPrefix = MetricRegistry.name(Bulkheads.class, bulkhead.getMetricName());
+			this.requestsRejected = metricRegistry.meter(MetricRegistry.name(metricPrefix, "requests", "rejected"));
+			this.connectionsRejected = metricRegistry
+					.meter(MetricRegistry.name(metricPrefix, "connections", "rejected"));
+			metricRegistry.register(MetricRegistry.name(metricPrefix, "requests", "available"),
+					(Gauge<Integer>) this.requestPermits::availablePermits);
+			metricRegistry.register(MetricRegistry.name(metricPrefix, "connections", "available"),
+					(Gauge<Integer>) this.connectionPermits::availablePermits);
+		}
+	}
+}
@@ -0,0 +1,289 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.hl7.fhir.dstu3.model.CapabilityStatement;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
+
+import ca.uhn.fhir.rest.api.RequestTypeEnum;
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.method.RequestDetails;
+import ca.uhn.fhir.rest.server.Constants;
+import ca.uhn.fhir.rest.server.EncodingEnum;
+import ca.uhn.fhir.rest.server.IServerConformanceProvider;
+import ca.uhn.fhir.rest.server.RestfulServer;
+import ca.uhn.fhir.rest.server.RestfulServerUtils;
+import ca.uhn.fhir.rest.server.RestfulServerUtils.ResponseEncoding;
+import ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter;
+
+/**
+ * <p>
+ * Serves the <code>GET [base]/metadata</code> endpoint from a pre-encoded copy
+ * of the server's {@link CapabilityStatement}, rather than having HAPI
+ * re-serialize it for every request. That endpoint gets hit constantly by
+ * health checkers, and the statement never changes once the server is up.
+ * </p>
+ * <p>
+ * The statement is generated (by the server's regular conformance provider)
+ * and encoded as compact XML and compact JSON on the first
+ * <code>/metadata</code> request for each server base URL, as its contents
+ * (<code>CapabilityStatement.implementation.url</code>) depend on the base URL
+ * that the client used, which can only be determined from a real request. At
+ * most {@link #MAX_CACHED_BASE_URLS} base URLs are cached, since they're
+ * derived from client-supplied headers; requests for any others are encoded
+ * afresh each time. Each encoding is served with its own strong
+ * <code>ETag</code>, and matching
+ * <code>If-None-Match</code> requests get a <code>304 Not Modified</code>.
+ * </p>
+ * <p>
+ * Requests that ask for anything unusual (pretty printing, the HTML view
+ * provided by the {@link ca.uhn.fhir.rest.server.interceptor.ResponseHighlighterInterceptor},
+ * <code>_summary</code>, <code>_elements</code>, etc.) are left for HAPI to
+ * handle as normal.
+ * </p>
+ */
+final class CapabilityStatementCacheInterceptor extends InterceptorAdapter {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CapabilityStatementCacheInterceptor.class);
+
+	/**
+	 * The maximum number of server base URLs to cache
+	 * {@link EncodedStatement}s for.
+	 */
+	static final int MAX_CACHED_BASE_URLS = 16;
+
+	private final RestfulServer server;
+
+	/**
+	 * The pre-encoded {@link CapabilityStatement}s, keyed by the server base
+	 * URL that they were generated for.
+	 */
+	private final ConcurrentMap<String, Map<EncodingEnum, EncodedStatement>> encodedStatements;
+
+	/**
+	 * Constructs a new {@link CapabilityStatementCacheInterceptor}.
+	 *
+	 * @param server
+	 *            the {@link RestfulServer} whose {@link CapabilityStatement}
+	 *            should be served
+	 */
+	CapabilityStatementCacheInterceptor(RestfulServer server) {
+		this.server = server;
+		this.encodedStatements = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * @see ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter#incomingRequestPostProcessed(ca.uhn.fhir.rest.method.RequestDetails,
+	 *      javax.servlet.http.HttpServletRequest,
+	 *      javax.servlet.http.HttpServletResponse)
+	 */
+	@Override
+	public boolean incomingRequestPostProcessed(RequestDetails requestDetails, HttpServletRequest request,
+			HttpServletResponse response) {
+		if (requestDetails.getRestOperationType() != RestOperationTypeEnum.METADATA)
+			return true;
+		if (!isCacheable(requestDetails, request))
+			return true;
+
+		ResponseEncoding responseEncoding = RestfulServerUtils.determineResponseEncodingWithDefault(requestDetails);
+		EncodedStatement encodedStatement = getEncodedStatements(request).get(responseEncoding.getEncoding());
+		if (encodedStatement == null)
+			return true;
+
+		server.addHeadersToResponse(response);
+		response.addHeader(Constants.HEADER_ETAG, encodedStatement.eTag);
+		response.addHeader("Vary", Constants.HEADER_ACCEPT);
+
+		if (encodedStatement.matches(request.getHeaders(Constants.HEADER_IF_NONE_MATCH))) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return false;
+		}
+
+		response.setStatus(HttpServletResponse.SC_OK);
+		response.setCharacterEncoding(Constants.CHARSET_NAME_UTF8);
+		response.setContentType(responseEncoding.getResourceContentType());
+		response.setContentLength(encodedStatement.bytes.length);
+		try {
+			OutputStream responseStream = response.getOutputStream();
+			responseStream.write(encodedStatement.bytes);
+			responseStream.flush();
+		} catch (IOException e) {
+			/*
+			 * Almost certainly just a client that went away, which there's
+			 * nothing to be done about.
+			 */
+			LOGGER.debug("Unable to write cached CapabilityStatement.", e);
+		}
+
+		return false;
+	}
+
+	/**
+	 * @param requestDetails
+	 *            the {@link RequestDetails} for the <code>/metadata</code>
+	 *            request being processed
+	 * @param request
+	 *            the {@link HttpServletRequest} being processed
+	 * @return <code>true</code> if the specified request can be answered with
+	 *         one of the pre-encoded {@link EncodedStatement}s,
+	 *         <code>false</code> if it needs HAPI's regular handling
+	 */
+	private boolean isCacheable(RequestDetails requestDetails, HttpServletRequest request) {
+		if (requestDetails.getRequestType() != RequestTypeEnum.GET)
+			return false;
+
+		// Anything other than `_format` might change the response's contents.
+		for (Map.Entry<String, String[]> parameter : requestDetails.getParameters().entrySet()) {
+			if (!Constants.PARAM_FORMAT.equals(parameter.getKey()))
+				return false;
+			for (String formatValue : parameter.getValue())
+				if (formatValue.contains("html"))
+					return false;
+		}
+
+		if (RestfulServerUtils.prettyPrintResponse(server, requestDetails))
+			return false;
+
+		// Browsers get the HTML view from ResponseHighlighterInterceptor.
+		Set<String> acceptValues = RestfulServerUtils.parseAcceptHeaderAndReturnHighestRankedOptions(request);
+		if (acceptValues.contains(Constants.CT_HTML))
+			return false;
+
+		return true;
+	}
+
+	/**
+	 * @param request
+	 *            the {@link HttpServletRequest} being processed, which will be
+	 *            used to generate the {@link CapabilityStatement} for its
+	 *            server base URL, if that hasn't already been done
+	 * @return the pre-encoded {@link EncodedStatement}s for the request's
+	 *         server base URL, keyed by their {@link EncodingEnum}
+	 */
+	Map<EncodingEnum, EncodedStatement> getEncodedStatements(HttpServletRequest request) {
+		String serverBase = server.getServerBaseForRequest(request);
+		Map<EncodingEnum, EncodedStatement> statements = encodedStatements.get(serverBase);
+		if (statements != null)
+			return statements;
+
+		statements = encodeStatements(request);
+		if (encodedStatements.size() < MAX_CACHED_BASE_URLS) {
+			Map<EncodingEnum, EncodedStatement> existingStatements = encodedStatements.putIfAbsent(serverBase,
+					statements);
+			if (existingStatements != null)
+				return existingStatements;
+			LOGGER.info("Cached CapabilityStatement for '{}': XML is {} bytes, JSON is {} bytes.", serverBase,
+					statements.get(EncodingEnum.XML).bytes.length, statements.get(EncodingEnum.JSON).bytes.length);
+		}
+		return statements;
+	}
+
+	/**
+	 * @param request
+	 *            the {@link HttpServletRequest} to generate the
+	 *            {@link CapabilityStatement} for
+	 * @return the server's {@link CapabilityStatement}, encoded as compact XML
+	 *         and compact JSON
+	 */
+	private Map<EncodingEnum, EncodedStatement> encodeStatements(HttpServletRequest request) {
+		@SuppressWarnings("unchecked")
+		IServerConformanceProvider<? extends IBaseResource> conformanceProvider = (IServerConformanceProvider<? extends IBaseResource>) server
+				.getServerConformanceProvider();
+		IBaseResource capabilityStatement = conformanceProvider.getServerConformance(request);
+
+		Map<EncodingEnum, EncodedStatement> statements = new EnumMap<>(EncodingEnum.class);
+		for (EncodingEnum encoding : new EncodingEnum[] { EncodingEnum.XML, EncodingEnum.JSON }) {
+			String encodedText = encoding.newParser(server.getFhirContext()).setPrettyPrint(false)
+					.encodeResourceToString(capabilityStatement);
+			statements.put(encoding, new EncodedStatement(encodedText.getBytes(StandardCharsets.UTF_8)));
+		}
+		return Collections.unmodifiableMap(statements);
+	}
+
+	/**
+	 * An immutable, pre-encoded copy of the server's
+	 * {@link CapabilityStatement}, along with its strong <code>ETag</code>.
+	 */
+	static final class EncodedStatement {
+		private final byte[] bytes;
+		private final String eTag;
+
+		/**
+		 * Constructs a new {@link EncodedStatement}.
+		 *
+		 * @param bytes
+		 *            the UTF-8 encoded {@link CapabilityStatement}
+		 */
+		EncodedStatement(byte[] bytes) {
+			this.bytes = bytes;
+			this.eTag = '"' + computeDigest(bytes) + '"';
+		}
+
+		/**
+		 * @return the UTF-8 encoded {@link CapabilityStatement}
+		 */
+		byte[] getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @param ifNoneMatchHeaders
+		 *            the request's <code>If-None-Match</code> header values
+		 * @return <code>true</code> if any of those values match this
+		 *         {@link EncodedStatement}'s <code>ETag</code> (using the weak
+		 *         comparison that RFC 7232 specifies for that header),
+		 *         <code>false</code> if not
+		 */
+		boolean matches(Enumeration<String> ifNoneMatchHeaders) {
+			if (ifNoneMatchHeaders == null)
+				return false;
+
+			while (ifNoneMatchHeaders.hasMoreElements()) {
+				for (String candidate : ifNoneMatchHeaders.nextElement().split(",")) {
+					candidate = candidate.trim();
+					if (candidate.startsWith("W/"))
+						candidate = candidate.substring(2);
+					if (candidate.equals("*") || candidate.equals(eTag))
+						return true;
+				}
+			}
+
+			return false;
+		}
+
+		/**
+		 * @param bytes
+		 *            the bytes to compute a digest of
+		 * @return a hex-encoded SHA-256 digest of the specified bytes
+		 */
+		private static String computeDigest(byte[] bytes) {
+			try {
+				byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+				StringBuilder digestHex = new StringBuilder(digest.length * 2);
+				for (byte digestByte : digest)
+					digestHex.append(String.format("%02x", digestByte));
+				return digestHex.toString();
+			} catch (NoSuchAlgorithmException e) {
+				// Every JVM is required to support SHA-256.
+				throw new BadCodeMonkeyException(e);
+			}
+		}
+	}
+}
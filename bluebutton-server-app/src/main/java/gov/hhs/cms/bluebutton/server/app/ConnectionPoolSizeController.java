@@ -0,0 +1,345 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SlidingTimeWindowReservoir;
+import com.codahale.metrics.Timer;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.dropwizard.CodahaleMetricsTrackerFactory;
+
+/**
+ * <p>
+ * Periodically resizes the application's {@link HikariDataSource} connection
+ * pools, within configured bounds, based on how they're actually being used.
+ * A single fixed size is never right for every deployment: it's too many
+ * connections for a small container sharing a database with others, and too
+ * few for a big database host.
+ * </p>
+ * <p>
+ * Each adjustment is driven by the metrics that Hikari itself records in the
+ * application's {@link MetricRegistry}:
+ * </p>
+ * <ul>
+ * <li>The baseline target size comes from Little's law: the rate at which
+ * connections were acquired since the last adjustment (over the actual time
+ * elapsed, as scheduling delays can stretch the interval), times the average
+ * length of time that they were held for, plus some headroom.</li>
+ * <li>If threads are queued up waiting for a connection and the 95th
+ * percentile connection acquire time over the last interval exceeds the
+ * configured target, the pool is grown right away, by at least the number of
+ * waiting threads.</li>
+ * <li>Otherwise, the pool is shrunk gradually towards the baseline, so that
+ * a brief lull doesn't throw away connections that will soon be needed again.
+ * (Hikari retires the idle connections above the minimum on its own.)</li>
+ * </ul>
+ * <p>
+ * Hikari's own metrics use Dropwizard's default, exponentially decaying
+ * reservoirs, which remember minutes-old outliers and so would keep a pool
+ * growing long after the load that caused them has passed. Pools to be resized
+ * must therefore record their metrics via {@link #createMetricsTrackerFactory(MetricRegistry)},
+ * which swaps in sliding window reservoirs covering just the last
+ * {@link #INTERVAL_SECONDS}.
+ * </p>
+ * <p>
+ * Each pool's current maximum size, its Little's law estimate, and the number
+ * of times that it's been grown or shrunk are all published as metrics.
+ * </p>
+ */
+public final class ConnectionPoolSizeController implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPoolSizeController.class);
+
+	/**
+	 * How often (in seconds) each pool will be resized.
+	 */
+	static final long INTERVAL_SECONDS = 5;
+
+	/**
+	 * The multiplier applied to the Little's law estimate, so that the pool
+	 * isn't sized for exactly the average load.
+	 */
+	private static final double HEADROOM = 1.25;
+
+	/**
+	 * The fraction of the difference between the current size and the target
+	 * size that will be removed each time a pool is shrunk.
+	 */
+	private static final int SHRINK_DIVISOR = 4;
+
+	private final int connectionsMin;
+	private final int connectionsMax;
+	private final long waitTargetNanos;
+	private final MetricRegistry metricRegistry;
+	private final Clock clock;
+	private final List<PoolState> pools;
+	private final ScheduledExecutorService executor;
+
+	/**
+	 * Constructs a new {@link ConnectionPoolSizeController}, which will start
+	 * resizing the specified pools immediately.
+	 *
+	 * @param dataSources
+	 *            the {@link HikariDataSource}s to resize, which may be empty
+	 *            (in which case this {@link ConnectionPoolSizeController} will
+	 *            do nothing)
+	 * @param connectionsMin
+	 *            the minimum size that any pool will be shrunk to
+	 * @param connectionsMax
+	 *            the maximum size that any pool will be grown to
+	 * @param waitTargetMillis
+	 *            the 95th percentile connection acquire time (in milliseconds)
+	 *            above which a pool with waiting threads will be grown
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application, which the
+	 *            {@link HikariDataSource}s must be recording their metrics to
+	 */
+	public ConnectionPoolSizeController(List<HikariDataSource> dataSources, int connectionsMin, int connectionsMax,
+			long waitTargetMillis, MetricRegistry metricRegistry) {
+		this(dataSources, connectionsMin, connectionsMax, waitTargetMillis, metricRegistry, Clock.defaultClock());
+	}
+
+	/**
+	 * Constructs a new {@link ConnectionPoolSizeController}, which will start
+	 * resizing the specified pools immediately.
+	 *
+	 * @param dataSources
+	 *            the {@link HikariDataSource}s to resize
+	 * @param connectionsMin
+	 *            the minimum size that any pool will be shrunk to
+	 * @param connectionsMax
+	 *            the maximum size that any pool will be grown to
+	 * @param waitTargetMillis
+	 *            the 95th percentile connection acquire time (in milliseconds)
+	 *            above which a pool with waiting threads will be grown
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param clock
+	 *            the {@link Clock} to measure the time between adjustments
+	 *            with
+	 */
+	ConnectionPoolSizeController(List<HikariDataSource> dataSources, int connectionsMin, int connectionsMax,
+			long waitTargetMillis, MetricRegistry metricRegistry, Clock clock) {
+		if (connectionsMin < 1)
+			throw new IllegalArgumentException();
+		if (connectionsMax < connectionsMin)
+			throw new IllegalArgumentException();
+		if (waitTargetMillis < 0)
+			throw new IllegalArgumentException();
+
+		this.connectionsMin = connectionsMin;
+		this.connectionsMax = connectionsMax;
+		this.waitTargetNanos = TimeUnit.MILLISECONDS.toNanos(waitTargetMillis);
+		this.metricRegistry = metricRegistry;
+		this.clock = clock;
+
+		List<PoolState> pools = new ArrayList<>(dataSources.size());
+		for (HikariDataSource dataSource : dataSources) {
+			// Let Hikari retire idle connections above the minimum.
+			dataSource.getHikariConfigMXBean().setMinimumIdle(connectionsMin);
+			pools.add(new PoolState(dataSource));
+		}
+		this.pools = Collections.unmodifiableList(pools);
+
+		if (this.pools.isEmpty()) {
+			this.executor = null;
+		} else {
+			this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, ConnectionPoolSizeController.class.getSimpleName());
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.executor.scheduleWithFixedDelay(this::adjustPools, INTERVAL_SECONDS, INTERVAL_SECONDS,
+					TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return a {@link MetricsTrackerFactory} for
+	 *         {@link HikariDataSource#setMetricsTrackerFactory(MetricsTrackerFactory)}
+	 *         that records the usual Hikari metrics to the specified
+	 *         {@link MetricRegistry}, but with sliding window reservoirs for the
+	 *         connection wait and usage times that
+	 *         {@link ConnectionPoolSizeController} relies on
+	 */
+	public static MetricsTrackerFactory createMetricsTrackerFactory(MetricRegistry metricRegistry) {
+		return createMetricsTrackerFactory(metricRegistry, Clock.defaultClock());
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @param clock
+	 *            the {@link Clock} for the sliding window reservoirs to use
+	 * @return a {@link MetricsTrackerFactory}, as described for
+	 *         {@link #createMetricsTrackerFactory(MetricRegistry)}
+	 */
+	static MetricsTrackerFactory createMetricsTrackerFactory(MetricRegistry metricRegistry, Clock clock) {
+		MetricsTrackerFactory codahaleFactory = new CodahaleMetricsTrackerFactory(metricRegistry);
+		return (poolName, poolStats) -> {
+			/*
+			 * Hikari's tracker gets its timer and histogram from the registry
+			 * by name, so registering ours first means it'll use them.
+			 */
+			metricRegistry.register(MetricRegistry.name(poolName, "pool", "Wait"),
+					new Timer(new SlidingTimeWindowReservoir(INTERVAL_SECONDS, TimeUnit.SECONDS, clock), clock));
+			metricRegistry.register(MetricRegistry.name(poolName, "pool", "Usage"),
+					new Histogram(new SlidingTimeWindowReservoir(INTERVAL_SECONDS, TimeUnit.SECONDS, clock)));
+			return codahaleFactory.create(poolName, poolStats);
+		};
+	}
+
+	/**
+	 * Resizes each of the pools, as needed. Failures are logged, but otherwise
+	 * ignored, as they'd otherwise stop all future adjustments.
+	 */
+	void adjustPools() {
+		for (PoolState pool : pools) {
+			try {
+				adjustPool(pool);
+			} catch (RuntimeException e) {
+				LOGGER.warn(String.format("Unable to resize connection pool '%s'.", pool.dataSource.getPoolName()),
+						e);
+			}
+		}
+	}
+
+	/**
+	 * Resizes the specified pool, if needed.
+	 *
+	 * @param pool
+	 *            the {@link PoolState} of the pool to resize
+	 */
+	private void adjustPool(PoolState pool) {
+		// Hikari doesn't create the pool (or name it) until it's first used.
+		HikariPoolMXBean poolMXBean = pool.dataSource.getHikariPoolMXBean();
+		if (poolMXBean == null)
+			return;
+
+		String poolName = pool.dataSource.getPoolName();
+		Timer waitTimer = metricRegistry.getTimers().get(MetricRegistry.name(poolName, "pool", "Wait"));
+		Histogram usageHistogram = metricRegistry.getHistograms().get(MetricRegistry.name(poolName, "pool", "Usage"));
+		if (waitTimer == null || usageHistogram == null)
+			return;
+
+		// The first time through, just establish a baseline.
+		long nowNanos = clock.getTick();
+		if (!pool.metricsRegistered) {
+			registerMetrics(pool);
+			pool.lastAcquireCount = waitTimer.getCount();
+			pool.lastAdjustNanos = nowNanos;
+			return;
+		}
+
+		// Little's law: connections in use = acquire rate * hold time.
+		long acquireCount = waitTimer.getCount();
+		double elapsedSeconds = Math.max(1L, nowNanos - pool.lastAdjustNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+		double acquireRate = (acquireCount - pool.lastAcquireCount) / elapsedSeconds;
+		pool.lastAcquireCount = acquireCount;
+		pool.lastAdjustNanos = nowNanos;
+		double holdSeconds = usageHistogram.getSnapshot().getMean() / TimeUnit.SECONDS.toMillis(1);
+		pool.littlesLawEstimate = (int) Math.ceil(acquireRate * holdSeconds * HEADROOM);
+
+		HikariConfigMXBean configMXBean = pool.dataSource.getHikariConfigMXBean();
+		int currentSize = configMXBean.getMaximumPoolSize();
+		int threadsWaiting = poolMXBean.getThreadsAwaitingConnection();
+		double waitNanos = waitTimer.getSnapshot().get95thPercentile();
+
+		int targetSize;
+		if (threadsWaiting > 0 && waitNanos > waitTargetNanos)
+			targetSize = Math.max(pool.littlesLawEstimate, currentSize + threadsWaiting);
+		else if (threadsWaiting == 0 && pool.littlesLawEstimate < currentSize)
+			targetSize = currentSize - Math.max(1, (currentSize - pool.littlesLawEstimate) / SHRINK_DIVISOR);
+		else
+			targetSize = currentSize;
+		targetSize = Math.max(connectionsMin, Math.min(connectionsMax, targetSize));
+
+		if (targetSize == currentSize)
+			return;
+		configMXBean.setMaximumPoolSize(targetSize);
+		if (targetSize > currentSize)
+			pool.increases.mark();
+		else
+			pool.decreases.mark();
+		LOGGER.debug(
+				"Resized connection pool '{}' from {} to {} (threads waiting: {}, p95 wait: {} ms,"
+						+ " Little's law estimate: {}).",
+				poolName, currentSize, targetSize, threadsWaiting,
+				TimeUnit.NANOSECONDS.toMillis((long) waitNanos), pool.littlesLawEstimate);
+	}
+
+	/**
+	 * Registers the metrics for the specified pool, which can only be done
+	 * once Hikari has named it.
+	 *
+	 * @param pool
+	 *            the {@link PoolState} to register the metrics of
+	 */
+	private void registerMetrics(PoolState pool) {
+		String poolName = pool.dataSource.getPoolName();
+		metricRegistry.register(MetricRegistry.name(getClass(), poolName, "maximumPoolSize"),
+				(Gauge<Integer>) () -> pool.dataSource.getMaximumPoolSize());
+		metricRegistry.register(MetricRegistry.name(getClass(), poolName, "littlesLawEstimate"),
+				(Gauge<Integer>) () -> pool.littlesLawEstimate);
+		pool.increases = metricRegistry.meter(MetricRegistry.name(getClass(), poolName, "increases"));
+		pool.decreases = metricRegistry.meter(MetricRegistry.name(getClass(), poolName, "decreases"));
+		pool.metricsRegistered = true;
+	}
+
+	/**
+	 * Stops resizing the pools.
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		if (executor != null)
+			executor.shutdownNow();
+	}
+
+	/**
+	 * Tracks the state of one of the connection pools being resized. Only
+	 * accessed from the {@link ConnectionPoolSizeController#executor} thread,
+	 * other than the metrics.
+	 */
+	private static final class PoolState {
+		private final HikariDataSource dataSource;
+		private boolean metricsRegistered;
+		private long lastAcquireCount;
+		private long lastAdjustNanos;
+		private volatile int littlesLawEstimate;
+		private Meter increases;
+		private Meter decreases;
+
+		/**
+		 * Constructs a new {@link PoolState}.
+		 *
+		 * @param dataSource
+		 *            the {@link HikariDataSource} to be resized
+		 */
+		PoolState(HikariDataSource dataSource) {
+			this.dataSource = dataSource;
+			this.metricsRegistered = false;
+			this.lastAcquireCount = 0L;
+			this.lastAdjustNanos = 0L;
+			this.littlesLawEstimate = 0;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.sql.SQLTransientConnectionException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import ca.uhn.fhir.rest.method.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import ca.uhn.fhir.rest.server.exceptions.UnclassifiedServerFailureException;
+import ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter;
+
+/**
+ * Gives requests that failed because no database connection was available in
+ * time (because their {@link Bulkhead}'s share of the connections was in use,
+ * as enforced by {@link BulkheadDataSource}, or because the connection pool
+ * itself was exhausted) a clean <code>503 Service Unavailable</code> with a
+ * <code>Retry-After</code> header, just as {@link BulkheadFilter} does for
+ * requests it rejects up front. Otherwise, HAPI would report the underlying
+ * JPA/JDBC exception as a <code>500 Internal Server Error</code>, which
+ * clients don't know to retry.
+ */
+public final class ConnectionUnavailableInterceptor extends InterceptorAdapter {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionUnavailableInterceptor.class);
+
+	private final Meter rejected;
+
+	/**
+	 * Constructs a new {@link ConnectionUnavailableInterceptor}.
+	 *
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 */
+	public ConnectionUnavailableInterceptor(MetricRegistry metricRegistry) {
+		this.rejected = metricRegistry.meter(MetricRegistry.name(getClass(), "rejected"));
+	}
+
+	/**
+	 * @see ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter#preProcessOutgoingException(ca.uhn.fhir.rest.method.RequestDetails,
+	 *      java.lang.Throwable, javax.servlet.http.HttpServletRequest)
+	 */
+	@Override
+	public BaseServerResponseException preProcessOutgoingException(RequestDetails requestDetails,
+			Throwable exception, HttpServletRequest servletRequest) {
+		if (!isConnectionUnavailable(exception))
+			return null;
+
+		rejected.mark();
+		LOGGER.debug("Request '{}' rejected: no database connection available.", servletRequest.getRequestURI());
+
+		BaseServerResponseException unavailable = new UnclassifiedServerFailureException(
+				HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The server is overloaded. Please try again later.");
+		unavailable.addResponseHeader(LoadSheddingFilter.HEADER_RETRY_AFTER,
+				String.valueOf(LoadSheddingFilter.RETRY_AFTER_SECONDS));
+		return unavailable;
+	}
+
+	/**
+	 * @param exception
+	 *            the {@link Throwable} that a request failed with
+	 * @return <code>true</code> if the specified {@link Throwable} (or any of
+	 *         its causes) indicates that no database connection was available
+	 *         in time, <code>false</code> if not
+	 */
+	static boolean isConnectionUnavailable(Throwable exception) {
+		for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SQLTransientConnectionException)
+				return true;
+		}
+		return false;
+	}
+}
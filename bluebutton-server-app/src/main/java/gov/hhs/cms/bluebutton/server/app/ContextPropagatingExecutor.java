@@ -0,0 +1,74 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+import org.slf4j.MDC;
+
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.QueryDeadline;
+
+/**
+ * An {@link Executor} that runs each task with the same per-request state as
+ * the thread that submitted it: its {@link Bulkhead}, its
+ * {@link QueryDeadline}, its {@link ReplicaPin}, and its logging {@link MDC}
+ * context. This allows the work for a single request to be split across
+ * several threads, without its database connections escaping its
+ * {@link Bulkhead} or its pinned replica, or its queries escaping its
+ * deadline.
+ */
+final class ContextPropagatingExecutor implements Executor, Closeable {
+	private final ExecutorService delegate;
+	private final Bulkheads bulkheads;
+
+	/**
+	 * Constructs a new {@link ContextPropagatingExecutor}.
+	 *
+	 * @param delegate
+	 *            the {@link ExecutorService} to actually run the tasks
+	 * @param bulkheads
+	 *            the {@link Bulkheads} for the application
+	 */
+	ContextPropagatingExecutor(ExecutorService delegate, Bulkheads bulkheads) {
+		this.delegate = delegate;
+		this.bulkheads = bulkheads;
+	}
+
+	/**
+	 * @see java.util.concurrent.Executor#execute(java.lang.Runnable)
+	 */
+	@Override
+	public void execute(Runnable task) {
+		Optional<Bulkhead> bulkhead = bulkheads.getCurrent();
+		Optional<QueryDeadline> deadline = QueryDeadline.getCurrent();
+		Optional<ReplicaPin> replicaPin = ReplicaPin.getCurrent();
+		Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+
+		delegate.execute(() -> {
+			bulkheads.setCurrent(bulkhead);
+			QueryDeadline.setCurrent(deadline);
+			ReplicaPin.setCurrent(replicaPin);
+			if (mdcContext != null)
+				MDC.setContextMap(mdcContext);
+
+			try {
+				task.run();
+			} finally {
+				bulkheads.setCurrent(Optional.empty());
+				QueryDeadline.clear();
+				ReplicaPin.clear();
+				MDC.clear();
+			}
+		});
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		delegate.shutdown();
+	}
+}
@@ -0,0 +1,210 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.SecureRequestCustomizer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletContextHandler.ServletContainerInitializerCaller;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.context.ContextLoader;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.servlet.InstrumentedFilter;
+
+import ch.qos.logback.classic.helpers.MDCInsertingServletFilter;
+
+/**
+ * <p>
+ * An alternative to deploying the application's WAR into Wildfly/JBoss: runs
+ * the {@link BlueButtonServerInitializer} (and thus the
+ * {@link BlueButtonStu3Server}) inside an embedded Jetty servlet container,
+ * which is ready to serve requests in a small fraction of the time that a full
+ * Wildfly distribution takes to unpack, launch, and configure.
+ * </p>
+ * <p>
+ * The server will only accept HTTPS connections, and requires client
+ * certificate authentication, just like the Wildfly configuration in
+ * <code>server-config.sh</code>. It's configured via the following Java system
+ * properties, in addition to the application properties documented in
+ * {@link SpringConfiguration}:
+ * </p>
+ * <ul>
+ * <li>{@link #PROP_PORT}: the HTTPS port to listen on (default:
+ * <code>9094</code>)</li>
+ * <li>{@link #PROP_KEYSTORE}: the path to the server's key store
+ * (required)</li>
+ * <li>{@link #PROP_KEYSTORE_PASSWORD}: the password for that key store
+ * (default: <code>changeit</code>)</li>
+ * <li>{@link #PROP_TRUSTSTORE}: the path to the trust store containing the
+ * certificates of the clients that are allowed to connect (required)</li>
+ * <li>{@link #PROP_TRUSTSTORE_PASSWORD}: the password for that trust store
+ * (default: <code>changeit</code>)</li>
+ * </ul>
+ * <p>
+ * See <code>server-start-embedded.sh</code> for a script that launches this.
+ * </p>
+ */
+public final class EmbeddedServerLauncher {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EmbeddedServerLauncher.class);
+
+	public static final String PROP_PORT = "bbfhir.embedded.port";
+	public static final String PROP_KEYSTORE = "bbfhir.embedded.keystore";
+	public static final String PROP_KEYSTORE_PASSWORD = "bbfhir.embedded.keystore.password";
+	public static final String PROP_TRUSTSTORE = "bbfhir.embedded.truststore";
+	public static final String PROP_TRUSTSTORE_PASSWORD = "bbfhir.embedded.truststore.password";
+
+	/**
+	 * This message is logged once the server is ready to serve requests.
+	 * <code>server-start-embedded.sh</code> watches for it.
+	 */
+	static final String MESSAGE_STARTED = "Embedded Blue Button API backend server started";
+
+	/**
+	 * The amount of time that in-flight requests will be given to complete
+	 * when the server is shut down.
+	 */
+	private static final long STOP_TIMEOUT_MILLISECONDS = TimeUnit.SECONDS.toMillis(30);
+
+	/**
+	 * The application entry point.
+	 *
+	 * @param args
+	 *            (not used)
+	 * @throws Exception
+	 *             Any unhandled {@link Exception}s will cause the application
+	 *             to exit with a non-zero status.
+	 */
+	public static void main(String[] args) throws Exception {
+		long startNanos = System.nanoTime();
+
+		Server server = createServer();
+		server.start();
+		if (!server.getChildHandlerByClass(ServletContextHandler.class).isAvailable()) {
+			LOGGER.error("Embedded server failed to start.");
+			server.stop();
+			System.exit(1);
+		}
+
+		long startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+		long jvmUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+		MetricRegistry metricRegistry = ContextLoader.getCurrentWebApplicationContext().getBean(MetricRegistry.class);
+		metricRegistry.register(MetricRegistry.name(EmbeddedServerLauncher.class, "startup", "millis"),
+				(Gauge<Long>) () -> startupMillis);
+		LOGGER.info("{} in {} ms (JVM uptime: {} ms).", MESSAGE_STARTED, startupMillis, jvmUptimeMillis);
+
+		server.join();
+	}
+
+	/**
+	 * @return a new (unstarted) Jetty {@link Server} that will host the
+	 *         application
+	 */
+	static Server createServer() {
+		Server server = new Server();
+
+		// Configure the HTTPS connector, which requires client auth.
+		SslContextFactory sslContextFactory = new SslContextFactory();
+		sslContextFactory.setKeyStorePath(getRequiredProperty(PROP_KEYSTORE));
+		sslContextFactory.setKeyStorePassword(System.getProperty(PROP_KEYSTORE_PASSWORD, "changeit"));
+		sslContextFactory.setKeyManagerPassword(System.getProperty(PROP_KEYSTORE_PASSWORD, "changeit"));
+		sslContextFactory.setTrustStorePath(getRequiredProperty(PROP_TRUSTSTORE));
+		sslContextFactory.setTrustStorePassword(System.getProperty(PROP_TRUSTSTORE_PASSWORD, "changeit"));
+		sslContextFactory.setNeedClientAuth(true);
+
+		HttpConfiguration httpsConfig = new HttpConfiguration();
+		httpsConfig.setSendServerVersion(false);
+		httpsConfig.addCustomizer(new SecureRequestCustomizer());
+
+		ServerConnector httpsConnector = new ServerConnector(server,
+				new SslConnectionFactory(sslContextFactory, "http/1.1"), new HttpConnectionFactory(httpsConfig));
+		httpsConnector.setPort(Integer.parseInt(System.getProperty(PROP_PORT, "9094")));
+		server.setConnectors(new Connector[] { httpsConnector });
+
+		/*
+		 * Configure the application's context. The filters here mirror those in
+		 * `web.xml`, which only gets used when deployed as a WAR.
+		 */
+		ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+		context.setContextPath("/");
+		context.addFilter(MDCInsertingServletFilter.class, "/*", EnumSet.of(DispatcherType.REQUEST))
+				.setAsyncSupported(true);
+		context.addFilter(InstrumentedFilter.class, "/*", EnumSet.of(DispatcherType.REQUEST)).setAsyncSupported(true);
+		context.addBean(new BlueButtonInitializerCaller(context), true);
+		server.setHandler(context);
+
+		server.setStopAtShutdown(true);
+		server.setStopTimeout(STOP_TIMEOUT_MILLISECONDS);
+
+		return server;
+	}
+
+	/**
+	 * @param propertyName
+	 *            the name of the Java system property to get the value of
+	 * @return the value of the specified Java system property
+	 * @throws IllegalStateException
+	 *             An {@link IllegalStateException} will be thrown if the
+	 *             specified property isn't set.
+	 */
+	private static String getRequiredProperty(String propertyName) {
+		String value = System.getProperty(propertyName);
+		if (value == null || value.trim().isEmpty())
+			throw new IllegalStateException(
+					String.format("The '%s' Java system property is required, but wasn't set.", propertyName));
+		return value;
+	}
+
+	/**
+	 * Runs the {@link BlueButtonServerInitializer} as the
+	 * {@link ServletContextHandler} starts, just as a Servlet 3.0 container's
+	 * <code>ServletContainerInitializer</code> scanning would when deployed as a
+	 * WAR.
+	 */
+	private static final class BlueButtonInitializerCaller extends AbstractLifeCycle
+			implements ServletContainerInitializerCaller {
+		private final ServletContextHandler context;
+
+		/**
+		 * Constructs a new {@link BlueButtonInitializerCaller}.
+		 *
+		 * @param context
+		 *            the {@link ServletContextHandler} to initialize
+		 */
+		BlueButtonInitializerCaller(ServletContextHandler context) {
+			this.context = context;
+		}
+
+		/**
+		 * @see org.eclipse.jetty.util.component.AbstractLifeCycle#doStart()
+		 */
+		@Override
+		protected void doStart() throws ServletException {
+			/*
+			 * Initializers are allowed to register ServletContextListeners
+			 * (which BlueButtonServerInitializer does, for Spring), but Jetty
+			 * won't allow that unless told to.
+			 */
+			context.getServletContext().setExtendedListenerTypes(true);
+			try {
+				new BlueButtonServerInitializer().onStartup(context.getServletContext());
+			} finally {
+				context.getServletContext().setExtendedListenerTypes(false);
+			}
+		}
+	}
+}
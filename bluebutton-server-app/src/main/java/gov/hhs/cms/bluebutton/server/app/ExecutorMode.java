@@ -0,0 +1,123 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
+
+/**
+ * Enumerates the kinds of threads that the application's request and query
+ * work may be run on.
+ */
+public enum ExecutorMode {
+	/**
+	 * Regular (platform) threads, from bounded pools: dispatched requests are
+	 * handled by a fixed number of worker threads, and each request's
+	 * per-claim-type queries are run one after the other.
+	 */
+	PLATFORM,
+
+	/**
+	 * Virtual threads, one per task: dispatched requests each get their own
+	 * thread, and each request's per-claim-type queries are all run at once.
+	 * Virtual threads are cheap to block, so the database connection pool
+	 * becomes the limit on concurrency. Requires a JVM that supports virtual
+	 * threads (Java 21+).
+	 */
+	VIRTUAL;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorMode.class);
+
+	/**
+	 * The name of the {@link Executors} factory method for virtual threads,
+	 * which has to be called reflectively, as this application is still built
+	 * for Java 8.
+	 */
+	private static final String METHOD_NEW_VIRTUAL_THREAD_EXECUTOR = "newVirtualThreadPerTaskExecutor";
+
+	/**
+	 * @param modeText
+	 *            the configured {@link ExecutorMode} name (case-insensitive)
+	 * @return the matching {@link ExecutorMode}, or {@link #PLATFORM} if the
+	 *         text doesn't match or if {@link #VIRTUAL} was requested but
+	 *         isn't supported by the current JVM
+	 */
+	static ExecutorMode resolve(String modeText) {
+		if (!VIRTUAL.name().equalsIgnoreCase(modeText.trim()))
+			return PLATFORM;
+		if (!getVirtualThreadExecutorFactory().isPresent()) {
+			LOGGER.warn("Virtual threads aren't supported by this JVM ({}). Falling back to platform threads.",
+					System.getProperty("java.version"));
+			return PLATFORM;
+		}
+		return VIRTUAL;
+	}
+
+	/**
+	 * <p>
+	 * Resolves whether one of the application's admission controls (load
+	 * shedding or the bulkheads) should actually be enabled in this mode.
+	 * </p>
+	 * <p>
+	 * In {@link #VIRTUAL} mode, they're always disabled: their limits are
+	 * sized for a fixed pool of platform threads, and each
+	 * <code>ExplanationOfBenefit</code> search would need a bulkhead
+	 * connection permit for every one of its (concurrent) per-claim-type
+	 * queries within the short queue timeout, so they'd reject requests that
+	 * the database could serve just fine. The connection pool's own limit
+	 * bounds concurrency instead.
+	 * </p>
+	 *
+	 * @param propertyName
+	 *            the name of the property that enables the admission control,
+	 *            for logging
+	 * @param enabled
+	 *            whether or not the admission control was configured to be
+	 *            enabled
+	 * @return <code>enabled</code>, except in {@link #VIRTUAL} mode, where
+	 *         it's always <code>false</code>
+	 */
+	boolean resolveAdmissionControl(String propertyName, boolean enabled) {
+		if (this == VIRTUAL && enabled) {
+			LOGGER.warn("Ignoring '{}', as it isn't supported in {} executor mode.", propertyName, name());
+			return false;
+		}
+		return enabled;
+	}
+
+	/**
+	 * @return a new {@link ExecutorService} that runs each task on its own
+	 *         virtual thread
+	 * @throws IllegalStateException
+	 *             An {@link IllegalStateException} will be thrown if the
+	 *             current JVM doesn't support virtual threads.
+	 */
+	static ExecutorService newVirtualThreadExecutor() {
+		Method factoryMethod = getVirtualThreadExecutorFactory()
+				.orElseThrow(() -> new IllegalStateException("Virtual threads aren't supported by this JVM."));
+		try {
+			return (ExecutorService) factoryMethod.invoke(null);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new BadCodeMonkeyException(e);
+		}
+	}
+
+	/**
+	 * @return the {@link Executors} factory {@link Method} for virtual thread
+	 *         {@link ExecutorService}s, or {@link Optional#empty()} if the
+	 *         current JVM doesn't support virtual threads
+	 */
+	private static Optional<Method> getVirtualThreadExecutorFactory() {
+		try {
+			return Optional.of(Executors.class.getMethod(METHOD_NEW_VIRTUAL_THREAD_EXECUTOR));
+		} catch (NoSuchMethodException e) {
+			return Optional.empty();
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * <p>
+ * A {@link Filter} that provides admission control for the application: each
+ * request must get a permit from an {@link AdaptiveConcurrencyLimiter} before
+ * it's processed. Requests that can't get one within a short queue timeout
+ * are rejected with a <code>503 Service Unavailable</code> and a
+ * <code>Retry-After</code> header, rather than being allowed to pile onto
+ * the database connection pool and slow down every other request.
+ * </p>
+ * <p>
+ * {@link ExplanationOfBenefit} requests are far more expensive than anything
+ * else this application serves, so they're given their own separate
+ * {@link AdaptiveConcurrencyLimiter}, with its own maximum. That way, a spike
+ * in them only sheds other {@link ExplanationOfBenefit} requests, and the
+ * cheap <code>Patient</code> and <code>Coverage</code> requests keep flowing.
+ * </p>
+ */
+public final class LoadSheddingFilter implements Filter {
+	static final String HEADER_RETRY_AFTER = "Retry-After";
+
+	/**
+	 * The value (in seconds) that will be sent in the
+	 * <code>Retry-After</code> header of rejected requests.
+	 */
+	static final int RETRY_AFTER_SECONDS = 1;
+
+	/**
+	 * The lowest that any of the concurrency limits will be set to.
+	 */
+	private static final int LIMIT_MIN = 2;
+
+	private static final String PATH_PREFIX_EOB = "/" + ExplanationOfBenefit.class.getSimpleName();
+
+	private final boolean enabled;
+	private final Lane defaultLane;
+	private final Lane eobLane;
+
+	/**
+	 * Constructs a new {@link LoadSheddingFilter}.
+	 *
+	 * @param enabled
+	 *            <code>false</code> if this {@link Filter} should just pass all
+	 *            requests through, <code>true</code> if it should shed load
+	 * @param defaultLimitMax
+	 *            the maximum concurrency limit for requests other than
+	 *            {@link ExplanationOfBenefit} requests
+	 * @param eobLimitMax
+	 *            the maximum concurrency limit for {@link ExplanationOfBenefit}
+	 *            requests
+	 * @param queueTimeoutMillis
+	 *            how long (in milliseconds) requests will wait for a permit
+	 *            before being rejected
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 */
+	public LoadSheddingFilter(boolean enabled, int defaultLimitMax, int eobLimitMax, long queueTimeoutMillis,
+			MetricRegistry metricRegistry) {
+		this.enabled = enabled;
+		this.defaultLane = new Lane("default", Math.max(LIMIT_MIN, defaultLimitMax), queueTimeoutMillis,
+				metricRegistry);
+		this.eobLane = new Lane("eob", Math.max(LIMIT_MIN, eobLimitMax), queueTimeoutMillis, metricRegistry);
+	}
+
+	/**
+	 * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+	 */
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		// Nothing to do here.
+	}
+
+	/**
+	 * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
+	 *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
+	 */
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		if (!enabled || !(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		Lane lane = selectLane((HttpServletRequest) request);
+		if (!lane.limiter.acquire()) {
+			lane.rejected.mark();
+			HttpServletResponse httpResponse = (HttpServletResponse) response;
+			httpResponse.setHeader(HEADER_RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS));
+			httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+					"The server is overloaded. Please try again later.");
+			return;
+		}
+
+		long startNanos = System.nanoTime();
+		// Requests handed off to a worker thread hold their permit until done.
+		AsyncRequestExecutor.addCompletionTask(request, () -> lane.limiter.release(System.nanoTime() - startNanos));
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			if (!AsyncRequestExecutor.isDispatched(request))
+				lane.limiter.release(System.nanoTime() - startNanos);
+		}
+	}
+
+	/**
+	 * @param request
+	 *            the {@link HttpServletRequest} to be processed
+	 * @return the {@link Lane} that the specified request should be admitted
+	 *         through
+	 */
+	private Lane selectLane(HttpServletRequest request) {
+		String pathInfo = request.getPathInfo();
+		if (pathInfo != null && pathInfo.startsWith(PATH_PREFIX_EOB))
+			return eobLane;
+		return defaultLane;
+	}
+
+	/**
+	 * @see javax.servlet.Filter#destroy()
+	 */
+	@Override
+	public void destroy() {
+		// Nothing to do here.
+	}
+
+	/**
+	 * A class of requests that share an {@link AdaptiveConcurrencyLimiter}.
+	 */
+	private static final class Lane {
+		private final AdaptiveConcurrencyLimiter limiter;
+		private final Meter rejected;
+
+		/**
+		 * Constructs a new {@link Lane}.
+		 *
+		 * @param name
+		 *            the name of this {@link Lane}, as will be used in its
+		 *            metrics
+		 * @param limitMax
+		 *            the maximum concurrency limit for this {@link Lane}
+		 * @param queueTimeoutMillis
+		 *            how long (in milliseconds) requests will wait for a permit
+		 *            before being rejected
+		 * @param metricRegistry
+		 *            the {@link MetricRegistry} for the application
+		 */
+		Lane(String name, int limitMax, long queueTimeoutMillis, MetricRegistry metricRegistry) {
+			this.limiter = new AdaptiveConcurrencyLimiter(LIMIT_MIN, limitMax, queueTimeoutMillis);
+			this.rejected = metricRegistry.meter(MetricRegistry.name(LoadSheddingFilter.class, name, "rejected"));
+			metricRegistry.register(MetricRegistry.name(LoadSheddingFilter.class, name, "limit"),
+					(Gauge<Integer>) limiter::getLimit);
+			metricRegistry.register(MetricRegistry.name(LoadSheddingFilter.class, name, "inFlight"),
+					(Gauge<Integer>) limiter::getInFlight);
+		}
+	}
+}
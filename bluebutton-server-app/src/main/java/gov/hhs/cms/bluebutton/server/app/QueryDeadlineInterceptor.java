@@ -0,0 +1,118 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import ca.uhn.fhir.rest.method.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import ca.uhn.fhir.rest.server.exceptions.UnclassifiedServerFailureException;
+import ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.QueryDeadline;
+
+/**
+ * <p>
+ * Gives each request a {@link QueryDeadline}, which bounds how long its
+ * database queries may run for. The deadline defaults to the configured
+ * timeout, but clients may ask for a shorter one via the
+ * {@link #HEADER_REQUEST_TIMEOUT} header (there's no sense in continuing to
+ * query for a client that has already given up).
+ * </p>
+ * <p>
+ * Requests whose queries are cancelled by their deadline get a clean
+ * <code>503 Service Unavailable</code>, rather than whatever generic error
+ * HAPI would otherwise produce for the underlying JPA/JDBC exception.
+ * </p>
+ * <p>
+ * The deadline isn't cleared here, as HAPI skips the later interceptor
+ * callbacks whenever an earlier interceptor short-circuits a request. Instead,
+ * {@link BlueButtonStu3Server} clears it once HAPI is done with each request.
+ * </p>
+ */
+public final class QueryDeadlineInterceptor extends InterceptorAdapter {
+	private static final Logger LOGGER = LoggerFactory.getLogger(QueryDeadlineInterceptor.class);
+
+	/**
+	 * The request header that clients may use to specify a shorter timeout
+	 * (in milliseconds) for their request.
+	 */
+	static final String HEADER_REQUEST_TIMEOUT = "X-Request-Timeout";
+
+	private final long timeoutMillis;
+	private final Meter cancelled;
+	private final Meter clientTimeouts;
+
+	/**
+	 * Constructs a new {@link QueryDeadlineInterceptor}.
+	 *
+	 * @param timeoutMillis
+	 *            the maximum time (in milliseconds) that each request's queries
+	 *            may run for
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 */
+	public QueryDeadlineInterceptor(long timeoutMillis, MetricRegistry metricRegistry) {
+		if (timeoutMillis < 1)
+			throw new IllegalArgumentException();
+
+		this.timeoutMillis = timeoutMillis;
+		this.cancelled = metricRegistry.meter(MetricRegistry.name(getClass(), "cancelled"));
+		this.clientTimeouts = metricRegistry.meter(MetricRegistry.name(getClass(), "clientTimeouts"));
+	}
+
+	/**
+	 * @see ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter#incomingRequestPreProcessed(javax.servlet.http.HttpServletRequest,
+	 *      javax.servlet.http.HttpServletResponse)
+	 */
+	@Override
+	public boolean incomingRequestPreProcessed(HttpServletRequest request, HttpServletResponse response) {
+		QueryDeadline.start(selectTimeout(request));
+		return true;
+	}
+
+	/**
+	 * @param request
+	 *            the {@link HttpServletRequest} being processed
+	 * @return the timeout (in milliseconds) to use for the specified request:
+	 *         the configured timeout, or the client's (if it's shorter)
+	 */
+	private long selectTimeout(HttpServletRequest request) {
+		String clientTimeoutText = request.getHeader(HEADER_REQUEST_TIMEOUT);
+		if (clientTimeoutText == null)
+			return timeoutMillis;
+
+		long clientTimeout;
+		try {
+			clientTimeout = Long.parseLong(clientTimeoutText.trim());
+		} catch (NumberFormatException e) {
+			return timeoutMillis;
+		}
+		if (clientTimeout < 1 || clientTimeout >= timeoutMillis)
+			return timeoutMillis;
+
+		clientTimeouts.mark();
+		return clientTimeout;
+	}
+
+	/**
+	 * @see ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter#preProcessOutgoingException(ca.uhn.fhir.rest.method.RequestDetails,
+	 *      java.lang.Throwable, javax.servlet.http.HttpServletRequest)
+	 */
+	@Override
+	public BaseServerResponseException preProcessOutgoingException(RequestDetails requestDetails,
+			Throwable exception, HttpServletRequest servletRequest) {
+		if (!QueryDeadline.isTimeout(exception))
+			return null;
+
+		cancelled.mark();
+		LOGGER.debug("Request '{}' cancelled: its deadline passed.", servletRequest.getRequestURI());
+
+		return new UnclassifiedServerFailureException(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+				"The request could not be completed before its deadline. Please try again later.");
+	}
+}
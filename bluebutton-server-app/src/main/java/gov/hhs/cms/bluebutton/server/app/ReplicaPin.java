@@ -0,0 +1,88 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pins all of a single request's database connections to the same read
+ * replica, as selected by {@link ReplicaRoutingDataSource} for the request's
+ * first connection. Without this, the separate queries for a single request
+ * (e.g. the per-claim-type queries for an <code>ExplanationOfBenefit</code>
+ * search) could each land on a replica with a different replication lag, and
+ * so return an inconsistent mix of old and new data.
+ */
+final class ReplicaPin {
+	/**
+	 * The value of {@link #replicaIndex} before a replica has been selected.
+	 */
+	static final int UNPINNED = -1;
+
+	private static final ThreadLocal<ReplicaPin> CURRENT_PIN = new ThreadLocal<>();
+
+	private final AtomicInteger replicaIndex;
+
+	/**
+	 * Constructs a new {@link ReplicaPin}.
+	 */
+	private ReplicaPin() {
+		this.replicaIndex = new AtomicInteger(UNPINNED);
+	}
+
+	/**
+	 * Starts a new (as yet unpinned) {@link ReplicaPin} for the current thread.
+	 */
+	static void start() {
+		CURRENT_PIN.set(new ReplicaPin());
+	}
+
+	/**
+	 * Clears the current thread's {@link ReplicaPin}, if any.
+	 */
+	static void clear() {
+		CURRENT_PIN.remove();
+	}
+
+	/**
+	 * @return the current thread's {@link ReplicaPin}, if any
+	 */
+	static Optional<ReplicaPin> getCurrent() {
+		return Optional.ofNullable(CURRENT_PIN.get());
+	}
+
+	/**
+	 * @param pin
+	 *            the {@link ReplicaPin} to use for the current thread, e.g. one
+	 *            captured from the thread that handed it a piece of work, or
+	 *            {@link Optional#empty()} to clear it
+	 */
+	static void setCurrent(Optional<ReplicaPin> pin) {
+		if (pin.isPresent())
+			CURRENT_PIN.set(pin.get());
+		else
+			CURRENT_PIN.remove();
+	}
+
+	/**
+	 * @return the index of the replica that this {@link ReplicaPin} is pinned
+	 *         to, or {@link #UNPINNED} if none has been selected yet
+	 */
+	int getReplicaIndex() {
+		return replicaIndex.get();
+	}
+
+	/**
+	 * Pins this {@link ReplicaPin} to the specified replica, unless some other
+	 * thread working on the same request has already re-pinned it.
+	 *
+	 * @param expectedReplicaIndex
+	 *            the {@link #getReplicaIndex()} value that the caller last saw
+	 * @param newReplicaIndex
+	 *            the index of the replica to pin to
+	 * @return the index of the replica that this {@link ReplicaPin} is now
+	 *         pinned to
+	 */
+	int pin(int expectedReplicaIndex, int newReplicaIndex) {
+		replicaIndex.compareAndSet(expectedReplicaIndex, newReplicaIndex);
+		return replicaIndex.get();
+	}
+}
@@ -0,0 +1,49 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+/**
+ * A {@link Filter} that gives each request its own {@link ReplicaPin}, so
+ * that all of its database connections go to the same read replica.
+ * (Requests handed off to a worker thread carry their {@link ReplicaPin} with
+ * them, via {@link AsyncRequestExecutor}.)
+ */
+public final class ReplicaPinFilter implements Filter {
+	/**
+	 * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+	 */
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		// Nothing to do here.
+	}
+
+	/**
+	 * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
+	 *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
+	 */
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		ReplicaPin.start();
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			ReplicaPin.clear();
+		}
+	}
+
+	/**
+	 * @see javax.servlet.Filter#destroy()
+	 */
+	@Override
+	public void destroy() {
+		// Nothing to do here.
+	}
+}
@@ -0,0 +1,365 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * <p>
+ * A {@link DataSource} that spreads connections across a set of read replica
+ * databases, falling back to the primary database when none of the replicas
+ * are available. As this application only ever reads from the database, all
+ * of its queries can safely be served by the replicas.
+ * </p>
+ * <p>
+ * Each replica is health checked on a fixed schedule. Replicas that can't be
+ * connected to, or that have fallen too far behind the primary (as determined
+ * by {@link #LAG_QUERY_POSTGRESQL}), are ejected from the rotation until a
+ * later health check finds them healthy again. A replica that fails to provide
+ * a connection is also ejected immediately, unless its connection pool was
+ * just too busy to provide one in time: that's a sign of load, not of an
+ * unhealthy replica, and so just fails the request.
+ * </p>
+ * <p>
+ * Requests that have a {@link ReplicaPin} (see {@link ReplicaPinFilter}) have
+ * all of their connections served by the same replica, for as long as it stays
+ * healthy, so that their queries all see the same replication lag.
+ * </p>
+ */
+public final class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+	/**
+	 * The query used to determine how far behind the primary a PostgreSQL
+	 * replica is, in seconds. Note that the replay timestamp alone isn't
+	 * enough: if no writes have happened on the primary for a while, the
+	 * replica will look like it's lagging even though it's fully caught up. The
+	 * LSN comparison handles that case. (PostgreSQL 10 renamed the
+	 * <code>xlog</code> functions to <code>wal</code>, hence the two
+	 * variants.)
+	 */
+	static final String LAG_QUERY_POSTGRESQL = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0"
+			+ " WHEN pg_last_xlog_receive_location() = pg_last_xlog_replay_location() THEN 0"
+			+ " ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+	static final String LAG_QUERY_POSTGRESQL_10 = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0"
+			+ " WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+			+ " ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
+	/**
+	 * The number of seconds to wait for a replica to respond to a health
+	 * check.
+	 */
+	private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 5;
+
+	private final DataSource primary;
+	private final List<Replica> replicas;
+	private final double lagMaxSeconds;
+	private final AtomicInteger nextReplicaIndex;
+	private final ScheduledExecutorService healthCheckExecutor;
+	private final Meter primaryFallbacks;
+
+	/**
+	 * Constructs a new {@link ReplicaRoutingDataSource}. Health checks will be
+	 * run once immediately, and then on the specified schedule.
+	 *
+	 * @param primary
+	 *            the {@link DataSource} for the primary database, which will be
+	 *            used whenever no replicas are available
+	 * @param replicas
+	 *            the {@link DataSource}s for the read replica databases
+	 * @param lagMaxSeconds
+	 *            the maximum replication lag (in seconds) that a replica may
+	 *            have before it's ejected
+	 * @param healthCheckIntervalSeconds
+	 *            how often (in seconds) to health check the replicas
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 */
+	public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, double lagMaxSeconds,
+			int healthCheckIntervalSeconds, MetricRegistry metricRegistry) {
+		if (primary == null)
+			throw new IllegalArgumentException();
+		if (replicas == null || replicas.isEmpty())
+			throw new IllegalArgumentException();
+		if (lagMaxSeconds < 0)
+			throw new IllegalArgumentException();
+		if (healthCheckIntervalSeconds < 1)
+			throw new IllegalArgumentException();
+
+		this.primary = primary;
+		List<Replica> replicaWrappers = new ArrayList<>(replicas.size());
+		for (int i = 0; i < replicas.size(); i++)
+			replicaWrappers.add(new Replica(i, replicas.get(i)));
+		this.replicas = Collections.unmodifiableList(replicaWrappers);
+		this.lagMaxSeconds = lagMaxSeconds;
+		this.nextReplicaIndex = new AtomicInteger(0);
+
+		this.primaryFallbacks = metricRegistry.meter(MetricRegistry.name(getClass(), "primaryFallbacks"));
+		metricRegistry.register(MetricRegistry.name(getClass(), "replicasHealthy"),
+				(Gauge<Long>) () -> this.replicas.stream().filter(r -> r.healthy).count());
+		for (Replica replica : this.replicas) {
+			metricRegistry.register(
+					MetricRegistry.name(getClass(), "replica", String.valueOf(replica.index), "lagSeconds"),
+					(Gauge<Double>) () -> replica.lagSeconds);
+		}
+
+		checkReplicas();
+		this.healthCheckExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, ReplicaRoutingDataSource.class.getSimpleName() + "-healthCheck");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.healthCheckExecutor.scheduleWithFixedDelay(this::checkReplicas, healthCheckIntervalSeconds,
+				healthCheckIntervalSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @see javax.sql.DataSource#getConnection()
+	 */
+	@Override
+	public Connection getConnection() throws SQLException {
+		Optional<ReplicaPin> pin = ReplicaPin.getCurrent();
+		for (int i = 0; i < replicas.size(); i++) {
+			Optional<Replica> replica = selectReplica(pin);
+			if (!replica.isPresent())
+				break;
+
+			try {
+				return replica.get().dataSource.getConnection();
+			} catch (SQLException e) {
+				if (isPoolTimeout(e))
+					throw e;
+				eject(replica.get(), "unable to connect", e);
+			} catch (RuntimeException e) {
+				eject(replica.get(), "unable to connect", e);
+			}
+		}
+
+		primaryFallbacks.mark();
+		return primary.getConnection();
+	}
+
+	/**
+	 * @param pin
+	 *            the current request's {@link ReplicaPin}, if any
+	 * @return the healthy {@link Replica} that the specified
+	 *         {@link ReplicaPin} is pinned to, if any, or else the next healthy
+	 *         {@link Replica} in the rotation (which the {@link ReplicaPin}
+	 *         will then be pinned to), or {@link Optional#empty()} if there are
+	 *         no healthy {@link Replica}s
+	 */
+	private Optional<Replica> selectReplica(Optional<ReplicaPin> pin) {
+		int pinnedIndex = pin.isPresent() ? pin.get().getReplicaIndex() : ReplicaPin.UNPINNED;
+		if (pinnedIndex != ReplicaPin.UNPINNED && replicas.get(pinnedIndex).healthy)
+			return Optional.of(replicas.get(pinnedIndex));
+
+		int replicaCount = replicas.size();
+		int startIndex = Math.floorMod(nextReplicaIndex.getAndIncrement(), replicaCount);
+		for (int i = 0; i < replicaCount; i++) {
+			Replica replica = replicas.get((startIndex + i) % replicaCount);
+			if (!replica.healthy)
+				continue;
+			if (!pin.isPresent())
+				return Optional.of(replica);
+
+			// Another of the request's threads may have pinned it first.
+			Replica pinnedReplica = replicas.get(pin.get().pin(pinnedIndex, replica.index));
+			return Optional.of(pinnedReplica.healthy ? pinnedReplica : replica);
+		}
+
+		return Optional.empty();
+	}
+
+	/**
+	 * @param exception
+	 *            an {@link SQLException} that a replica's {@link DataSource}
+	 *            failed to provide a {@link Connection} with
+	 * @return <code>true</code> if the specified {@link SQLException} just
+	 *         indicates that the replica's connection pool was too busy to
+	 *         provide a {@link Connection} in time, <code>false</code> if it
+	 *         indicates that the replica couldn't be connected to (or its
+	 *         connections couldn't be validated)
+	 */
+	static boolean isPoolTimeout(SQLException exception) {
+		/*
+		 * HikariCP reports both cases as a SQLTransientConnectionException,
+		 * but only attaches a cause when it's been unable to create or
+		 * validate new connections.
+		 */
+		return exception instanceof SQLTransientConnectionException && exception.getCause() == null;
+	}
+
+	/**
+	 * @see javax.sql.DataSource#getConnection(java.lang.String,
+	 *      java.lang.String)
+	 */
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException("Connections are only available with the configured credentials.");
+	}
+
+	/**
+	 * @return the primary {@link DataSource}, followed by each of the replica
+	 *         {@link DataSource}s
+	 */
+	List<DataSource> getDataSources() {
+		List<DataSource> dataSources = new ArrayList<>(replicas.size() + 1);
+		dataSources.add(primary);
+		for (Replica replica : replicas)
+			dataSources.add(replica.dataSource);
+		return dataSources;
+	}
+
+	/**
+	 * Runs a health check on each replica, ejecting or restoring them as
+	 * needed.
+	 */
+	void checkReplicas() {
+		for (Replica replica : replicas) {
+			try (Connection connection = replica.dataSource.getConnection()) {
+				if (!connection.isValid(HEALTH_CHECK_TIMEOUT_SECONDS)) {
+					eject(replica, "connection not valid", null);
+					continue;
+				}
+
+				replica.lagSeconds = queryLagSeconds(connection);
+				if (replica.lagSeconds > lagMaxSeconds) {
+					eject(replica, String.format("lagging by %.1f seconds", replica.lagSeconds), null);
+					continue;
+				}
+
+				if (!replica.healthy) {
+					LOGGER.info("Replica {} is healthy again; restoring it.", replica.index);
+					replica.healthy = true;
+				}
+			} catch (SQLException | RuntimeException e) {
+				eject(replica, "health check failed", e);
+			}
+		}
+	}
+
+	/**
+	 * @param connection
+	 *            the replica {@link Connection} to check
+	 * @return how far behind the primary the replica is, in seconds, or
+	 *         <code>0</code> if that can't be determined for the replica's
+	 *         database platform
+	 * @throws SQLException
+	 *             Any {@link SQLException}s encountered will be bubbled up.
+	 */
+	private static double queryLagSeconds(Connection connection) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		if (!"PostgreSQL".equals(metaData.getDatabaseProductName()))
+			return 0.0;
+
+		String lagQuery = metaData.getDatabaseMajorVersion() >= 10 ? LAG_QUERY_POSTGRESQL_10 : LAG_QUERY_POSTGRESQL;
+		try (Statement statement = connection.createStatement()) {
+			statement.setQueryTimeout(HEALTH_CHECK_TIMEOUT_SECONDS);
+			try (ResultSet resultSet = statement.executeQuery(lagQuery)) {
+				resultSet.next();
+				return resultSet.getDouble(1);
+			}
+		}
+	}
+
+	/**
+	 * Removes the specified {@link Replica} from the rotation, until a later
+	 * health check finds it healthy again.
+	 *
+	 * @param replica
+	 *            the {@link Replica} to eject
+	 * @param reason
+	 *            a description of why the {@link Replica} is being ejected
+	 * @param cause
+	 *            the error that caused the ejection, or <code>null</code>
+	 */
+	private static void eject(Replica replica, String reason, Exception cause) {
+		if (!replica.healthy)
+			return;
+
+		replica.healthy = false;
+		if (cause != null)
+			LOGGER.warn(String.format("Replica %d ejected: %s.", replica.index, reason), cause);
+		else
+			LOGGER.warn("Replica {} ejected: {}.", replica.index, reason);
+	}
+
+	/**
+	 * Stops the health checks and closes the primary and replica
+	 * {@link DataSource}s.
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		healthCheckExecutor.shutdownNow();
+		for (Replica replica : replicas)
+			closeQuietly(replica.dataSource);
+		closeQuietly(primary);
+	}
+
+	/**
+	 * @param dataSource
+	 *            the {@link DataSource} to close, if it's {@link Closeable}
+	 */
+	private static void closeQuietly(DataSource dataSource) {
+		if (!(dataSource instanceof Closeable))
+			return;
+
+		try {
+			((Closeable) dataSource).close();
+		} catch (IOException e) {
+			LOGGER.warn("Unable to close DataSource.", e);
+		}
+	}
+
+	/**
+	 * Tracks the state of a read replica.
+	 */
+	private static final class Replica {
+		private final int index;
+		private final DataSource dataSource;
+		private volatile boolean healthy;
+		private volatile double lagSeconds;
+
+		/**
+		 * Constructs a new {@link Replica}.
+		 *
+		 * @param index
+		 *            the index of this {@link Replica}, used to identify it in
+		 *            logs and metrics
+		 * @param dataSource
+		 *            the {@link DataSource} for this {@link Replica}
+		 */
+		Replica(int index, DataSource dataSource) {
+			this.index = index;
+			this.dataSource = dataSource;
+			this.healthy = true;
+			this.lagSeconds = 0.0;
+		}
+	}
+}
@@ -0,0 +1,630 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import ca.uhn.fhir.rest.server.RestfulServer;
+
+/**
+ * <p>
+ * A {@link Filter} that compresses responses (with <code>gzip</code> or
+ * <code>deflate</code>, as negotiated via the client's
+ * <code>Accept-Encoding</code> header), but only once they've grown past a
+ * configurable size threshold: compressing tiny responses just burns CPU.
+ * </p>
+ * <p>
+ * HAPI's {@link RestfulServer} can also gzip its responses, but does so
+ * unconditionally and without any metrics. This {@link Filter} hides the
+ * <code>Accept-Encoding</code> header from everything downstream of it, so
+ * that it's the only thing handling compression.
+ * </p>
+ */
+public final class ResponseCompressionFilter implements Filter {
+	static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+	static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+	static final String HEADER_CONTENT_LENGTH = "Content-Length";
+	static final String HEADER_VARY = "Vary";
+
+	private final int thresholdBytes;
+	private final Histogram bytesBefore;
+	private final Histogram bytesAfter;
+	private final Meter compressedResponses;
+
+	/**
+	 * Constructs a new {@link ResponseCompressionFilter}.
+	 *
+	 * @param thresholdBytes
+	 *            the minimum response body size (in bytes, before compression)
+	 *            that will be compressed
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 */
+	public ResponseCompressionFilter(int thresholdBytes, MetricRegistry metricRegistry) {
+		if (thresholdBytes < 0)
+			throw new IllegalArgumentException();
+
+		this.thresholdBytes = thresholdBytes;
+		this.bytesBefore = metricRegistry.histogram(MetricRegistry.name(getClass(), "bytesBefore"));
+		this.bytesAfter = metricRegistry.histogram(MetricRegistry.name(getClass(), "bytesAfter"));
+		this.compressedResponses = metricRegistry.meter(MetricRegistry.name(getClass(), "compressed"));
+	}
+
+	/**
+	 * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+	 */
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		// Nothing to do here.
+	}
+
+	/**
+	 * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
+	 *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
+	 */
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		HttpServletRequest httpRequest = (HttpServletRequest) request;
+		HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+		Optional<ContentEncoding> encoding = ContentEncoding.negotiate(httpRequest.getHeader(HEADER_ACCEPT_ENCODING));
+		httpResponse.addHeader(HEADER_VARY, HEADER_ACCEPT_ENCODING);
+
+		CompressingResponseWrapper responseWrapper = new CompressingResponseWrapper(httpResponse, encoding,
+				thresholdBytes);
+		// Requests handed off to a worker thread are finished there.
+		AsyncRequestExecutor.addCompletionTask(request, () -> finish(responseWrapper));
+		try {
+			chain.doFilter(new AcceptEncodingHidingRequestWrapper(httpRequest), responseWrapper);
+		} finally {
+			if (!AsyncRequestExecutor.isDispatched(request))
+				finish(responseWrapper);
+		}
+	}
+
+	/**
+	 * Writes out the remainder of the specified response, and records its
+	 * metrics.
+	 *
+	 * @param responseWrapper
+	 *            the {@link CompressingResponseWrapper} for the response
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	private void finish(CompressingResponseWrapper responseWrapper) throws IOException {
+		responseWrapper.finish();
+
+		bytesBefore.update(responseWrapper.getBytesBefore());
+		bytesAfter.update(responseWrapper.getBytesAfter());
+		if (responseWrapper.isCompressed())
+			compressedResponses.mark();
+	}
+
+	/**
+	 * @see javax.servlet.Filter#destroy()
+	 */
+	@Override
+	public void destroy() {
+		// Nothing to do here.
+	}
+
+	/**
+	 * Enumerates the <code>Content-Encoding</code>s supported by
+	 * {@link ResponseCompressionFilter}, in order of preference.
+	 */
+	static enum ContentEncoding {
+		GZIP("gzip"),
+
+		DEFLATE("deflate");
+
+		private final String headerValue;
+
+		/**
+		 * Enum constant constructor.
+		 *
+		 * @param headerValue
+		 *            the value to use for {@link #getHeaderValue()}
+		 */
+		private ContentEncoding(String headerValue) {
+			this.headerValue = headerValue;
+		}
+
+		/**
+		 * @return the <code>Content-Encoding</code> header value for this
+		 *         {@link ContentEncoding}
+		 */
+		String getHeaderValue() {
+			return headerValue;
+		}
+
+		/**
+		 * @param output
+		 *            the {@link OutputStream} to write the compressed data to
+		 * @return a new {@link DeflaterOutputStream} that will compress data
+		 *         with this {@link ContentEncoding} and write it to the
+		 *         specified {@link OutputStream}
+		 * @throws IOException
+		 *             Any {@link IOException}s encountered will be bubbled up.
+		 */
+		DeflaterOutputStream wrap(OutputStream output) throws IOException {
+			if (this == GZIP)
+				return new GZIPOutputStream(output, 8192);
+			return new DeflaterOutputStream(output);
+		}
+
+		/**
+		 * @param acceptEncodingHeader
+		 *            the <code>Accept-Encoding</code> request header value to
+		 *            parse, which may be <code>null</code>
+		 * @return the most preferred {@link ContentEncoding} that the
+		 *         specified header allows, or {@link Optional#empty()} if none
+		 *         are acceptable. As per RFC 7231, section 5.3.4, a coding
+		 *         that's listed explicitly gets its own quality value, and only
+		 *         the codings that aren't listed get the <code>*</code>
+		 *         wildcard's.
+		 */
+		static Optional<ContentEncoding> negotiate(String acceptEncodingHeader) {
+			if (acceptEncodingHeader == null || acceptEncodingHeader.trim().isEmpty())
+				return Optional.empty();
+
+			Double[] explicitQualities = new Double[values().length];
+			Double wildcardQuality = null;
+			for (String entry : acceptEncodingHeader.split(",")) {
+				String[] entryParts = entry.split(";");
+				String coding = entryParts[0].trim().toLowerCase(Locale.ENGLISH);
+
+				double quality = 1.0;
+				for (int i = 1; i < entryParts.length; i++) {
+					String param = entryParts[i].trim();
+					if (param.startsWith("q=")) {
+						try {
+							quality = Double.parseDouble(param.substring(2).trim());
+						} catch (NumberFormatException e) {
+							quality = 0.0;
+						}
+					}
+				}
+
+				if ("*".equals(coding))
+					wildcardQuality = quality;
+				for (ContentEncoding encoding : values())
+					if (encoding.getHeaderValue().equals(coding))
+						explicitQualities[encoding.ordinal()] = quality;
+			}
+
+			/*
+			 * Prefer higher quality values, then the declaration order of the
+			 * enum's constants.
+			 */
+			ContentEncoding bestEncoding = null;
+			double bestQuality = 0.0;
+			for (ContentEncoding encoding : values()) {
+				Double quality = explicitQualities[encoding.ordinal()] != null
+						? explicitQualities[encoding.ordinal()] : wildcardQuality;
+				if (quality != null && quality > bestQuality) {
+					bestEncoding = encoding;
+					bestQuality = quality;
+				}
+			}
+
+			return Optional.ofNullable(bestEncoding);
+		}
+	}
+
+	/**
+	 * An {@link HttpServletRequestWrapper} that hides the
+	 * <code>Accept-Encoding</code> header, so that downstream components (e.g.
+	 * HAPI) don't also try to compress the response.
+	 */
+	private static final class AcceptEncodingHidingRequestWrapper extends HttpServletRequestWrapper {
+		/**
+		 * Constructs a new {@link AcceptEncodingHidingRequestWrapper}.
+		 *
+		 * @param request
+		 *            the {@link HttpServletRequest} to wrap
+		 */
+		AcceptEncodingHidingRequestWrapper(HttpServletRequest request) {
+			super(request);
+		}
+
+		/**
+		 * @see javax.servlet.http.HttpServletRequestWrapper#getHeader(java.lang.String)
+		 */
+		@Override
+		public String getHeader(String name) {
+			if (HEADER_ACCEPT_ENCODING.equalsIgnoreCase(name))
+				return null;
+			return super.getHeader(name);
+		}
+
+		/**
+		 * @see javax.servlet.http.HttpServletRequestWrapper#getHeaders(java.lang.String)
+		 */
+		@Override
+		public Enumeration<String> getHeaders(String name) {
+			if (HEADER_ACCEPT_ENCODING.equalsIgnoreCase(name))
+				return Collections.emptyEnumeration();
+			return super.getHeaders(name);
+		}
+	}
+
+	/**
+	 * An {@link HttpServletResponseWrapper} that routes the response body
+	 * through a {@link ThresholdCompressingOutputStream}. Any
+	 * <code>Content-Length</code> set by the application is held back until
+	 * it's known whether the body will be compressed, and is then only sent if
+	 * it isn't.
+	 */
+	private static final class CompressingResponseWrapper extends HttpServletResponseWrapper {
+		private final ThresholdCompressingOutputStream outputStream;
+		private PrintWriter writer;
+
+		/**
+		 * Constructs a new {@link CompressingResponseWrapper}.
+		 *
+		 * @param response
+		 *            the {@link HttpServletResponse} to wrap
+		 * @param encoding
+		 *            the {@link ContentEncoding} to compress with, if any
+		 * @param thresholdBytes
+		 *            the minimum response body size that will be compressed
+		 */
+		CompressingResponseWrapper(HttpServletResponse response, Optional<ContentEncoding> encoding,
+				int thresholdBytes) {
+			super(response);
+			this.outputStream = new ThresholdCompressingOutputStream(response, encoding, thresholdBytes);
+		}
+
+		/**
+		 * @see javax.servlet.ServletResponseWrapper#getOutputStream()
+		 */
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			if (writer != null)
+				throw new IllegalStateException("getWriter() has already been called.");
+			return outputStream;
+		}
+
+		/**
+		 * @see javax.servlet.ServletResponseWrapper#getWriter()
+		 */
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if (writer == null)
+				writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+			return writer;
+		}
+
+		/**
+		 * @see javax.servlet.ServletResponseWrapper#setContentLength(int)
+		 */
+		@Override
+		public void setContentLength(int len) {
+			setContentLengthLong(len);
+		}
+
+		/**
+		 * @see javax.servlet.ServletResponseWrapper#setContentLengthLong(long)
+		 */
+		@Override
+		public void setContentLengthLong(long len) {
+			if (outputStream.encoding.isPresent())
+				outputStream.contentLength = len;
+			else
+				super.setContentLengthLong(len);
+		}
+
+		/**
+		 * @see javax.servlet.http.HttpServletResponseWrapper#setHeader(java.lang.String,
+		 *      java.lang.String)
+		 */
+		@Override
+		public void setHeader(String name, String value) {
+			if (HEADER_CONTENT_LENGTH.equalsIgnoreCase(name) && outputStream.encoding.isPresent())
+				outputStream.contentLength = Long.parseLong(value.trim());
+			else
+				super.setHeader(name, value);
+		}
+
+		/**
+		 * @see javax.servlet.http.HttpServletResponseWrapper#addHeader(java.lang.String,
+		 *      java.lang.String)
+		 */
+		@Override
+		public void addHeader(String name, String value) {
+			if (HEADER_CONTENT_LENGTH.equalsIgnoreCase(name) && outputStream.encoding.isPresent())
+				outputStream.contentLength = Long.parseLong(value.trim());
+			else
+				super.addHeader(name, value);
+		}
+
+		/**
+		 * @see javax.servlet.ServletResponseWrapper#flushBuffer()
+		 */
+		@Override
+		public void flushBuffer() throws IOException {
+			if (writer != null)
+				writer.flush();
+			outputStream.flush();
+		}
+
+		/**
+		 * @see javax.servlet.ServletResponseWrapper#resetBuffer()
+		 */
+		@Override
+		public void resetBuffer() {
+			super.resetBuffer();
+			outputStream.resetBuffer();
+		}
+
+		/**
+		 * Writes out any remaining (buffered) response data.
+		 *
+		 * @throws IOException
+		 *             Any {@link IOException}s encountered will be bubbled up.
+		 */
+		void finish() throws IOException {
+			if (writer != null)
+				writer.flush();
+			outputStream.finish();
+		}
+
+		/**
+		 * @return the number of response body bytes written by the
+		 *         application, before compression
+		 */
+		long getBytesBefore() {
+			return outputStream.bytesBefore;
+		}
+
+		/**
+		 * @return the number of response body bytes sent to the client, after
+		 *         compression
+		 */
+		long getBytesAfter() {
+			return outputStream.bytesAfter;
+		}
+
+		/**
+		 * @return <code>true</code> if the response body was compressed,
+		 *         <code>false</code> if it was not
+		 */
+		boolean isCompressed() {
+			return outputStream.compressor != null;
+		}
+	}
+
+	/**
+	 * A {@link ServletOutputStream} that buffers the response body until it
+	 * reaches the size threshold, and then switches over to streaming it
+	 * through a compressor. Responses that never reach the threshold are sent
+	 * uncompressed.
+	 */
+	private static final class ThresholdCompressingOutputStream extends ServletOutputStream {
+		private final HttpServletResponse response;
+		private final Optional<ContentEncoding> encoding;
+		private final int thresholdBytes;
+
+		private ByteArrayOutputStream buffer;
+		private DeflaterOutputStream compressor;
+		private long contentLength = -1;
+		private boolean finished;
+		private long bytesBefore;
+		private long bytesAfter;
+
+		/**
+		 * Constructs a new {@link ThresholdCompressingOutputStream}.
+		 *
+		 * @param response
+		 *            the (unwrapped) {@link HttpServletResponse} to write to
+		 * @param encoding
+		 *            the {@link ContentEncoding} to compress with, if any
+		 * @param thresholdBytes
+		 *            the minimum response body size that will be compressed
+		 */
+		ThresholdCompressingOutputStream(HttpServletResponse response, Optional<ContentEncoding> encoding,
+				int thresholdBytes) {
+			this.response = response;
+			this.encoding = encoding;
+			this.thresholdBytes = thresholdBytes;
+			this.buffer = new ByteArrayOutputStream(Math.min(Math.max(thresholdBytes, 32), 64 * 1024));
+		}
+
+		/**
+		 * @see java.io.OutputStream#write(int)
+		 */
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		/**
+		 * @see java.io.OutputStream#write(byte[], int, int)
+		 */
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (finished)
+				throw new IOException("Stream already finished.");
+
+			bytesBefore += len;
+			if (compressor != null) {
+				compressor.write(b, off, len);
+				return;
+			}
+
+			if (!encoding.isPresent() || response.isCommitted()) {
+				// Compression is off the table, so don't bother buffering.
+				sendContentLength();
+				flushBufferUncompressed();
+				response.getOutputStream().write(b, off, len);
+				bytesAfter += len;
+				return;
+			}
+
+			buffer.write(b, off, len);
+			if (buffer.size() >= thresholdBytes)
+				startCompressing();
+		}
+
+		/**
+		 * Sets the response headers for compression, and then starts
+		 * streaming the buffered data (and everything after it) through
+		 * {@link #compressor}.
+		 *
+		 * @throws IOException
+		 *             Any {@link IOException}s encountered will be bubbled up.
+		 */
+		private void startCompressing() throws IOException {
+			response.setHeader(HEADER_CONTENT_ENCODING, encoding.get().getHeaderValue());
+			OutputStream countingOutput = new FilterOutputStream(response.getOutputStream()) {
+				@Override
+				public void write(int b) throws IOException {
+					out.write(b);
+					bytesAfter++;
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					out.write(b, off, len);
+					bytesAfter += len;
+				}
+			};
+			compressor = encoding.get().wrap(countingOutput);
+			buffer.writeTo(compressor);
+			buffer = null;
+		}
+
+		/**
+		 * Sends the application's <code>Content-Length</code> (if any), now
+		 * that the body is known to be going out uncompressed.
+		 */
+		private void sendContentLength() {
+			if (contentLength >= 0 && !response.isCommitted())
+				response.setContentLengthLong(contentLength);
+			contentLength = -1;
+		}
+
+		/**
+		 * Sends any buffered data on to the client, uncompressed.
+		 *
+		 * @throws IOException
+		 *             Any {@link IOException}s encountered will be bubbled up.
+		 */
+		private void flushBufferUncompressed() throws IOException {
+			if (buffer == null || buffer.size() == 0)
+				return;
+			buffer.writeTo(response.getOutputStream());
+			bytesAfter += buffer.size();
+			buffer.reset();
+		}
+
+		/**
+		 * Discards any data that's still buffered.
+		 */
+		void resetBuffer() {
+			if (buffer != null) {
+				bytesBefore -= buffer.size();
+				buffer.reset();
+			}
+		}
+
+		/**
+		 * @see java.io.OutputStream#flush()
+		 */
+		@Override
+		public void flush() throws IOException {
+			/*
+			 * Flushes prior to reaching the threshold are ignored, as they'd
+			 * otherwise commit the response before we know whether or not it
+			 * will be compressed.
+			 */
+			if (compressor != null)
+				compressor.flush();
+		}
+
+		/**
+		 * @see java.io.OutputStream#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			finish();
+		}
+
+		/**
+		 * Writes out any remaining data and completes the compressed stream,
+		 * if any.
+		 *
+		 * @throws IOException
+		 *             Any {@link IOException}s encountered will be bubbled up.
+		 */
+		void finish() throws IOException {
+			if (finished)
+				return;
+			finished = true;
+
+			if (compressor != null) {
+				compressor.finish();
+			} else {
+				sendContentLength();
+				flushBufferUncompressed();
+			}
+			response.getOutputStream().flush();
+		}
+
+		/**
+		 * @see javax.servlet.ServletOutputStream#isReady()
+		 */
+		@Override
+		public boolean isReady() {
+			try {
+				return response.getOutputStream().isReady();
+			} catch (IOException e) {
+				return false;
+			}
+		}
+
+		/**
+		 * @see javax.servlet.ServletOutputStream#setWriteListener(javax.servlet.WriteListener)
+		 */
+		@Override
+		public void setWriteListener(WriteListener writeListener) {
+			try {
+				response.getOutputStream().setWriteListener(writeListener);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
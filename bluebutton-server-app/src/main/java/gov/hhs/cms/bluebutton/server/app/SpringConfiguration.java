@@ -1,9 +1,12 @@
 package gov.hhs.cms.bluebutton.server.app;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executor;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -16,11 +19,13 @@ import org.hibernate.jpa.HibernatePersistenceProvider;
 import org.hibernate.tool.schema.Action;
 import org.hsqldb.persist.HsqlProperties;
 import org.hsqldb.server.ServerAcl.AclFormatException;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.support.PersistenceAnnotationBeanPostProcessor;
@@ -36,9 +41,17 @@ import ca.uhn.fhir.rest.server.IResourceProvider;
 import ca.uhn.fhir.rest.server.interceptor.IServerInterceptor;
 import ca.uhn.fhir.rest.server.interceptor.ResponseHighlighterInterceptor;
 import gov.hhs.cms.bluebutton.data.model.rif.schema.DatabaseSchemaManager;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.BeneficiaryChangeListener;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.BeneficiaryChangeMonitor;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.ClaimLineItems;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.ClaimTransformExecutor;
 import gov.hhs.cms.bluebutton.server.app.stu3.providers.CoverageResourceProvider;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.EobSegmentFile;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.EobSnapshotStore;
 import gov.hhs.cms.bluebutton.server.app.stu3.providers.ExplanationOfBenefitResourceProvider;
 import gov.hhs.cms.bluebutton.server.app.stu3.providers.PatientResourceProvider;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.SecondLevelCache;
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.ServerWarmup;
 
 /**
  * The main Spring {@link Configuration} for the Blue Button API Backend
@@ -51,6 +64,44 @@ public class SpringConfiguration {
 	public static final String PROP_DB_USERNAME = "bbfhir.db.username";
 	public static final String PROP_DB_PASSWORD = "bbfhir.db.password";
 	public static final String PROP_DB_CONNECTIONS_MAX = "bbfhir.db.connections.max";
+	public static final String PROP_DB_CONNECTIONS_MIN = "bbfhir.db.connections.min";
+	public static final String PROP_DB_CONNECTIONS_WAIT_TARGET = "bbfhir.db.connections.waitTarget";
+	public static final String PROP_DB_FETCH_SIZE = "bbfhir.db.fetchSize";
+	public static final String PROP_DB_PREPARE_THRESHOLD = "bbfhir.db.prepareThreshold";
+	public static final String PROP_DB_STATEMENT_CACHE_SIZE = "bbfhir.db.statementCacheSize";
+	public static final String PROP_DB_REPLICAS_URLS = "bbfhir.db.replicas.urls";
+	public static final String PROP_DB_REPLICAS_LAG_MAX = "bbfhir.db.replicas.lag.max";
+	public static final String PROP_DB_REPLICAS_HEALTH_CHECK_INTERVAL = "bbfhir.db.replicas.healthCheckInterval";
+	public static final String PROP_LOAD_SHEDDING_ENABLED = "bbfhir.loadShedding.enabled";
+	public static final String PROP_LOAD_SHEDDING_DEFAULT_LIMIT_MAX = "bbfhir.loadShedding.default.limitMax";
+	public static final String PROP_LOAD_SHEDDING_EOB_LIMIT_MAX = "bbfhir.loadShedding.eob.limitMax";
+	public static final String PROP_LOAD_SHEDDING_QUEUE_TIMEOUT = "bbfhir.loadShedding.queueTimeout";
+	public static final String PROP_BULKHEADS_ENABLED = "bbfhir.bulkheads.enabled";
+	public static final String PROP_BULKHEADS_QUEUE_TIMEOUT = "bbfhir.bulkheads.queueTimeout";
+	public static final String PROP_ASYNC_ENABLED = "bbfhir.async.enabled";
+	public static final String PROP_ASYNC_THREADS = "bbfhir.async.threads";
+	public static final String PROP_EXECUTOR_MODE = "bbfhir.executor.mode";
+	public static final String PROP_LINES_PARALLEL_THRESHOLD = "bbfhir.lines.parallelThreshold";
+	public static final String PROP_LINES_PARALLELISM = "bbfhir.lines.parallelism";
+	public static final String PROP_TRANSFORM_PARALLELISM = "bbfhir.transform.parallelism";
+	public static final String PROP_TRANSFORM_QUEUE_MAX = "bbfhir.transform.queueMax";
+	public static final String PROP_EOB_SNAPSHOTS_ENABLED = "bbfhir.eob.snapshots.enabled";
+	public static final String PROP_EOB_SEGMENT_FILE = "bbfhir.eob.segmentFile";
+	public static final String PROP_CACHE_ENABLED = "bbfhir.cache.enabled";
+	public static final String PROP_CACHE_MAX_ENTRIES = "bbfhir.cache.maxEntries";
+	public static final String PROP_CACHE_TIME_TO_LIVE = "bbfhir.cache.timeToLive";
+	public static final String PROP_CHANGES_POLL_INTERVAL = "bbfhir.changes.pollInterval";
+	public static final String PROP_CHANGES_MAX_TRACKED = "bbfhir.changes.maxTracked";
+	public static final String PROP_QUERY_TIMEOUT = "bbfhir.query.timeout";
+	public static final String PROP_COMPRESSION_THRESHOLD = "bbfhir.compression.threshold";
+	public static final String PROP_WARMUP_ITERATIONS = "bbfhir.warmup.iterations";
+	public static final String PROP_WARMUP_BENEFICIARY_ID = "bbfhir.warmup.beneficiaryId";
+
+	/**
+	 * The {@link Bean#name()} (and {@link Qualifier}) of the
+	 * {@link HikariDataSource} bean for the primary database.
+	 */
+	public static final String PRIMARY_DATA_SOURCE = "primaryDataSource";
 
 	/**
 	 * The {@link Bean#name()} for the {@link List} of STU3
@@ -66,31 +117,205 @@ public class SpringConfiguration {
 	 */
 	private static final boolean HIBERNATE_DETAILED_LOGGING = false;
 
+	/**
+	 * The JDBC URL prefix for PostgreSQL databases, whose driver needs some
+	 * extra configuration.
+	 */
+	private static final String JDBC_URL_PREFIX_POSTGRESQL = "jdbc:postgresql:";
+
 	/**
 	 * @param url
-	 *            the JDBC URL of the database for the application
+	 *            the JDBC URL of the (primary) database for the application
 	 * @param username
 	 *            the database username to use
 	 * @param password
 	 *            the database password to use
 	 * @param connectionsMaxText
 	 *            the maximum number of database connections to use
+	 * @param prepareThresholdText
+	 *            the number of times that a statement must be run before it's
+	 *            prepared on the (PostgreSQL) database server
+	 * @param statementCacheSizeText
+	 *            the number of prepared statements to cache (per PostgreSQL
+	 *            connection)
 	 * @param metricRegistry
 	 *            the {@link MetricRegistry} for the application
-	 * @return the {@link DataSource} that provides the application's database
-	 *         connection
+	 * @return the {@link HikariDataSource} for the primary database, which
+	 *         anything that writes to the database must use (rather than the
+	 *         {@link #dataSource} bean, which may route to a read replica)
+	 */
+	@Bean(name = PRIMARY_DATA_SOURCE, destroyMethod = "close")
+	public HikariDataSource primaryDataSource(@Value("${" + PROP_DB_URL + "}") String url,
+			@Value("${" + PROP_DB_USERNAME + "}") String username,
+			@Value("${" + PROP_DB_PASSWORD + "}") String password,
+			@Value("${" + PROP_DB_CONNECTIONS_MAX + ":-1}") String connectionsMaxText,
+			@Value("${" + PROP_DB_PREPARE_THRESHOLD + ":5}") String prepareThresholdText,
+			@Value("${" + PROP_DB_STATEMENT_CACHE_SIZE + ":256}") String statementCacheSizeText,
+			MetricRegistry metricRegistry) {
+		return createPrimaryDataSource(url, username, password, connectionsMaxText, prepareThresholdText,
+				statementCacheSizeText, metricRegistry);
+	}
+
+	/**
+	 * @param primaryDataSource
+	 *            the {@link #primaryDataSource} bean for the application
+	 * @param username
+	 *            the database username to use
+	 * @param password
+	 *            the database password to use
+	 * @param connectionsMaxText
+	 *            the maximum number of database connections to use
+	 * @param prepareThresholdText
+	 *            the number of times that a statement must be run before it's
+	 *            prepared on the (PostgreSQL) database server
+	 * @param statementCacheSizeText
+	 *            the number of prepared statements to cache (per PostgreSQL
+	 *            connection)
+	 * @param replicaUrlsText
+	 *            a comma-separated list of JDBC URLs for read replicas of the
+	 *            database, or an empty {@link String} if there are none
+	 * @param replicaLagMaxText
+	 *            the maximum replication lag (in seconds) that a replica may
+	 *            have before it's ejected
+	 * @param replicaHealthCheckIntervalText
+	 *            how often (in seconds) to health check the replicas
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return the {@link DataSource} that provides the application's
+	 *         (read-only) database connections: the primary database's, or a
+	 *         {@link ReplicaRoutingDataSource} if there are any replicas
 	 */
 	@Bean(destroyMethod = "close")
-	public DataSource dataSource(@Value("${" + PROP_DB_URL + "}") String url,
+	@Primary
+	public DataSource dataSource(@Qualifier(PRIMARY_DATA_SOURCE) HikariDataSource primaryDataSource,
 			@Value("${" + PROP_DB_USERNAME + "}") String username,
 			@Value("${" + PROP_DB_PASSWORD + "}") String password,
-			@Value("${" + PROP_DB_CONNECTIONS_MAX + ":-1}") String connectionsMaxText, MetricRegistry metricRegistry) {
-		HikariDataSource poolingDataSource = new HikariDataSource();
+			@Value("${" + PROP_DB_CONNECTIONS_MAX + ":-1}") String connectionsMaxText,
+			@Value("${" + PROP_DB_PREPARE_THRESHOLD + ":5}") String prepareThresholdText,
+			@Value("${" + PROP_DB_STATEMENT_CACHE_SIZE + ":256}") String statementCacheSizeText,
+			@Value("${" + PROP_DB_REPLICAS_URLS + ":}") String replicaUrlsText,
+			@Value("${" + PROP_DB_REPLICAS_LAG_MAX + ":30}") String replicaLagMaxText,
+			@Value("${" + PROP_DB_REPLICAS_HEALTH_CHECK_INTERVAL + ":5}") String replicaHealthCheckIntervalText,
+			MetricRegistry metricRegistry) {
+		int connectionsMax = parseConnectionsMax(connectionsMaxText);
+		int prepareThreshold = parsePrepareThreshold(prepareThresholdText);
+		int statementCacheSize = parseStatementCacheSize(statementCacheSizeText);
 
-		poolingDataSource.setJdbcUrl(url);
-		poolingDataSource.setUsername(username);
-		poolingDataSource.setPassword(password);
+		List<DataSource> replicaDataSources = new ArrayList<>();
+		for (String replicaUrl : replicaUrlsText.split(",")) {
+			if (replicaUrl.trim().isEmpty())
+				continue;
+
+			HikariDataSource replicaDataSource = createPoolingDataSource(replicaUrl.trim(), username, password,
+					connectionsMax, prepareThreshold, statementCacheSize, metricRegistry);
+			replicaDataSource.setPoolName("replica-" + replicaDataSources.size());
+			replicaDataSource.setReadOnly(true);
+			replicaDataSources.add(replicaDataSource);
+		}
+
+		/*
+		 * Closing the primary twice (via both beans) is harmless, as Hikari
+		 * ignores the second close.
+		 */
+		if (replicaDataSources.isEmpty())
+			return primaryDataSource;
+
+		double replicaLagMax;
+		try {
+			replicaLagMax = Double.parseDouble(replicaLagMaxText);
+		} catch (NumberFormatException e) {
+			replicaLagMax = 30;
+		}
+		if (replicaLagMax < 0)
+			replicaLagMax = 30;
+
+		int replicaHealthCheckInterval;
+		try {
+			replicaHealthCheckInterval = Integer.parseInt(replicaHealthCheckIntervalText);
+		} catch (NumberFormatException e) {
+			replicaHealthCheckInterval = 5;
+		}
+		if (replicaHealthCheckInterval < 1)
+			replicaHealthCheckInterval = 5;
+
+		return new ReplicaRoutingDataSource(primaryDataSource, replicaDataSources, replicaLagMax,
+				replicaHealthCheckInterval, metricRegistry);
+	}
 
+	/**
+	 * @param url
+	 *            the JDBC URL of the (primary) database
+	 * @param username
+	 *            the database username to use
+	 * @param password
+	 *            the database password to use
+	 * @param connectionsMaxText
+	 *            the value of the {@link #PROP_DB_CONNECTIONS_MAX} property
+	 * @param prepareThresholdText
+	 *            the value of the {@link #PROP_DB_PREPARE_THRESHOLD} property
+	 * @param statementCacheSizeText
+	 *            the value of the {@link #PROP_DB_STATEMENT_CACHE_SIZE}
+	 *            property
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return a new {@link HikariDataSource} for the primary database
+	 */
+	static HikariDataSource createPrimaryDataSource(String url, String username, String password,
+			String connectionsMaxText, String prepareThresholdText, String statementCacheSizeText,
+			MetricRegistry metricRegistry) {
+		HikariDataSource poolingDataSource = createPoolingDataSource(url, username, password,
+				parseConnectionsMax(connectionsMaxText), parsePrepareThreshold(prepareThresholdText),
+				parseStatementCacheSize(statementCacheSizeText), metricRegistry);
+
+		createTestDatabaseIfNeeded(poolingDataSource);
+		return poolingDataSource;
+	}
+
+	/**
+	 * @param prepareThresholdText
+	 *            the value of the {@link #PROP_DB_PREPARE_THRESHOLD} property
+	 * @return the number of times that a statement must be run before it's
+	 *         prepared on the (PostgreSQL) database server
+	 */
+	private static int parsePrepareThreshold(String prepareThresholdText) {
+		int prepareThreshold;
+		try {
+			prepareThreshold = Integer.parseInt(prepareThresholdText);
+		} catch (NumberFormatException e) {
+			prepareThreshold = 5;
+		}
+		if (prepareThreshold < 0)
+			prepareThreshold = 5;
+
+		return prepareThreshold;
+	}
+
+	/**
+	 * @param statementCacheSizeText
+	 *            the value of the {@link #PROP_DB_STATEMENT_CACHE_SIZE}
+	 *            property
+	 * @return the number of prepared statements to cache (per PostgreSQL
+	 *         connection)
+	 */
+	private static int parseStatementCacheSize(String statementCacheSizeText) {
+		int statementCacheSize;
+		try {
+			statementCacheSize = Integer.parseInt(statementCacheSizeText);
+		} catch (NumberFormatException e) {
+			statementCacheSize = 256;
+		}
+		if (statementCacheSize < 0)
+			statementCacheSize = 256;
+
+		return statementCacheSize;
+	}
+
+	/**
+	 * @param connectionsMaxText
+	 *            the value of the {@link #PROP_DB_CONNECTIONS_MAX} property
+	 * @return the maximum number of database connections to use (per database)
+	 */
+	private static int parseConnectionsMax(String connectionsMaxText) {
 		int connectionsMax;
 		try {
 			connectionsMax = Integer.parseInt(connectionsMaxText);
@@ -102,12 +327,119 @@ public class SpringConfiguration {
 			connectionsMax = Runtime.getRuntime().availableProcessors() * 5;
 		}
 
+		return connectionsMax;
+	}
+
+	/**
+	 * @param connectionsMinText
+	 *            the value of the {@link #PROP_DB_CONNECTIONS_MIN} property
+	 * @param connectionsMax
+	 *            the maximum number of database connections to use (per
+	 *            database)
+	 * @return the minimum number of database connections to shrink each pool
+	 *         to, or <code>-1</code> if the pools should be left at their
+	 *         maximum size
+	 */
+	private static int parseConnectionsMin(String connectionsMinText, int connectionsMax) {
+		int connectionsMin;
+		try {
+			connectionsMin = Integer.parseInt(connectionsMinText);
+		} catch (NumberFormatException e) {
+			connectionsMin = -1;
+		}
+		if (connectionsMin < 1 || connectionsMin >= connectionsMax)
+			connectionsMin = -1;
+
+		return connectionsMin;
+	}
+
+	/**
+	 * @param dataSource
+	 *            the {@link DataSource} bean for the application, whose
+	 *            connection pool(s) will be resized
+	 * @param connectionsMinText
+	 *            the minimum number of database connections to keep in each
+	 *            pool, or <code>-1</code> to leave the pools at their maximum
+	 *            size
+	 * @param connectionsMaxText
+	 *            the maximum number of database connections to use
+	 * @param waitTargetText
+	 *            the connection acquire time (in milliseconds) above which the
+	 *            pools will be grown, if threads are waiting
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return the {@link ConnectionPoolSizeController} for the application,
+	 *         which will do nothing unless a minimum pool size was configured
+	 */
+	@Bean(destroyMethod = "close")
+	public ConnectionPoolSizeController connectionPoolSizeController(DataSource dataSource,
+			@Value("${" + PROP_DB_CONNECTIONS_MIN + ":-1}") String connectionsMinText,
+			@Value("${" + PROP_DB_CONNECTIONS_MAX + ":-1}") String connectionsMaxText,
+			@Value("${" + PROP_DB_CONNECTIONS_WAIT_TARGET + ":10}") String waitTargetText,
+			MetricRegistry metricRegistry) {
+		int connectionsMax = parseConnectionsMax(connectionsMaxText);
+		int connectionsMin = parseConnectionsMin(connectionsMinText, connectionsMax);
+
+		long waitTarget;
+		try {
+			waitTarget = Long.parseLong(waitTargetText);
+		} catch (NumberFormatException e) {
+			waitTarget = 10;
+		}
+		if (waitTarget < 0)
+			waitTarget = 10;
+
+		List<HikariDataSource> poolingDataSources = new ArrayList<>();
+		if (connectionsMin >= 1) {
+			List<DataSource> dataSources = dataSource instanceof ReplicaRoutingDataSource
+					? ((ReplicaRoutingDataSource) dataSource).getDataSources() : Arrays.asList(dataSource);
+			for (DataSource poolingDataSource : dataSources)
+				if (poolingDataSource instanceof HikariDataSource)
+					poolingDataSources.add((HikariDataSource) poolingDataSource);
+		} else {
+			connectionsMin = connectionsMax;
+		}
+
+		return new ConnectionPoolSizeController(poolingDataSources, connectionsMin, connectionsMax, waitTarget,
+				metricRegistry);
+	}
+
+	/**
+	 * @param url
+	 *            the JDBC URL of the database to connect to
+	 * @param username
+	 *            the database username to use
+	 * @param password
+	 *            the database password to use
+	 * @param connectionsMax
+	 *            the maximum number of database connections to use
+	 * @param prepareThreshold
+	 *            the number of times that a statement must be run before it's
+	 *            prepared on the (PostgreSQL) database server
+	 * @param statementCacheSize
+	 *            the number of prepared statements to cache (per PostgreSQL
+	 *            connection)
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return a new {@link HikariDataSource} for the specified database
+	 */
+	private static HikariDataSource createPoolingDataSource(String url, String username, String password,
+			int connectionsMax, int prepareThreshold, int statementCacheSize, MetricRegistry metricRegistry) {
+		HikariDataSource poolingDataSource = new HikariDataSource();
+
+		poolingDataSource.setJdbcUrl(url);
+		poolingDataSource.setUsername(username);
+		poolingDataSource.setPassword(password);
 		poolingDataSource.setMaximumPoolSize(connectionsMax);
 
-		poolingDataSource.setRegisterMbeans(true);
-		poolingDataSource.setMetricRegistry(metricRegistry);
+		if (url.startsWith(JDBC_URL_PREFIX_POSTGRESQL)) {
+			poolingDataSource.addDataSourceProperty("prepareThreshold", prepareThreshold);
+			poolingDataSource.addDataSourceProperty("preparedStatementCacheQueries", statementCacheSize);
+		}
 
-		createTestDatabaseIfNeeded(poolingDataSource);
+		poolingDataSource.setRegisterMbeans(true);
+		poolingDataSource
+				.setMetricsTrackerFactory(ConnectionPoolSizeController.createMetricsTrackerFactory(metricRegistry));
 
 		return poolingDataSource;
 	}
@@ -122,7 +454,7 @@ public class SpringConfiguration {
 	 *            the {@link DataSource} that will be used to connect to the
 	 *            database
 	 */
-	private void createTestDatabaseIfNeeded(HikariDataSource dataSource) {
+	private static void createTestDatabaseIfNeeded(HikariDataSource dataSource) {
 		String jdbcUrl = System.getProperty(SpringConfiguration.PROP_DB_URL, "");
 		if (!jdbcUrl.startsWith("jdbc:hsqldb:hsql://localhost/test-embedded"))
 			return;
@@ -166,27 +498,126 @@ public class SpringConfiguration {
 	/**
 	 * @param dataSource
 	 *            the {@link DataSource} for the application
+	 * @param bulkheads
+	 *            the {@link Bulkheads} for the application, which will be used
+	 *            to divide up the {@link DataSource}'s connections
+	 * @param fetchSizeText
+	 *            the number of rows to fetch from the database at a time, for
+	 *            each query
+	 * @param cacheEnabledText
+	 *            <code>true</code> to enable the {@link SecondLevelCache},
+	 *            <code>false</code> to disable it
+	 * @param cacheMaxEntriesText
+	 *            the maximum number of entries to keep in each
+	 *            {@link SecondLevelCache} region
+	 * @param cacheTimeToLiveText
+	 *            how long (in seconds) {@link SecondLevelCache} entries may be
+	 *            kept for
 	 * @return the {@link LocalContainerEntityManagerFactoryBean}, which ensures
 	 *         that other beans can safely request injection of
 	 *         {@link EntityManager} instances
 	 */
 	@Bean
-	public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+	public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource, Bulkheads bulkheads,
+			@Value("${" + PROP_DB_FETCH_SIZE + ":100}") String fetchSizeText,
+			@Value("${" + PROP_CACHE_ENABLED + ":false}") String cacheEnabledText,
+			@Value("${" + PROP_CACHE_MAX_ENTRIES + ":10000}") String cacheMaxEntriesText,
+			@Value("${" + PROP_CACHE_TIME_TO_LIVE + ":3600}") String cacheTimeToLiveText) {
+		Properties jpaProperties = jpaProperties(fetchSizeText);
+		if (Boolean.parseBoolean(cacheEnabledText))
+			SecondLevelCache.configure(jpaProperties, parseCacheMaxEntries(cacheMaxEntriesText),
+					parseCacheTimeToLive(cacheTimeToLiveText));
+
+		return createEntityManagerFactory(
+				bulkheads.isEnabled() ? new BulkheadDataSource(dataSource, bulkheads) : dataSource, jpaProperties);
+	}
+
+	/**
+	 * @param dataSource
+	 *            the {@link DataSource} for the {@link EntityManagerFactory}
+	 *            to use
+	 * @param jpaProperties
+	 *            the {@link Properties} to configure Hibernate and JPA with
+	 * @return a new {@link LocalContainerEntityManagerFactoryBean} for the
+	 *         specified {@link DataSource}
+	 */
+	static LocalContainerEntityManagerFactoryBean createEntityManagerFactory(DataSource dataSource,
+			Properties jpaProperties) {
 		LocalContainerEntityManagerFactoryBean containerEmfBean = new LocalContainerEntityManagerFactoryBean();
 		containerEmfBean.setDataSource(dataSource);
 		containerEmfBean.setPackagesToScan("gov.hhs.cms.bluebutton.data.model.rif");
 		containerEmfBean.setPersistenceProvider(new HibernatePersistenceProvider());
-		containerEmfBean.setJpaProperties(jpaProperties());
+		containerEmfBean.setJpaProperties(jpaProperties);
 		containerEmfBean.afterPropertiesSet();
 		return containerEmfBean;
 	}
 
 	/**
+	 * @param cacheMaxEntriesText
+	 *            the value of the {@link #PROP_CACHE_MAX_ENTRIES} property
+	 * @return the maximum number of entries to keep in each
+	 *         {@link SecondLevelCache} region
+	 */
+	private static long parseCacheMaxEntries(String cacheMaxEntriesText) {
+		long cacheMaxEntries;
+		try {
+			cacheMaxEntries = Long.parseLong(cacheMaxEntriesText);
+		} catch (NumberFormatException e) {
+			cacheMaxEntries = 10000;
+		}
+		if (cacheMaxEntries < 1)
+			cacheMaxEntries = 10000;
+
+		return cacheMaxEntries;
+	}
+
+	/**
+	 * @param cacheTimeToLiveText
+	 *            the value of the {@link #PROP_CACHE_TIME_TO_LIVE} property
+	 * @return how long (in seconds) {@link SecondLevelCache} entries may be
+	 *         kept for
+	 */
+	private static long parseCacheTimeToLive(String cacheTimeToLiveText) {
+		long cacheTimeToLive;
+		try {
+			cacheTimeToLive = Long.parseLong(cacheTimeToLiveText);
+		} catch (NumberFormatException e) {
+			cacheTimeToLive = 3600;
+		}
+		if (cacheTimeToLive < 1)
+			cacheTimeToLive = 3600;
+
+		return cacheTimeToLive;
+	}
+
+	/**
+	 * @param fetchSizeText
+	 *            the number of rows to fetch from the database at a time, for
+	 *            each query
 	 * @return the {@link Properties} to configure Hibernate and JPA with
 	 */
-	private Properties jpaProperties() {
+	static Properties jpaProperties(String fetchSizeText) {
+		int fetchSize;
+		try {
+			fetchSize = Integer.parseInt(fetchSizeText);
+		} catch (NumberFormatException e) {
+			fetchSize = 100;
+		}
+		if (fetchSize < 1)
+			fetchSize = 100;
+
 		Properties extraProperties = new Properties();
 		extraProperties.put(AvailableSettings.HBM2DDL_AUTO, Action.VALIDATE);
+
+		/*
+		 * Large result sets (e.g. a beneficiary's carrier claims and all of
+		 * their lines) are streamed from the database in chunks of this many
+		 * rows, rather than being buffered in their entirety by the driver.
+		 * Note that PostgreSQL's driver ignores this for queries run with
+		 * auto-commit on, so the claim searches are run in (read-only)
+		 * transactions.
+		 */
+		extraProperties.put(AvailableSettings.STATEMENT_FETCH_SIZE, String.valueOf(fetchSize));
 		
 		/*
 		 * These configuration settings will set Hibernate to log all SQL
@@ -214,6 +645,146 @@ public class SpringConfiguration {
 		return extraProperties;
 	}
 
+	/**
+	 * @param enabledText
+	 *            <code>true</code> if the {@link SecondLevelCache} was enabled
+	 *            (for {@link #entityManagerFactory}), <code>false</code> if not
+	 * @param maxEntriesText
+	 *            the maximum number of entries kept in each
+	 *            {@link SecondLevelCache} region
+	 * @param timeToLiveText
+	 *            how long (in seconds) {@link SecondLevelCache} entries may be
+	 *            kept for
+	 * @param entityManagerFactory
+	 *            the application's {@link EntityManagerFactory}
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return the {@link SecondLevelCache} for the application, which will do
+	 *         nothing if it wasn't enabled
+	 */
+	@Bean
+	public SecondLevelCache secondLevelCache(@Value("${" + PROP_CACHE_ENABLED + ":false}") String enabledText,
+			@Value("${" + PROP_CACHE_MAX_ENTRIES + ":10000}") String maxEntriesText,
+			@Value("${" + PROP_CACHE_TIME_TO_LIVE + ":3600}") String timeToLiveText,
+			EntityManagerFactory entityManagerFactory, MetricRegistry metricRegistry) {
+		return new SecondLevelCache(Boolean.parseBoolean(enabledText), parseCacheMaxEntries(maxEntriesText),
+				parseCacheTimeToLive(timeToLiveText), entityManagerFactory, metricRegistry);
+	}
+
+	/**
+	 * @param primaryDataSource
+	 *            the {@link #primaryDataSource} for the application, which the
+	 *            change log is read from, so that changes are seen as soon as
+	 *            they're committed
+	 * @param pollIntervalText
+	 *            how often (in seconds) to poll for changes from the ETL
+	 *            pipeline, where <code>0</code> (or less) disables polling
+	 * @param maxTrackedText
+	 *            the maximum number of beneficiaries whose data versions will
+	 *            be tracked individually
+	 * @param secondLevelCache
+	 *            the {@link SecondLevelCache} for the application, which will
+	 *            be notified of changes
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return the {@link BeneficiaryChangeMonitor} for the application
+	 */
+	@Bean(destroyMethod = "close")
+	public BeneficiaryChangeMonitor beneficiaryChangeMonitor(
+			@Qualifier(PRIMARY_DATA_SOURCE) DataSource primaryDataSource,
+			@Value("${" + PROP_CHANGES_POLL_INTERVAL + ":0}") String pollIntervalText,
+			@Value("${" + PROP_CHANGES_MAX_TRACKED + ":100000}") String maxTrackedText,
+			SecondLevelCache secondLevelCache, MetricRegistry metricRegistry) {
+		long pollInterval;
+		try {
+			pollInterval = Long.parseLong(pollIntervalText);
+		} catch (NumberFormatException e) {
+			pollInterval = 0;
+		}
+
+		int maxTracked;
+		try {
+			maxTracked = Integer.parseInt(maxTrackedText);
+		} catch (NumberFormatException e) {
+			maxTracked = 100000;
+		}
+		if (maxTracked < 1)
+			maxTracked = 100000;
+
+		List<BeneficiaryChangeListener> listeners = Arrays.asList(secondLevelCache);
+		return new BeneficiaryChangeMonitor(primaryDataSource, pollInterval, maxTracked, listeners,
+				metricRegistry);
+	}
+
+	/**
+	 * @param enabledText
+	 *            <code>true</code> to serve <code>ExplanationOfBenefit</code>
+	 *            requests from the {@link EobSnapshotStore}'s snapshots (where
+	 *            they exist), <code>false</code> to always use the claim
+	 *            tables
+	 * @param dataSource
+	 *            the {@link DataSource} for the application, which snapshots
+	 *            are read via
+	 * @param primaryDataSource
+	 *            the {@link #primaryDataSource} for the application, which
+	 *            snapshots are written via
+	 * @param beneficiaryChangeMonitor
+	 *            the {@link BeneficiaryChangeMonitor} for the application,
+	 *            which stale snapshots are detected via
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return the {@link EobSnapshotStore} for the application
+	 * @throws IllegalStateException
+	 *             An {@link IllegalStateException} will be thrown if the
+	 *             snapshots are enabled but the {@link BeneficiaryChangeMonitor}
+	 *             isn't polling, as stale snapshots would then never be
+	 *             detected.
+	 */
+	@Bean
+	public EobSnapshotStore eobSnapshotStore(
+			@Value("${" + PROP_EOB_SNAPSHOTS_ENABLED + ":false}") String enabledText, DataSource dataSource,
+			@Qualifier(PRIMARY_DATA_SOURCE) DataSource primaryDataSource,
+			BeneficiaryChangeMonitor beneficiaryChangeMonitor, MetricRegistry metricRegistry) {
+		boolean enabled = Boolean.parseBoolean(enabledText);
+		if (enabled && !beneficiaryChangeMonitor.isPolling())
+			throw new IllegalStateException(String.format("'%s' requires '%s' to be set.",
+					PROP_EOB_SNAPSHOTS_ENABLED, PROP_CHANGES_POLL_INTERVAL));
+
+		return new EobSnapshotStore(enabled, dataSource, primaryDataSource, beneficiaryChangeMonitor::getDataVersion,
+				metricRegistry);
+	}
+
+	/**
+	 * @param pathText
+	 *            the path of the {@link EobSegmentFile} to serve
+	 *            <code>ExplanationOfBenefit</code> searches from, or an empty
+	 *            {@link String} to not use one
+	 * @param beneficiaryChangeMonitor
+	 *            the {@link BeneficiaryChangeMonitor} for the application,
+	 *            which stale entries are detected via
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return the {@link EobSegmentFile} for the application, which will be
+	 *         empty if none was configured (or it couldn't be opened)
+	 * @throws IllegalStateException
+	 *             An {@link IllegalStateException} will be thrown if a segment
+	 *             file is configured but the {@link BeneficiaryChangeMonitor}
+	 *             isn't polling, as stale entries would then never be
+	 *             detected.
+	 */
+	@Bean
+	public EobSegmentFile eobSegmentFile(@Value("${" + PROP_EOB_SEGMENT_FILE + ":}") String pathText,
+			BeneficiaryChangeMonitor beneficiaryChangeMonitor, MetricRegistry metricRegistry) {
+		if (pathText.trim().isEmpty())
+			return EobSegmentFile.empty(metricRegistry);
+		if (!beneficiaryChangeMonitor.isPolling())
+			throw new IllegalStateException(String.format("'%s' requires '%s' to be set.", PROP_EOB_SEGMENT_FILE,
+					PROP_CHANGES_POLL_INTERVAL));
+
+		return EobSegmentFile.openOrEmpty(Paths.get(pathText.trim()), beneficiaryChangeMonitor::getDataVersion,
+				metricRegistry);
+	}
+
 	/**
 	 * @return a Spring {@link BeanPostProcessor} that enables the use of the
 	 *         JPA {@link PersistenceUnit} and {@link PersistenceContext}
@@ -263,6 +834,370 @@ public class SpringConfiguration {
 		return metricRegistry;
 	}
 
+	/**
+	 * @param timeoutText
+	 *            the maximum time (in milliseconds) that each request's
+	 *            database queries may run for
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return the {@link QueryDeadlineInterceptor} for the application, which
+	 *         bounds how long each request's queries may run for
+	 */
+	@Bean
+	public QueryDeadlineInterceptor queryDeadlineInterceptor(
+			@Value("${" + PROP_QUERY_TIMEOUT + ":30000}") String timeoutText, MetricRegistry metricRegistry) {
+		long timeout;
+		try {
+			timeout = Long.parseLong(timeoutText);
+		} catch (NumberFormatException e) {
+			timeout = 30000;
+		}
+		if (timeout < 1)
+			timeout = 30000;
+
+		return new QueryDeadlineInterceptor(timeout, metricRegistry);
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return the {@link ConnectionUnavailableInterceptor} for the
+	 *         application, which turns requests that couldn't get a database
+	 *         connection into <code>503 Service Unavailable</code> responses
+	 */
+	@Bean
+	public ConnectionUnavailableInterceptor connectionUnavailableInterceptor(MetricRegistry metricRegistry) {
+		return new ConnectionUnavailableInterceptor(metricRegistry);
+	}
+
+	/**
+	 * @param thresholdText
+	 *            the minimum response size (in bytes) that will be compressed
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return the {@link ResponseCompressionFilter} for the application, which
+	 *         will be registered by {@link BlueButtonServerInitializer}
+	 */
+	@Bean
+	public ResponseCompressionFilter responseCompressionFilter(
+			@Value("${" + PROP_COMPRESSION_THRESHOLD + ":1024}") String thresholdText,
+			MetricRegistry metricRegistry) {
+		int threshold;
+		try {
+			threshold = Integer.parseInt(thresholdText);
+		} catch (NumberFormatException e) {
+			threshold = 1024;
+		}
+		if (threshold < 0)
+			threshold = 1024;
+
+		return new ResponseCompressionFilter(threshold, metricRegistry);
+	}
+
+	/**
+	 * @param enabledText
+	 *            <code>false</code> to disable the bulkheads (the default),
+	 *            <code>true</code> to enable them (ignored in
+	 *            {@link ExecutorMode#VIRTUAL} mode, where they're always
+	 *            disabled)
+	 * @param connectionsMinText
+	 *            the minimum number of database connections to keep in each
+	 *            pool, or <code>-1</code> to leave the pools at their maximum
+	 *            size
+	 * @param connectionsMaxText
+	 *            the maximum number of database connections to use, which
+	 *            will be divided up between the bulkheads
+	 * @param queueTimeoutText
+	 *            how long (in milliseconds) requests may wait for a bulkhead
+	 *            permit before being rejected
+	 * @param executorMode
+	 *            the {@link ExecutorMode} for the application
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return the {@link Bulkheads} for the application
+	 * @throws IllegalStateException
+	 *             An {@link IllegalStateException} will be thrown if the
+	 *             bulkheads are enabled along with pool resizing, as their
+	 *             shares of the maximum pool size could then add up to more
+	 *             than the (shrunken) pool actually has.
+	 */
+	@Bean
+	public Bulkheads bulkheads(@Value("${" + PROP_BULKHEADS_ENABLED + ":false}") String enabledText,
+			@Value("${" + PROP_DB_CONNECTIONS_MIN + ":-1}") String connectionsMinText,
+			@Value("${" + PROP_DB_CONNECTIONS_MAX + ":-1}") String connectionsMaxText,
+			@Value("${" + PROP_BULKHEADS_QUEUE_TIMEOUT + ":100}") String queueTimeoutText,
+			ExecutorMode executorMode, MetricRegistry metricRegistry) {
+		boolean enabled = executorMode.resolveAdmissionControl(PROP_BULKHEADS_ENABLED,
+				Boolean.parseBoolean(enabledText));
+		int connectionsMax = parseConnectionsMax(connectionsMaxText);
+		if (enabled && parseConnectionsMin(connectionsMinText, connectionsMax) >= 1)
+			throw new IllegalStateException(String.format("'%s' can't be combined with '%s'.",
+					PROP_BULKHEADS_ENABLED, PROP_DB_CONNECTIONS_MIN));
+
+		long queueTimeout;
+		try {
+			queueTimeout = Long.parseLong(queueTimeoutText);
+		} catch (NumberFormatException e) {
+			queueTimeout = 100;
+		}
+		if (queueTimeout < 0)
+			queueTimeout = 100;
+
+		return new Bulkheads(enabled, connectionsMax, queueTimeout, metricRegistry);
+	}
+
+	/**
+	 * @param bulkheads
+	 *            the {@link Bulkheads} for the application
+	 * @return the {@link BulkheadFilter} for the application, which will be
+	 *         registered by {@link BlueButtonServerInitializer}
+	 */
+	@Bean
+	public BulkheadFilter bulkheadFilter(Bulkheads bulkheads) {
+		return new BulkheadFilter(bulkheads);
+	}
+
+	/**
+	 * @param modeText
+	 *            the name of the {@link ExecutorMode} to use
+	 *            (case-insensitive)
+	 * @return the {@link ExecutorMode} for the application, which will be
+	 *         {@link ExecutorMode#PLATFORM} unless {@link ExecutorMode#VIRTUAL}
+	 *         was configured and is supported by the current JVM
+	 */
+	@Bean
+	public ExecutorMode executorMode(@Value("${" + PROP_EXECUTOR_MODE + ":platform}") String modeText) {
+		return ExecutorMode.resolve(modeText);
+	}
+
+	/**
+	 * @param executorMode
+	 *            the {@link ExecutorMode} for the application
+	 * @param bulkheads
+	 *            the {@link Bulkheads} for the application
+	 * @return the {@link Executor} that each
+	 *         <code>ExplanationOfBenefit</code> search's per-claim-type queries
+	 *         will be run via: in {@link ExecutorMode#PLATFORM} mode, they're
+	 *         just run one after the other on the request's own thread, and in
+	 *         {@link ExecutorMode#VIRTUAL} mode, they're all run at once, each
+	 *         on its own virtual thread
+	 */
+	@Bean(name = ExplanationOfBenefitResourceProvider.CLAIM_QUERY_EXECUTOR)
+	public Executor claimQueryExecutor(ExecutorMode executorMode, Bulkheads bulkheads) {
+		if (executorMode == ExecutorMode.VIRTUAL)
+			return new ContextPropagatingExecutor(ExecutorMode.newVirtualThreadExecutor(), bulkheads);
+		return Runnable::run;
+	}
+
+	/**
+	 * @param parallelThresholdText
+	 *            the minimum number of lines that a claim must have for them
+	 *            to be transformed in parallel, where <code>0</code> (or less,
+	 *            the default) disables parallel line transforms, as no
+	 *            crossover point has been measured for the production servers
+	 *            yet (see <code>ClaimLineItemsBenchmark</code>)
+	 * @param parallelismText
+	 *            the number of threads to transform claim lines on
+	 * @return the {@link ClaimLineItems} that each claim's lines will be
+	 *         transformed via
+	 */
+	@Bean(destroyMethod = "close")
+	public ClaimLineItems claimLineItems(
+			@Value("${" + PROP_LINES_PARALLEL_THRESHOLD + ":0}") String parallelThresholdText,
+			@Value("${" + PROP_LINES_PARALLELISM + ":-1}") String parallelismText) {
+		int parallelThreshold;
+		try {
+			parallelThreshold = Integer.parseInt(parallelThresholdText);
+		} catch (NumberFormatException e) {
+			parallelThreshold = 0;
+		}
+
+		int parallelism;
+		try {
+			parallelism = Integer.parseInt(parallelismText);
+		} catch (NumberFormatException e) {
+			parallelism = -1;
+		}
+		if (parallelism < 1)
+			parallelism = Runtime.getRuntime().availableProcessors();
+
+		return new ClaimLineItems(parallelThreshold, parallelism);
+	}
+
+	/**
+	 * @param parallelismText
+	 *            the number of threads to transform each search's claims on,
+	 *            where <code>1</code> (or less) disables parallel transforms
+	 * @param queueMaxText
+	 *            the maximum number of searches' transforms that may be queued
+	 *            up before any more are run on their requests' own threads
+	 * @param claimLineItems
+	 *            the {@link ClaimLineItems} for the application
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return the {@link ClaimTransformExecutor} that each
+	 *         <code>ExplanationOfBenefit</code> search's claims will be
+	 *         transformed via
+	 */
+	@Bean(destroyMethod = "close")
+	public ClaimTransformExecutor claimTransformExecutor(
+			@Value("${" + PROP_TRANSFORM_PARALLELISM + ":0}") String parallelismText,
+			@Value("${" + PROP_TRANSFORM_QUEUE_MAX + ":-1}") String queueMaxText, ClaimLineItems claimLineItems,
+			MetricRegistry metricRegistry) {
+		int parallelism;
+		try {
+			parallelism = Integer.parseInt(parallelismText);
+		} catch (NumberFormatException e) {
+			parallelism = 0;
+		}
+
+		int queueMax;
+		try {
+			queueMax = Integer.parseInt(queueMaxText);
+		} catch (NumberFormatException e) {
+			queueMax = -1;
+		}
+		if (queueMax < 0)
+			queueMax = Math.max(parallelism, 1) * 4;
+
+		return new ClaimTransformExecutor(parallelism, queueMax, claimLineItems, metricRegistry);
+	}
+
+	/**
+	 * @param enabledText
+	 *            <code>true</code> to hand <code>ExplanationOfBenefit</code>
+	 *            searches off to worker threads, <code>false</code> to process
+	 *            them on the container's request threads
+	 * @param executorMode
+	 *            the {@link ExecutorMode} for the application
+	 * @param threadsText
+	 *            the number of worker threads to use, in
+	 *            {@link ExecutorMode#PLATFORM} mode
+	 * @param bulkheads
+	 *            the {@link Bulkheads} for the application
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return the {@link AsyncRequestExecutor} for the application, which will
+	 *         be used by {@link BlueButtonStu3Server}
+	 */
+	@Bean(destroyMethod = "close")
+	public AsyncRequestExecutor asyncRequestExecutor(
+			@Value("${" + PROP_ASYNC_ENABLED + ":false}") String enabledText, ExecutorMode executorMode,
+			@Value("${" + PROP_ASYNC_THREADS + ":-1}") String threadsText, Bulkheads bulkheads,
+			MetricRegistry metricRegistry) {
+		boolean enabled = Boolean.parseBoolean(enabledText);
+
+		int threads;
+		try {
+			threads = Integer.parseInt(threadsText);
+		} catch (NumberFormatException e) {
+			threads = -1;
+		}
+		if (threads < 1)
+			threads = Runtime.getRuntime().availableProcessors() * 2;
+
+		return new AsyncRequestExecutor(enabled, executorMode, threads, bulkheads, metricRegistry);
+	}
+
+	/**
+	 * @param enabledText
+	 *            <code>false</code> to disable load shedding (the default),
+	 *            <code>true</code> to enable it (ignored in
+	 *            {@link ExecutorMode#VIRTUAL} mode, where it's always
+	 *            disabled)
+	 * @param defaultLimitMaxText
+	 *            the maximum number of concurrent requests (other than
+	 *            <code>ExplanationOfBenefit</code> requests) to allow
+	 * @param eobLimitMaxText
+	 *            the maximum number of concurrent
+	 *            <code>ExplanationOfBenefit</code> requests to allow
+	 * @param queueTimeoutText
+	 *            how long (in milliseconds) requests may wait to be admitted
+	 *            before being rejected
+	 * @param executorMode
+	 *            the {@link ExecutorMode} for the application
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return the {@link LoadSheddingFilter} for the application, which will be
+	 *         registered by {@link BlueButtonServerInitializer}
+	 */
+	@Bean
+	public LoadSheddingFilter loadSheddingFilter(
+			@Value("${" + PROP_LOAD_SHEDDING_ENABLED + ":false}") String enabledText,
+			@Value("${" + PROP_LOAD_SHEDDING_DEFAULT_LIMIT_MAX + ":-1}") String defaultLimitMaxText,
+			@Value("${" + PROP_LOAD_SHEDDING_EOB_LIMIT_MAX + ":-1}") String eobLimitMaxText,
+			@Value("${" + PROP_LOAD_SHEDDING_QUEUE_TIMEOUT + ":100}") String queueTimeoutText,
+			ExecutorMode executorMode, MetricRegistry metricRegistry) {
+		boolean enabled = executorMode.resolveAdmissionControl(PROP_LOAD_SHEDDING_ENABLED,
+				Boolean.parseBoolean(enabledText));
+
+		int defaultLimitMax;
+		try {
+			defaultLimitMax = Integer.parseInt(defaultLimitMaxText);
+		} catch (NumberFormatException e) {
+			defaultLimitMax = -1;
+		}
+		if (defaultLimitMax < 1)
+			defaultLimitMax = Runtime.getRuntime().availableProcessors() * 10;
+
+		int eobLimitMax;
+		try {
+			eobLimitMax = Integer.parseInt(eobLimitMaxText);
+		} catch (NumberFormatException e) {
+			eobLimitMax = -1;
+		}
+		if (eobLimitMax < 1)
+			eobLimitMax = Runtime.getRuntime().availableProcessors() * 2;
+
+		long queueTimeout;
+		try {
+			queueTimeout = Long.parseLong(queueTimeoutText);
+		} catch (NumberFormatException e) {
+			queueTimeout = 100;
+		}
+		if (queueTimeout < 0)
+			queueTimeout = 100;
+
+		return new LoadSheddingFilter(enabled, defaultLimitMax, eobLimitMax, queueTimeout, metricRegistry);
+	}
+
+	/**
+	 * @param iterationsText
+	 *            the number of times to run each warm-up step, where
+	 *            <code>0</code> disables the warm-up
+	 * @param beneficiaryId
+	 *            the beneficiary ID to warm up the providers with
+	 * @param patientResourceProvider
+	 *            the application's {@link PatientResourceProvider} bean
+	 * @param coverageResourceProvider
+	 *            the application's {@link CoverageResourceProvider} bean
+	 * @param eobResourceProvider
+	 *            the application's {@link ExplanationOfBenefitResourceProvider}
+	 *            bean
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return the {@link ServerWarmup} for the application, which will be run
+	 *         by {@link BlueButtonServerInitializer}
+	 */
+	@Bean
+	public ServerWarmup serverWarmup(@Value("${" + PROP_WARMUP_ITERATIONS + ":10}") String iterationsText,
+			@Value("${" + PROP_WARMUP_BENEFICIARY_ID + ":" + ServerWarmup.SYNTHETIC_BENEFICIARY_ID
+					+ "}") String beneficiaryId,
+			PatientResourceProvider patientResourceProvider, CoverageResourceProvider coverageResourceProvider,
+			ExplanationOfBenefitResourceProvider eobResourceProvider, MetricRegistry metricRegistry) {
+		int iterations;
+		try {
+			iterations = Integer.parseInt(iterationsText);
+		} catch (NumberFormatException e) {
+			iterations = 10;
+		}
+		if (iterations < 0)
+			iterations = 10;
+
+		return new ServerWarmup(iterations, beneficiaryId, patientResourceProvider, coverageResourceProvider,
+				eobResourceProvider, metricRegistry);
+	}
+
 	/**
 	 * @return an {@link IServerInterceptor} that will add some pretty syntax
 	 *         highlighting in responses when a browser is detected
@@ -0,0 +1,28 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.Collection;
+
+/**
+ * Implementations will be notified by the {@link BeneficiaryChangeMonitor}
+ * whenever the ETL pipeline has changed beneficiaries' data, so that anything
+ * cached or derived from that data can be invalidated. Notifications are
+ * always delivered on the {@link BeneficiaryChangeMonitor}'s own thread, one
+ * at a time.
+ */
+public interface BeneficiaryChangeListener {
+	/**
+	 * Called when the specified beneficiaries' records (or any of their
+	 * claims) have been changed.
+	 *
+	 * @param beneficiaryIds
+	 *            the IDs of the beneficiaries whose data has changed
+	 */
+	void beneficiariesChanged(Collection<String> beneficiaryIds);
+
+	/**
+	 * Called when the data may have changed for any or all beneficiaries,
+	 * e.g. after a full reload, or when too many beneficiaries have changed to
+	 * track them individually.
+	 */
+	void allBeneficiariesChanged();
+}
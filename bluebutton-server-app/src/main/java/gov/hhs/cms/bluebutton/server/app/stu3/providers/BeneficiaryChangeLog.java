@@ -0,0 +1,148 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Defines the change log table that the ETL pipeline writes to after each
+ * load run, which records the IDs of the beneficiaries whose records (or
+ * claims) were inserted or updated, and which the
+ * {@link BeneficiaryChangeMonitor} polls. Each row has an ever-increasing
+ * <code>changeId</code>, which serves as a data version: anything derived
+ * from a beneficiary's data as of a given <code>changeId</code> is stale once
+ * a row with a larger one lists them. A row with a <code>NULL</code>
+ * <code>beneficiaryId</code> marks every beneficiary as changed (e.g. after a
+ * full reload).
+ * </p>
+ * <p>
+ * The pipeline is a separate project, so this class also provides the writes
+ * that it's expected to make, which allows tests (and tools) to stand in for
+ * it. Each load run's changes should be recorded in a single transaction, and
+ * load runs should not overlap, so that the <code>changeId</code>s become
+ * visible in order.
+ * </p>
+ */
+public final class BeneficiaryChangeLog {
+	private static final Logger LOGGER = LoggerFactory.getLogger(BeneficiaryChangeLog.class);
+
+	/**
+	 * The name of the change log table.
+	 */
+	static final String TABLE_NAME = "BeneficiaryChanges";
+
+	private static final String SQL_INSERT = "insert into \"" + TABLE_NAME
+			+ "\" (\"beneficiaryId\", \"changed\") values (?, ?)";
+	private static final String SQL_SELECT_LATEST = "select max(\"changeId\") from \"" + TABLE_NAME + "\"";
+
+	/**
+	 * Prevents instantiation of this utility class.
+	 */
+	private BeneficiaryChangeLog() {
+	}
+
+	/**
+	 * Creates the change log table (if it doesn't already exist).
+	 *
+	 * @param dataSource
+	 *            the {@link DataSource} for the (primary) database
+	 * @throws SQLException
+	 *             Any {@link SQLException}s encountered will be bubbled up.
+	 */
+	public static void createTableIfNeeded(DataSource dataSource) throws SQLException {
+		try (Connection connection = dataSource.getConnection()) {
+			DatabaseMetaData metaData = connection.getMetaData();
+			try (ResultSet tables = metaData.getTables(null, null, TABLE_NAME, null)) {
+				if (tables.next())
+					return;
+			}
+
+			String changeIdType = "PostgreSQL".equals(metaData.getDatabaseProductName()) ? "bigserial"
+					: "bigint generated by default as identity (start with 1)";
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("create table \"" + TABLE_NAME + "\" (\"changeId\" " + changeIdType
+						+ " primary key, \"beneficiaryId\" varchar(15), \"changed\" timestamp not null)");
+			}
+			if (!connection.getAutoCommit())
+				connection.commit();
+			LOGGER.info("Created the '{}' table.", TABLE_NAME);
+		}
+	}
+
+	/**
+	 * Records that the specified beneficiaries' data has changed, in a single
+	 * transaction.
+	 *
+	 * @param dataSource
+	 *            the {@link DataSource} for the (primary) database
+	 * @param beneficiaryIds
+	 *            the IDs of the beneficiaries whose data has changed
+	 * @throws SQLException
+	 *             Any {@link SQLException}s encountered will be bubbled up.
+	 */
+	public static void recordChanges(DataSource dataSource, Collection<String> beneficiaryIds)
+			throws SQLException {
+		if (beneficiaryIds.isEmpty())
+			return;
+
+		try (Connection connection = dataSource.getConnection()) {
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try (PreparedStatement insert = connection.prepareStatement(SQL_INSERT)) {
+				Timestamp changed = new Timestamp(System.currentTimeMillis());
+				for (String beneficiaryId : beneficiaryIds) {
+					insert.setString(1, beneficiaryId);
+					insert.setTimestamp(2, changed);
+					insert.addBatch();
+				}
+				insert.executeBatch();
+				connection.commit();
+			} catch (SQLException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		}
+	}
+
+	/**
+	 * Records that every beneficiary's data may have changed.
+	 *
+	 * @param dataSource
+	 *            the {@link DataSource} for the (primary) database
+	 * @throws SQLException
+	 *             Any {@link SQLException}s encountered will be bubbled up.
+	 */
+	public static void recordAllChanged(DataSource dataSource) throws SQLException {
+		recordChanges(dataSource, Collections.singletonList(null));
+	}
+
+	/**
+	 * @param dataSource
+	 *            the {@link DataSource} for the database
+	 * @return the latest <code>changeId</code> in the change log, or
+	 *         <code>0</code> if it's empty
+	 * @throws SQLException
+	 *             Any {@link SQLException}s encountered will be bubbled up.
+	 */
+	public static long getLatestChangeId(DataSource dataSource) throws SQLException {
+		try (Connection connection = dataSource.getConnection();
+				Statement statement = connection.createStatement();
+				ResultSet results = statement.executeQuery(SQL_SELECT_LATEST)) {
+			return results.next() ? results.getLong(1) : 0L;
+		}
+	}
+}
@@ -0,0 +1,239 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * <p>
+ * Polls the {@link BeneficiaryChangeLog} for new changes from the ETL
+ * pipeline, and publishes them to the application's
+ * {@link BeneficiaryChangeListener}s, so that caches can be invalidated as
+ * soon as (and only where) the data actually changes, rather than after a
+ * blind time-to-live. Each poll is a single range scan of the change log's
+ * primary key, for just the rows added since the last poll.
+ * </p>
+ * <p>
+ * It also tracks each beneficiary's data version: the <code>changeId</code>
+ * of the latest change seen for them, which anything derived from their data
+ * (e.g. the {@link EobSnapshotStore}'s snapshots) can be compared against. To
+ * bound its memory use, only so many beneficiaries are tracked individually.
+ * Past that (or when the change log marks every beneficiary as changed),
+ * every beneficiary is treated as having changed as of the latest
+ * <code>changeId</code>.
+ * </p>
+ * <p>
+ * On startup, the whole change log is read, so that anything built before
+ * changes that happened while the application wasn't running is still seen
+ * as stale.
+ * </p>
+ */
+public final class BeneficiaryChangeMonitor implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(BeneficiaryChangeMonitor.class);
+
+	private static final String SQL_SELECT_CHANGES = "select \"changeId\", \"beneficiaryId\" from \""
+			+ BeneficiaryChangeLog.TABLE_NAME + "\" where \"changeId\" > ? order by \"changeId\"";
+
+	/**
+	 * The number of change log rows to fetch from the database at a time.
+	 */
+	private static final int FETCH_SIZE = 1000;
+
+	private final DataSource dataSource;
+	private final int maxTrackedBeneficiaries;
+	private final List<BeneficiaryChangeListener> listeners;
+	private final Map<String, Long> changeIdsByBeneficiary;
+	private final Meter beneficiariesChanged;
+	private final Meter allBeneficiariesChanged;
+	private final ScheduledExecutorService executor;
+
+	private volatile long lastChangeId;
+	private volatile long allChangedId;
+	private boolean pollFailing;
+
+	/**
+	 * Constructs a new {@link BeneficiaryChangeMonitor}, which will start
+	 * polling immediately, if enabled.
+	 *
+	 * @param dataSource
+	 *            the {@link DataSource} for the database that the change log
+	 *            is in
+	 * @param pollIntervalSeconds
+	 *            how often (in seconds) to poll the change log, where
+	 *            <code>0</code> (or less) disables polling (in which case
+	 *            there will be no notifications, and every beneficiary's data
+	 *            version will stay <code>0</code>)
+	 * @param maxTrackedBeneficiaries
+	 *            the maximum number of beneficiaries whose data versions will
+	 *            be tracked individually
+	 * @param listeners
+	 *            the {@link BeneficiaryChangeListener}s to notify of changes
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 */
+	public BeneficiaryChangeMonitor(DataSource dataSource, long pollIntervalSeconds, int maxTrackedBeneficiaries,
+			List<BeneficiaryChangeListener> listeners, MetricRegistry metricRegistry) {
+		if (maxTrackedBeneficiaries < 1)
+			throw new IllegalArgumentException();
+
+		this.dataSource = dataSource;
+		this.maxTrackedBeneficiaries = maxTrackedBeneficiaries;
+		this.listeners = Collections.unmodifiableList(new ArrayList<>(listeners));
+		this.changeIdsByBeneficiary = new ConcurrentHashMap<>();
+		this.lastChangeId = 0L;
+		this.allChangedId = 0L;
+		this.pollFailing = false;
+
+		this.beneficiariesChanged = metricRegistry
+				.meter(MetricRegistry.name(getClass(), "beneficiariesChanged"));
+		this.allBeneficiariesChanged = metricRegistry
+				.meter(MetricRegistry.name(getClass(), "allBeneficiariesChanged"));
+		metricRegistry.register(MetricRegistry.name(getClass(), "lastChangeId"), (Gauge<Long>) () -> lastChangeId);
+		metricRegistry.register(MetricRegistry.name(getClass(), "trackedBeneficiaries"),
+				(Gauge<Integer>) () -> changeIdsByBeneficiary.size());
+
+		if (pollIntervalSeconds < 1) {
+			this.executor = null;
+		} else {
+			this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, BeneficiaryChangeMonitor.class.getSimpleName());
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.executor.scheduleWithFixedDelay(this::poll, 0, pollIntervalSeconds, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if this {@link BeneficiaryChangeMonitor} is
+	 *         polling the change log, <code>false</code> if polling was
+	 *         disabled (in which case every data version stays <code>0</code>)
+	 */
+	public boolean isPolling() {
+		return executor != null;
+	}
+
+	/**
+	 * @param beneficiaryId
+	 *            the ID of the beneficiary to get the data version of
+	 * @return the <code>changeId</code> of the latest change seen for the
+	 *         specified beneficiary, or <code>0</code> if none have been seen
+	 */
+	public long getDataVersion(String beneficiaryId) {
+		Long changeId = changeIdsByBeneficiary.get(beneficiaryId);
+		return Math.max(allChangedId, changeId != null ? changeId : 0L);
+	}
+
+	/**
+	 * Reads any new changes from the change log, updates the data versions,
+	 * and then notifies the {@link BeneficiaryChangeListener}s. Failures are
+	 * logged, but otherwise ignored, as they'd otherwise stop all future polls.
+	 */
+	synchronized void poll() {
+		long newLastChangeId = lastChangeId;
+		Set<String> changedBeneficiaryIds = new LinkedHashSet<>();
+		boolean allChanged = false;
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(SQL_SELECT_CHANGES)) {
+			statement.setFetchSize(FETCH_SIZE);
+			statement.setLong(1, lastChangeId);
+			try (ResultSet results = statement.executeQuery()) {
+				while (results.next()) {
+					newLastChangeId = results.getLong(1);
+					String beneficiaryId = results.getString(2);
+					if (allChanged)
+						continue;
+
+					if (beneficiaryId == null || changedBeneficiaryIds.size() >= maxTrackedBeneficiaries) {
+						allChanged = true;
+						changedBeneficiaryIds.clear();
+					} else {
+						changedBeneficiaryIds.add(beneficiaryId);
+					}
+				}
+			}
+
+			if (pollFailing)
+				LOGGER.info("Polling the '{}' table succeeded again.", BeneficiaryChangeLog.TABLE_NAME);
+			pollFailing = false;
+		} catch (SQLException | RuntimeException e) {
+			// Only log the first of a series of failures (e.g. no table) loudly.
+			if (!pollFailing)
+				LOGGER.warn(String.format("Unable to poll the '%s' table.", BeneficiaryChangeLog.TABLE_NAME), e);
+			else
+				LOGGER.debug("Unable to poll the '{}' table.", BeneficiaryChangeLog.TABLE_NAME, e);
+			pollFailing = true;
+			return;
+		}
+
+		if (newLastChangeId == lastChangeId)
+			return;
+		if (changeIdsByBeneficiary.size() + changedBeneficiaryIds.size() > maxTrackedBeneficiaries)
+			allChanged = true;
+
+		/*
+		 * The data versions have to be updated before the listeners are
+		 * notified, so that nothing they evict gets re-derived from stale data
+		 * without being marked as such. For the same reason, the individual
+		 * versions are only dropped after everything's been marked as changed.
+		 */
+		if (allChanged) {
+			allChangedId = newLastChangeId;
+			changeIdsByBeneficiary.clear();
+		} else {
+			for (String beneficiaryId : changedBeneficiaryIds)
+				changeIdsByBeneficiary.put(beneficiaryId, newLastChangeId);
+		}
+		lastChangeId = newLastChangeId;
+
+		for (BeneficiaryChangeListener listener : listeners) {
+			try {
+				if (allChanged)
+					listener.allBeneficiariesChanged();
+				else
+					listener.beneficiariesChanged(Collections.unmodifiableSet(changedBeneficiaryIds));
+			} catch (RuntimeException e) {
+				LOGGER.warn(String.format("Change listener '%s' failed.", listener), e);
+			}
+		}
+
+		if (allChanged) {
+			allBeneficiariesChanged.mark();
+			LOGGER.info("Data changed for all beneficiaries, as of change {}.", newLastChangeId);
+		} else {
+			beneficiariesChanged.mark(changedBeneficiaryIds.size());
+			LOGGER.info("Data changed for {} beneficiaries, as of change {}.", changedBeneficiaryIds.size(),
+					newLastChangeId);
+		}
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		if (executor != null)
+			executor.shutdownNow();
+	}
+}
@@ -3,6 +3,7 @@ package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 import java.time.LocalDate;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Models a ccwProcedure code entry in a claim.
@@ -63,5 +64,25 @@ final class CCWProcedure extends IcdCode {
 		return Optional.of(new CCWProcedure(icdCode, icdVersionCode, procedureDate));
 	}
 
+	/**
+	 * @param icdCode
+	 *            the getter for the slot's ICD code field
+	 * @param icdVersionCode
+	 *            the getter for the slot's ICD version field
+	 * @param procedureDate
+	 *            the getter for the slot's procedure date field, which will
+	 *            only be called if the ICD code is present
+	 * @return an {@link IcdCodeSlots} slot that returns a new
+	 *         {@link CCWProcedure} for the specified fields, or
+	 *         <code>null</code> if no ICD code is present in them
+	 */
+	static <C> Function<C, CCWProcedure> slot(Function<C, Optional<String>> icdCode,
+			Function<C, Optional<Character>> icdVersionCode, Function<C, Optional<LocalDate>> procedureDate) {
+		return claim -> {
+			Optional<String> code = icdCode.apply(claim);
+			if (!code.isPresent())
+				return null;
+			return new CCWProcedure(code, icdVersionCode.apply(claim), procedureDate.apply(claim).get());
+		};
+	}
 }
-
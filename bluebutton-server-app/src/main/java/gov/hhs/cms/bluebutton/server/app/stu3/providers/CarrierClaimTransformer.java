@@ -1,10 +1,8 @@
 package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
 import java.math.BigDecimal;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
-import java.util.function.Consumer;
 
 import org.hl7.fhir.dstu3.model.CodeableConcept;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
@@ -37,6 +35,28 @@ import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel
  * {@link ExplanationOfBenefit} resources.
  */
 final class CarrierClaimTransformer {
+	/**
+	 * The {@link IcdCodeSlots} for the diagnosis codes in each
+	 * {@link CarrierClaim}.
+	 */
+	static final IcdCodeSlots<CarrierClaim, Diagnosis> DIAGNOSES = IcdCodeSlots
+			.<CarrierClaim, Diagnosis> builder()
+			.add(Diagnosis.slot(CarrierClaim::getDiagnosisPrincipalCode,
+					CarrierClaim::getDiagnosisPrincipalCodeVersion, DiagnosisLabel.PRINCIPAL))
+			.add(Diagnosis.slot(CarrierClaim::getDiagnosis1Code, CarrierClaim::getDiagnosis1CodeVersion))
+			.add(Diagnosis.slot(CarrierClaim::getDiagnosis2Code, CarrierClaim::getDiagnosis2CodeVersion))
+			.add(Diagnosis.slot(CarrierClaim::getDiagnosis3Code, CarrierClaim::getDiagnosis3CodeVersion))
+			.add(Diagnosis.slot(CarrierClaim::getDiagnosis4Code, CarrierClaim::getDiagnosis4CodeVersion))
+			.add(Diagnosis.slot(CarrierClaim::getDiagnosis5Code, CarrierClaim::getDiagnosis5CodeVersion))
+			.add(Diagnosis.slot(CarrierClaim::getDiagnosis6Code, CarrierClaim::getDiagnosis6CodeVersion))
+			.add(Diagnosis.slot(CarrierClaim::getDiagnosis7Code, CarrierClaim::getDiagnosis7CodeVersion))
+			.add(Diagnosis.slot(CarrierClaim::getDiagnosis8Code, CarrierClaim::getDiagnosis8CodeVersion))
+			.add(Diagnosis.slot(CarrierClaim::getDiagnosis9Code, CarrierClaim::getDiagnosis9CodeVersion))
+			.add(Diagnosis.slot(CarrierClaim::getDiagnosis10Code, CarrierClaim::getDiagnosis10CodeVersion))
+			.add(Diagnosis.slot(CarrierClaim::getDiagnosis11Code, CarrierClaim::getDiagnosis11CodeVersion))
+			.add(Diagnosis.slot(CarrierClaim::getDiagnosis12Code, CarrierClaim::getDiagnosis12CodeVersion))
+			.build();
+
 	/**
 	 * @param claim
 	 *            the CCW {@link CarrierClaim} to transform
@@ -44,18 +64,32 @@ final class CarrierClaimTransformer {
 	 *         specified {@link CarrierClaim}
 	 */
 	static ExplanationOfBenefit transform(Object claim) {
+		return transform(claim, ClaimLineItems.SEQUENTIAL);
+	}
+
+	/**
+	 * @param claim
+	 *            the CCW {@link CarrierClaim} to transform
+	 * @param claimLineItems
+	 *            the {@link ClaimLineItems} to transform the claim's lines via
+	 * @return a FHIR {@link ExplanationOfBenefit} resource that represents the
+	 *         specified {@link CarrierClaim}
+	 */
+	static ExplanationOfBenefit transform(Object claim, ClaimLineItems claimLineItems) {
 		if (!(claim instanceof CarrierClaim))
 			throw new BadCodeMonkeyException();
-		return transformClaim((CarrierClaim) claim);
+		return transformClaim((CarrierClaim) claim, claimLineItems);
 	}
 
 	/**
 	 * @param claimGroup
 	 *            the CCW {@link CarrierClaim} to transform
+	 * @param claimLineItems
+	 *            the {@link ClaimLineItems} to transform the claim's lines via
 	 * @return a FHIR {@link ExplanationOfBenefit} resource that represents the
 	 *         specified {@link CarrierClaim}
 	 */
-	private static ExplanationOfBenefit transformClaim(CarrierClaim claimGroup) {
+	private static ExplanationOfBenefit transformClaim(CarrierClaim claimGroup, ClaimLineItems claimLineItems) {
 		ExplanationOfBenefit eob = new ExplanationOfBenefit();
 
 		eob.setId(TransformerUtils.buildEobId(ClaimType.CARRIER, claimGroup.getClaimId()));
@@ -156,8 +190,7 @@ final class CarrierClaimTransformer {
 			benefitBalances.getFinancial().add(beneficiaryPartBDeductAmount);
 		}
 
-		for (Diagnosis diagnosis : extractDiagnoses(claimGroup))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+		DIAGNOSES.forEach(claimGroup, diagnosis -> TransformerUtils.addDiagnosisCode(eob, diagnosis));
 
 		if (claimGroup.getClinicalTrialNumber().isPresent()) {
 			TransformerUtils.addExtensionCoding(eob, TransformerConstants.CODING_SYSTEM_CCW_CARR_CLINICAL_TRIAL_NUMBER,
@@ -165,271 +198,277 @@ final class CarrierClaimTransformer {
 					claimGroup.getClinicalTrialNumber().get());
 		}
 
-		for (CarrierClaimLine claimLine : claimGroup.getLines()) {
-			ItemComponent item = eob.addItem();
-			item.setSequence(claimLine.getLineNumber().intValue());
+		/*
+		 * The lines are transformed into items first (possibly in parallel),
+		 * and then linked to the EOB's care team and diagnoses one at a time
+		 * and in order, so that those entries' sequence numbers don't change.
+		 */
+		List<CarrierClaimLine> claimLines = claimGroup.getLines();
+		List<ItemComponent> items = claimLineItems.transform(claimLines,
+				claimLine -> transformLine(claimGroup, claimLine));
+		for (int i = 0; i < claimLines.size(); i++) {
+			ItemComponent item = items.get(i);
+			eob.addItem(item);
+			linkLine(eob, claimLines.get(i), item);
+		}
 
-			TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_FHIR_EOB_ITEM_TYPE,
-					TransformerConstants.CODING_SYSTEM_FHIR_EOB_ITEM_TYPE,
-					TransformerConstants.CODED_EOB_ITEM_TYPE_CLINICAL_SERVICES_AND_PRODUCTS);
+		return eob;
+	}
 
-			/*
-			 * Per Michelle at GDIT, and also Tony Dean at OEDA, the performing
-			 * provider _should_ always be present. However, we've found some
-			 * examples in production where it's not for some claim lines. (This
-			 * is annoying, as it's present on other lines in the same claim,
-			 * and the data indicates that the same NPI probably applies to the
-			 * lines where it's not specified. Still, it's not safe to guess at
-			 * this, so we'll leave it blank.)
-			 */
-			if (claimLine.getPerformingPhysicianNpi().isPresent()) {
-				ExplanationOfBenefit.CareTeamComponent performingCareTeamMember = TransformerUtils.addCareTeamPractitioner(eob, item,
-						TransformerConstants.CODING_SYSTEM_NPI_US, claimLine.getPerformingPhysicianNpi().get(),
-						TransformerConstants.CARE_TEAM_ROLE_PRIMARY);
-				performingCareTeamMember.setResponsible(true);
-
-				/*
-				 * The provider's "specialty" and "type" code are equivalent.
-				 * However, the "specialty" codes are more granular, and seem to
-				 * better match the example FHIR
-				 * `http://hl7.org/fhir/ex-providerqualification` code set.
-				 * Accordingly, we map the "specialty" codes to the
-				 * `qualification` field here, and stick the "type" code into an
-				 * extension. TODO: suggest that the spec allows more than one
-				 * `qualification` entry.
-				 */
-
-				performingCareTeamMember.setQualification(
-						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_SPECIALTY_CD,
-								"" + claimLine.getProviderSpecialityCode().get()));
-				TransformerUtils.addExtensionCoding(performingCareTeamMember,
-						TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_TYPE_CD,
-						TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_TYPE_CD,
-						"" + claimLine.getProviderTypeCode());
-
-				TransformerUtils.addExtensionCoding(performingCareTeamMember,
-						TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_PARTICIPATING_CD,
-						TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_PARTICIPATING_CD,
-						"" + claimLine.getProviderParticipatingIndCode().get());
-				if (claimLine.getOrganizationNpi().isPresent()) {
-					TransformerUtils.addExtensionCoding(performingCareTeamMember, TransformerConstants.CODING_SYSTEM_NPI_US,
-							TransformerConstants.CODING_SYSTEM_NPI_US, "" + claimLine.getOrganizationNpi().get());
-				}
-			}
+	/**
+	 * @param claimGroup
+	 *            the {@link CarrierClaim} that the specified
+	 *            {@link CarrierClaimLine} is part of
+	 * @param claimLine
+	 *            the {@link CarrierClaimLine} to transform
+	 * @return a new {@link ItemComponent} that represents the specified
+	 *         {@link CarrierClaimLine}, other than its links to the
+	 *         {@link ExplanationOfBenefit}'s care team and diagnoses (see
+	 *         {@link #linkLine(ExplanationOfBenefit, CarrierClaimLine, ItemComponent)})
+	 */
+	private static ItemComponent transformLine(CarrierClaim claimGroup, CarrierClaimLine claimLine) {
+		ItemComponent item = new ItemComponent();
+		item.setSequence(claimLine.getLineNumber().intValue());
 
-			item.setLocation(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_FHIR_EOB_ITEM_LOCATION,
-					claimLine.getPlaceOfServiceCode()));
+		TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_FHIR_EOB_ITEM_TYPE,
+				TransformerConstants.CODING_SYSTEM_FHIR_EOB_ITEM_TYPE,
+				TransformerConstants.CODED_EOB_ITEM_TYPE_CLINICAL_SERVICES_AND_PRODUCTS);
 
-			if (claimLine.getProviderStateCode().isPresent()) {
-				TransformerUtils.addExtensionCoding(item.getLocation(), TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_STATE_CD,
-						TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_STATE_CD,
-						claimLine.getProviderStateCode().get());
-			}
+		item.setLocation(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_FHIR_EOB_ITEM_LOCATION,
+				claimLine.getPlaceOfServiceCode()));
 
-			if (claimLine.getProviderZipCode().isPresent()) {
-				TransformerUtils.addExtensionCoding(item.getLocation(), TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_ZIP_CD,
-						TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_ZIP_CD,
-						claimLine.getProviderZipCode().get());
-			}
+		if (claimLine.getProviderStateCode().isPresent()) {
+			TransformerUtils.addExtensionCoding(item.getLocation(), TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_STATE_CD,
+					TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_STATE_CD,
+					claimLine.getProviderStateCode().get());
+		}
 
-			item.addAdjudication()
-					.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_PHYSICIAN_ASSISTANT))
-					.setReason(
-							TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_PHYSICIAN_ASSISTANT_ADJUDICATION,
-									"" + claimLine.getReducedPaymentPhysicianAsstCode()));
+		if (claimLine.getProviderZipCode().isPresent()) {
+			TransformerUtils.addExtensionCoding(item.getLocation(), TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_ZIP_CD,
+					TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_ZIP_CD,
+					claimLine.getProviderZipCode().get());
+		}
 
-			SimpleQuantity serviceCount = new SimpleQuantity();
-			serviceCount.setValue(claimLine.getServiceCount());
-			item.setQuantity(serviceCount);
+		item.addAdjudication()
+				.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_PHYSICIAN_ASSISTANT))
+				.setReason(
+						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_PHYSICIAN_ASSISTANT_ADJUDICATION,
+								"" + claimLine.getReducedPaymentPhysicianAsstCode()));
 
-			item.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_FHIR_EOB_ITEM_TYPE_SERVICE,
-					"" + claimLine.getCmsServiceTypeCode()));
+		SimpleQuantity serviceCount = new SimpleQuantity();
+		serviceCount.setValue(claimLine.getServiceCount());
+		item.setQuantity(serviceCount);
 
-			TransformerUtils.addExtensionCoding(item.getLocation(), TransformerConstants.CODING_SYSTEM_CCW_PRICING_LOCALITY,
-					TransformerConstants.CODING_SYSTEM_CCW_PRICING_LOCALITY, claimLine.getLinePricingLocalityCode());
+		item.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_FHIR_EOB_ITEM_TYPE_SERVICE,
+				"" + claimLine.getCmsServiceTypeCode()));
 
-			if (claimLine.getFirstExpenseDate().isPresent() && claimLine.getLastExpenseDate().isPresent()) {
-				TransformerUtils.validatePeriodDates(claimLine.getFirstExpenseDate(), claimLine.getLastExpenseDate());
-				item.setServiced(new Period()
-						.setStart((TransformerUtils.convertToDate(claimLine.getFirstExpenseDate().get())), TemporalPrecisionEnum.DAY)
-						.setEnd((TransformerUtils.convertToDate(claimLine.getLastExpenseDate().get())), TemporalPrecisionEnum.DAY));
-			}
+		TransformerUtils.addExtensionCoding(item.getLocation(), TransformerConstants.CODING_SYSTEM_CCW_PRICING_LOCALITY,
+				TransformerConstants.CODING_SYSTEM_CCW_PRICING_LOCALITY, claimLine.getLinePricingLocalityCode());
 
-			if (claimLine.getHcpcsCode().isPresent()) {
-				item.setService(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_HCPCS,
-						"" + claimGroup.getHcpcsYearCode().get(), claimLine.getHcpcsCode().get()));
-			}
-			if (claimLine.getHcpcsInitialModifierCode().isPresent()) {
-				item.addModifier(TransformerUtils.createCodeableConcept(TransformerConstants.HCPCS_INITIAL_MODIFIER_CODE1,
-						"" + claimGroup.getHcpcsYearCode().get(), claimLine.getHcpcsInitialModifierCode().get()));
-			}
-			if (claimLine.getHcpcsSecondModifierCode().isPresent()) {
-				item.addModifier(TransformerUtils.createCodeableConcept(TransformerConstants.HCPCS_INITIAL_MODIFIER_CODE2,
-						"" + claimGroup.getHcpcsYearCode().get(), claimLine.getHcpcsSecondModifierCode().get()));
-			}
-			if (claimLine.getBetosCode().isPresent()) {
-				TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_BETOS,
-						TransformerConstants.CODING_SYSTEM_BETOS, claimLine.getBetosCode().get());
-			}
+		if (claimLine.getFirstExpenseDate().isPresent() && claimLine.getLastExpenseDate().isPresent()) {
+			TransformerUtils.validatePeriodDates(claimLine.getFirstExpenseDate(), claimLine.getLastExpenseDate());
+			item.setServiced(new Period()
+					.setStart((TransformerUtils.convertToDate(claimLine.getFirstExpenseDate().get())), TemporalPrecisionEnum.DAY)
+					.setEnd((TransformerUtils.convertToDate(claimLine.getLastExpenseDate().get())), TemporalPrecisionEnum.DAY));
+		}
 
-			TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_CMS_LINE_DEDUCTIBLE_SWITCH,
-					TransformerConstants.CODING_SYSTEM_CMS_LINE_DEDUCTIBLE_SWITCH,
-					"" + claimLine.getServiceDeductibleCode().get());
-
-			AdjudicationComponent adjudicationForPayment = item.addAdjudication();
-			adjudicationForPayment
-					.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_PAYMENT))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US).setValue(claimLine.getPaymentAmount());
-			TransformerUtils.addExtensionCoding(adjudicationForPayment,
-					TransformerConstants.CODING_SYSTEM_CMS_LINE_PAYMENT_INDICATOR_SWITCH,
-					TransformerConstants.CODING_SYSTEM_CMS_LINE_PAYMENT_INDICATOR_SWITCH,
-					"" + claimLine.getPaymentCode().get());
-
-			item.addAdjudication()
-					.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_BENEFICIARY_PAYMENT_AMOUNT))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getBeneficiaryPaymentAmount());
-
-			item.addAdjudication()
-					.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_PAYMENT_B))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getProviderPaymentAmount());
-
-			item.addAdjudication()
-					.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_DEDUCTIBLE))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getBeneficiaryPartBDeductAmount());
-
-			if (claimLine.getPrimaryPayerCode().isPresent()) {
-				TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_PRIMARY_PAYER_CD,
-						TransformerConstants.CODING_SYSTEM_PRIMARY_PAYER_CD,
-						String.valueOf(claimLine.getPrimaryPayerCode().get()));
-			}
+		if (claimLine.getHcpcsCode().isPresent()) {
+			item.setService(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_HCPCS,
+					"" + claimGroup.getHcpcsYearCode().get(), claimLine.getHcpcsCode().get()));
+		}
+		if (claimLine.getHcpcsInitialModifierCode().isPresent()) {
+			item.addModifier(TransformerUtils.createCodeableConcept(TransformerConstants.HCPCS_INITIAL_MODIFIER_CODE1,
+					"" + claimGroup.getHcpcsYearCode().get(), claimLine.getHcpcsInitialModifierCode().get()));
+		}
+		if (claimLine.getHcpcsSecondModifierCode().isPresent()) {
+			item.addModifier(TransformerUtils.createCodeableConcept(TransformerConstants.HCPCS_INITIAL_MODIFIER_CODE2,
+					"" + claimGroup.getHcpcsYearCode().get(), claimLine.getHcpcsSecondModifierCode().get()));
+		}
+		if (claimLine.getBetosCode().isPresent()) {
+			TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_BETOS,
+					TransformerConstants.CODING_SYSTEM_BETOS, claimLine.getBetosCode().get());
+		}
 
-			item.addAdjudication()
-					.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_PRIMARY_PAYER_PAID_AMOUNT))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getPrimaryPayerPaidAmount());
-
-			item.addAdjudication()
-					.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_LINE_COINSURANCE_AMOUNT))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US).setValue(claimLine.getCoinsuranceAmount());
-
-			item.addAdjudication()
-					.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_SUBMITTED_CHARGE_AMOUNT))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getSubmittedChargeAmount());
-
-			item.addAdjudication()
-					.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_ALLOWED_CHARGE))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US).setValue(claimLine.getAllowedChargeAmount());
-
-			if (claimLine.getMtusCode().isPresent()) {
-				TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_MTUS_CD,
-						TransformerConstants.CODING_SYSTEM_MTUS_CD, String.valueOf(claimLine.getMtusCode().get()));
-			}
+		TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_CMS_LINE_DEDUCTIBLE_SWITCH,
+				TransformerConstants.CODING_SYSTEM_CMS_LINE_DEDUCTIBLE_SWITCH,
+				"" + claimLine.getServiceDeductibleCode().get());
+
+		AdjudicationComponent adjudicationForPayment = item.addAdjudication();
+		adjudicationForPayment
+				.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_PAYMENT))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US).setValue(claimLine.getPaymentAmount());
+		TransformerUtils.addExtensionCoding(adjudicationForPayment,
+				TransformerConstants.CODING_SYSTEM_CMS_LINE_PAYMENT_INDICATOR_SWITCH,
+				TransformerConstants.CODING_SYSTEM_CMS_LINE_PAYMENT_INDICATOR_SWITCH,
+				"" + claimLine.getPaymentCode().get());
+
+		item.addAdjudication()
+				.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_BENEFICIARY_PAYMENT_AMOUNT))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getBeneficiaryPaymentAmount());
+
+		item.addAdjudication()
+				.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_PAYMENT_B))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getProviderPaymentAmount());
+
+		item.addAdjudication()
+				.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_DEDUCTIBLE))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getBeneficiaryPartBDeductAmount());
+
+		if (claimLine.getPrimaryPayerCode().isPresent()) {
+			TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_PRIMARY_PAYER_CD,
+					TransformerConstants.CODING_SYSTEM_PRIMARY_PAYER_CD,
+					String.valueOf(claimLine.getPrimaryPayerCode().get()));
+		}
 
-			if (!claimLine.getMtusCount().equals(BigDecimal.ZERO)) {
-				TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_MTUS_COUNT,
-						TransformerConstants.CODING_SYSTEM_MTUS_COUNT, String.valueOf(claimLine.getMtusCount()));
-			}
+		item.addAdjudication()
+				.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_PRIMARY_PAYER_PAID_AMOUNT))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getPrimaryPayerPaidAmount());
+
+		item.addAdjudication()
+				.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_LINE_COINSURANCE_AMOUNT))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US).setValue(claimLine.getCoinsuranceAmount());
+
+		item.addAdjudication()
+				.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_SUBMITTED_CHARGE_AMOUNT))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getSubmittedChargeAmount());
+
+		item.addAdjudication()
+				.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_ALLOWED_CHARGE))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US).setValue(claimLine.getAllowedChargeAmount());
+
+		if (claimLine.getMtusCode().isPresent()) {
+			TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_MTUS_CD,
+					TransformerConstants.CODING_SYSTEM_MTUS_CD, String.valueOf(claimLine.getMtusCode().get()));
+		}
 
-			item.addAdjudication()
-					.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_LINE_PROCESSING_INDICATOR))
-					.setReason(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_CMS_LINE_PROCESSING_INDICATOR,
-							claimLine.getProcessingIndicatorCode().get()));
+		if (!claimLine.getMtusCount().equals(BigDecimal.ZERO)) {
+			TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_MTUS_COUNT,
+					TransformerConstants.CODING_SYSTEM_MTUS_COUNT, String.valueOf(claimLine.getMtusCount()));
+		}
 
-			Optional<Diagnosis> lineDiagnosis = extractDiagnosis(claimLine);
-			if (lineDiagnosis.isPresent())
-				TransformerUtils.addDiagnosisLink(eob, item, lineDiagnosis.get());
+		item.addAdjudication()
+				.setCategory(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_LINE_PROCESSING_INDICATOR))
+				.setReason(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_CMS_LINE_PROCESSING_INDICATOR,
+						claimLine.getProcessingIndicatorCode().get()));
 
-			if (claimLine.getNationalDrugCode().isPresent()) {
-				TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_NDC, TransformerConstants.CODING_SYSTEM_NDC,
-						claimLine.getNationalDrugCode().get());
-			}
+		if (claimLine.getNationalDrugCode().isPresent()) {
+			TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_NDC, TransformerConstants.CODING_SYSTEM_NDC,
+					claimLine.getNationalDrugCode().get());
+		}
 
-			if (claimLine.getHctHgbTestTypeCode().isPresent()
-					&& claimLine.getHctHgbTestResult().compareTo(BigDecimal.ZERO) != 0) {
-				Observation hctHgbObservation = new Observation();
-				hctHgbObservation.setStatus(ObservationStatus.UNKNOWN);
-				CodeableConcept hctHgbTestType = new CodeableConcept();
-				hctHgbTestType.addCoding().setSystem(TransformerConstants.CODING_SYSTEM_CMS_HCT_OR_HGB_TEST_TYPE)
-						.setCode(claimLine.getHctHgbTestTypeCode().get());
-				hctHgbObservation.setCode(hctHgbTestType);
-				hctHgbObservation.setValue(new Quantity().setValue(claimLine.getHctHgbTestResult()));
-				item.addExtension().setUrl(TransformerConstants.EXTENSION_CMS_HCT_OR_HGB_RESULTS)
-						.setValue(new Reference(hctHgbObservation));
-			} else if (!claimLine.getHctHgbTestTypeCode().isPresent()
-					&& claimLine.getHctHgbTestResult().compareTo(BigDecimal.ZERO) == 0) {
-				// Nothing to do here; don't map a non-existent Observation.
-			} else {
-				throw new InvalidRifValueException(String.format(
-						"Inconsistent hctHgbTestTypeCode and hctHgbTestResult" + " values for claim '%s'.",
-						claimGroup.getClaimId()));
-			}
+		if (claimLine.getHctHgbTestTypeCode().isPresent()
+				&& claimLine.getHctHgbTestResult().compareTo(BigDecimal.ZERO) != 0) {
+			Observation hctHgbObservation = new Observation();
+			hctHgbObservation.setStatus(ObservationStatus.UNKNOWN);
+			CodeableConcept hctHgbTestType = new CodeableConcept();
+			hctHgbTestType.addCoding().setSystem(TransformerConstants.CODING_SYSTEM_CMS_HCT_OR_HGB_TEST_TYPE)
+					.setCode(claimLine.getHctHgbTestTypeCode().get());
+			hctHgbObservation.setCode(hctHgbTestType);
+			hctHgbObservation.setValue(new Quantity().setValue(claimLine.getHctHgbTestResult()));
+			item.addExtension().setUrl(TransformerConstants.EXTENSION_CMS_HCT_OR_HGB_RESULTS)
+					.setValue(new Reference(hctHgbObservation));
+		} else if (!claimLine.getHctHgbTestTypeCode().isPresent()
+				&& claimLine.getHctHgbTestResult().compareTo(BigDecimal.ZERO) == 0) {
+			// Nothing to do here; don't map a non-existent Observation.
+		} else {
+			throw new InvalidRifValueException(String.format(
+					"Inconsistent hctHgbTestTypeCode and hctHgbTestResult" + " values for claim '%s'.",
+					claimGroup.getClaimId()));
+		}
 
-			if (claimLine.getCliaLabNumber().isPresent()) {
-				TransformerUtils.addExtensionCoding(item.getLocation(), TransformerConstants.CODING_SYSTEM_CLIA_LAB_NUM,
-						TransformerConstants.CODING_SYSTEM_CLIA_LAB_NUM, claimLine.getCliaLabNumber().get());
-			}
+		if (claimLine.getCliaLabNumber().isPresent()) {
+			TransformerUtils.addExtensionCoding(item.getLocation(), TransformerConstants.CODING_SYSTEM_CLIA_LAB_NUM,
+					TransformerConstants.CODING_SYSTEM_CLIA_LAB_NUM, claimLine.getCliaLabNumber().get());
 		}
 
-		return eob;
+		return item;
 	}
 
 	/**
-	 * @param claim
-	 *            the {@link CarrierClaim} to extract the {@link Diagnosis}es
-	 *            from
-	 * @return the {@link Diagnosis}es that can be extracted from the specified
-	 *         {@link CarrierClaim}
+	 * Adds the care team and diagnosis entries for the specified
+	 * {@link CarrierClaimLine} to the {@link ExplanationOfBenefit} (if they're
+	 * not already present), and links its {@link ItemComponent} to them.
+	 * 
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to (possibly) modify
+	 * @param claimLine
+	 *            the {@link CarrierClaimLine} to link
+	 * @param item
+	 *            the {@link ItemComponent} for the specified
+	 *            {@link CarrierClaimLine}, from
+	 *            {@link #transformLine(CarrierClaim, CarrierClaimLine)}
 	 */
-	private static List<Diagnosis> extractDiagnoses(CarrierClaim claim) {
-		List<Diagnosis> diagnoses = new LinkedList<>();
-
+	private static void linkLine(ExplanationOfBenefit eob, CarrierClaimLine claimLine, ItemComponent item) {
 		/*
-		 * Seems silly, but allows the block below to be simple one-liners,
-		 * rather than requiring if-blocks.
+		 * Per Michelle at GDIT, and also Tony Dean at OEDA, the performing
+		 * provider _should_ always be present. However, we've found some
+		 * examples in production where it's not for some claim lines. (This
+		 * is annoying, as it's present on other lines in the same claim,
+		 * and the data indicates that the same NPI probably applies to the
+		 * lines where it's not specified. Still, it's not safe to guess at
+		 * this, so we'll leave it blank.)
 		 */
-		Consumer<Optional<Diagnosis>> diagnosisAdder = d -> {
-			if (d.isPresent())
-				diagnoses.add(d.get());
-		};
-
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisPrincipalCode(),
-				claim.getDiagnosisPrincipalCodeVersion(), DiagnosisLabel.PRINCIPAL));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis1Code(), claim.getDiagnosis1CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis2Code(), claim.getDiagnosis2CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis3Code(), claim.getDiagnosis3CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis4Code(), claim.getDiagnosis4CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis5Code(), claim.getDiagnosis5CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis6Code(), claim.getDiagnosis6CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis7Code(), claim.getDiagnosis7CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis8Code(), claim.getDiagnosis8CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis9Code(), claim.getDiagnosis9CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis10Code(), claim.getDiagnosis10CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis11Code(), claim.getDiagnosis11CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis12Code(), claim.getDiagnosis12CodeVersion()));
-
-		return diagnoses;
+		if (claimLine.getPerformingPhysicianNpi().isPresent()) {
+			ExplanationOfBenefit.CareTeamComponent performingCareTeamMember = TransformerUtils.addCareTeamPractitioner(eob, item,
+					TransformerConstants.CODING_SYSTEM_NPI_US, claimLine.getPerformingPhysicianNpi().get(),
+					TransformerConstants.CARE_TEAM_ROLE_PRIMARY);
+			performingCareTeamMember.setResponsible(true);
+
+			/*
+			 * The provider's "specialty" and "type" code are equivalent.
+			 * However, the "specialty" codes are more granular, and seem to
+			 * better match the example FHIR
+			 * `http://hl7.org/fhir/ex-providerqualification` code set.
+			 * Accordingly, we map the "specialty" codes to the
+			 * `qualification` field here, and stick the "type" code into an
+			 * extension. TODO: suggest that the spec allows more than one
+			 * `qualification` entry.
+			 */
+
+			performingCareTeamMember.setQualification(
+					TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_SPECIALTY_CD,
+							"" + claimLine.getProviderSpecialityCode().get()));
+			TransformerUtils.addExtensionCoding(performingCareTeamMember,
+					TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_TYPE_CD,
+					TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_TYPE_CD,
+					"" + claimLine.getProviderTypeCode());
+
+			TransformerUtils.addExtensionCoding(performingCareTeamMember,
+					TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_PARTICIPATING_CD,
+					TransformerConstants.CODING_SYSTEM_CCW_CARR_PROVIDER_PARTICIPATING_CD,
+					"" + claimLine.getProviderParticipatingIndCode().get());
+			if (claimLine.getOrganizationNpi().isPresent()) {
+				TransformerUtils.addExtensionCoding(performingCareTeamMember, TransformerConstants.CODING_SYSTEM_NPI_US,
+						TransformerConstants.CODING_SYSTEM_NPI_US, "" + claimLine.getOrganizationNpi().get());
+			}
+		}
+
+		Optional<Diagnosis> lineDiagnosis = extractDiagnosis(claimLine);
+		if (lineDiagnosis.isPresent())
+			TransformerUtils.addDiagnosisLink(eob, item, lineDiagnosis.get());
 	}
 
 	/**
@@ -0,0 +1,98 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.ItemComponent;
+
+/**
+ * <p>
+ * Transforms a claim's lines into {@link ItemComponent}s: one after the other
+ * for most claims, or in parallel chunks (on a dedicated
+ * {@link ForkJoinPool}) for claims with enough lines that it's worth it, e.g.
+ * carrier and outpatient claims with hundreds of lines.
+ * </p>
+ * <p>
+ * Either way, the {@link ItemComponent}s are returned in the same order as the
+ * lines. The per-line transforms must only build their own
+ * {@link ItemComponent}: anything that touches the parent
+ * {@link ExplanationOfBenefit} (e.g. care team entries or diagnosis links,
+ * which are numbered in the order they're added) has to be done afterwards,
+ * by the caller, one line at a time and in order, so that the results are the
+ * same as if no parallelism had been used.
+ * </p>
+ * <p>
+ * If the {@link ClaimTransformExecutor} is also transforming claims in
+ * parallel, each of its workers that reaches a large claim blocks in
+ * {@link ForkJoinPool#invoke(java.util.concurrent.ForkJoinTask)} until this
+ * pool has transformed the lines: the two pools don't share work, so that
+ * worker just waits (rather than helping out), and the threads of both pools
+ * compete for the same processors. Parallel line transforms pay off most when
+ * claims are transformed one after the other, and their threshold should be
+ * measured (e.g. via <code>ClaimLineItemsBenchmark</code>) rather than
+ * guessed.
+ * </p>
+ */
+public final class ClaimLineItems implements Closeable {
+	/**
+	 * The smallest number of lines that will be transformed as a single chunk,
+	 * as smaller chunks cost more to fork and join than they save.
+	 */
+	static final int MIN_CHUNK_SIZE = 16;
+
+	/**
+	 * A {@link ClaimLineItems} that always transforms lines one after the
+	 * other, on the caller's own thread.
+	 */
+	static final ClaimLineItems SEQUENTIAL = new ClaimLineItems(0, 1);
+
+	private final int parallelThreshold;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructs a new {@link ClaimLineItems}.
+	 *
+	 * @param parallelThreshold
+	 *            the minimum number of lines that a claim must have for them
+	 *            to be transformed in parallel, where <code>0</code> (or less)
+	 *            disables parallel line transforms
+	 * @param parallelism
+	 *            the number of threads to transform claim lines on, where
+	 *            <code>1</code> (or less) disables parallel line transforms
+	 */
+	public ClaimLineItems(int parallelThreshold, int parallelism) {
+		boolean parallel = parallelThreshold > 0 && parallelism > 1;
+		this.parallelThreshold = parallel ? parallelThreshold : Integer.MAX_VALUE;
+		this.pool = parallel ? new ForkJoinPool(parallelism) : null;
+	}
+
+	/**
+	 * @param lines
+	 *            the claim lines to transform
+	 * @param lineTransformer
+	 *            the {@link Function} that transforms each claim line into
+	 *            its {@link ItemComponent}, which must be safe to run
+	 *            concurrently for different lines
+	 * @return the {@link ItemComponent}s for the specified claim lines, in the
+	 *         same order
+	 */
+	<L> List<ItemComponent> transform(List<L> lines, Function<L, ItemComponent> lineTransformer) {
+		if (pool == null || lines.size() < parallelThreshold)
+			return OrderedChunkTask.transformChunk(lines, 0, lines.size(), lineTransformer);
+
+		int chunkSize = Math.max(MIN_CHUNK_SIZE, (lines.size() + pool.getParallelism() - 1) / pool.getParallelism());
+		return pool.invoke(new OrderedChunkTask<>(lines, 0, lines.size(), chunkSize, lineTransformer));
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		if (pool != null)
+			pool.shutdown();
+	}
+}
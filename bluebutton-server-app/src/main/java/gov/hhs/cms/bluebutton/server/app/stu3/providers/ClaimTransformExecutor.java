@@ -0,0 +1,150 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+
+/**
+ * <p>
+ * Transforms the claim entities found by each
+ * {@link ExplanationOfBenefitResourceProvider} search into
+ * {@link ExplanationOfBenefit}s: either one after the other, on the request's
+ * own thread, or (when enabled) in parallel chunks on a dedicated
+ * {@link ForkJoinPool}. The results are always in the same order as the claim
+ * entities.
+ * </p>
+ * <p>
+ * The pool is bounded: it has a fixed number of threads, and once too many
+ * searches' transforms are already queued up for it, any more are just run on
+ * their requests' own threads, rather than queueing up behind them. The
+ * pool's queue depth and utilization are published as metrics, along with
+ * how often that fallback happens.
+ * </p>
+ * <p>
+ * Each claim's lines are transformed via {@link ClaimLineItems}, which has
+ * its own pool: when both are parallel, a worker here that reaches a claim
+ * with enough lines waits for that other pool, rather than doing any of the
+ * work itself (see {@link ClaimLineItems}).
+ * </p>
+ */
+public final class ClaimTransformExecutor implements Closeable {
+	/**
+	 * The smallest number of claims that will be transformed as a single
+	 * chunk, as smaller chunks cost more to fork and join than they save.
+	 * Searches with fewer than twice this many claims of a given
+	 * {@link ClaimType} are never transformed in parallel.
+	 */
+	static final int MIN_CHUNK_SIZE = 8;
+
+	private final ForkJoinPool pool;
+	private final int queueMax;
+	private final ClaimLineItems claimLineItems;
+	private final Meter callerRuns;
+
+	/**
+	 * Constructs a new {@link ClaimTransformExecutor}, and registers its
+	 * metrics.
+	 *
+	 * @param parallelism
+	 *            the number of threads to transform claims on, where
+	 *            <code>1</code> (or less) disables parallel transforms
+	 * @param queueMax
+	 *            the maximum number of searches' transforms that may be
+	 *            queued up for the pool before any more are run on their
+	 *            requests' own threads instead
+	 * @param claimLineItems
+	 *            the {@link ClaimLineItems} to transform each claim's lines
+	 *            via
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 */
+	public ClaimTransformExecutor(int parallelism, int queueMax, ClaimLineItems claimLineItems,
+			MetricRegistry metricRegistry) {
+		if (queueMax < 0)
+			throw new IllegalArgumentException();
+		if (claimLineItems == null)
+			throw new IllegalArgumentException();
+
+		this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+		this.queueMax = queueMax;
+		this.claimLineItems = claimLineItems;
+		this.callerRuns = metricRegistry.meter(MetricRegistry.name(getClass(), "callerRuns"));
+
+		if (pool == null)
+			return;
+
+		metricRegistry.register(MetricRegistry.name(getClass(), "queueDepth"),
+				(Gauge<Long>) () -> pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount());
+		metricRegistry.register(MetricRegistry.name(getClass(), "utilization"), new RatioGauge() {
+			@Override
+			protected Ratio getRatio() {
+				return Ratio.of(pool.getActiveThreadCount(), pool.getParallelism());
+			}
+		});
+	}
+
+	/**
+	 * @param claimType
+	 *            the {@link ClaimType} of the specified claim entity
+	 * @param claimEntity
+	 *            the claim entity to transform, on the caller's own thread
+	 * @return the {@link ExplanationOfBenefit} for the specified claim entity
+	 */
+	ExplanationOfBenefit transform(ClaimType claimType, Object claimEntity) {
+		return claimType.getTransformer(claimLineItems).apply(claimEntity);
+	}
+
+	/**
+	 * @param claimType
+	 *            the {@link ClaimType} of the specified claim entities
+	 * @param claimEntities
+	 *            the claim entities to transform
+	 * @return the {@link ExplanationOfBenefit}s for the specified claim
+	 *         entities, in the same order
+	 */
+	List<ExplanationOfBenefit> transform(ClaimType claimType, Collection<?> claimEntities) {
+		List<?> claims = claimEntities instanceof List ? (List<?>) claimEntities : new ArrayList<>(claimEntities);
+		return transform(claims, claimType.getTransformer(claimLineItems));
+	}
+
+	/**
+	 * @param claims
+	 *            the claim entities to transform
+	 * @param transformer
+	 *            the {@link ClaimType#getTransformer(ClaimLineItems)} to use
+	 * @return the {@link ExplanationOfBenefit}s for the specified claim
+	 *         entities, in the same order
+	 */
+	<T> List<ExplanationOfBenefit> transform(List<T> claims, Function<? super T, ExplanationOfBenefit> transformer) {
+		Function<T, ExplanationOfBenefit> claimTransformer = transformer::apply;
+		if (pool == null || claims.size() < MIN_CHUNK_SIZE * 2)
+			return OrderedChunkTask.transformChunk(claims, 0, claims.size(), claimTransformer);
+
+		if (pool.getQueuedSubmissionCount() >= queueMax) {
+			callerRuns.mark();
+			return OrderedChunkTask.transformChunk(claims, 0, claims.size(), claimTransformer);
+		}
+
+		int chunkSize = Math.max(MIN_CHUNK_SIZE, (claims.size() + pool.getParallelism() - 1) / pool.getParallelism());
+		return pool.invoke(new OrderedChunkTask<>(claims, 0, claims.size(), chunkSize, claimTransformer));
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		if (pool != null)
+			pool.shutdown();
+	}
+}
@@ -4,6 +4,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Optional;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import javax.persistence.Entity;
@@ -38,25 +39,29 @@ import gov.hhs.cms.bluebutton.data.model.rif.SNFClaim_;
 enum ClaimType {
 	CARRIER(CarrierClaim.class, CarrierClaim_.claimId, CarrierClaimTransformer::transform, CarrierClaim_.lines),
 	
-	DME(DMEClaim.class, DMEClaim_.claimId, DMEClaimTransformer::transform, DMEClaim_.lines),
+	DME(DMEClaim.class, DMEClaim_.claimId, (claim, claimLineItems) -> DMEClaimTransformer.transform(claim),
+			DMEClaim_.lines),
 	
-	HHA(HHAClaim.class, HHAClaim_.claimId, HHAClaimTransformer::transform, HHAClaim_.lines),
+	HHA(HHAClaim.class, HHAClaim_.claimId, (claim, claimLineItems) -> HHAClaimTransformer.transform(claim),
+			HHAClaim_.lines),
 
-	HOSPICE(HospiceClaim.class, HospiceClaim_.claimId, HospiceClaimTransformer::transform, HospiceClaim_.lines),
+	HOSPICE(HospiceClaim.class, HospiceClaim_.claimId,
+			(claim, claimLineItems) -> HospiceClaimTransformer.transform(claim), HospiceClaim_.lines),
 
-	INPATIENT(InpatientClaim.class, InpatientClaim_.claimId, InpatientClaimTransformer::transform,
-			InpatientClaim_.lines),
+	INPATIENT(InpatientClaim.class, InpatientClaim_.claimId,
+			(claim, claimLineItems) -> InpatientClaimTransformer.transform(claim), InpatientClaim_.lines),
 
 	OUTPATIENT(OutpatientClaim.class, OutpatientClaim_.claimId, OutpatientClaimTransformer::transform,
 			OutpatientClaim_.lines),
 
-	PDE(PartDEvent.class, PartDEvent_.eventId, PartDEventTransformer::transform),
+	PDE(PartDEvent.class, PartDEvent_.eventId, (claim, claimLineItems) -> PartDEventTransformer.transform(claim)),
 
-	SNF(SNFClaim.class, SNFClaim_.claimId, SNFClaimTransformer::transform, SNFClaim_.lines);
+	SNF(SNFClaim.class, SNFClaim_.claimId, (claim, claimLineItems) -> SNFClaimTransformer.transform(claim),
+			SNFClaim_.lines);
 
 	private final Class<?> entityClass;
 	private final SingularAttribute<?, ?> entityIdAttribute;
-	private final Function<Object, ExplanationOfBenefit> transformer;
+	private final BiFunction<Object, ClaimLineItems, ExplanationOfBenefit> transformer;
 	private final Collection<PluralAttribute<?, ?, ?>> entityLazyAttributes;
 
 	/**
@@ -67,12 +72,13 @@ enum ClaimType {
 	 * @param entityIdAttribute
 	 *            the value to use for {@link #getEntityIdAttribute()}
 	 * @param transformer
-	 *            the value to use for {@link #getTransformer()}
+	 *            the value to use for {@link #getTransformer(ClaimLineItems)}
 	 * @param entityLazyAttributes
 	 *            the value to use for {@link #getEntityLazyAttributes()}
 	 */
 	private ClaimType(Class<?> entityClass, SingularAttribute<?, ?> entityIdAttribute,
-			Function<Object, ExplanationOfBenefit> transformer, PluralAttribute<?, ?, ?>... entityLazyAttributes) {
+			BiFunction<Object, ClaimLineItems, ExplanationOfBenefit> transformer,
+			PluralAttribute<?, ?, ?>... entityLazyAttributes) {
 		this.entityClass = entityClass;
 		this.entityIdAttribute = entityIdAttribute;
 		this.transformer = transformer;
@@ -97,10 +103,21 @@ enum ClaimType {
 
 	/**
 	 * @return the {@link Function} to use to transform the JPA {@link Entity}
-	 *         instances into FHIR {@link ExplanationOfBenefit} instances
+	 *         instances into FHIR {@link ExplanationOfBenefit} instances, which
+	 *         transforms their lines one after the other
 	 */
 	public Function<Object, ExplanationOfBenefit> getTransformer() {
-		return transformer;
+		return getTransformer(ClaimLineItems.SEQUENTIAL);
+	}
+
+	/**
+	 * @param claimLineItems
+	 *            the {@link ClaimLineItems} to transform the claims' lines via
+	 * @return the {@link Function} to use to transform the JPA {@link Entity}
+	 *         instances into FHIR {@link ExplanationOfBenefit} instances
+	 */
+	public Function<Object, ExplanationOfBenefit> getTransformer(ClaimLineItems claimLineItems) {
+		return claim -> transformer.apply(claim, claimLineItems);
 	}
 
 	/**
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -16,8 +17,11 @@ import javax.persistence.criteria.Root;
 import org.hl7.fhir.dstu3.model.Coverage;
 import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.codahale.metrics.MetricRegistry;
+
 import ca.uhn.fhir.model.primitive.IdDt;
 import ca.uhn.fhir.rest.annotation.IdParam;
 import ca.uhn.fhir.rest.annotation.Read;
@@ -42,6 +46,8 @@ public final class CoverageResourceProvider implements IResourceProvider {
 	private static final Pattern COVERAGE_ID_PATTERN = Pattern.compile("(.*)-(\\p{Alnum}+)");
 
 	private EntityManager entityManager;
+	private SingleFlight<String, Coverage> readFlights;
+	private SingleFlight<String, List<Coverage>> searchByBeneficiaryFlights;
 
 	/**
 	 * @param entityManager
@@ -53,6 +59,19 @@ public final class CoverageResourceProvider implements IResourceProvider {
 		this.entityManager = entityManager;
 	}
 
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 */
+	@Autowired
+	public void setMetricRegistry(MetricRegistry metricRegistry) {
+		this.readFlights = new SingleFlight<>(Coverage::copy,
+				metricRegistry.meter(MetricRegistry.name(getClass(), "read", "coalesced")));
+		this.searchByBeneficiaryFlights = new SingleFlight<>(
+				coverages -> coverages.stream().map(Coverage::copy).collect(Collectors.toList()),
+				metricRegistry.meter(MetricRegistry.name(getClass(), "searchByBeneficiary", "coalesced")));
+	}
+
 	/**
 	 * @see ca.uhn.fhir.rest.server.IResourceProvider#getResourceType()
 	 */
@@ -90,6 +109,21 @@ public final class CoverageResourceProvider implements IResourceProvider {
 		if (coverageIdText == null || coverageIdText.trim().isEmpty())
 			throw new IllegalArgumentException();
 
+		// Identical concurrent reads will share a single database query.
+		return readFlights.execute(coverageIdText, () -> readFromDatabase(coverageId));
+	}
+
+	/**
+	 * @param coverageId
+	 *            the (already validated) {@link IdType} of the
+	 *            {@link Coverage} to read
+	 * @return the matching {@link Coverage}
+	 * @throws ResourceNotFoundException
+	 *             A {@link ResourceNotFoundException} will be thrown if no
+	 *             matching {@link Beneficiary} can be found.
+	 */
+	private Coverage readFromDatabase(IdType coverageId) {
+		String coverageIdText = coverageId.getIdPart();
 		Matcher coverageIdMatcher = COVERAGE_ID_PATTERN.matcher(coverageIdText);
 		if (!coverageIdMatcher.matches())
 			throw new ResourceNotFoundException(coverageId);
@@ -130,12 +164,15 @@ public final class CoverageResourceProvider implements IResourceProvider {
 	 */
 	@Search
 	public List<Coverage> searchByBeneficiary(@RequiredParam(name = Coverage.SP_BENEFICIARY) ReferenceParam beneficiary) {
-		try {
-			Beneficiary beneficiaryEntity = findBeneficiaryById(beneficiary.getIdPart());
-			return CoverageTransformer.transform(beneficiaryEntity);
-		} catch (NoResultException e) {
-			return new LinkedList<>();
-		}
+		// Identical concurrent searches will share a single database query.
+		return searchByBeneficiaryFlights.execute(beneficiary.getIdPart(), () -> {
+			try {
+				Beneficiary beneficiaryEntity = findBeneficiaryById(beneficiary.getIdPart());
+				return CoverageTransformer.transform(beneficiaryEntity);
+			} catch (NoResultException e) {
+				return new LinkedList<>();
+			}
+		});
 	}
 
 	/**
@@ -157,7 +194,8 @@ public final class CoverageResourceProvider implements IResourceProvider {
 		criteria.select(root);
 		criteria.where(builder.equal(root.get(Beneficiary_.beneficiaryId), beneficiaryId));
 
-		Beneficiary beneficiaryEntity = entityManager.createQuery(criteria).getSingleResult();
+		Beneficiary beneficiaryEntity = SecondLevelCache
+				.cacheable(QueryDeadline.apply(entityManager.createQuery(criteria))).getSingleResult();
 		return beneficiaryEntity;
 	}
 }
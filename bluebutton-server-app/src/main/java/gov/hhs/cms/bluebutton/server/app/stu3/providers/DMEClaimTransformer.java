@@ -1,10 +1,7 @@
 package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
 import java.math.BigDecimal;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Optional;
-import java.util.function.Consumer;
 
 import org.hl7.fhir.dstu3.model.CodeableConcept;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
@@ -35,6 +32,28 @@ import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel
  * {@link ExplanationOfBenefit} resources.
  */
 final class DMEClaimTransformer {
+	/**
+	 * The {@link IcdCodeSlots} for the diagnosis codes in each
+	 * {@link DMEClaim}.
+	 */
+	static final IcdCodeSlots<DMEClaim, Diagnosis> DIAGNOSES = IcdCodeSlots
+			.<DMEClaim, Diagnosis> builder()
+			.add(Diagnosis.slot(DMEClaim::getDiagnosisPrincipalCode,
+					DMEClaim::getDiagnosisPrincipalCodeVersion, DiagnosisLabel.PRINCIPAL))
+			.add(Diagnosis.slot(DMEClaim::getDiagnosis1Code, DMEClaim::getDiagnosis1CodeVersion))
+			.add(Diagnosis.slot(DMEClaim::getDiagnosis2Code, DMEClaim::getDiagnosis2CodeVersion))
+			.add(Diagnosis.slot(DMEClaim::getDiagnosis3Code, DMEClaim::getDiagnosis3CodeVersion))
+			.add(Diagnosis.slot(DMEClaim::getDiagnosis4Code, DMEClaim::getDiagnosis4CodeVersion))
+			.add(Diagnosis.slot(DMEClaim::getDiagnosis5Code, DMEClaim::getDiagnosis5CodeVersion))
+			.add(Diagnosis.slot(DMEClaim::getDiagnosis6Code, DMEClaim::getDiagnosis6CodeVersion))
+			.add(Diagnosis.slot(DMEClaim::getDiagnosis7Code, DMEClaim::getDiagnosis7CodeVersion))
+			.add(Diagnosis.slot(DMEClaim::getDiagnosis8Code, DMEClaim::getDiagnosis8CodeVersion))
+			.add(Diagnosis.slot(DMEClaim::getDiagnosis9Code, DMEClaim::getDiagnosis9CodeVersion))
+			.add(Diagnosis.slot(DMEClaim::getDiagnosis10Code, DMEClaim::getDiagnosis10CodeVersion))
+			.add(Diagnosis.slot(DMEClaim::getDiagnosis11Code, DMEClaim::getDiagnosis11CodeVersion))
+			.add(Diagnosis.slot(DMEClaim::getDiagnosis12Code, DMEClaim::getDiagnosis12CodeVersion))
+			.build();
+
 	/**
 	 * @param claim
 	 *            the CCW {@link DMEClaim} to transform
@@ -176,8 +195,7 @@ final class DMEClaimTransformer {
 			benefitBalances.getFinancial().add(beneficiaryPartBDeductAmount);
 		}
 
-		for (Diagnosis diagnosis : extractDiagnoses(claimGroup))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+		DIAGNOSES.forEach(claimGroup, diagnosis -> TransformerUtils.addDiagnosisCode(eob, diagnosis));
 
 		TransformerUtils.addExtensionCoding(eob, TransformerConstants.CODING_SYSTEM_CCW_CARR_CLINICAL_TRIAL_NUMBER,
 				TransformerConstants.CODING_SYSTEM_CCW_CARR_CLINICAL_TRIAL_NUMBER,
@@ -453,42 +471,6 @@ final class DMEClaimTransformer {
 		return eob;
 	}
 
-	/**
-	 * @param claim
-	 *            the {@link DMEClaim} to extract the {@link Diagnosis}es from
-	 * @return the {@link Diagnosis}es that can be extracted from the specified
-	 *         {@link DMEClaim}
-	 */
-	private static List<Diagnosis> extractDiagnoses(DMEClaim claim) {
-		List<Diagnosis> diagnoses = new LinkedList<>();
-
-		/*
-		 * Seems silly, but allows the block below to be simple one-liners,
-		 * rather than requiring if-blocks.
-		 */
-		Consumer<Optional<Diagnosis>> diagnosisAdder = d -> {
-			if (d.isPresent())
-				diagnoses.add(d.get());
-		};
-
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisPrincipalCode(),
-				claim.getDiagnosisPrincipalCodeVersion(), DiagnosisLabel.PRINCIPAL));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis1Code(), claim.getDiagnosis1CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis2Code(), claim.getDiagnosis2CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis3Code(), claim.getDiagnosis3CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis4Code(), claim.getDiagnosis4CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis5Code(), claim.getDiagnosis5CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis6Code(), claim.getDiagnosis6CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis7Code(), claim.getDiagnosis7CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis8Code(), claim.getDiagnosis8CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis9Code(), claim.getDiagnosis9CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis10Code(), claim.getDiagnosis10CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis11Code(), claim.getDiagnosis11CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis12Code(), claim.getDiagnosis12CodeVersion()));
-
-		return diagnoses;
-	}
-
 	/**
 	 * @param claimLine
 	 *            the {@link DMEClaimLine} to extract the {@link Diagnosis} from
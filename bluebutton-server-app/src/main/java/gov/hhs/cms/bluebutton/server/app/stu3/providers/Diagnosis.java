@@ -6,6 +6,7 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Models a diagnosis code entry in a claim.
@@ -29,13 +30,32 @@ final class Diagnosis extends IcdCode {
 	 *            the value to use for {@link #getLabels()}
 	 */
 	private Diagnosis(Optional<String> icdCode, Optional<Character> icdVersionCode, DiagnosisLabel... labels) {
+		this(icdCode, icdVersionCode, toLabelSet(labels));
+	}
+
+	/**
+	 * Constructs a new {@link Diagnosis}.
+	 * 
+	 * @param icdCode
+	 *            the ICD code of the diagnosis, if any
+	 * @param icdVersionCode
+	 *            the CCW encoding (per <a href=
+	 *            "https://www.ccwdata.org/cs/groups/public/documents/datadictionary/prncpal_dgns_vrsn_cd.txt">
+	 *            CCW Data Dictionary: PRNCPAL_DGNS_VRSN_CD</a> and other
+	 *            similar fields) of the code's ICD version, if any
+	 * @param labels
+	 *            the value to use for {@link #getLabels()}, which must be
+	 *            unmodifiable (and may be shared with other {@link Diagnosis}
+	 *            instances)
+	 */
+	private Diagnosis(Optional<String> icdCode, Optional<Character> icdVersionCode, Set<DiagnosisLabel> labels) {
 		super(icdCode, icdVersionCode);
 		Objects.requireNonNull(icdCode);
 		Objects.requireNonNull(icdVersionCode);
 		Objects.requireNonNull(labels);
 
 		this.presentOnAdmission = null;
-		this.labels = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(labels)));
+		this.labels = labels;
 	}
 
 	/**
@@ -124,6 +144,61 @@ final class Diagnosis extends IcdCode {
 		return Optional.of(new Diagnosis(icdCode, icdVersionCode, presentOnAdmission));
 	}
 
+	/**
+	 * @param icdCode
+	 *            the getter for the slot's ICD code field
+	 * @param icdVersionCode
+	 *            the getter for the slot's ICD version field
+	 * @param labels
+	 *            the value to use for {@link #getLabels()}
+	 * @return an {@link IcdCodeSlots} slot that returns a new
+	 *         {@link Diagnosis} for the specified fields, or
+	 *         <code>null</code> if no ICD code is present in them
+	 */
+	static <C> Function<C, Diagnosis> slot(Function<C, Optional<String>> icdCode,
+			Function<C, Optional<Character>> icdVersionCode, DiagnosisLabel... labels) {
+		Set<DiagnosisLabel> labelSet = toLabelSet(labels);
+		return claim -> {
+			Optional<String> code = icdCode.apply(claim);
+			if (!code.isPresent())
+				return null;
+			return new Diagnosis(code, icdVersionCode.apply(claim), labelSet);
+		};
+	}
+
+	/**
+	 * @param icdCode
+	 *            the getter for the slot's ICD code field
+	 * @param icdVersionCode
+	 *            the getter for the slot's ICD version field
+	 * @param presentOnAdmission
+	 *            the getter for the slot's present-on-admission indicator
+	 *            field
+	 * @return an {@link IcdCodeSlots} slot that returns a new
+	 *         {@link Diagnosis} for the specified fields, or
+	 *         <code>null</code> if no ICD code is present in them
+	 */
+	static <C> Function<C, Diagnosis> slot(Function<C, Optional<String>> icdCode,
+			Function<C, Optional<Character>> icdVersionCode, Function<C, Optional<Character>> presentOnAdmission) {
+		return claim -> {
+			Optional<String> code = icdCode.apply(claim);
+			if (!code.isPresent())
+				return null;
+			return new Diagnosis(code, icdVersionCode.apply(claim), presentOnAdmission.apply(claim));
+		};
+	}
+
+	/**
+	 * @param labels
+	 *            the {@link DiagnosisLabel}s to include
+	 * @return an unmodifiable {@link Set} of the specified
+	 *         {@link DiagnosisLabel}s
+	 */
+	private static Set<DiagnosisLabel> toLabelSet(DiagnosisLabel... labels) {
+		Objects.requireNonNull(labels);
+		return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(labels)));
+	}
+
 	/**
 	 * Enumerates the various labels/tags that are used to distinguish between
 	 * the various diagnoses in a claim.
@@ -0,0 +1,446 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.function.ToLongFunction;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import ca.uhn.fhir.rest.param.DateRangeParam;
+
+/**
+ * <p>
+ * A read-only, memory-mapped file of precomputed {@link ExplanationOfBenefit}s
+ * for a set of (e.g. the highest-traffic) beneficiaries, built by
+ * {@link EobSegmentFileBuilder}. Searches for those beneficiaries are served
+ * straight from the OS page cache, without any database queries at all, so
+ * their latency doesn't depend on the database's load.
+ * </p>
+ * <p>
+ * The file consists of a header, an index sorted by beneficiary ID (which is
+ * binary searched), and each beneficiary's {@link ExplanationOfBenefit}s,
+ * sorted by service date and encoded just as {@link EobSnapshotStore} does:
+ * </p>
+ * <ul>
+ * <li>Header: {@link #MAGIC}, {@link #VERSION}, and the number of
+ * beneficiaries (each an <code>int</code>), and then the
+ * {@link BeneficiaryChangeLog} <code>changeId</code> that the file was built
+ * as of (a <code>long</code>).</li>
+ * <li>Index entries: the beneficiary ID (as {@link #BENEFICIARY_ID_LENGTH}
+ * zero-padded ASCII bytes), the file offset of their first
+ * {@link ExplanationOfBenefit}, and how many they have (each an
+ * <code>int</code>).</li>
+ * <li>{@link ExplanationOfBenefit} entries: the service date (as an epoch day
+ * <code>int</code>, or {@link #NO_SERVICE_DATE}), the encoded length (an
+ * <code>int</code>), and then the encoded bytes.</li>
+ * </ul>
+ * <p>
+ * The file is only as current as the last {@link EobSegmentFileBuilder} run,
+ * and is only mapped once, at startup. Any beneficiary that the
+ * {@link BeneficiaryChangeMonitor} has seen a later change for is treated as
+ * though they weren't in the file. Files over 2 GB aren't supported. When no
+ * file is configured, an {@link #empty(MetricRegistry)} one is used, which
+ * doesn't have any beneficiaries.
+ * </p>
+ */
+public final class EobSegmentFile {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EobSegmentFile.class);
+
+	/**
+	 * The first four bytes of every segment file: "BBES".
+	 */
+	static final int MAGIC = 0x42424553;
+
+	/**
+	 * The version of the file format.
+	 */
+	static final int VERSION = 2;
+
+	/**
+	 * The (maximum) length of each index entry's beneficiary ID, in bytes.
+	 */
+	static final int BENEFICIARY_ID_LENGTH = 16;
+
+	/**
+	 * The service date stored for {@link ExplanationOfBenefit}s that don't
+	 * have one, which sorts them first and never matches a date range.
+	 */
+	static final int NO_SERVICE_DATE = Integer.MIN_VALUE;
+
+	private static final int HEADER_LENGTH = 3 * Integer.BYTES + Long.BYTES;
+	private static final int INDEX_ENTRY_LENGTH = BENEFICIARY_ID_LENGTH + 2 * Integer.BYTES;
+
+	private final ByteBuffer buffer;
+	private final int beneficiaryCount;
+	private final long changeId;
+	private final ToLongFunction<String> dataVersions;
+	private final Meter hits;
+	private final Meter misses;
+	private final Meter stale;
+
+	/**
+	 * Constructs a new {@link EobSegmentFile}, and registers its metrics.
+	 *
+	 * @param buffer
+	 *            the (mapped) contents of the segment file
+	 * @param beneficiaryCount
+	 *            the number of beneficiaries in the segment file
+	 * @param changeId
+	 *            the {@link BeneficiaryChangeLog} <code>changeId</code> that
+	 *            the segment file was built as of
+	 * @param dataVersions
+	 *            returns the current data version of each beneficiary, as
+	 *            provided by {@link BeneficiaryChangeMonitor#getDataVersion(String)}
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 */
+	private EobSegmentFile(ByteBuffer buffer, int beneficiaryCount, long changeId,
+			ToLongFunction<String> dataVersions, MetricRegistry metricRegistry) {
+		this.buffer = buffer;
+		this.beneficiaryCount = beneficiaryCount;
+		this.changeId = changeId;
+		this.dataVersions = dataVersions;
+		this.hits = metricRegistry.meter(MetricRegistry.name(getClass(), "hits"));
+		this.misses = metricRegistry.meter(MetricRegistry.name(getClass(), "misses"));
+		this.stale = metricRegistry.meter(MetricRegistry.name(getClass(), "stale"));
+		metricRegistry.register(MetricRegistry.name(getClass(), "beneficiaries"),
+				(Gauge<Integer>) () -> beneficiaryCount);
+	}
+
+	/**
+	 * @param path
+	 *            the {@link Path} of the segment file to map into memory
+	 * @param dataVersions
+	 *            returns the current data version of each beneficiary, as
+	 *            provided by {@link BeneficiaryChangeMonitor#getDataVersion(String)}
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return a new {@link EobSegmentFile} for the specified file
+	 * @throws IOException
+	 *             An {@link IOException} will be thrown if the file can't be
+	 *             read, or isn't a valid segment file.
+	 */
+	public static EobSegmentFile open(Path path, ToLongFunction<String> dataVersions, MetricRegistry metricRegistry)
+			throws IOException {
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException(String.format("Segment file '%s' is too large.", path));
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		if (buffer.limit() < HEADER_LENGTH || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION)
+			throw new IOException(String.format("Invalid or unsupported segment file: '%s'.", path));
+		int beneficiaryCount = buffer.getInt(2 * Integer.BYTES);
+		if (beneficiaryCount < 0 || HEADER_LENGTH + (long) beneficiaryCount * INDEX_ENTRY_LENGTH > buffer.limit())
+			throw new IOException(String.format("Truncated segment file: '%s'.", path));
+
+		long changeId = buffer.getLong(3 * Integer.BYTES);
+
+		return new EobSegmentFile(buffer, beneficiaryCount, changeId, dataVersions, metricRegistry);
+	}
+
+	/**
+	 * @param path
+	 *            the {@link Path} of the segment file to map into memory
+	 * @param dataVersions
+	 *            returns the current data version of each beneficiary, as
+	 *            provided by {@link BeneficiaryChangeMonitor#getDataVersion(String)}
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return a new {@link EobSegmentFile} for the specified file, or an
+	 *         {@link #empty(MetricRegistry)} one if it can't be opened (which
+	 *         will be logged)
+	 */
+	public static EobSegmentFile openOrEmpty(Path path, ToLongFunction<String> dataVersions,
+			MetricRegistry metricRegistry) {
+		try {
+			EobSegmentFile segmentFile = open(path, dataVersions, metricRegistry);
+			LOGGER.info("Mapped EOB segment file '{}', with {} beneficiaries as of change {}.", path,
+					segmentFile.beneficiaryCount, segmentFile.changeId);
+			return segmentFile;
+		} catch (IOException e) {
+			LOGGER.warn("Unable to open EOB segment file '{}'. It will not be used.", path, e);
+			return empty(metricRegistry);
+		}
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 * @return a new {@link EobSegmentFile} that doesn't have any
+	 *         beneficiaries, for use when no segment file is configured
+	 */
+	public static EobSegmentFile empty(MetricRegistry metricRegistry) {
+		return new EobSegmentFile(ByteBuffer.allocate(0), 0, 0L, beneficiaryId -> 0L, metricRegistry);
+	}
+
+	/**
+	 * @return the number of beneficiaries in this {@link EobSegmentFile}
+	 */
+	int getBeneficiaryCount() {
+		return beneficiaryCount;
+	}
+
+	/**
+	 * @param beneficiaryId
+	 *            the ID of the beneficiary to find the
+	 *            {@link ExplanationOfBenefit}s of
+	 * @param dateRange
+	 *            a {@link DateRangeParam} to restrict the
+	 *            {@link ExplanationOfBenefit}s to, by their service dates (as
+	 *            for {@link ExplanationOfBenefitResourceProvider#findByPatient}
+	 *            ), or <code>null</code>
+	 * @return the matching {@link ExplanationOfBenefit}s, sorted by service
+	 *         date (which may be none at all, if none of them are in the date
+	 *         range), or {@link Optional#empty()} if the beneficiary isn't in
+	 *         this {@link EobSegmentFile} (or their data has changed since it
+	 *         was built)
+	 */
+	Optional<List<ExplanationOfBenefit>> findByBeneficiary(String beneficiaryId, DateRangeParam dateRange) {
+		int indexEntry = findIndexEntry(beneficiaryId);
+		if (indexEntry < 0) {
+			misses.mark();
+			return Optional.empty();
+		}
+		if (dataVersions.applyAsLong(beneficiaryId) > changeId) {
+			stale.mark();
+			return Optional.empty();
+		}
+		hits.mark();
+
+		/*
+		 * Just as with the database queries, any date range at all excludes the
+		 * EOBs that don't have a service date.
+		 */
+		int from = NO_SERVICE_DATE;
+		int to = Integer.MAX_VALUE;
+		if (dateRange != null) {
+			LocalDate lowerBound = EobSnapshotStore.toLocalDate(dateRange.getLowerBoundAsInstant());
+			LocalDate upperBound = EobSnapshotStore.toLocalDate(dateRange.getUpperBoundAsInstant());
+			from = lowerBound != null ? (int) lowerBound.toEpochDay() : NO_SERVICE_DATE + 1;
+			if (upperBound != null)
+				to = (int) upperBound.toEpochDay();
+		}
+
+		/*
+		 * The mapped buffer is shared by all requests, so each one reads via
+		 * its own duplicate, which has an independent position.
+		 */
+		ByteBuffer eobEntries = buffer.duplicate();
+		int indexEntryOffset = HEADER_LENGTH + indexEntry * INDEX_ENTRY_LENGTH + BENEFICIARY_ID_LENGTH;
+		eobEntries.position(buffer.getInt(indexEntryOffset));
+		int eobCount = buffer.getInt(indexEntryOffset + Integer.BYTES);
+
+		List<ExplanationOfBenefit> eobs = new ArrayList<>();
+		for (int i = 0; i < eobCount; i++) {
+			int serviceDate = eobEntries.getInt();
+			int encodedLength = eobEntries.getInt();
+
+			// The entries are sorted by date, so everything after this is too late.
+			if (serviceDate > to)
+				break;
+			if (serviceDate < from) {
+				eobEntries.position(eobEntries.position() + encodedLength);
+				continue;
+			}
+
+			byte[] encodedEob = new byte[encodedLength];
+			eobEntries.get(encodedEob);
+			eobs.add(EobSnapshotStore.decode(encodedEob));
+		}
+		return Optional.of(eobs);
+	}
+
+	/**
+	 * @param beneficiaryId
+	 *            the beneficiary ID to find
+	 * @return the index of the specified beneficiary's index entry, or
+	 *         <code>-1</code> if there isn't one
+	 */
+	private int findIndexEntry(String beneficiaryId) {
+		byte[] key = encodeBeneficiaryId(beneficiaryId);
+		if (key == null)
+			return -1;
+
+		int low = 0;
+		int high = beneficiaryCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = compareBeneficiaryId(HEADER_LENGTH + middle * INDEX_ENTRY_LENGTH, key);
+			if (comparison < 0)
+				low = middle + 1;
+			else if (comparison > 0)
+				high = middle - 1;
+			else
+				return middle;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param offset
+	 *            the offset of the index entry's beneficiary ID
+	 * @param key
+	 *            the {@link #encodeBeneficiaryId(String)} output to compare to
+	 * @return a negative number, zero, or a positive number as the index
+	 *         entry's beneficiary ID is less than, equal to, or greater than
+	 *         the specified key
+	 */
+	private int compareBeneficiaryId(int offset, byte[] key) {
+		for (int i = 0; i < BENEFICIARY_ID_LENGTH; i++) {
+			int comparison = Integer.compare(buffer.get(offset + i) & 0xFF, key[i] & 0xFF);
+			if (comparison != 0)
+				return comparison;
+		}
+		return 0;
+	}
+
+	/**
+	 * @param beneficiaryId
+	 *            the beneficiary ID to encode
+	 * @return the beneficiary ID as {@link #BENEFICIARY_ID_LENGTH} zero-padded
+	 *         ASCII bytes, or <code>null</code> if it's too long
+	 */
+	private static byte[] encodeBeneficiaryId(String beneficiaryId) {
+		byte[] idBytes = beneficiaryId.getBytes(StandardCharsets.US_ASCII);
+		if (idBytes.length > BENEFICIARY_ID_LENGTH)
+			return null;
+
+		byte[] key = new byte[BENEFICIARY_ID_LENGTH];
+		System.arraycopy(idBytes, 0, key, 0, idBytes.length);
+		return key;
+	}
+
+	/**
+	 * Writes a new segment file with the specified beneficiaries'
+	 * {@link ExplanationOfBenefit}s, replacing any existing file at the
+	 * specified {@link Path} in a single atomic move.
+	 *
+	 * @param path
+	 *            the {@link Path} to write the segment file to
+	 * @param changeId
+	 *            the latest {@link BeneficiaryChangeLog} <code>changeId</code>
+	 *            as of when the {@link ExplanationOfBenefit}s were queried,
+	 *            which they'll be considered stale after
+	 * @param eobsByBeneficiary
+	 *            each beneficiary's {@link ExplanationOfBenefit}s, keyed (and
+	 *            sorted) by beneficiary ID, which must be ASCII and no longer
+	 *            than {@link #BENEFICIARY_ID_LENGTH}
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	static void write(Path path, long changeId, SortedMap<String, List<ExplanationOfBenefit>> eobsByBeneficiary)
+			throws IOException {
+		/*
+		 * The index needs the data's offsets, so everything is encoded up
+		 * front. (These files are only meant for a limited set of
+		 * beneficiaries, so that's affordable.)
+		 */
+		List<byte[]> keys = new ArrayList<>();
+		List<List<EncodedEob>> encodedEobsByBeneficiary = new ArrayList<>();
+		for (Map.Entry<String, List<ExplanationOfBenefit>> beneficiaryEobs : eobsByBeneficiary.entrySet()) {
+			byte[] key = encodeBeneficiaryId(beneficiaryEobs.getKey());
+			if (key == null)
+				throw new IllegalArgumentException("Beneficiary ID too long: " + beneficiaryEobs.getKey());
+			keys.add(key);
+
+			List<EncodedEob> encodedEobs = new ArrayList<>();
+			for (ExplanationOfBenefit eob : beneficiaryEobs.getValue()) {
+				Optional<LocalDate> serviceDate = EobSnapshotStore.getServiceDate(eob);
+				encodedEobs.add(new EncodedEob(
+						serviceDate.isPresent() ? (int) serviceDate.get().toEpochDay() : NO_SERVICE_DATE,
+						EobSnapshotStore.encode(eob)));
+			}
+			encodedEobs.sort(Comparator.comparingInt(e -> e.serviceDate));
+			encodedEobsByBeneficiary.add(encodedEobs);
+		}
+
+		Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+		try (OutputStream fileStream = Files.newOutputStream(tempPath);
+				DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileStream))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(keys.size());
+			output.writeLong(changeId);
+
+			long offset = HEADER_LENGTH + (long) keys.size() * INDEX_ENTRY_LENGTH;
+			for (int i = 0; i < keys.size(); i++) {
+				List<EncodedEob> encodedEobs = encodedEobsByBeneficiary.get(i);
+				output.write(keys.get(i));
+				output.writeInt(checkOffset(offset));
+				output.writeInt(encodedEobs.size());
+				for (EncodedEob encodedEob : encodedEobs)
+					offset += 2 * Integer.BYTES + encodedEob.bytes.length;
+			}
+			checkOffset(offset);
+
+			for (List<EncodedEob> encodedEobs : encodedEobsByBeneficiary) {
+				for (EncodedEob encodedEob : encodedEobs) {
+					output.writeInt(encodedEob.serviceDate);
+					output.writeInt(encodedEob.bytes.length);
+					output.write(encodedEob.bytes);
+				}
+			}
+		}
+		Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * @param offset
+	 *            a file offset
+	 * @return the specified file offset, as an <code>int</code>
+	 * @throws IOException
+	 *             An {@link IOException} will be thrown if the offset is past
+	 *             the maximum supported file size.
+	 */
+	private static int checkOffset(long offset) throws IOException {
+		if (offset > Integer.MAX_VALUE)
+			throw new IOException("Segment file would be too large.");
+		return (int) offset;
+	}
+
+	/**
+	 * An encoded {@link ExplanationOfBenefit}, along with its service date.
+	 */
+	private static final class EncodedEob {
+		private final int serviceDate;
+		private final byte[] bytes;
+
+		/**
+		 * Constructs a new {@link EncodedEob}.
+		 *
+		 * @param serviceDate
+		 *            the service date, as an epoch day, or
+		 *            {@link EobSegmentFile#NO_SERVICE_DATE}
+		 * @param bytes
+		 *            the encoded {@link ExplanationOfBenefit}
+		 */
+		EncodedEob(int serviceDate, byte[] bytes) {
+			this.serviceDate = serviceDate;
+			this.bytes = bytes;
+		}
+	}
+}
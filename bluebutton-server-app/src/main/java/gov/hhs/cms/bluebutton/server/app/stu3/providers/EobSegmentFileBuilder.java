@@ -0,0 +1,127 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import gov.hhs.cms.bluebutton.server.app.BatchJobConfiguration;
+import gov.hhs.cms.bluebutton.server.app.SpringConfiguration;
+
+/**
+ * <p>
+ * A batch job that (re)builds an {@link EobSegmentFile} for a set of
+ * beneficiaries, by running each beneficiary's
+ * {@link ExplanationOfBenefitResourceProvider} search against the database.
+ * It's meant to be run after each ETL pipeline load run, for the
+ * highest-traffic beneficiaries, and is configured via the same Java system
+ * properties as the application itself (see {@link SpringConfiguration}),
+ * though it only starts the beans in {@link BatchJobConfiguration}, and always
+ * uses the primary database.
+ * </p>
+ * <p>
+ * The first argument is the path to write the segment file to, and the rest
+ * are the IDs of the beneficiaries to include in it. Any existing file at that
+ * path is replaced atomically, but the application will keep using the file it
+ * mapped at startup until it's restarted. The file is marked with the latest
+ * {@link BeneficiaryChangeLog} <code>changeId</code> as of when the job
+ * started, so that the application will ignore the file's entries for any
+ * beneficiaries that have changed since.
+ * </p>
+ */
+public final class EobSegmentFileBuilder {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EobSegmentFileBuilder.class);
+
+	private final DataSource dataSource;
+	private final ExplanationOfBenefitResourceProvider eobResourceProvider;
+
+	/**
+	 * Constructs a new {@link EobSegmentFileBuilder}.
+	 *
+	 * @param dataSource
+	 *            the {@link DataSource} for the (primary) database, which the
+	 *            {@link BeneficiaryChangeLog} is in
+	 * @param eobResourceProvider
+	 *            the {@link ExplanationOfBenefitResourceProvider} to build the
+	 *            segment file with
+	 */
+	EobSegmentFileBuilder(DataSource dataSource, ExplanationOfBenefitResourceProvider eobResourceProvider) {
+		this.dataSource = dataSource;
+		this.eobResourceProvider = eobResourceProvider;
+	}
+
+	/**
+	 * Writes a new segment file for the specified beneficiaries.
+	 *
+	 * @param path
+	 *            the {@link Path} to write the segment file to
+	 * @param beneficiaryIds
+	 *            the IDs of the beneficiaries to include in the segment file
+	 * @return the total number of {@link ExplanationOfBenefit}s that were
+	 *         written
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 * @throws SQLException
+	 *             Any {@link SQLException}s encountered will be bubbled up.
+	 */
+	long build(Path path, List<String> beneficiaryIds) throws IOException, SQLException {
+		BeneficiaryChangeLog.createTableIfNeeded(dataSource);
+		long changeId = BeneficiaryChangeLog.getLatestChangeId(dataSource);
+
+		SortedMap<String, List<ExplanationOfBenefit>> eobsByBeneficiary = new TreeMap<>();
+		long eobCount = 0;
+		for (String beneficiaryId : beneficiaryIds) {
+			List<ExplanationOfBenefit> eobs = eobResourceProvider.findByPatientInDatabase(
+					new ReferenceParam(Patient.class.getSimpleName(), null, beneficiaryId), null);
+			eobsByBeneficiary.put(beneficiaryId, eobs);
+			eobCount += eobs.size();
+		}
+
+		EobSegmentFile.write(path, changeId, eobsByBeneficiary);
+		return eobCount;
+	}
+
+	/**
+	 * The batch job's entry point.
+	 *
+	 * @param args
+	 *            the path to write the segment file to, followed by the IDs of
+	 *            the beneficiaries to include in it
+	 * @throws Exception
+	 *             Any unhandled {@link Exception}s will cause the job to exit
+	 *             with a non-zero status.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2)
+			throw new IllegalArgumentException(
+					"Usage: " + EobSegmentFileBuilder.class.getSimpleName() + " <segmentFile> <beneficiaryId>...");
+		long startNanos = System.nanoTime();
+
+		Path path = Paths.get(args[0]);
+		List<String> beneficiaryIds = Arrays.asList(args).subList(1, args.length);
+		try (AnnotationConfigApplicationContext springContext = new AnnotationConfigApplicationContext(
+				BatchJobConfiguration.class)) {
+			EobSegmentFileBuilder segmentFileBuilder = new EobSegmentFileBuilder(
+					springContext.getBean(SpringConfiguration.PRIMARY_DATA_SOURCE, DataSource.class),
+					springContext.getBean(ExplanationOfBenefitResourceProvider.class));
+			long eobCount = segmentFileBuilder.build(path, beneficiaryIds);
+
+			LOGGER.info("Wrote {} EOBs for {} beneficiaries to '{}' in {} ms.", eobCount, beneficiaryIds.size(),
+					path, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+		}
+	}
+}
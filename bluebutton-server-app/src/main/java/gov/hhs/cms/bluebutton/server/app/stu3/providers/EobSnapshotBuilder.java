@@ -0,0 +1,153 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.sql.DataSource;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import gov.hhs.cms.bluebutton.data.model.rif.Beneficiary;
+import gov.hhs.cms.bluebutton.data.model.rif.Beneficiary_;
+import gov.hhs.cms.bluebutton.server.app.BatchJobConfiguration;
+import gov.hhs.cms.bluebutton.server.app.SpringConfiguration;
+
+/**
+ * <p>
+ * A batch job that (re)builds the {@link EobSnapshotStore}'s snapshots from
+ * the claim tables, by running each beneficiary's
+ * {@link ExplanationOfBenefitResourceProvider} search against the database and
+ * storing the results. It's meant to be run after each ETL pipeline load run,
+ * and is configured via the same Java system properties as the application
+ * itself (see {@link SpringConfiguration}), though it only starts the beans in
+ * {@link BatchJobConfiguration}, and always uses the primary database.
+ * </p>
+ * <p>
+ * By default, every beneficiary's snapshots are rebuilt. If any beneficiary
+ * IDs are passed as arguments, only those beneficiaries' snapshots are
+ * rebuilt, e.g. for just the beneficiaries touched by a load run. Either way,
+ * the rebuilt snapshots are marked with the latest
+ * {@link BeneficiaryChangeLog} <code>changeId</code> as of when the job
+ * started, so that any changes made while it runs will still mark them stale.
+ * </p>
+ */
+public final class EobSnapshotBuilder {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EobSnapshotBuilder.class);
+
+	/**
+	 * How often (in beneficiaries) to log progress.
+	 */
+	private static final int PROGRESS_INTERVAL = 10000;
+
+	private final DataSource dataSource;
+	private final ExplanationOfBenefitResourceProvider eobResourceProvider;
+	private final EobSnapshotStore eobSnapshotStore;
+
+	/**
+	 * Constructs a new {@link EobSnapshotBuilder}.
+	 *
+	 * @param dataSource
+	 *            the {@link DataSource} for the (primary) database, which the
+	 *            {@link BeneficiaryChangeLog} is in
+	 * @param eobResourceProvider
+	 *            the {@link ExplanationOfBenefitResourceProvider} to build the
+	 *            snapshots with
+	 * @param eobSnapshotStore
+	 *            the {@link EobSnapshotStore} to store the snapshots in
+	 */
+	EobSnapshotBuilder(DataSource dataSource, ExplanationOfBenefitResourceProvider eobResourceProvider,
+			EobSnapshotStore eobSnapshotStore) {
+		this.dataSource = dataSource;
+		this.eobResourceProvider = eobResourceProvider;
+		this.eobSnapshotStore = eobSnapshotStore;
+	}
+
+	/**
+	 * Rebuilds the snapshots for each of the specified beneficiaries.
+	 *
+	 * @param beneficiaryIds
+	 *            the IDs of the beneficiaries to rebuild the snapshots of
+	 * @return the total number of snapshots that were stored
+	 * @throws SQLException
+	 *             Any {@link SQLException}s encountered will be bubbled up.
+	 */
+	long build(List<String> beneficiaryIds) throws SQLException {
+		eobSnapshotStore.createTableIfNeeded();
+		BeneficiaryChangeLog.createTableIfNeeded(dataSource);
+		long changeId = BeneficiaryChangeLog.getLatestChangeId(dataSource);
+
+		long snapshotCount = 0;
+		int beneficiaryCount = 0;
+		for (String beneficiaryId : beneficiaryIds) {
+			List<ExplanationOfBenefit> eobs = eobResourceProvider.findByPatientInDatabase(
+					new ReferenceParam(Patient.class.getSimpleName(), null, beneficiaryId), null);
+			eobSnapshotStore.replace(beneficiaryId, eobs, changeId);
+			snapshotCount += eobs.size();
+
+			if (++beneficiaryCount % PROGRESS_INTERVAL == 0)
+				LOGGER.info("Built EOB snapshots for {} of {} beneficiaries.", beneficiaryCount,
+						beneficiaryIds.size());
+		}
+		return snapshotCount;
+	}
+
+	/**
+	 * @param entityManagerFactory
+	 *            the application's {@link EntityManagerFactory}
+	 * @return the IDs of all of the {@link Beneficiary}s in the database
+	 */
+	static List<String> findAllBeneficiaryIds(EntityManagerFactory entityManagerFactory) {
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		try {
+			CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+			CriteriaQuery<String> criteria = builder.createQuery(String.class);
+			Root<Beneficiary> root = criteria.from(Beneficiary.class);
+			criteria.select(root.get(Beneficiary_.beneficiaryId));
+			return entityManager.createQuery(criteria).getResultList();
+		} finally {
+			entityManager.close();
+		}
+	}
+
+	/**
+	 * The batch job's entry point.
+	 *
+	 * @param args
+	 *            the IDs of the beneficiaries to rebuild the snapshots of, or
+	 *            none to rebuild them all
+	 * @throws Exception
+	 *             Any unhandled {@link Exception}s will cause the job to exit
+	 *             with a non-zero status.
+	 */
+	public static void main(String[] args) throws Exception {
+		long startNanos = System.nanoTime();
+
+		try (AnnotationConfigApplicationContext springContext = new AnnotationConfigApplicationContext(
+				BatchJobConfiguration.class)) {
+			List<String> beneficiaryIds = args.length > 0 ? Arrays.asList(args)
+					: findAllBeneficiaryIds(springContext.getBean(EntityManagerFactory.class));
+			LOGGER.info("Building EOB snapshots for {} beneficiaries...", beneficiaryIds.size());
+
+			EobSnapshotBuilder snapshotBuilder = new EobSnapshotBuilder(
+					springContext.getBean(SpringConfiguration.PRIMARY_DATA_SOURCE, DataSource.class),
+					springContext.getBean(ExplanationOfBenefitResourceProvider.class),
+					springContext.getBean(EobSnapshotStore.class));
+			long snapshotCount = snapshotBuilder.build(beneficiaryIds);
+
+			LOGGER.info("Built {} EOB snapshots for {} beneficiaries in {} ms.", snapshotCount,
+					beneficiaryIds.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+		}
+	}
+}
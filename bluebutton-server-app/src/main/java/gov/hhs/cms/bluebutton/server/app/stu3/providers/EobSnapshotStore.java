@@ -0,0 +1,379 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.ToLongFunction;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+import org.hl7.fhir.dstu3.model.DateType;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.ItemComponent;
+import org.hl7.fhir.dstu3.model.IdType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+
+/**
+ * <p>
+ * Stores precomputed ("snapshot") copies of each claim's
+ * {@link ExplanationOfBenefit}, as gzipped FHIR JSON, in a table of their
+ * own. Once they've been built by {@link EobSnapshotBuilder} (after each ETL
+ * pipeline load run), the {@link ExplanationOfBenefitResourceProvider} can
+ * serve reads and searches from that table via a single indexed lookup or
+ * range scan, rather than by querying all eight claim tables and transforming
+ * the results.
+ * </p>
+ * <p>
+ * Snapshots are only as current as the last {@link EobSnapshotBuilder} run,
+ * and aren't used at all unless enabled. Each beneficiary's snapshots record
+ * the {@link BeneficiaryChangeLog} <code>changeId</code> that they were built
+ * as of, and are ignored once the {@link BeneficiaryChangeMonitor} has seen a
+ * later change for that beneficiary. Any lookup that finds no (current)
+ * snapshots (or fails) returns {@link Optional#empty()}, so that callers can
+ * fall back to the claim tables.
+ * </p>
+ */
+public final class EobSnapshotStore {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EobSnapshotStore.class);
+
+	/**
+	 * The name of the snapshots table, which is created by
+	 * {@link #createTableIfNeeded()} rather than the application's usual
+	 * schema management, as it's derived data that only this application uses.
+	 */
+	static final String TABLE_NAME = "EobSnapshots";
+
+	/**
+	 * The {@link FhirContext} used to encode and parse the snapshots, which is
+	 * expensive to create but safe to share.
+	 */
+	private static final FhirContext FHIR_CONTEXT = FhirContext.forDstu3();
+
+	private static final String SQL_SELECT = "select \"beneficiaryId\", \"changeId\", \"eobJson\" from \""
+			+ TABLE_NAME + "\"";
+	private static final String SQL_SELECT_BY_EOB_ID = SQL_SELECT + " where \"eobId\" = ?";
+	private static final String SQL_SELECT_BY_BENEFICIARY = SQL_SELECT + " where \"beneficiaryId\" = ?";
+	private static final String SQL_ORDER_BY = " order by \"eobIndex\"";
+	private static final String SQL_DELETE_BY_BENEFICIARY = "delete from \"" + TABLE_NAME
+			+ "\" where \"beneficiaryId\" = ?";
+	private static final String SQL_INSERT = "insert into \"" + TABLE_NAME
+			+ "\" (\"beneficiaryId\", \"eobIndex\", \"eobId\", \"serviceDate\", \"changeId\", \"eobJson\")"
+			+ " values (?, ?, ?, ?, ?, ?)";
+
+	private final boolean enabled;
+	private final DataSource dataSource;
+	private final DataSource primaryDataSource;
+	private final ToLongFunction<String> dataVersions;
+	private final Meter hits;
+	private final Meter misses;
+	private final Meter stale;
+
+	/**
+	 * Constructs a new {@link EobSnapshotStore}, and registers its metrics.
+	 *
+	 * @param enabled
+	 *            <code>true</code> if the snapshots should be used to serve
+	 *            requests, <code>false</code> if not (in which case
+	 *            {@link #isEnabled()} will return <code>false</code>)
+	 * @param dataSource
+	 *            the {@link DataSource} to read the snapshots via, which may
+	 *            route to a read replica
+	 * @param primaryDataSource
+	 *            the {@link DataSource} for the primary database, which the
+	 *            snapshots table is created and written via
+	 * @param dataVersions
+	 *            returns the current data version of each beneficiary, as
+	 *            provided by {@link BeneficiaryChangeMonitor#getDataVersion(String)}
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 */
+	public EobSnapshotStore(boolean enabled, DataSource dataSource, DataSource primaryDataSource,
+			ToLongFunction<String> dataVersions, MetricRegistry metricRegistry) {
+		this.enabled = enabled;
+		this.dataSource = dataSource;
+		this.primaryDataSource = primaryDataSource;
+		this.dataVersions = dataVersions;
+		this.hits = metricRegistry.meter(MetricRegistry.name(getClass(), "hits"));
+		this.misses = metricRegistry.meter(MetricRegistry.name(getClass(), "misses"));
+		this.stale = metricRegistry.meter(MetricRegistry.name(getClass(), "stale"));
+	}
+
+	/**
+	 * @return <code>true</code> if the snapshots should be used to serve
+	 *         requests, <code>false</code> if not
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @param eobId
+	 *            the {@link ExplanationOfBenefit#getIdElement()}'s
+	 *            {@link IdType#getIdPart()} to look for
+	 * @return the matching {@link ExplanationOfBenefit} snapshot, or
+	 *         {@link Optional#empty()} if there isn't one
+	 */
+	Optional<ExplanationOfBenefit> read(String eobId) {
+		List<ExplanationOfBenefit> eobs = query(SQL_SELECT_BY_EOB_ID, eobId, null, null);
+		return eobs.isEmpty() ? Optional.empty() : Optional.of(eobs.get(0));
+	}
+
+	/**
+	 * @param beneficiaryId
+	 *            the ID of the beneficiary to find the
+	 *            {@link ExplanationOfBenefit} snapshots of
+	 * @param dateRange
+	 *            a {@link DateRangeParam} to restrict the snapshots to, by
+	 *            their service dates (as for
+	 *            {@link ExplanationOfBenefitResourceProvider#findByPatient}),
+	 *            or <code>null</code>
+	 * @return the matching {@link ExplanationOfBenefit} snapshots, in the same
+	 *         order that they were stored in, or {@link Optional#empty()} if
+	 *         there aren't any
+	 */
+	Optional<List<ExplanationOfBenefit>> findByBeneficiary(String beneficiaryId, DateRangeParam dateRange) {
+		LocalDate from = null;
+		LocalDate to = null;
+		if (dateRange != null) {
+			from = toLocalDate(dateRange.getLowerBoundAsInstant());
+			to = toLocalDate(dateRange.getUpperBoundAsInstant());
+		}
+
+		StringBuilder sql = new StringBuilder(SQL_SELECT_BY_BENEFICIARY);
+		if (from != null)
+			sql.append(" and \"serviceDate\" >= ?");
+		if (to != null)
+			sql.append(" and \"serviceDate\" <= ?");
+		sql.append(SQL_ORDER_BY);
+
+		List<ExplanationOfBenefit> eobs = query(sql.toString(), beneficiaryId, from, to);
+		return eobs.isEmpty() ? Optional.empty() : Optional.of(eobs);
+	}
+
+	/**
+	 * @param sql
+	 *            the SQL query to run, which must select (just) the
+	 *            <code>beneficiaryId</code>, <code>changeId</code>, and
+	 *            <code>eobJson</code> columns, in that order
+	 * @param key
+	 *            the value for the query's first parameter
+	 * @param from
+	 *            the value for the query's lower bound service date parameter,
+	 *            if it has one, or <code>null</code>
+	 * @param to
+	 *            the value for the query's upper bound service date parameter,
+	 *            if it has one, or <code>null</code>
+	 * @return the {@link ExplanationOfBenefit}s found by the query, which will
+	 *         be empty if it failed or if any of them were stale
+	 */
+	private List<ExplanationOfBenefit> query(String sql, String key, LocalDate from, LocalDate to) {
+		List<ExplanationOfBenefit> eobs = new ArrayList<>();
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(sql)) {
+			int parameterIndex = 1;
+			statement.setString(parameterIndex++, key);
+			if (from != null)
+				statement.setDate(parameterIndex++, java.sql.Date.valueOf(from));
+			if (to != null)
+				statement.setDate(parameterIndex++, java.sql.Date.valueOf(to));
+
+			try (ResultSet results = statement.executeQuery()) {
+				while (results.next()) {
+					if (dataVersions.applyAsLong(results.getString(1)) > results.getLong(2)) {
+						stale.mark();
+						eobs.clear();
+						break;
+					}
+					eobs.add(decode(results.getBytes(3)));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.warn("Unable to query the EOB snapshots for '{}'.", key, e);
+			eobs.clear();
+		}
+
+		if (eobs.isEmpty())
+			misses.mark();
+		else
+			hits.mark();
+		return eobs;
+	}
+
+	/**
+	 * Creates the snapshots table (and its indexes), if it doesn't already
+	 * exist. It's keyed by beneficiary ID (and each snapshot's position in
+	 * that beneficiary's search results), so that searches are a range scan of
+	 * the primary key, and has a unique index on the EOB IDs for reads.
+	 *
+	 * @throws SQLException
+	 *             Any {@link SQLException}s encountered will be bubbled up.
+	 */
+	public void createTableIfNeeded() throws SQLException {
+		try (Connection connection = primaryDataSource.getConnection()) {
+			DatabaseMetaData metaData = connection.getMetaData();
+			try (ResultSet tables = metaData.getTables(null, null, TABLE_NAME, null)) {
+				if (tables.next())
+					return;
+			}
+
+			String binaryType = "PostgreSQL".equals(metaData.getDatabaseProductName()) ? "bytea" : "longvarbinary";
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("create table \"" + TABLE_NAME + "\" (\"beneficiaryId\" varchar(15) not null, "
+						+ "\"eobIndex\" integer not null, \"eobId\" varchar(64) not null, \"serviceDate\" date, "
+						+ "\"changeId\" bigint not null, \"eobJson\" " + binaryType + " not null, "
+						+ "primary key (\"beneficiaryId\", \"eobIndex\"))");
+				statement.execute("create unique index \"" + TABLE_NAME + "_eobId_idx\" on \"" + TABLE_NAME
+						+ "\" (\"eobId\")");
+			}
+			LOGGER.info("Created the '{}' table.", TABLE_NAME);
+		}
+	}
+
+	/**
+	 * Replaces all of the specified beneficiary's snapshots (if any) with the
+	 * specified {@link ExplanationOfBenefit}s, in a single transaction.
+	 *
+	 * @param beneficiaryId
+	 *            the ID of the beneficiary whose snapshots are being replaced
+	 * @param eobs
+	 *            all of the beneficiary's {@link ExplanationOfBenefit}s, in the
+	 *            order that they should be returned by searches
+	 * @param changeId
+	 *            the latest {@link BeneficiaryChangeLog} <code>changeId</code>
+	 *            as of when the {@link ExplanationOfBenefit}s were queried,
+	 *            which they'll be considered stale after
+	 * @throws SQLException
+	 *             Any {@link SQLException}s encountered will be bubbled up.
+	 */
+	public void replace(String beneficiaryId, List<ExplanationOfBenefit> eobs, long changeId)
+			throws SQLException {
+		try (Connection connection = primaryDataSource.getConnection()) {
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try {
+				try (PreparedStatement delete = connection.prepareStatement(SQL_DELETE_BY_BENEFICIARY)) {
+					delete.setString(1, beneficiaryId);
+					delete.executeUpdate();
+				}
+
+				try (PreparedStatement insert = connection.prepareStatement(SQL_INSERT)) {
+					for (int i = 0; i < eobs.size(); i++) {
+						ExplanationOfBenefit eob = eobs.get(i);
+						Optional<LocalDate> serviceDate = getServiceDate(eob);
+
+						insert.setString(1, beneficiaryId);
+						insert.setInt(2, i);
+						insert.setString(3, eob.getIdElement().getIdPart());
+						if (serviceDate.isPresent())
+							insert.setDate(4, java.sql.Date.valueOf(serviceDate.get()));
+						else
+							insert.setNull(4, java.sql.Types.DATE);
+						insert.setLong(5, changeId);
+						insert.setBytes(6, encode(eob));
+						insert.addBatch();
+					}
+					if (!eobs.isEmpty())
+						insert.executeBatch();
+				}
+
+				connection.commit();
+			} catch (SQLException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		}
+	}
+
+	/**
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to get the service date of
+	 * @return the date that searches' <code>billablePeriodDate</code> ranges
+	 *         are compared against for the specified
+	 *         {@link ExplanationOfBenefit}: the start of its billable period
+	 *         or, for Part D events (which don't have one), its fill date
+	 */
+	static Optional<LocalDate> getServiceDate(ExplanationOfBenefit eob) {
+		if (eob.hasBillablePeriod() && eob.getBillablePeriod().hasStart())
+			return Optional.of(toLocalDate(eob.getBillablePeriod().getStart()));
+
+		for (ItemComponent item : eob.getItem()) {
+			if (item.getServiced() instanceof DateType)
+				return Optional.of(toLocalDate(((DateType) item.getServiced()).getValue()));
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * @param date
+	 *            the {@link Date} to convert, or <code>null</code>
+	 * @return the {@link LocalDate} for the specified {@link Date}, in the
+	 *         system time zone (just as
+	 *         {@link TransformerUtils#convertToDate(LocalDate)} uses), or
+	 *         <code>null</code>
+	 */
+	static LocalDate toLocalDate(Date date) {
+		if (date == null)
+			return null;
+		return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()).toLocalDate();
+	}
+
+	/**
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to encode
+	 * @return the gzipped FHIR JSON for the specified
+	 *         {@link ExplanationOfBenefit}
+	 */
+	static byte[] encode(ExplanationOfBenefit eob) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+			FHIR_CONTEXT.newJsonParser().encodeResourceToWriter(eob, writer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @param encodedEob
+	 *            the output of {@link #encode(ExplanationOfBenefit)} to decode
+	 * @return the {@link ExplanationOfBenefit} that was encoded
+	 */
+	static ExplanationOfBenefit decode(byte[] encodedEob) {
+		try (Reader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(encodedEob)),
+				StandardCharsets.UTF_8)) {
+			return FHIR_CONTEXT.newJsonParser().parseResource(ExplanationOfBenefit.class, reader);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -2,11 +2,17 @@ package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -25,7 +31,13 @@ import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.codahale.metrics.MetricRegistry;
 
 import ca.uhn.fhir.model.primitive.IdDt;
 import ca.uhn.fhir.rest.annotation.IdParam;
@@ -67,7 +79,21 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 	private static final Pattern EOB_ID_PATTERN = Pattern.compile("(\\p{Alpha}+)-(\\p{Alnum}+)");
 	private static final Logger LOGGER = LoggerFactory.getLogger(ExplanationOfBenefitResourceProvider.class);
 
+	/**
+	 * The name of the {@link Executor} bean that each search's per-claim-type
+	 * queries will be run via.
+	 */
+	public static final String CLAIM_QUERY_EXECUTOR = "claimQueryExecutor";
+
 	private EntityManager entityManager;
+	private Executor claimQueryExecutor;
+	private ClaimTransformExecutor claimTransformExecutor;
+	private EobSnapshotStore eobSnapshotStore;
+	private EobSegmentFile eobSegmentFile;
+	private SecondLevelCache secondLevelCache;
+	private TransactionTemplate readOnlyTransaction;
+	private SingleFlight<String, ExplanationOfBenefit> readFlights;
+	private SingleFlight<List<Object>, List<ExplanationOfBenefit>> findByPatientFlights;
 
 	/**
 	 * @param entityManager
@@ -79,6 +105,80 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 		this.entityManager = entityManager;
 	}
 
+	/**
+	 * @param claimQueryExecutor
+	 *            the {@link Executor} that each search's per-claim-type
+	 *            queries will be run via
+	 */
+	@Autowired
+	public void setClaimQueryExecutor(@Qualifier(CLAIM_QUERY_EXECUTOR) Executor claimQueryExecutor) {
+		this.claimQueryExecutor = claimQueryExecutor;
+	}
+
+	/**
+	 * @param claimTransformExecutor
+	 *            the {@link ClaimTransformExecutor} that each search's claims
+	 *            will be transformed via
+	 */
+	@Autowired
+	public void setClaimTransformExecutor(ClaimTransformExecutor claimTransformExecutor) {
+		this.claimTransformExecutor = claimTransformExecutor;
+	}
+
+	/**
+	 * @param eobSnapshotStore
+	 *            the {@link EobSnapshotStore} that reads and searches will be
+	 *            served from first, if it's enabled
+	 */
+	@Autowired
+	public void setEobSnapshotStore(EobSnapshotStore eobSnapshotStore) {
+		this.eobSnapshotStore = eobSnapshotStore;
+	}
+
+	/**
+	 * @param eobSegmentFile
+	 *            the {@link EobSegmentFile} that searches for its
+	 *            beneficiaries will be served from
+	 */
+	@Autowired
+	public void setEobSegmentFile(EobSegmentFile eobSegmentFile) {
+		this.eobSegmentFile = eobSegmentFile;
+	}
+
+	/**
+	 * @param secondLevelCache
+	 *            the {@link SecondLevelCache} that claim reads will be served
+	 *            from (if it's enabled)
+	 */
+	@Autowired
+	public void setSecondLevelCache(SecondLevelCache secondLevelCache) {
+		this.secondLevelCache = secondLevelCache;
+	}
+
+	/**
+	 * @param transactionManager
+	 *            the {@link PlatformTransactionManager} that claim reads and
+	 *            searches will be run in (read-only) transactions via
+	 */
+	@Autowired
+	public void setTransactionManager(PlatformTransactionManager transactionManager) {
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+	}
+
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 */
+	@Autowired
+	public void setMetricRegistry(MetricRegistry metricRegistry) {
+		this.readFlights = new SingleFlight<>(ExplanationOfBenefit::copy,
+				metricRegistry.meter(MetricRegistry.name(getClass(), "read", "coalesced")));
+		this.findByPatientFlights = new SingleFlight<>(
+				eobs -> eobs.stream().map(ExplanationOfBenefit::copy).collect(Collectors.toList()),
+				metricRegistry.meter(MetricRegistry.name(getClass(), "findByPatient", "coalesced")));
+	}
+
 	/**
 	 * @see ca.uhn.fhir.rest.server.IResourceProvider#getResourceType()
 	 */
@@ -105,7 +205,6 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 	 * @return Returns a resource matching the specified {@link IdDt}, or
 	 *         <code>null</code> if none exists.
 	 */
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	@Read(version = false)
 	public ExplanationOfBenefit read(@IdParam IdType eobId) {
 		if (eobId == null)
@@ -117,6 +216,42 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 		if (eobIdText == null || eobIdText.trim().isEmpty())
 			throw new IllegalArgumentException();
 
+		// Identical concurrent reads will share a single database query.
+		return readFlights.execute(eobIdText, () -> readFromSnapshotOrDatabase(eobId));
+	}
+
+	/**
+	 * @param eobId
+	 *            the (already validated) {@link IdType} of the
+	 *            {@link ExplanationOfBenefit} to read
+	 * @return the matching {@link ExplanationOfBenefit}, from the
+	 *         {@link EobSnapshotStore} if it's enabled and has it, or from the
+	 *         claim tables otherwise
+	 * @throws ResourceNotFoundException
+	 *             A {@link ResourceNotFoundException} will be thrown if no
+	 *             matching claim can be found.
+	 */
+	private ExplanationOfBenefit readFromSnapshotOrDatabase(IdType eobId) {
+		if (eobSnapshotStore.isEnabled()) {
+			Optional<ExplanationOfBenefit> eob = eobSnapshotStore.read(eobId.getIdPart());
+			if (eob.isPresent())
+				return eob.get();
+		}
+
+		return readFromDatabase(eobId);
+	}
+
+	/**
+	 * @param eobId
+	 *            the (already validated) {@link IdType} of the
+	 *            {@link ExplanationOfBenefit} to read
+	 * @return the matching {@link ExplanationOfBenefit}
+	 * @throws ResourceNotFoundException
+	 *             A {@link ResourceNotFoundException} will be thrown if no
+	 *             matching claim can be found.
+	 */
+	private ExplanationOfBenefit readFromDatabase(IdType eobId) {
+		String eobIdText = eobId.getIdPart();
 		Matcher eobIdMatcher = EOB_ID_PATTERN.matcher(eobIdText);
 		if (!eobIdMatcher.matches())
 			throw new ResourceNotFoundException(eobId);
@@ -126,24 +261,65 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 			throw new ResourceNotFoundException(eobId);
 		String eobIdClaimIdText = eobIdMatcher.group(2);
 
-		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		ExplanationOfBenefit eob = readOnlyTransaction
+				.execute(status -> readClaim(eobId, eobIdType.get(), eobIdClaimIdText, false));
 
-		Class<?> entityClass = eobIdType.get().getEntityClass();
-		CriteriaQuery criteria = builder.createQuery(entityClass);
-		Root root = criteria.from(entityClass);
-		eobIdType.get().getEntityLazyAttributes().stream().forEach(a -> root.fetch(a));
-		criteria.select(root);
-		criteria.where(builder.equal(root.get(eobIdType.get().getEntityIdAttribute()), eobIdClaimIdText));
+		/*
+		 * The claim's beneficiary isn't known until it's been read. If their
+		 * data has changed recently, the claim may have come from a stale
+		 * cache entry, so it's read again, from the database.
+		 */
+		if (secondLevelCache.hasChangedRecently(eob.getPatient().getReferenceElement().getIdPart()))
+			eob = readOnlyTransaction.execute(status -> readClaim(eobId, eobIdType.get(), eobIdClaimIdText, true));
+		return eob;
+	}
 
-		Object claimEntity = null;
-		try {
-			claimEntity = entityManager.createQuery(criteria).getSingleResult();
-		} catch (NoResultException e) {
-			throw new ResourceNotFoundException(eobId);
+	/**
+	 * Reads and transforms the specified claim. Must be called within a
+	 * transaction, so that the claim's <code>lines</code> can still be loaded
+	 * while it's transformed, if the claim came from the
+	 * {@link SecondLevelCache}.
+	 * 
+	 * @param eobId
+	 *            the {@link IdType} of the {@link ExplanationOfBenefit} being
+	 *            read
+	 * @param claimType
+	 *            the {@link ClaimType} of the claim to read
+	 * @param claimId
+	 *            the ID of the claim to read
+	 * @param refresh
+	 *            <code>true</code> to skip the {@link SecondLevelCache} and
+	 *            refresh it from the database, <code>false</code> to use it
+	 *            as usual
+	 * @return the {@link ExplanationOfBenefit} for the matching claim
+	 * @throws ResourceNotFoundException
+	 *             A {@link ResourceNotFoundException} will be thrown if no
+	 *             matching claim can be found.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private ExplanationOfBenefit readClaim(IdType eobId, ClaimType claimType, String claimId, boolean refresh) {
+		Class<?> entityClass = claimType.getEntityClass();
+		Object claimEntity;
+		if (!refresh && secondLevelCache.contains(entityClass, claimId)) {
+			claimEntity = entityManager.find(entityClass, claimId);
+		} else {
+			CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+			CriteriaQuery criteria = builder.createQuery(entityClass);
+			Root root = criteria.from(entityClass);
+			claimType.getEntityLazyAttributes().stream().forEach(a -> root.fetch(a));
+			criteria.select(root);
+			criteria.where(builder.equal(root.get(claimType.getEntityIdAttribute()), claimId));
+
+			try {
+				claimEntity = QueryDeadline.apply(entityManager.createQuery(criteria)).getSingleResult();
+			} catch (NoResultException e) {
+				throw new ResourceNotFoundException(eobId);
+			}
 		}
 
-		ExplanationOfBenefit eob = eobIdType.get().getTransformer().apply(claimEntity);
-		return eob;
+		if (claimEntity == null)
+			throw new ResourceNotFoundException(eobId);
+		return claimTransformExecutor.transform(claimType, claimEntity);
 	}
 
 	/**
@@ -172,40 +348,143 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 	public List<ExplanationOfBenefit> findByPatient(
 			@RequiredParam(name = ExplanationOfBenefit.SP_PATIENT) ReferenceParam patient,
 			@OptionalParam(name = "billablePeriodDate") DateRangeParam dateRangeParam) {
+		/*
+		 * Identical concurrent searches will share a single set of database
+		 * queries. They're keyed by exactly what the queries use: the
+		 * beneficiary ID and the date range's bounds.
+		 */
+		List<Object> searchKey = Arrays.asList(patient.getIdPart(),
+				dateRangeParam != null ? dateRangeParam.getLowerBoundAsInstant() : null,
+				dateRangeParam != null ? dateRangeParam.getUpperBoundAsInstant() : null);
+		return findByPatientFlights.execute(searchKey,
+				() -> findByPatientInSnapshotsOrDatabase(patient, dateRangeParam));
+	}
+
+	/**
+	 * @param patient
+	 *            a {@link ReferenceParam} for the
+	 *            {@link ExplanationOfBenefit#getPatient()} to try and find
+	 *            matches for {@link ExplanationOfBenefit}s
+	 * @param dateRangeParam
+	 *            a {@link DateRangeParam} can be used to search for
+	 *            {@link ExplanationOfBenefit}s by these dates, or
+	 *            <code>null</code>
+	 * @return the matching {@link ExplanationOfBenefit}s, from the
+	 *         {@link EobSegmentFile} if the beneficiary is in it, from the
+	 *         {@link EobSnapshotStore} if it's enabled and has any, or from the
+	 *         claim tables otherwise
+	 */
+	private List<ExplanationOfBenefit> findByPatientInSnapshotsOrDatabase(ReferenceParam patient,
+			DateRangeParam dateRangeParam) {
+		Optional<List<ExplanationOfBenefit>> segmentEobs = eobSegmentFile.findByBeneficiary(patient.getIdPart(),
+				dateRangeParam);
+		if (segmentEobs.isPresent())
+			return segmentEobs.get();
+
+		if (eobSnapshotStore.isEnabled()) {
+			Optional<List<ExplanationOfBenefit>> eobs = eobSnapshotStore.findByBeneficiary(patient.getIdPart(),
+					dateRangeParam);
+			if (eobs.isPresent())
+				return eobs.get();
+		}
+
+		return findByPatientInDatabase(patient, dateRangeParam);
+	}
+
+	/**
+	 * @param patient
+	 *            a {@link ReferenceParam} for the
+	 *            {@link ExplanationOfBenefit#getPatient()} to try and find
+	 *            matches for {@link ExplanationOfBenefit}s
+	 * @param dateRangeParam
+	 *            a {@link DateRangeParam} can be used to search for
+	 *            {@link ExplanationOfBenefit}s by these dates, or
+	 *            <code>null</code>
+	 * @return the matching {@link ExplanationOfBenefit}s
+	 */
+	List<ExplanationOfBenefit> findByPatientInDatabase(ReferenceParam patient,
+			DateRangeParam dateRangeParam) {
 		/*
 		 * The way our JPA/SQL schema is setup, we have to run a separate search
 		 * for each claim type, then combine the results. It's not super
 		 * efficient, but it's also not so inefficient that it's worth fixing.
+		 * Each of those searches is bounded by the request's QueryDeadline:
+		 * once it passes, the remaining searches are skipped entirely.
 		 */
-		List<ExplanationOfBenefit> eobs = new LinkedList<>();
-
 		Optional<DateRangeParam> dateRange = null;
 		if (dateRangeParam == null)
 			dateRange = Optional.empty();
 		else
 			dateRange = Optional.of(dateRangeParam);
+		Optional<DateRangeParam> finalDateRange = dateRange;
+
+		List<Supplier<List<ExplanationOfBenefit>>> claimTypeSearches = Arrays.asList(
+				() -> transform(ClaimType.CARRIER, findCarrierClaimsByPatient(patient, finalDateRange)),
+				() -> transform(ClaimType.DME, findDMEClaimsByPatient(patient, finalDateRange)),
+				() -> transform(ClaimType.HHA, findHHAClaimsByPatient(patient, finalDateRange)),
+				() -> transform(ClaimType.HOSPICE, findHospiceClaimsByPatient(patient, finalDateRange)),
+				() -> transform(ClaimType.INPATIENT, findInpatientClaimsByPatient(patient, finalDateRange)),
+				() -> transform(ClaimType.OUTPATIENT, findOutpatientClaimsByPatient(patient, finalDateRange)),
+				() -> transform(ClaimType.PDE, findPartDEventsByPatient(patient, finalDateRange)),
+				() -> transform(ClaimType.SNF, findSNFClaimsByPatient(patient, finalDateRange)));
 
-		eobs.addAll(findCarrierClaimsByPatient(patient, dateRange).stream().map(ClaimType.CARRIER.getTransformer())
-				.collect(Collectors.toList()));
-		eobs.addAll(findDMEClaimsByPatient(patient, dateRange).stream().map(ClaimType.DME.getTransformer())
-				.collect(Collectors.toList()));
-		eobs.addAll(findHHAClaimsByPatient(patient, dateRange).stream().map(ClaimType.HHA.getTransformer())
-				.collect(Collectors.toList()));
-		eobs.addAll(findHospiceClaimsByPatient(patient, dateRange).stream().map(ClaimType.HOSPICE.getTransformer())
-				.collect(Collectors.toList()));
-		eobs.addAll(findInpatientClaimsByPatient(patient, dateRange).stream().map(ClaimType.INPATIENT.getTransformer())
-				.collect(Collectors.toList()));
-		eobs.addAll(findOutpatientClaimsByPatient(patient, dateRange).stream()
-				.map(ClaimType.OUTPATIENT.getTransformer()).collect(Collectors.toList()));
-		eobs.addAll(findPartDEventsByPatient(patient, dateRange).stream().map(ClaimType.PDE.getTransformer())
-				.collect(Collectors.toList()));
-		eobs.addAll(findSNFClaimsByPatient(patient, dateRange).stream().map(ClaimType.SNF.getTransformer())
-				.collect(Collectors.toList()));
-		 
+		/*
+		 * By default, the claimQueryExecutor just runs each search right here,
+		 * one after the other, but it may instead run them all at once (e.g.
+		 * on virtual threads). Either way, the first failure stops any
+		 * searches that haven't yet been started.
+		 */
+		List<CompletableFuture<List<ExplanationOfBenefit>>> claimTypeResults = new ArrayList<>();
+		for (Supplier<List<ExplanationOfBenefit>> claimTypeSearch : claimTypeSearches) {
+			CompletableFuture<List<ExplanationOfBenefit>> claimTypeResult = CompletableFuture
+					.supplyAsync(claimTypeSearch, claimQueryExecutor);
+			claimTypeResults.add(claimTypeResult);
+			if (claimTypeResult.isCompletedExceptionally())
+				break;
+		}
+
+		List<ExplanationOfBenefit> eobs = new LinkedList<>();
+		for (CompletableFuture<List<ExplanationOfBenefit>> claimTypeResult : claimTypeResults) {
+			try {
+				eobs.addAll(claimTypeResult.join());
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				if (e.getCause() instanceof Error)
+					throw (Error) e.getCause();
+				throw e;
+			}
+		}
 
 		return eobs;
 	}
 
+	/**
+	 * @param claimType
+	 *            the {@link ClaimType} of the specified claim entities
+	 * @param claimEntities
+	 *            the claim entities to transform
+	 * @return the {@link ExplanationOfBenefit}s for the specified claim
+	 *         entities, in the same order
+	 */
+	private List<ExplanationOfBenefit> transform(ClaimType claimType, Collection<?> claimEntities) {
+		return claimTransformExecutor.transform(claimType, claimEntities);
+	}
+
+	/**
+	 * Runs the specified claim search in a read-only transaction, as
+	 * PostgreSQL's driver only streams large result sets (in chunks of the
+	 * configured fetch size) when auto-commit is off, and buffers them in
+	 * their entirety otherwise.
+	 * 
+	 * @param criteriaQuery
+	 *            the {@link CriteriaQuery} for the claims to find
+	 * @return the matching claims
+	 */
+	private <T> List<T> getResultList(CriteriaQuery<T> criteriaQuery) {
+		return readOnlyTransaction
+				.execute(status -> QueryDeadline.apply(entityManager.createQuery(criteriaQuery)).getResultList());
+	}
 
 	/**
 	 * @param patient
@@ -230,8 +509,8 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 		CriteriaQuery criteriaQuery = createSearchCriteria(criteria, patient, root, builder,
 				root.get(CarrierClaim_.beneficiaryId), root.get(CarrierClaim_.dateFrom), dateRange);
 
-		List<CarrierClaim> claimEntities = entityManager.createQuery(criteriaQuery).getResultList();
-		LOGGER.info("deh-info in CarrierClaims-claimEntities size is " + claimEntities.size());
+		List<CarrierClaim> claimEntities = getResultList(criteriaQuery);
+		LOGGER.debug("Found {} CarrierClaim entities.", claimEntities.size());
 		return claimEntities;
 	}
 
@@ -259,8 +538,8 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 		CriteriaQuery criteriaQuery = createSearchCriteria(criteria, patient, root, builder,
 				root.get(DMEClaim_.beneficiaryId), root.get(DMEClaim_.dateFrom), dateRange);
 
-		List<DMEClaim> claimEntities = entityManager.createQuery(criteriaQuery).getResultList();
-		LOGGER.info("deh-info in DMEClaims-claimEntities size is " + claimEntities.size());
+		List<DMEClaim> claimEntities = getResultList(criteriaQuery);
+		LOGGER.debug("Found {} DMEClaim entities.", claimEntities.size());
 		return claimEntities;
 	}
 
@@ -286,8 +565,8 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 		CriteriaQuery criteriaQuery = createSearchCriteria(criteria, patient, root, builder,
 				root.get(HHAClaim_.beneficiaryId), root.get(HHAClaim_.dateFrom), dateRange);
 
-		List<HHAClaim> claimEntities = entityManager.createQuery(criteriaQuery).getResultList();
-		LOGGER.info("deh-info in HHAClaims-claimEntities size is " + claimEntities.size());
+		List<HHAClaim> claimEntities = getResultList(criteriaQuery);
+		LOGGER.debug("Found {} HHAClaim entities.", claimEntities.size());
 		return claimEntities;
 	}
 
@@ -314,8 +593,8 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 		CriteriaQuery criteriaQuery = createSearchCriteria(criteria, patient, root, builder,
 				root.get(HospiceClaim_.beneficiaryId), root.get(HospiceClaim_.dateFrom), dateRange);
 
-		List<HospiceClaim> claimEntities = entityManager.createQuery(criteriaQuery).getResultList();
-		LOGGER.info("deh-info in HospiceClaims-claimEntities size is " + claimEntities.size());
+		List<HospiceClaim> claimEntities = getResultList(criteriaQuery);
+		LOGGER.debug("Found {} HospiceClaim entities.", claimEntities.size());
 		return claimEntities;
 	}
 
@@ -342,8 +621,8 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 		CriteriaQuery criteriaQuery = createSearchCriteria(criteria, patient, root, builder,
 				root.get(InpatientClaim_.beneficiaryId), root.get(InpatientClaim_.dateFrom), dateRange);
 
-		List<InpatientClaim> claimEntities = entityManager.createQuery(criteriaQuery).getResultList();
-		LOGGER.info("deh-info in InpatientClaims-claimEntities size is " + claimEntities.size());
+		List<InpatientClaim> claimEntities = getResultList(criteriaQuery);
+		LOGGER.debug("Found {} InpatientClaim entities.", claimEntities.size());
 
 		return claimEntities;
 	}
@@ -372,8 +651,8 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 				root.get(OutpatientClaim_.beneficiaryId), root.get(OutpatientClaim_.dateFrom), dateRange);
 
 
-		List<OutpatientClaim> claimEntities = entityManager.createQuery(criteriaQuery).getResultList();
-		LOGGER.info("deh-info in OutpatientClaims-claimEntities size is " + claimEntities.size());
+		List<OutpatientClaim> claimEntities = getResultList(criteriaQuery);
+		LOGGER.debug("Found {} OutpatientClaim entities.", claimEntities.size());
 		return claimEntities;
 	}
 
@@ -400,8 +679,8 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 		CriteriaQuery criteriaQuery = createSearchCriteria(criteria, patient, root, builder,
 				root.get(PartDEvent_.beneficiaryId), root.get(PartDEvent_.prescriptionFillDate), dateRange);
 
-		List<PartDEvent> claimEntities = entityManager.createQuery(criteriaQuery).getResultList();
-		LOGGER.info("deh-info in PartD-claimEntities size is " + claimEntities.size());
+		List<PartDEvent> claimEntities = getResultList(criteriaQuery);
+		LOGGER.debug("Found {} PartDEvent entities.", claimEntities.size());
 
 		return claimEntities;
 	}
@@ -429,8 +708,8 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 				root.get(SNFClaim_.beneficiaryId), root.get(SNFClaim_.dateFrom), dateRange);
 
 
-		List<SNFClaim> claimEntities = entityManager.createQuery(criteriaQuery).getResultList();
-		LOGGER.info("deh-info in SNFClaims-claimEntities size is " + claimEntities.size());
+		List<SNFClaim> claimEntities = getResultList(criteriaQuery);
+		LOGGER.debug("Found {} SNFClaim entities.", claimEntities.size());
 
 		return claimEntities;
 	}
@@ -462,14 +741,12 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 		// no search dates were supplied in the url
 		if (!dateRange.isPresent()) {
 			criteria.where(builder.equal(beneficiaryIdPath, patient.getIdPart()));
-			LOGGER.info("deh- dateRange is empty");
 			return criteria;
 		}
 
 		Date from = dateRange.get().getLowerBoundAsInstant();
 		Date to = dateRange.get().getUpperBoundAsInstant();
-		LOGGER.info("deh-..from date - " + from);
-		LOGGER.info("deh-..to date - " + to);
+		LOGGER.debug("Searching with date range: from '{}', to '{}'.", from, to);
 		// only one search date was supplied with a greater than or equal to
 		// operator in the url
 		if (dateRange.get().getUpperBoundAsInstant() == null) {
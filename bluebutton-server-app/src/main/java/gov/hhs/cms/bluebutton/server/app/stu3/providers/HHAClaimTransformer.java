@@ -1,10 +1,6 @@
 package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
 import java.math.BigDecimal;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Optional;
-import java.util.function.Consumer;
 
 import org.hl7.fhir.dstu3.model.Address;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
@@ -29,6 +25,55 @@ import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel
  * {@link ExplanationOfBenefit} resources.
  */
 final class HHAClaimTransformer {
+	/**
+	 * The {@link IcdCodeSlots} for the diagnosis codes in each
+	 * {@link HHAClaim}.
+	 */
+	static final IcdCodeSlots<HHAClaim, Diagnosis> DIAGNOSES = IcdCodeSlots
+			.<HHAClaim, Diagnosis> builder()
+			.add(Diagnosis.slot(HHAClaim::getDiagnosisPrincipalCode,
+					HHAClaim::getDiagnosisPrincipalCodeVersion, DiagnosisLabel.PRINCIPAL))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis1Code, HHAClaim::getDiagnosis1CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis2Code, HHAClaim::getDiagnosis2CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis3Code, HHAClaim::getDiagnosis3CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis4Code, HHAClaim::getDiagnosis4CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis5Code, HHAClaim::getDiagnosis5CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis6Code, HHAClaim::getDiagnosis6CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis7Code, HHAClaim::getDiagnosis7CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis8Code, HHAClaim::getDiagnosis8CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis9Code, HHAClaim::getDiagnosis9CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis10Code, HHAClaim::getDiagnosis10CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis11Code, HHAClaim::getDiagnosis11CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis12Code, HHAClaim::getDiagnosis12CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis13Code, HHAClaim::getDiagnosis13CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis14Code, HHAClaim::getDiagnosis14CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis15Code, HHAClaim::getDiagnosis15CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis16Code, HHAClaim::getDiagnosis16CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis17Code, HHAClaim::getDiagnosis17CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis18Code, HHAClaim::getDiagnosis18CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis19Code, HHAClaim::getDiagnosis19CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis20Code, HHAClaim::getDiagnosis20CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis21Code, HHAClaim::getDiagnosis21CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis22Code, HHAClaim::getDiagnosis22CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis23Code, HHAClaim::getDiagnosis23CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis24Code, HHAClaim::getDiagnosis24CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosis25Code, HHAClaim::getDiagnosis25CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosisExternalFirstCode,
+					HHAClaim::getDiagnosisExternalFirstCodeVersion, DiagnosisLabel.FIRSTEXTERNAL))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosisExternal1Code, HHAClaim::getDiagnosisExternal1CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosisExternal2Code, HHAClaim::getDiagnosisExternal2CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosisExternal3Code, HHAClaim::getDiagnosisExternal3CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosisExternal4Code, HHAClaim::getDiagnosisExternal4CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosisExternal5Code, HHAClaim::getDiagnosisExternal5CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosisExternal6Code, HHAClaim::getDiagnosisExternal6CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosisExternal7Code, HHAClaim::getDiagnosisExternal7CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosisExternal8Code, HHAClaim::getDiagnosisExternal8CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosisExternal9Code, HHAClaim::getDiagnosisExternal9CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosisExternal10Code, HHAClaim::getDiagnosisExternal10CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosisExternal11Code, HHAClaim::getDiagnosisExternal11CodeVersion))
+			.add(Diagnosis.slot(HHAClaim::getDiagnosisExternal12Code, HHAClaim::getDiagnosisExternal12CodeVersion))
+			.build();
+
 	/**
 	 * @param claim
 	 *            the CCW {@link HHAClaim} to transform
@@ -137,8 +182,7 @@ final class HHAClaimTransformer {
 				TransformerConstants.CODING_SYSTEM_CCW_CLAIM_SERVICE_CLASSIFICATION_TYPE_CD,
 				String.valueOf(claimGroup.getClaimServiceClassificationTypeCode()));
 
-		for (Diagnosis diagnosis : extractDiagnoses(claimGroup))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+		DIAGNOSES.forEach(claimGroup, diagnosis -> TransformerUtils.addDiagnosisCode(eob, diagnosis));
 
 		if (claimGroup.getClaimLUPACode().isPresent()) {
 			TransformerUtils.addInformation(eob,
@@ -272,80 +316,4 @@ final class HHAClaimTransformer {
 		return eob;
 	}
 
-	/**
-	 * @param claim
-	 *            the {@link HHAClaim} to extract the {@link Diagnosis}es from
-	 * @return the {@link Diagnosis}es that can be extracted from the specified
-	 *         {@link HHAClaim}
-	 */
-	private static List<Diagnosis> extractDiagnoses(HHAClaim claim) {
-		List<Diagnosis> diagnoses = new LinkedList<>();
-
-		/*
-		 * Seems silly, but allows the block below to be simple one-liners,
-		 * rather than requiring if-blocks.
-		 */
-		Consumer<Optional<Diagnosis>> diagnosisAdder = d -> {
-			if (d.isPresent())
-				diagnoses.add(d.get());
-		};
-
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisPrincipalCode(),
-				claim.getDiagnosisPrincipalCodeVersion(), DiagnosisLabel.PRINCIPAL));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis1Code(), claim.getDiagnosis1CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis2Code(), claim.getDiagnosis2CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis3Code(), claim.getDiagnosis3CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis4Code(), claim.getDiagnosis4CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis5Code(), claim.getDiagnosis5CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis6Code(), claim.getDiagnosis6CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis7Code(), claim.getDiagnosis7CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis8Code(), claim.getDiagnosis8CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis9Code(), claim.getDiagnosis9CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis10Code(), claim.getDiagnosis10CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis11Code(), claim.getDiagnosis11CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis12Code(), claim.getDiagnosis12CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis13Code(), claim.getDiagnosis13CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis14Code(), claim.getDiagnosis14CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis15Code(), claim.getDiagnosis15CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis16Code(), claim.getDiagnosis16CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis17Code(), claim.getDiagnosis17CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis18Code(), claim.getDiagnosis18CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis19Code(), claim.getDiagnosis19CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis20Code(), claim.getDiagnosis20CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis21Code(), claim.getDiagnosis21CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis22Code(), claim.getDiagnosis22CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis23Code(), claim.getDiagnosis23CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis24Code(), claim.getDiagnosis24CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis25Code(), claim.getDiagnosis25CodeVersion()));
-
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisExternalFirstCode(),
-				claim.getDiagnosisExternalFirstCodeVersion(), DiagnosisLabel.FIRSTEXTERNAL));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal1Code(), claim.getDiagnosisExternal1CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal2Code(), claim.getDiagnosisExternal2CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal3Code(), claim.getDiagnosisExternal3CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal4Code(), claim.getDiagnosisExternal4CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal5Code(), claim.getDiagnosisExternal5CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal6Code(), claim.getDiagnosisExternal6CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal7Code(), claim.getDiagnosisExternal7CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal8Code(), claim.getDiagnosisExternal8CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal9Code(), claim.getDiagnosisExternal9CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal10Code(), claim.getDiagnosisExternal10CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal11Code(), claim.getDiagnosisExternal11CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal12Code(), claim.getDiagnosisExternal12CodeVersion()));
-
-		return diagnoses;
-	}
-
 }
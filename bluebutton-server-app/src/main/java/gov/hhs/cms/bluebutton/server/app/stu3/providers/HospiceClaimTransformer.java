@@ -1,10 +1,6 @@
 package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
 import java.math.BigDecimal;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Optional;
-import java.util.function.Consumer;
 
 import org.hl7.fhir.dstu3.model.Address;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
@@ -29,6 +25,67 @@ import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel
  * {@link ExplanationOfBenefit} resources.
  */
 final class HospiceClaimTransformer {
+	/**
+	 * The {@link IcdCodeSlots} for the diagnosis codes in each
+	 * {@link HospiceClaim}.
+	 */
+	static final IcdCodeSlots<HospiceClaim, Diagnosis> DIAGNOSES = IcdCodeSlots
+			.<HospiceClaim, Diagnosis> builder()
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosisPrincipalCode,
+					HospiceClaim::getDiagnosisPrincipalCodeVersion, DiagnosisLabel.PRINCIPAL))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis1Code, HospiceClaim::getDiagnosis1CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis2Code, HospiceClaim::getDiagnosis2CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis3Code, HospiceClaim::getDiagnosis3CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis4Code, HospiceClaim::getDiagnosis4CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis5Code, HospiceClaim::getDiagnosis5CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis6Code, HospiceClaim::getDiagnosis6CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis7Code, HospiceClaim::getDiagnosis7CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis8Code, HospiceClaim::getDiagnosis8CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis9Code, HospiceClaim::getDiagnosis9CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis10Code, HospiceClaim::getDiagnosis10CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis11Code, HospiceClaim::getDiagnosis11CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis12Code, HospiceClaim::getDiagnosis12CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis13Code, HospiceClaim::getDiagnosis13CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis14Code, HospiceClaim::getDiagnosis14CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis15Code, HospiceClaim::getDiagnosis15CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis16Code, HospiceClaim::getDiagnosis16CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis17Code, HospiceClaim::getDiagnosis17CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis18Code, HospiceClaim::getDiagnosis18CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis19Code, HospiceClaim::getDiagnosis19CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis20Code, HospiceClaim::getDiagnosis20CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis21Code, HospiceClaim::getDiagnosis21CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis22Code, HospiceClaim::getDiagnosis22CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis23Code, HospiceClaim::getDiagnosis23CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis24Code, HospiceClaim::getDiagnosis24CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosis25Code, HospiceClaim::getDiagnosis25CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosisExternalFirstCode,
+					HospiceClaim::getDiagnosisExternalFirstCodeVersion, DiagnosisLabel.FIRSTEXTERNAL))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosisExternal1Code,
+					HospiceClaim::getDiagnosisExternal1CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosisExternal2Code,
+					HospiceClaim::getDiagnosisExternal2CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosisExternal3Code,
+					HospiceClaim::getDiagnosisExternal3CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosisExternal4Code,
+					HospiceClaim::getDiagnosisExternal4CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosisExternal5Code,
+					HospiceClaim::getDiagnosisExternal5CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosisExternal6Code,
+					HospiceClaim::getDiagnosisExternal6CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosisExternal7Code,
+					HospiceClaim::getDiagnosisExternal7CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosisExternal8Code,
+					HospiceClaim::getDiagnosisExternal8CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosisExternal9Code,
+					HospiceClaim::getDiagnosisExternal9CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosisExternal10Code,
+					HospiceClaim::getDiagnosisExternal10CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosisExternal11Code,
+					HospiceClaim::getDiagnosisExternal11CodeVersion))
+			.add(Diagnosis.slot(HospiceClaim::getDiagnosisExternal12Code,
+					HospiceClaim::getDiagnosisExternal12CodeVersion))
+			.build();
+
 	/**
 	 * @param claim
 	 *            the CCW {@link HospiceClaim} to transform
@@ -168,8 +225,7 @@ final class HospiceClaimTransformer {
 					claimGroup.getAttendingPhysicianNpi().get(), TransformerConstants.CARE_TEAM_ROLE_PRIMARY);
 		}
 
-		for (Diagnosis diagnosis : extractDiagnoses(claimGroup))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+		DIAGNOSES.forEach(claimGroup, diagnosis -> TransformerUtils.addDiagnosisCode(eob, diagnosis));
 
 		for (HospiceClaimLine claimLine : claimGroup.getLines()) {
 			ItemComponent item = eob.addItem();
@@ -285,83 +341,4 @@ final class HospiceClaimTransformer {
 		return eob;
 	}
 
-	/**
-	 * @param claim
-	 *            the {@link HospiceClaim} to extract the {@link Diagnosis}es
-	 *            from
-	 * @return the {@link Diagnosis}es that can be extracted from the specified
-	 *         {@link HospiceClaim}
-	 */
-	private static List<Diagnosis> extractDiagnoses(HospiceClaim claim) {
-		List<Diagnosis> diagnoses = new LinkedList<>();
-
-		/*
-		 * Seems silly, but allows the block below to be simple one-liners,
-		 * rather than requiring if-blocks.
-		 */
-		Consumer<Optional<Diagnosis>> diagnosisAdder = d -> {
-			if (d.isPresent())
-				diagnoses.add(d.get());
-		};
-
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisPrincipalCode(),
-				claim.getDiagnosisPrincipalCodeVersion(), DiagnosisLabel.PRINCIPAL));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis1Code(), claim.getDiagnosis1CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis2Code(), claim.getDiagnosis2CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis3Code(), claim.getDiagnosis3CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis4Code(), claim.getDiagnosis4CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis5Code(), claim.getDiagnosis5CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis6Code(), claim.getDiagnosis6CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis7Code(), claim.getDiagnosis7CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis8Code(), claim.getDiagnosis8CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis9Code(), claim.getDiagnosis9CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis10Code(), claim.getDiagnosis10CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis11Code(), claim.getDiagnosis11CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis12Code(), claim.getDiagnosis12CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis13Code(), claim.getDiagnosis13CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis14Code(), claim.getDiagnosis14CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis15Code(), claim.getDiagnosis15CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis16Code(), claim.getDiagnosis16CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis17Code(), claim.getDiagnosis17CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis18Code(), claim.getDiagnosis18CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis19Code(), claim.getDiagnosis19CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis20Code(), claim.getDiagnosis20CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis21Code(), claim.getDiagnosis21CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis22Code(), claim.getDiagnosis22CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis23Code(), claim.getDiagnosis23CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis24Code(), claim.getDiagnosis24CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis25Code(), claim.getDiagnosis25CodeVersion()));
-
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisExternalFirstCode(),
-				claim.getDiagnosisExternalFirstCodeVersion(), DiagnosisLabel.FIRSTEXTERNAL));
-
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal1Code(), claim.getDiagnosisExternal1CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal2Code(), claim.getDiagnosisExternal2CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal3Code(), claim.getDiagnosisExternal3CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal4Code(), claim.getDiagnosisExternal4CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal5Code(), claim.getDiagnosisExternal5CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal6Code(), claim.getDiagnosisExternal6CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal7Code(), claim.getDiagnosisExternal7CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal8Code(), claim.getDiagnosisExternal8CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal9Code(), claim.getDiagnosisExternal9CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal10Code(), claim.getDiagnosisExternal10CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal11Code(), claim.getDiagnosisExternal11CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal12Code(), claim.getDiagnosisExternal12CodeVersion()));
-
-		return diagnoses;
-	}
-
 }
-
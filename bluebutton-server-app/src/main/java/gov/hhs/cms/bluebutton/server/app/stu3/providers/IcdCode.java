@@ -10,8 +10,22 @@ import org.hl7.fhir.dstu3.model.Coding;
  * Models a icdCode code entry in a claim.
  */
 abstract class IcdCode {
+	/**
+	 * The FHIR Coding system to use for {@link IcdCode}s with no
+	 * {@link #icdVersionCode}, or with a <code>'9'</code> one.
+	 */
+	private static final String ICD_9 = "http://hl7.org/fhir/sid/icd-9-cm";
+
+	/**
+	 * The FHIR Coding systems for all of the ASCII {@link #icdVersionCode}
+	 * values, indexed by those values. Built once, so that resolving an
+	 * {@link IcdCode}'s {@link #getFhirSystem()} is just an array lookup.
+	 */
+	private static final String[] SYSTEMS_BY_VERSION_CODE = createSystemsByVersionCode();
+
 	private final String icdCode;
 	private final Character icdVersionCode;
+	private final String system;
 
 	/**
 	 * Constructs a new {@link IcdCode}.
@@ -30,7 +44,7 @@ abstract class IcdCode {
 
 		this.icdCode = icdCode.get();
 		this.icdVersionCode = icdVersionCode.orElse(null);
-
+		this.system = resolveSystem(this.icdVersionCode);
 	}
 
 	/**
@@ -41,8 +55,13 @@ abstract class IcdCode {
 	 *         <code>false</code> if not
 	 */
 	boolean isContainedIn(CodeableConcept codeableConcept) {
-		return codeableConcept.getCoding().stream().filter(c -> icdCode.equals(c.getCode()))
-				.filter(c -> getFhirSystem().equals(c.getSystem())).count() != 0;
+		if (!codeableConcept.hasCoding())
+			return false;
+
+		for (Coding coding : codeableConcept.getCoding())
+			if (icdCode.equals(coding.getCode()) && system.equals(coding.getSystem()))
+				return true;
+		return false;
 	}
 
 	/**
@@ -50,13 +69,7 @@ abstract class IcdCode {
 	 */
 	CodeableConcept toCodeableConcept() {
 		CodeableConcept codeableConcept = new CodeableConcept();
-		Coding coding = codeableConcept.addCoding();
-
-		String system = getFhirSystem();
-		coding.setSystem(system);
-
-		coding.setCode(icdCode);
-
+		codeableConcept.addCoding(new Coding().setSystem(system).setCode(icdCode));
 		return codeableConcept;
 	}
 
@@ -81,14 +94,50 @@ abstract class IcdCode {
 	 *         {@link #icdVersionCode} value
 	 */
 	protected String getFhirSystem() {
-		String system;
-		if (icdVersionCode == null || icdVersionCode.equals("9"))
-			system = "http://hl7.org/fhir/sid/icd-9-cm";
-		else if (icdVersionCode.equals("0"))
-			system = "http://hl7.org/fhir/sid/icd-10";
-		else
-			system = String.format("http://hl7.org/fhir/sid/unknown-icd-version/%s", icdVersionCode);
 		return system;
 	}
 
+	/**
+	 * @param icdVersionCode
+	 *            the {@link #icdVersionCode} value to resolve, if any
+	 * @return the FHIR Coding system for the specified
+	 *         {@link #icdVersionCode} value
+	 */
+	static String resolveSystem(Character icdVersionCode) {
+		if (icdVersionCode == null)
+			return ICD_9;
+
+		char versionCode = icdVersionCode.charValue();
+		if (versionCode < SYSTEMS_BY_VERSION_CODE.length)
+			return SYSTEMS_BY_VERSION_CODE[versionCode];
+
+		// CCW version codes are always ASCII, so this shouldn't really happen.
+		return createUnknownSystem(versionCode);
+	}
+
+	/**
+	 * @return the value to use for {@link #SYSTEMS_BY_VERSION_CODE}
+	 */
+	private static String[] createSystemsByVersionCode() {
+		String[] systems = new String[128];
+		for (char versionCode = 0; versionCode < systems.length; versionCode++) {
+			if (versionCode == '9')
+				systems[versionCode] = ICD_9;
+			else if (versionCode == '0')
+				systems[versionCode] = "http://hl7.org/fhir/sid/icd-10";
+			else
+				systems[versionCode] = createUnknownSystem(versionCode);
+		}
+		return systems;
+	}
+
+	/**
+	 * @param versionCode
+	 *            an unrecognized {@link #icdVersionCode} value
+	 * @return the FHIR Coding system to use for {@link IcdCode}s with the
+	 *         specified {@link #icdVersionCode}
+	 */
+	private static String createUnknownSystem(char versionCode) {
+		return "http://hl7.org/fhir/sid/unknown-icd-version/" + versionCode;
+	}
 }
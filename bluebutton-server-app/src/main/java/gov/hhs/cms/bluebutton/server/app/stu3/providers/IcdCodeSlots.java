@@ -0,0 +1,115 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * An ordered, array-backed set of the numbered ICD code "slots" (e.g.
+ * <code>ICD_DGNS_CD1</code> through <code>ICD_DGNS_CD25</code>, along with
+ * their version and other related fields) in a claim entity, which yields an
+ * {@link IcdCode} (e.g. a {@link Diagnosis} or {@link CCWProcedure}) for each
+ * slot that's actually populated.
+ * </p>
+ * <p>
+ * The claim transformers define their {@link IcdCodeSlots} once, as
+ * constants. Most of a claim's slots are usually empty, and
+ * {@link #forEach(Object, Consumer)} skips those without creating anything
+ * for them.
+ * </p>
+ *
+ * @param <C>
+ *            the type of the claim entity
+ * @param <T>
+ *            the type of {@link IcdCode} in the slots
+ */
+final class IcdCodeSlots<C, T extends IcdCode> {
+	private final Function<C, T>[] slots;
+
+	/**
+	 * Constructs a new {@link IcdCodeSlots}. Use {@link #builder()}, instead.
+	 *
+	 * @param slots
+	 *            the value to use for {@link #slots}
+	 */
+	@SuppressWarnings("unchecked")
+	private IcdCodeSlots(List<Function<C, T>> slots) {
+		this.slots = slots.toArray(new Function[slots.size()]);
+	}
+
+	/**
+	 * Passes the {@link IcdCode} from each populated slot in the specified
+	 * claim to the specified action, in slot order.
+	 *
+	 * @param claim
+	 *            the claim entity to read the slots from
+	 * @param action
+	 *            the action to run for each populated slot's {@link IcdCode}
+	 */
+	void forEach(C claim, Consumer<? super T> action) {
+		for (Function<C, T> slot : slots) {
+			T icdCode = slot.apply(claim);
+			if (icdCode != null)
+				action.accept(icdCode);
+		}
+	}
+
+	/**
+	 * @return the number of slots in this {@link IcdCodeSlots}
+	 */
+	int size() {
+		return slots.length;
+	}
+
+	/**
+	 * @return a new, empty {@link Builder}
+	 */
+	static <C, T extends IcdCode> Builder<C, T> builder() {
+		return new Builder<>();
+	}
+
+	/**
+	 * Builds {@link IcdCodeSlots} instances.
+	 *
+	 * @param <C>
+	 *            the type of the claim entity
+	 * @param <T>
+	 *            the type of {@link IcdCode} in the slots
+	 */
+	static final class Builder<C, T extends IcdCode> {
+		private final List<Function<C, T>> slots = new ArrayList<>();
+
+		/**
+		 * Constructs a new {@link Builder}. Use
+		 * {@link IcdCodeSlots#builder()}, instead.
+		 */
+		private Builder() {
+		}
+
+		/**
+		 * @param slot
+		 *            the slot to add, which must return the slot's
+		 *            {@link IcdCode} for a claim, or <code>null</code> if the
+		 *            slot isn't populated in that claim (e.g.
+		 *            {@link Diagnosis#slot(Function, Function, Function)})
+		 * @return this {@link Builder}, for chaining
+		 */
+		Builder<C, T> add(Function<C, T> slot) {
+			if (slot == null)
+				throw new IllegalArgumentException();
+
+			slots.add(slot);
+			return this;
+		}
+
+		/**
+		 * @return a new {@link IcdCodeSlots} with all of the slots that have
+		 *         been added to this {@link Builder}
+		 */
+		IcdCodeSlots<C, T> build() {
+			return new IcdCodeSlots<>(slots);
+		}
+	}
+}
@@ -1,10 +1,6 @@
 package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
 import java.math.BigDecimal;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Optional;
-import java.util.function.Consumer;
 
 import org.hl7.fhir.dstu3.model.Address;
 import org.hl7.fhir.dstu3.model.DateType;
@@ -30,6 +26,164 @@ import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel
  * {@link ExplanationOfBenefit} resources.
  */
 final class InpatientClaimTransformer {
+	/**
+	 * The {@link IcdCodeSlots} for the diagnosis codes in each
+	 * {@link InpatientClaim}.
+	 */
+	static final IcdCodeSlots<InpatientClaim, Diagnosis> DIAGNOSES = IcdCodeSlots
+			.<InpatientClaim, Diagnosis> builder()
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosisAdmittingCode,
+					InpatientClaim::getDiagnosisAdmittingCodeVersion, DiagnosisLabel.ADMITTING))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosisPrincipalCode,
+					InpatientClaim::getDiagnosisPrincipalCodeVersion, DiagnosisLabel.PRINCIPAL))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis1Code,
+					InpatientClaim::getDiagnosis1CodeVersion, InpatientClaim::getDiagnosis1PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis2Code,
+					InpatientClaim::getDiagnosis2CodeVersion, InpatientClaim::getDiagnosis2PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis3Code,
+					InpatientClaim::getDiagnosis3CodeVersion, InpatientClaim::getDiagnosis3PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis4Code,
+					InpatientClaim::getDiagnosis4CodeVersion, InpatientClaim::getDiagnosis4PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis5Code,
+					InpatientClaim::getDiagnosis5CodeVersion, InpatientClaim::getDiagnosis5PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis6Code,
+					InpatientClaim::getDiagnosis6CodeVersion, InpatientClaim::getDiagnosis6PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis7Code,
+					InpatientClaim::getDiagnosis7CodeVersion, InpatientClaim::getDiagnosis7PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis8Code,
+					InpatientClaim::getDiagnosis8CodeVersion, InpatientClaim::getDiagnosis8PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis9Code,
+					InpatientClaim::getDiagnosis9CodeVersion, InpatientClaim::getDiagnosis9PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis10Code,
+					InpatientClaim::getDiagnosis10CodeVersion, InpatientClaim::getDiagnosis10PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis11Code,
+					InpatientClaim::getDiagnosis11CodeVersion, InpatientClaim::getDiagnosis11PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis12Code,
+					InpatientClaim::getDiagnosis12CodeVersion, InpatientClaim::getDiagnosis12PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis13Code,
+					InpatientClaim::getDiagnosis13CodeVersion, InpatientClaim::getDiagnosis13PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis14Code,
+					InpatientClaim::getDiagnosis14CodeVersion, InpatientClaim::getDiagnosis14PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis15Code,
+					InpatientClaim::getDiagnosis15CodeVersion, InpatientClaim::getDiagnosis15PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis16Code,
+					InpatientClaim::getDiagnosis16CodeVersion, InpatientClaim::getDiagnosis16PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis17Code,
+					InpatientClaim::getDiagnosis17CodeVersion, InpatientClaim::getDiagnosis17PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis18Code,
+					InpatientClaim::getDiagnosis18CodeVersion, InpatientClaim::getDiagnosis18PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis19Code,
+					InpatientClaim::getDiagnosis19CodeVersion, InpatientClaim::getDiagnosis19PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis20Code,
+					InpatientClaim::getDiagnosis20CodeVersion, InpatientClaim::getDiagnosis20PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis21Code,
+					InpatientClaim::getDiagnosis21CodeVersion, InpatientClaim::getDiagnosis21PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis22Code,
+					InpatientClaim::getDiagnosis22CodeVersion, InpatientClaim::getDiagnosis22PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis23Code,
+					InpatientClaim::getDiagnosis23CodeVersion, InpatientClaim::getDiagnosis23PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis24Code,
+					InpatientClaim::getDiagnosis24CodeVersion, InpatientClaim::getDiagnosis24PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosis25Code,
+					InpatientClaim::getDiagnosis25CodeVersion, InpatientClaim::getDiagnosis25PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosisExternalFirstCode,
+					InpatientClaim::getDiagnosisExternalFirstCodeVersion, DiagnosisLabel.FIRSTEXTERNAL))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosisExternal1Code,
+					InpatientClaim::getDiagnosisExternal1CodeVersion,
+					InpatientClaim::getDiagnosisExternal1PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosisExternal2Code,
+					InpatientClaim::getDiagnosisExternal2CodeVersion,
+					InpatientClaim::getDiagnosisExternal2PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosisExternal3Code,
+					InpatientClaim::getDiagnosisExternal3CodeVersion,
+					InpatientClaim::getDiagnosisExternal3PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosisExternal4Code,
+					InpatientClaim::getDiagnosisExternal4CodeVersion,
+					InpatientClaim::getDiagnosisExternal4PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosisExternal5Code,
+					InpatientClaim::getDiagnosisExternal5CodeVersion,
+					InpatientClaim::getDiagnosisExternal5PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosisExternal6Code,
+					InpatientClaim::getDiagnosisExternal6CodeVersion,
+					InpatientClaim::getDiagnosisExternal6PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosisExternal7Code,
+					InpatientClaim::getDiagnosisExternal7CodeVersion,
+					InpatientClaim::getDiagnosisExternal7PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosisExternal8Code,
+					InpatientClaim::getDiagnosisExternal8CodeVersion,
+					InpatientClaim::getDiagnosisExternal8PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosisExternal9Code,
+					InpatientClaim::getDiagnosisExternal9CodeVersion,
+					InpatientClaim::getDiagnosisExternal9PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosisExternal10Code,
+					InpatientClaim::getDiagnosisExternal10CodeVersion,
+					InpatientClaim::getDiagnosisExternal10PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosisExternal11Code,
+					InpatientClaim::getDiagnosisExternal11CodeVersion,
+					InpatientClaim::getDiagnosisExternal11PresentOnAdmissionCode))
+			.add(Diagnosis.slot(InpatientClaim::getDiagnosisExternal12Code,
+					InpatientClaim::getDiagnosisExternal12CodeVersion,
+					InpatientClaim::getDiagnosisExternal12PresentOnAdmissionCode))
+			.build();
+
+	/**
+	 * The {@link IcdCodeSlots} for the procedure codes in each
+	 * {@link InpatientClaim}.
+	 */
+	static final IcdCodeSlots<InpatientClaim, CCWProcedure> PROCEDURES = IcdCodeSlots
+			.<InpatientClaim, CCWProcedure> builder()
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure1Code,
+					InpatientClaim::getProcedure1CodeVersion, InpatientClaim::getProcedure1Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure2Code,
+					InpatientClaim::getProcedure2CodeVersion, InpatientClaim::getProcedure2Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure3Code,
+					InpatientClaim::getProcedure3CodeVersion, InpatientClaim::getProcedure3Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure4Code,
+					InpatientClaim::getProcedure4CodeVersion, InpatientClaim::getProcedure4Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure5Code,
+					InpatientClaim::getProcedure5CodeVersion, InpatientClaim::getProcedure5Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure6Code,
+					InpatientClaim::getProcedure6CodeVersion, InpatientClaim::getProcedure6Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure7Code,
+					InpatientClaim::getProcedure7CodeVersion, InpatientClaim::getProcedure7Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure8Code,
+					InpatientClaim::getProcedure8CodeVersion, InpatientClaim::getProcedure8Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure9Code,
+					InpatientClaim::getProcedure9CodeVersion, InpatientClaim::getProcedure9Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure10Code,
+					InpatientClaim::getProcedure10CodeVersion, InpatientClaim::getProcedure10Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure11Code,
+					InpatientClaim::getProcedure11CodeVersion, InpatientClaim::getProcedure11Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure12Code,
+					InpatientClaim::getProcedure12CodeVersion, InpatientClaim::getProcedure12Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure13Code,
+					InpatientClaim::getProcedure13CodeVersion, InpatientClaim::getProcedure13Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure14Code,
+					InpatientClaim::getProcedure14CodeVersion, InpatientClaim::getProcedure14Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure15Code,
+					InpatientClaim::getProcedure15CodeVersion, InpatientClaim::getProcedure15Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure16Code,
+					InpatientClaim::getProcedure16CodeVersion, InpatientClaim::getProcedure16Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure17Code,
+					InpatientClaim::getProcedure17CodeVersion, InpatientClaim::getProcedure17Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure18Code,
+					InpatientClaim::getProcedure18CodeVersion, InpatientClaim::getProcedure18Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure19Code,
+					InpatientClaim::getProcedure19CodeVersion, InpatientClaim::getProcedure19Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure20Code,
+					InpatientClaim::getProcedure20CodeVersion, InpatientClaim::getProcedure20Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure21Code,
+					InpatientClaim::getProcedure21CodeVersion, InpatientClaim::getProcedure21Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure22Code,
+					InpatientClaim::getProcedure22CodeVersion, InpatientClaim::getProcedure22Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure23Code,
+					InpatientClaim::getProcedure23CodeVersion, InpatientClaim::getProcedure23Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure24Code,
+					InpatientClaim::getProcedure24CodeVersion, InpatientClaim::getProcedure24Date))
+			.add(CCWProcedure.slot(InpatientClaim::getProcedure25Code,
+					InpatientClaim::getProcedure25CodeVersion, InpatientClaim::getProcedure25Date))
+			.build();
+
 	/**
 	 * @param claim
 	 *            the CCW {@link InpatientClaim} to transform
@@ -383,11 +537,9 @@ final class InpatientClaimTransformer {
 					TransformerConstants.CODING_SYSTEM_MCO_PAID_CD, String.valueOf(claimGroup.getMcoPaidSw().get())));
 		}
 
-		for (Diagnosis diagnosis : extractDiagnoses(claimGroup))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+		DIAGNOSES.forEach(claimGroup, diagnosis -> TransformerUtils.addDiagnosisCode(eob, diagnosis));
 
-		for (CCWProcedure procedure : extractCCWProcedures(claimGroup))
-			TransformerUtils.addProcedureCode(eob, procedure);
+		PROCEDURES.forEach(claimGroup, procedure -> TransformerUtils.addProcedureCode(eob, procedure));
 
 		for (InpatientClaimLine claimLine : claimGroup.getLines()) {
 			ItemComponent item = eob.addItem();
@@ -466,196 +618,4 @@ final class InpatientClaimTransformer {
 		return eob;
 	}
 
-	/**
-	 * @param claim
-	 *            the {@link InpatientClaim} to extract the {@link Diagnosis}es
-	 *            from
-	 * @return the {@link Diagnosis}es that can be extracted from the specified
-	 *         {@link InpatientClaim}
-	 */
-	private static List<Diagnosis> extractDiagnoses(InpatientClaim claim) {
-		List<Diagnosis> diagnoses = new LinkedList<>();
-
-		/*
-		 * Seems silly, but allows the block below to be simple one-liners,
-		 * rather than requiring if-blocks.
-		 */
-		Consumer<Optional<Diagnosis>> diagnosisAdder = d -> {
-			if (d.isPresent())
-				diagnoses.add(d.get());
-		};
-
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisAdmittingCode(),
-				claim.getDiagnosisAdmittingCodeVersion(), DiagnosisLabel.ADMITTING));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisPrincipalCode(),
-				claim.getDiagnosisPrincipalCodeVersion(), DiagnosisLabel.PRINCIPAL));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis1Code(), claim.getDiagnosis1CodeVersion(),
-				claim.getDiagnosis1PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis2Code(), claim.getDiagnosis2CodeVersion(),
-				claim.getDiagnosis2PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis3Code(), claim.getDiagnosis3CodeVersion(),
-				claim.getDiagnosis3PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis4Code(), claim.getDiagnosis4CodeVersion(),
-				claim.getDiagnosis4PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis5Code(), claim.getDiagnosis5CodeVersion(),
-				claim.getDiagnosis5PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis6Code(), claim.getDiagnosis6CodeVersion(),
-				claim.getDiagnosis6PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis7Code(), claim.getDiagnosis7CodeVersion(),
-				claim.getDiagnosis7PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis8Code(), claim.getDiagnosis8CodeVersion(),
-				claim.getDiagnosis8PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis9Code(), claim.getDiagnosis9CodeVersion(),
-				claim.getDiagnosis9PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis10Code(), claim.getDiagnosis10CodeVersion(),
-				claim.getDiagnosis10PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis11Code(), claim.getDiagnosis11CodeVersion(),
-				claim.getDiagnosis11PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis12Code(), claim.getDiagnosis12CodeVersion(),
-				claim.getDiagnosis12PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis13Code(), claim.getDiagnosis13CodeVersion(),
-				claim.getDiagnosis13PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis14Code(), claim.getDiagnosis14CodeVersion(),
-				claim.getDiagnosis14PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis15Code(), claim.getDiagnosis15CodeVersion(),
-				claim.getDiagnosis15PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis16Code(), claim.getDiagnosis16CodeVersion(),
-				claim.getDiagnosis16PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis17Code(), claim.getDiagnosis17CodeVersion(),
-				claim.getDiagnosis17PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis18Code(), claim.getDiagnosis18CodeVersion(),
-				claim.getDiagnosis18PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis19Code(), claim.getDiagnosis19CodeVersion(),
-				claim.getDiagnosis19PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis20Code(), claim.getDiagnosis20CodeVersion(),
-				claim.getDiagnosis20PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis21Code(), claim.getDiagnosis21CodeVersion(),
-				claim.getDiagnosis21PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis22Code(), claim.getDiagnosis22CodeVersion(),
-				claim.getDiagnosis22PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis23Code(), claim.getDiagnosis23CodeVersion(),
-				claim.getDiagnosis23PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis24Code(), claim.getDiagnosis24CodeVersion(),
-				claim.getDiagnosis24PresentOnAdmissionCode()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis25Code(), claim.getDiagnosis25CodeVersion(),
-				claim.getDiagnosis25PresentOnAdmissionCode()));
-
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisExternalFirstCode(),
-				claim.getDiagnosisExternalFirstCodeVersion(), DiagnosisLabel.FIRSTEXTERNAL));
-
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal1Code(), claim.getDiagnosisExternal1CodeVersion(),
-						claim.getDiagnosisExternal1PresentOnAdmissionCode()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal2Code(), claim.getDiagnosisExternal2CodeVersion(),
-						claim.getDiagnosisExternal2PresentOnAdmissionCode()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal3Code(), claim.getDiagnosisExternal3CodeVersion(),
-						claim.getDiagnosisExternal3PresentOnAdmissionCode()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal4Code(), claim.getDiagnosisExternal4CodeVersion(),
-						claim.getDiagnosisExternal4PresentOnAdmissionCode()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal5Code(), claim.getDiagnosisExternal5CodeVersion(),
-						claim.getDiagnosisExternal5PresentOnAdmissionCode()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal6Code(), claim.getDiagnosisExternal6CodeVersion(),
-						claim.getDiagnosisExternal6PresentOnAdmissionCode()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal7Code(), claim.getDiagnosisExternal7CodeVersion(),
-						claim.getDiagnosisExternal7PresentOnAdmissionCode()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal8Code(), claim.getDiagnosisExternal8CodeVersion(),
-						claim.getDiagnosisExternal8PresentOnAdmissionCode()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal9Code(), claim.getDiagnosisExternal9CodeVersion(),
-						claim.getDiagnosisExternal9PresentOnAdmissionCode()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal10Code(), claim.getDiagnosisExternal10CodeVersion(),
-						claim.getDiagnosisExternal10PresentOnAdmissionCode()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal11Code(), claim.getDiagnosisExternal11CodeVersion(),
-						claim.getDiagnosisExternal11PresentOnAdmissionCode()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal12Code(), claim.getDiagnosisExternal12CodeVersion(),
-						claim.getDiagnosisExternal12PresentOnAdmissionCode()));
-
-		return diagnoses;
-	}
-
-	/**
-	 * @param claim
-	 *            the {@link InpatientClaim} to extract the {@link CCWProcedure}es
-	 *            from
-	 * @return the {@link CCWProcedure}es that can be extracted from the specified
-	 *         {@link InpatientClaim}
-	 */
-	private static List<CCWProcedure> extractCCWProcedures(InpatientClaim claim) {
-		List<CCWProcedure> ccwProcedures = new LinkedList<>();
-
-		/*
-		 * Seems silly, but allows the block below to be simple one-liners,
-		 * rather than requiring if-blocks.
-		 */
-		Consumer<Optional<CCWProcedure>> ccwProcedureAdder = p -> {
-			if (p.isPresent())
-				ccwProcedures.add(p.get());
-		};
-
-		
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure1Code(), claim.getProcedure1CodeVersion(),
-				claim.getProcedure1Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure2Code(), claim.getProcedure2CodeVersion(),
-				claim.getProcedure2Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure3Code(), claim.getProcedure3CodeVersion(),
-				claim.getProcedure3Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure4Code(), claim.getProcedure4CodeVersion(),
-				claim.getProcedure4Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure5Code(), claim.getProcedure5CodeVersion(),
-				claim.getProcedure5Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure6Code(), claim.getProcedure6CodeVersion(),
-				claim.getProcedure6Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure7Code(), claim.getProcedure7CodeVersion(),
-				claim.getProcedure7Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure8Code(), claim.getProcedure8CodeVersion(),
-				claim.getProcedure8Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure9Code(), claim.getProcedure9CodeVersion(),
-				claim.getProcedure9Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure10Code(), claim.getProcedure10CodeVersion(),
-				claim.getProcedure10Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure11Code(), claim.getProcedure11CodeVersion(),
-				claim.getProcedure11Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure12Code(), claim.getProcedure12CodeVersion(),
-				claim.getProcedure12Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure13Code(), claim.getProcedure13CodeVersion(),
-				claim.getProcedure13Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure14Code(), claim.getProcedure14CodeVersion(),
-				claim.getProcedure14Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure15Code(), claim.getProcedure15CodeVersion(),
-				claim.getProcedure15Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure16Code(), claim.getProcedure16CodeVersion(),
-				claim.getProcedure16Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure17Code(), claim.getProcedure17CodeVersion(),
-				claim.getProcedure17Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure18Code(), claim.getProcedure18CodeVersion(),
-				claim.getProcedure18Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure19Code(), claim.getProcedure19CodeVersion(),
-				claim.getProcedure19Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure20Code(), claim.getProcedure20CodeVersion(),
-				claim.getProcedure20Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure21Code(), claim.getProcedure21CodeVersion(),
-				claim.getProcedure21Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure22Code(), claim.getProcedure22CodeVersion(),
-				claim.getProcedure22Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure23Code(), claim.getProcedure23CodeVersion(),
-				claim.getProcedure23Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure24Code(), claim.getProcedure24CodeVersion(),
-				claim.getProcedure24Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure25Code(), claim.getProcedure25CodeVersion(),
-				claim.getProcedure25Date().get()));
-
-		return ccwProcedures;
-	}
-
 }
-
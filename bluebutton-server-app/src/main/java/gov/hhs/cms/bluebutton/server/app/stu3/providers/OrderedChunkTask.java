@@ -0,0 +1,92 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * A {@link RecursiveTask} that transforms a range of a {@link List}'s
+ * elements, splitting it in half (and forking the first half) until each
+ * chunk is small enough, then merging the chunks' results back together in
+ * order. Used to run the claim and claim line transforms in parallel on a
+ * {@link ForkJoinPool}, without changing the order of their results.
+ *
+ * @param <T>
+ *            the type of the elements to transform
+ * @param <R>
+ *            the type of the transformed results
+ */
+final class OrderedChunkTask<T, R> extends RecursiveTask<List<R>> {
+	private static final long serialVersionUID = 1L;
+
+	private final List<T> elements;
+	private final int start;
+	private final int end;
+	private final int chunkSize;
+	private final Function<T, R> transformer;
+
+	/**
+	 * Constructs a new {@link OrderedChunkTask}.
+	 *
+	 * @param elements
+	 *            the elements to transform (some of)
+	 * @param start
+	 *            the index of the first element to transform (inclusive)
+	 * @param end
+	 *            the index of the last element to transform (exclusive)
+	 * @param chunkSize
+	 *            the maximum number of elements to transform without splitting
+	 * @param transformer
+	 *            the {@link Function} that transforms each element, which must
+	 *            be safe to run concurrently for different elements
+	 */
+	OrderedChunkTask(List<T> elements, int start, int end, int chunkSize, Function<T, R> transformer) {
+		if (chunkSize < 1)
+			throw new IllegalArgumentException();
+
+		this.elements = elements;
+		this.start = start;
+		this.end = end;
+		this.chunkSize = chunkSize;
+		this.transformer = transformer;
+	}
+
+	/**
+	 * @see java.util.concurrent.RecursiveTask#compute()
+	 */
+	@Override
+	protected List<R> compute() {
+		if (end - start <= chunkSize)
+			return transformChunk(elements, start, end, transformer);
+
+		int middle = (start + end) >>> 1;
+		OrderedChunkTask<T, R> firstHalf = new OrderedChunkTask<>(elements, start, middle, chunkSize, transformer);
+		firstHalf.fork();
+		List<R> secondHalfResults = new OrderedChunkTask<>(elements, middle, end, chunkSize, transformer).compute();
+
+		List<R> results = firstHalf.join();
+		results.addAll(secondHalfResults);
+		return results;
+	}
+
+	/**
+	 * @param elements
+	 *            the elements to transform (some of)
+	 * @param start
+	 *            the index of the first element to transform (inclusive)
+	 * @param end
+	 *            the index of the last element to transform (exclusive)
+	 * @param transformer
+	 *            the {@link Function} that transforms each element
+	 * @return the (new, modifiable) {@link List} of the transformed results
+	 *         for the specified elements, in the same order
+	 */
+	static <T, R> List<R> transformChunk(List<T> elements, int start, int end, Function<T, R> transformer) {
+		List<R> results = new ArrayList<>(end - start);
+		for (int i = start; i < end; i++)
+			results.add(transformer.apply(elements.get(i)));
+		return results;
+	}
+}
@@ -1,10 +1,7 @@
 package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
 import java.math.BigDecimal;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Optional;
-import java.util.function.Consumer;
 
 import org.hl7.fhir.dstu3.model.Address;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
@@ -26,6 +23,131 @@ import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel
  * {@link ExplanationOfBenefit} resources.
  */
 final class OutpatientClaimTransformer {
+	/**
+	 * The {@link IcdCodeSlots} for the diagnosis codes in each
+	 * {@link OutpatientClaim}.
+	 */
+	static final IcdCodeSlots<OutpatientClaim, Diagnosis> DIAGNOSES = IcdCodeSlots
+			.<OutpatientClaim, Diagnosis> builder()
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisPrincipalCode,
+					OutpatientClaim::getDiagnosisPrincipalCodeVersion, DiagnosisLabel.PRINCIPAL))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis1Code, OutpatientClaim::getDiagnosis1CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis2Code, OutpatientClaim::getDiagnosis2CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis3Code, OutpatientClaim::getDiagnosis3CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis4Code, OutpatientClaim::getDiagnosis4CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis5Code, OutpatientClaim::getDiagnosis5CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis6Code, OutpatientClaim::getDiagnosis6CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis7Code, OutpatientClaim::getDiagnosis7CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis8Code, OutpatientClaim::getDiagnosis8CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis9Code, OutpatientClaim::getDiagnosis9CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis10Code, OutpatientClaim::getDiagnosis10CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis11Code, OutpatientClaim::getDiagnosis11CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis12Code, OutpatientClaim::getDiagnosis12CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis13Code, OutpatientClaim::getDiagnosis13CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis14Code, OutpatientClaim::getDiagnosis14CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis15Code, OutpatientClaim::getDiagnosis15CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis16Code, OutpatientClaim::getDiagnosis16CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis17Code, OutpatientClaim::getDiagnosis17CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis18Code, OutpatientClaim::getDiagnosis18CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis19Code, OutpatientClaim::getDiagnosis19CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis20Code, OutpatientClaim::getDiagnosis20CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis21Code, OutpatientClaim::getDiagnosis21CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis22Code, OutpatientClaim::getDiagnosis22CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis23Code, OutpatientClaim::getDiagnosis23CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis24Code, OutpatientClaim::getDiagnosis24CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosis25Code, OutpatientClaim::getDiagnosis25CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisExternalFirstCode,
+					OutpatientClaim::getDiagnosisExternalFirstCodeVersion, DiagnosisLabel.FIRSTEXTERNAL))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisExternal1Code,
+					OutpatientClaim::getDiagnosisExternal1CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisExternal2Code,
+					OutpatientClaim::getDiagnosisExternal2CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisExternal3Code,
+					OutpatientClaim::getDiagnosisExternal3CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisExternal4Code,
+					OutpatientClaim::getDiagnosisExternal4CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisExternal5Code,
+					OutpatientClaim::getDiagnosisExternal5CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisExternal6Code,
+					OutpatientClaim::getDiagnosisExternal6CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisExternal7Code,
+					OutpatientClaim::getDiagnosisExternal7CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisExternal8Code,
+					OutpatientClaim::getDiagnosisExternal8CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisExternal9Code,
+					OutpatientClaim::getDiagnosisExternal9CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisExternal10Code,
+					OutpatientClaim::getDiagnosisExternal10CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisExternal11Code,
+					OutpatientClaim::getDiagnosisExternal11CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisExternal12Code,
+					OutpatientClaim::getDiagnosisExternal12CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisAdmission1Code,
+					OutpatientClaim::getDiagnosisAdmission1CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisAdmission2Code,
+					OutpatientClaim::getDiagnosisAdmission2CodeVersion))
+			.add(Diagnosis.slot(OutpatientClaim::getDiagnosisAdmission3Code,
+					OutpatientClaim::getDiagnosisAdmission3CodeVersion))
+			.build();
+
+	/**
+	 * The {@link IcdCodeSlots} for the procedure codes in each
+	 * {@link OutpatientClaim}.
+	 */
+	static final IcdCodeSlots<OutpatientClaim, CCWProcedure> PROCEDURES = IcdCodeSlots
+			.<OutpatientClaim, CCWProcedure> builder()
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure1Code,
+					OutpatientClaim::getProcedure1CodeVersion, OutpatientClaim::getProcedure1Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure2Code,
+					OutpatientClaim::getProcedure2CodeVersion, OutpatientClaim::getProcedure2Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure3Code,
+					OutpatientClaim::getProcedure3CodeVersion, OutpatientClaim::getProcedure3Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure4Code,
+					OutpatientClaim::getProcedure4CodeVersion, OutpatientClaim::getProcedure4Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure5Code,
+					OutpatientClaim::getProcedure5CodeVersion, OutpatientClaim::getProcedure5Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure6Code,
+					OutpatientClaim::getProcedure6CodeVersion, OutpatientClaim::getProcedure6Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure7Code,
+					OutpatientClaim::getProcedure7CodeVersion, OutpatientClaim::getProcedure7Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure8Code,
+					OutpatientClaim::getProcedure8CodeVersion, OutpatientClaim::getProcedure8Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure9Code,
+					OutpatientClaim::getProcedure9CodeVersion, OutpatientClaim::getProcedure9Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure10Code,
+					OutpatientClaim::getProcedure10CodeVersion, OutpatientClaim::getProcedure10Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure11Code,
+					OutpatientClaim::getProcedure11CodeVersion, OutpatientClaim::getProcedure11Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure12Code,
+					OutpatientClaim::getProcedure12CodeVersion, OutpatientClaim::getProcedure12Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure13Code,
+					OutpatientClaim::getProcedure13CodeVersion, OutpatientClaim::getProcedure13Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure14Code,
+					OutpatientClaim::getProcedure14CodeVersion, OutpatientClaim::getProcedure14Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure15Code,
+					OutpatientClaim::getProcedure15CodeVersion, OutpatientClaim::getProcedure15Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure16Code,
+					OutpatientClaim::getProcedure16CodeVersion, OutpatientClaim::getProcedure16Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure17Code,
+					OutpatientClaim::getProcedure17CodeVersion, OutpatientClaim::getProcedure17Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure18Code,
+					OutpatientClaim::getProcedure18CodeVersion, OutpatientClaim::getProcedure18Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure19Code,
+					OutpatientClaim::getProcedure19CodeVersion, OutpatientClaim::getProcedure19Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure20Code,
+					OutpatientClaim::getProcedure20CodeVersion, OutpatientClaim::getProcedure20Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure21Code,
+					OutpatientClaim::getProcedure21CodeVersion, OutpatientClaim::getProcedure21Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure22Code,
+					OutpatientClaim::getProcedure22CodeVersion, OutpatientClaim::getProcedure22Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure23Code,
+					OutpatientClaim::getProcedure23CodeVersion, OutpatientClaim::getProcedure23Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure24Code,
+					OutpatientClaim::getProcedure24CodeVersion, OutpatientClaim::getProcedure24Date))
+			.add(CCWProcedure.slot(OutpatientClaim::getProcedure25Code,
+					OutpatientClaim::getProcedure25CodeVersion, OutpatientClaim::getProcedure25Date))
+			.build();
+
 	/**
 	 * @param claim
 	 *            the CCW {@link OutpatientClaim} to transform
@@ -33,18 +155,32 @@ final class OutpatientClaimTransformer {
 	 *         specified {@link OutpatientClaim}
 	 */
 	static ExplanationOfBenefit transform(Object claim) {
+		return transform(claim, ClaimLineItems.SEQUENTIAL);
+	}
+
+	/**
+	 * @param claim
+	 *            the CCW {@link OutpatientClaim} to transform
+	 * @param claimLineItems
+	 *            the {@link ClaimLineItems} to transform the claim's lines via
+	 * @return a FHIR {@link ExplanationOfBenefit} resource that represents the
+	 *         specified {@link OutpatientClaim}
+	 */
+	static ExplanationOfBenefit transform(Object claim, ClaimLineItems claimLineItems) {
 		if (!(claim instanceof OutpatientClaim))
 			throw new BadCodeMonkeyException();
-		return transformClaim((OutpatientClaim) claim);
+		return transformClaim((OutpatientClaim) claim, claimLineItems);
 	}
 
 	/**
 	 * @param claimGroup
 	 *            the CCW {@link OutpatientClaim} to transform
+	 * @param claimLineItems
+	 *            the {@link ClaimLineItems} to transform the claim's lines via
 	 * @return a FHIR {@link ExplanationOfBenefit} resource that represents the
 	 *         specified {@link OutpatientClaim}
 	 */
-	private static ExplanationOfBenefit transformClaim(OutpatientClaim claimGroup) {
+	private static ExplanationOfBenefit transformClaim(OutpatientClaim claimGroup, ClaimLineItems claimLineItems) {
 		ExplanationOfBenefit eob = new ExplanationOfBenefit();
 
 		eob.setId(TransformerUtils.buildEobId(ClaimType.OUTPATIENT, claimGroup.getClaimId()));
@@ -209,377 +345,259 @@ final class OutpatientClaimTransformer {
 							String.valueOf(claimGroup.getMcoPaidSw().get())));
 		}
 
-		for (Diagnosis diagnosis : extractDiagnoses(claimGroup))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
-
-		for (CCWProcedure procedure : extractCCWProcedures(claimGroup))
-			TransformerUtils.addProcedureCode(eob, procedure);
-
-		for (OutpatientClaimLine claimLine : claimGroup.getLines()) {
-			ItemComponent item = eob.addItem();
-			item.setSequence(claimLine.getLineNumber().intValue());
-
-			TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_FHIR_EOB_ITEM_TYPE,
-					TransformerConstants.CODING_SYSTEM_FHIR_EOB_ITEM_TYPE,
-					TransformerConstants.CODED_EOB_ITEM_TYPE_CLINICAL_SERVICES_AND_PRODUCTS);
-
-			item.setRevenue(
-					TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_REVENUE_CENTER,
-							claimLine.getRevenueCenterCode()));
-
-			item.setLocation(new Address().setState((claimGroup.getProviderStateCode())));
-
-			if (claimLine.getNationalDrugCode().isPresent()) {
-				item.setService(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_NDC,
-						claimLine.getNationalDrugCode().get()));
-			}
-
-			if (claimLine.getRevCntr1stAnsiCd().isPresent()) {
-				item.addAdjudication()
-						.setCategory(
-								TransformerUtils.createCodeableConcept(
-										TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-										TransformerConstants.CODED_ADJUDICATION_1ST_ANSI_CD))
-						.setReason(TransformerUtils.createCodeableConcept(
-								TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-								claimLine.getRevCntr1stAnsiCd().get()));
-			}
-			if (claimLine.getRevCntr2ndAnsiCd().isPresent()) {
-				item.addAdjudication()
-						.setCategory(
-								TransformerUtils.createCodeableConcept(
-										TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-										TransformerConstants.CODED_ADJUDICATION_2ND_ANSI_CD))
-						.setReason(TransformerUtils.createCodeableConcept(
-								TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-								claimLine.getRevCntr2ndAnsiCd().get()));
-			}
-			if (claimLine.getRevCntr3rdAnsiCd().isPresent()) {
-				item.addAdjudication()
-						.setCategory(
-								TransformerUtils.createCodeableConcept(
-										TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-										TransformerConstants.CODED_ADJUDICATION_3RD_ANSI_CD))
-						.setReason(TransformerUtils.createCodeableConcept(
-								TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-								claimLine.getRevCntr3rdAnsiCd().get()));
-			}
-			if (claimLine.getRevCntr4thAnsiCd().isPresent()) {
-				item.addAdjudication()
-						.setCategory(
-								TransformerUtils.createCodeableConcept(
-										TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-										TransformerConstants.CODED_ADJUDICATION_4TH_ANSI_CD))
-						.setReason(TransformerUtils.createCodeableConcept(
-								TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-								claimLine.getRevCntr4thAnsiCd().get()));
-			}
+		DIAGNOSES.forEach(claimGroup, diagnosis -> TransformerUtils.addDiagnosisCode(eob, diagnosis));
 
-			item.addAdjudication()
-					.setCategory(
-							TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_RATE_AMOUNT))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getRateAmount());
-
-			if (claimLine.getHcpcsCode().isPresent()) {
-				item.addModifier(
-						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_HCPCS,
-								claimLine.getHcpcsCode().get()));
-			}
-			if (claimLine.getHcpcsInitialModifierCode().isPresent()) {
-				item.addModifier(
-						TransformerUtils.createCodeableConcept(TransformerConstants.HCPCS_INITIAL_MODIFIER_CODE1,
-								claimLine.getHcpcsInitialModifierCode().get()));
-			}
-			if (claimLine.getHcpcsSecondModifierCode().isPresent()) {
-				item.addModifier(
-						TransformerUtils.createCodeableConcept(TransformerConstants.HCPCS_INITIAL_MODIFIER_CODE2,
-								claimLine.getHcpcsSecondModifierCode().get()));
-			}
+		PROCEDURES.forEach(claimGroup, procedure -> TransformerUtils.addProcedureCode(eob, procedure));
 
-			item.addAdjudication()
-					.setCategory(
-							TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-									TransformerConstants.CODED_ADJUDICATION_BLOOD_DEDUCTIBLE))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getBloodDeductibleAmount());
+		/*
+		 * The lines are transformed into items first (possibly in parallel),
+		 * and then linked to the EOB's care team one at a time and in order, so
+		 * that those entries' sequence numbers don't change.
+		 */
+		List<OutpatientClaimLine> claimLines = claimGroup.getLines();
+		List<ItemComponent> items = claimLineItems.transform(claimLines,
+				claimLine -> transformLine(claimGroup, claimLine));
+		for (int i = 0; i < claimLines.size(); i++) {
+			ItemComponent item = items.get(i);
+			eob.addItem(item);
+			linkLine(eob, claimLines.get(i), item);
+		}
+		return eob;
+	}
 
-			item.addAdjudication()
-					.setCategory(
-							TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-									TransformerConstants.CODED_ADJUDICATION_CASH_DEDUCTIBLE))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getCashDeductibleAmount());
+	/**
+	 * @param claimGroup
+	 *            the {@link OutpatientClaim} that the specified
+	 *            {@link OutpatientClaimLine} is part of
+	 * @param claimLine
+	 *            the {@link OutpatientClaimLine} to transform
+	 * @return a new {@link ItemComponent} that represents the specified
+	 *         {@link OutpatientClaimLine}, other than its links to the
+	 *         {@link ExplanationOfBenefit}'s care team (see
+	 *         {@link #linkLine(ExplanationOfBenefit, OutpatientClaimLine, ItemComponent)})
+	 */
+	private static ItemComponent transformLine(OutpatientClaim claimGroup, OutpatientClaimLine claimLine) {
+		ItemComponent item = new ItemComponent();
+		item.setSequence(claimLine.getLineNumber().intValue());
 
-			item.addAdjudication()
-					.setCategory(
-							TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_WAGE_ADJ_COINSURANCE_AMOUNT))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getWageAdjustedCoinsuranceAmount());
+		TransformerUtils.addExtensionCoding(item, TransformerConstants.CODING_SYSTEM_FHIR_EOB_ITEM_TYPE,
+				TransformerConstants.CODING_SYSTEM_FHIR_EOB_ITEM_TYPE,
+				TransformerConstants.CODED_EOB_ITEM_TYPE_CLINICAL_SERVICES_AND_PRODUCTS);
 
-			item.addAdjudication()
-					.setCategory(
-							TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_REDUCED_COINSURANCE_AMOUNT))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getReducedCoinsuranceAmount());
+		item.setRevenue(
+				TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_REVENUE_CENTER,
+						claimLine.getRevenueCenterCode()));
 
-			item.addAdjudication()
-					.setCategory(
-							TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-									TransformerConstants.CODED_ADJUDICATION_1ST_MSP_AMOUNT))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getFirstMspPaidAmount());
+		item.setLocation(new Address().setState((claimGroup.getProviderStateCode())));
 
-			item.addAdjudication()
-					.setCategory(
-							TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-									TransformerConstants.CODED_ADJUDICATION_2ND_MSP_AMOUNT))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getSecondMspPaidAmount());
-
-			item.addAdjudication()
-					.setCategory(
-							TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_PROVIDER_PAYMENT_AMOUNT))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getProviderPaymentAmount());
+		if (claimLine.getNationalDrugCode().isPresent()) {
+			item.setService(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_NDC,
+					claimLine.getNationalDrugCode().get()));
+		}
 
+		if (claimLine.getRevCntr1stAnsiCd().isPresent()) {
 			item.addAdjudication()
 					.setCategory(
-							TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-									TransformerConstants.CODED_ADJUDICATION_BENEFICIARY_PAYMENT_AMOUNT))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getBenficiaryPaymentAmount());
-
+							TransformerUtils.createCodeableConcept(
+									TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+									TransformerConstants.CODED_ADJUDICATION_1ST_ANSI_CD))
+					.setReason(TransformerUtils.createCodeableConcept(
+							TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+							claimLine.getRevCntr1stAnsiCd().get()));
+		}
+		if (claimLine.getRevCntr2ndAnsiCd().isPresent()) {
 			item.addAdjudication()
 					.setCategory(
-							TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_PATIENT_RESPONSIBILITY_AMOUNT))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getPatientResponsibilityAmount());
-
+							TransformerUtils.createCodeableConcept(
+									TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+									TransformerConstants.CODED_ADJUDICATION_2ND_ANSI_CD))
+					.setReason(TransformerUtils.createCodeableConcept(
+							TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+							claimLine.getRevCntr2ndAnsiCd().get()));
+		}
+		if (claimLine.getRevCntr3rdAnsiCd().isPresent()) {
 			item.addAdjudication()
 					.setCategory(
-							TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-									TransformerConstants.CODED_ADJUDICATION_PAYMENT))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getPaymentAmount());
-
+							TransformerUtils.createCodeableConcept(
+									TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+									TransformerConstants.CODED_ADJUDICATION_3RD_ANSI_CD))
+					.setReason(TransformerUtils.createCodeableConcept(
+							TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+							claimLine.getRevCntr3rdAnsiCd().get()));
+		}
+		if (claimLine.getRevCntr4thAnsiCd().isPresent()) {
 			item.addAdjudication()
 					.setCategory(
-							TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-							TransformerConstants.CODED_ADJUDICATION_TOTAL_CHARGE_AMOUNT))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getTotalChargeAmount());
+							TransformerUtils.createCodeableConcept(
+									TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+									TransformerConstants.CODED_ADJUDICATION_4TH_ANSI_CD))
+					.setReason(TransformerUtils.createCodeableConcept(
+							TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+							claimLine.getRevCntr4thAnsiCd().get()));
+		}
 
-			item.addAdjudication()
-					.setCategory(
-							TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
-									TransformerConstants.CODED_ADJUDICATION_NONCOVERED_CHARGE))
-					.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
-					.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
-					.setValue(claimLine.getNonCoveredChargeAmount());
-
-			/*
-			 * Set item quantity to Unit Count first if > 0; NDC quantity next
-			 * if present; otherwise set to 0
-			 */
-			SimpleQuantity qty = new SimpleQuantity();
-			if (!claimLine.getUnitCount().equals(new BigDecimal(0))) {
-				qty.setValue(claimLine.getUnitCount());
-			} else if (claimLine.getNationalDrugCodeQuantity().isPresent()) {
-				qty.setValue(claimLine.getNationalDrugCodeQuantity().get());
-			} else {
-				qty.setValue(0);
-			}
-			item.setQuantity(qty);
-
-			if (claimLine.getNationalDrugCodeQualifierCode().isPresent()) {
-				item.addModifier(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_NDC_QLFR_CD,
-						claimLine.getNationalDrugCodeQualifierCode().get()));
-			}
-
-			if (claimLine.getRevenueCenterRenderingPhysicianNPI().isPresent()) {
-				TransformerUtils.addCareTeamPractitioner(eob, item, TransformerConstants.CODING_SYSTEM_NPI_US,
-						claimLine.getRevenueCenterRenderingPhysicianNPI().get(),
-						TransformerConstants.CARE_TEAM_ROLE_PRIMARY);
-			}
+		item.addAdjudication()
+				.setCategory(
+						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_RATE_AMOUNT))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getRateAmount());
+
+		if (claimLine.getHcpcsCode().isPresent()) {
+			item.addModifier(
+					TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_HCPCS,
+							claimLine.getHcpcsCode().get()));
+		}
+		if (claimLine.getHcpcsInitialModifierCode().isPresent()) {
+			item.addModifier(
+					TransformerUtils.createCodeableConcept(TransformerConstants.HCPCS_INITIAL_MODIFIER_CODE1,
+							claimLine.getHcpcsInitialModifierCode().get()));
+		}
+		if (claimLine.getHcpcsSecondModifierCode().isPresent()) {
+			item.addModifier(
+					TransformerUtils.createCodeableConcept(TransformerConstants.HCPCS_INITIAL_MODIFIER_CODE2,
+							claimLine.getHcpcsSecondModifierCode().get()));
 		}
-		return eob;
-	}
 
-	/**
-	 * @param claim
-	 *            the {@link OutpatientClaim} to extract the {@link Diagnosis}es
-	 *            from
-	 * @return the {@link Diagnosis}es that can be extracted from the specified
-	 *         {@link OutpatientClaim}
-	 */
-	private static List<Diagnosis> extractDiagnoses(OutpatientClaim claim) {
-		List<Diagnosis> diagnoses = new LinkedList<>();
+		item.addAdjudication()
+				.setCategory(
+						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+								TransformerConstants.CODED_ADJUDICATION_BLOOD_DEDUCTIBLE))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getBloodDeductibleAmount());
+
+		item.addAdjudication()
+				.setCategory(
+						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+								TransformerConstants.CODED_ADJUDICATION_CASH_DEDUCTIBLE))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getCashDeductibleAmount());
+
+		item.addAdjudication()
+				.setCategory(
+						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_WAGE_ADJ_COINSURANCE_AMOUNT))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getWageAdjustedCoinsuranceAmount());
+
+		item.addAdjudication()
+				.setCategory(
+						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_REDUCED_COINSURANCE_AMOUNT))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getReducedCoinsuranceAmount());
+
+		item.addAdjudication()
+				.setCategory(
+						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+								TransformerConstants.CODED_ADJUDICATION_1ST_MSP_AMOUNT))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getFirstMspPaidAmount());
+
+		item.addAdjudication()
+				.setCategory(
+						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+								TransformerConstants.CODED_ADJUDICATION_2ND_MSP_AMOUNT))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getSecondMspPaidAmount());
+
+		item.addAdjudication()
+				.setCategory(
+						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_PROVIDER_PAYMENT_AMOUNT))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getProviderPaymentAmount());
+
+		item.addAdjudication()
+				.setCategory(
+						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+								TransformerConstants.CODED_ADJUDICATION_BENEFICIARY_PAYMENT_AMOUNT))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getBenficiaryPaymentAmount());
+
+		item.addAdjudication()
+				.setCategory(
+						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_PATIENT_RESPONSIBILITY_AMOUNT))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getPatientResponsibilityAmount());
+
+		item.addAdjudication()
+				.setCategory(
+						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+								TransformerConstants.CODED_ADJUDICATION_PAYMENT))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getPaymentAmount());
+
+		item.addAdjudication()
+				.setCategory(
+						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+						TransformerConstants.CODED_ADJUDICATION_TOTAL_CHARGE_AMOUNT))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getTotalChargeAmount());
+
+		item.addAdjudication()
+				.setCategory(
+						TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADJUDICATION_CMS,
+								TransformerConstants.CODED_ADJUDICATION_NONCOVERED_CHARGE))
+				.getAmount().setSystem(TransformerConstants.CODING_SYSTEM_MONEY)
+				.setCode(TransformerConstants.CODING_SYSTEM_MONEY_US)
+				.setValue(claimLine.getNonCoveredChargeAmount());
 
 		/*
-		 * Seems silly, but allows the block below to be simple one-liners,
-		 * rather than requiring if-blocks.
+		 * Set item quantity to Unit Count first if > 0; NDC quantity next
+		 * if present; otherwise set to 0
 		 */
-		Consumer<Optional<Diagnosis>> diagnosisAdder = d -> {
-			if (d.isPresent())
-				diagnoses.add(d.get());
-		};
-
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisPrincipalCode(),
-				claim.getDiagnosisPrincipalCodeVersion(), DiagnosisLabel.PRINCIPAL));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis1Code(), claim.getDiagnosis1CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis2Code(), claim.getDiagnosis2CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis3Code(), claim.getDiagnosis3CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis4Code(), claim.getDiagnosis4CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis5Code(), claim.getDiagnosis5CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis6Code(), claim.getDiagnosis6CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis7Code(), claim.getDiagnosis7CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis8Code(), claim.getDiagnosis8CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis9Code(), claim.getDiagnosis9CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis10Code(), claim.getDiagnosis10CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis11Code(), claim.getDiagnosis11CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis12Code(), claim.getDiagnosis12CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis13Code(), claim.getDiagnosis13CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis14Code(), claim.getDiagnosis14CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis15Code(), claim.getDiagnosis15CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis16Code(), claim.getDiagnosis16CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis17Code(), claim.getDiagnosis17CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis18Code(), claim.getDiagnosis18CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis19Code(), claim.getDiagnosis19CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis20Code(), claim.getDiagnosis20CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis21Code(), claim.getDiagnosis21CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis22Code(), claim.getDiagnosis22CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis23Code(), claim.getDiagnosis23CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis24Code(), claim.getDiagnosis24CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis25Code(), claim.getDiagnosis25CodeVersion()));
-
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisExternalFirstCode(),
-				claim.getDiagnosisExternalFirstCodeVersion(), DiagnosisLabel.FIRSTEXTERNAL));
-
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal1Code(), claim.getDiagnosisExternal1CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal2Code(), claim.getDiagnosisExternal2CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal3Code(), claim.getDiagnosisExternal3CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal4Code(), claim.getDiagnosisExternal4CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal5Code(), claim.getDiagnosisExternal5CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal6Code(), claim.getDiagnosisExternal6CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal7Code(), claim.getDiagnosisExternal7CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal8Code(), claim.getDiagnosisExternal8CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal9Code(), claim.getDiagnosisExternal9CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal10Code(), claim.getDiagnosisExternal10CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal11Code(), claim.getDiagnosisExternal11CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal12Code(), claim.getDiagnosisExternal12CodeVersion()));
-
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisAdmission1Code(), claim.getDiagnosisAdmission1CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisAdmission2Code(), claim.getDiagnosisAdmission2CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisAdmission3Code(), claim.getDiagnosisAdmission3CodeVersion()));
-
-		return diagnoses;
+		SimpleQuantity qty = new SimpleQuantity();
+		if (!claimLine.getUnitCount().equals(new BigDecimal(0))) {
+			qty.setValue(claimLine.getUnitCount());
+		} else if (claimLine.getNationalDrugCodeQuantity().isPresent()) {
+			qty.setValue(claimLine.getNationalDrugCodeQuantity().get());
+		} else {
+			qty.setValue(0);
+		}
+		item.setQuantity(qty);
+
+		if (claimLine.getNationalDrugCodeQualifierCode().isPresent()) {
+			item.addModifier(TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_NDC_QLFR_CD,
+					claimLine.getNationalDrugCodeQualifierCode().get()));
+		}
+
+		return item;
 	}
 
 	/**
-	 * @param claim
-	 *            the {@link OutpatientClaim} to extract the
-	 *            {@link CCWProcedure}es from
-	 * @return the {@link CCWProcedure}es that can be extracted from the
-	 *         specified {@link OutpatientClaim}
+	 * Adds the care team entry for the specified {@link OutpatientClaimLine}
+	 * to the {@link ExplanationOfBenefit} (if it's not already present), and
+	 * links its {@link ItemComponent} to it.
+	 * 
+	 * @param eob
+	 *            the {@link ExplanationOfBenefit} to (possibly) modify
+	 * @param claimLine
+	 *            the {@link OutpatientClaimLine} to link
+	 * @param item
+	 *            the {@link ItemComponent} for the specified
+	 *            {@link OutpatientClaimLine}, from
+	 *            {@link #transformLine(OutpatientClaim, OutpatientClaimLine)}
 	 */
-	private static List<CCWProcedure> extractCCWProcedures(OutpatientClaim claim) {
-		List<CCWProcedure> ccwProcedures = new LinkedList<>();
-
-		/*
-		 * Seems silly, but allows the block below to be simple one-liners,
-		 * rather than requiring if-blocks.
-		 */
-		Consumer<Optional<CCWProcedure>> ccwProcedureAdder = p -> {
-			if (p.isPresent())
-				ccwProcedures.add(p.get());
-		};
-
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure1Code(), claim.getProcedure1CodeVersion(),
-				claim.getProcedure1Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure2Code(), claim.getProcedure2CodeVersion(),
-				claim.getProcedure2Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure3Code(), claim.getProcedure3CodeVersion(),
-				claim.getProcedure3Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure4Code(), claim.getProcedure4CodeVersion(),
-				claim.getProcedure4Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure5Code(), claim.getProcedure5CodeVersion(),
-				claim.getProcedure5Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure6Code(), claim.getProcedure6CodeVersion(),
-				claim.getProcedure6Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure7Code(), claim.getProcedure7CodeVersion(),
-				claim.getProcedure7Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure8Code(), claim.getProcedure8CodeVersion(),
-				claim.getProcedure8Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure9Code(), claim.getProcedure9CodeVersion(),
-				claim.getProcedure9Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure10Code(), claim.getProcedure10CodeVersion(),
-				claim.getProcedure10Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure11Code(), claim.getProcedure11CodeVersion(),
-				claim.getProcedure11Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure12Code(), claim.getProcedure12CodeVersion(),
-				claim.getProcedure12Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure13Code(), claim.getProcedure13CodeVersion(),
-				claim.getProcedure13Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure14Code(), claim.getProcedure14CodeVersion(),
-				claim.getProcedure14Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure15Code(), claim.getProcedure15CodeVersion(),
-				claim.getProcedure15Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure16Code(), claim.getProcedure16CodeVersion(),
-				claim.getProcedure16Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure17Code(), claim.getProcedure17CodeVersion(),
-				claim.getProcedure17Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure18Code(), claim.getProcedure18CodeVersion(),
-				claim.getProcedure18Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure19Code(), claim.getProcedure19CodeVersion(),
-				claim.getProcedure19Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure20Code(), claim.getProcedure20CodeVersion(),
-				claim.getProcedure20Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure21Code(), claim.getProcedure21CodeVersion(),
-				claim.getProcedure21Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure22Code(), claim.getProcedure22CodeVersion(),
-				claim.getProcedure22Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure23Code(), claim.getProcedure23CodeVersion(),
-				claim.getProcedure23Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure24Code(), claim.getProcedure24CodeVersion(),
-				claim.getProcedure24Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure25Code(), claim.getProcedure25CodeVersion(),
-				claim.getProcedure25Date().get()));
-
-		return ccwProcedures;
+	private static void linkLine(ExplanationOfBenefit eob, OutpatientClaimLine claimLine, ItemComponent item) {
+		if (claimLine.getRevenueCenterRenderingPhysicianNPI().isPresent()) {
+			TransformerUtils.addCareTeamPractitioner(eob, item, TransformerConstants.CODING_SYSTEM_NPI_US,
+					claimLine.getRevenueCenterRenderingPhysicianNPI().get(),
+					TransformerConstants.CARE_TEAM_ROLE_PRIMARY);
+		}
 	}
 
 }
-
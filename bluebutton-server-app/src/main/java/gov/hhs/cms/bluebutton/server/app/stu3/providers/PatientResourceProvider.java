@@ -15,8 +15,11 @@ import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.Identifier;
 import org.hl7.fhir.dstu3.model.Patient;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.codahale.metrics.MetricRegistry;
+
 import ca.uhn.fhir.model.primitive.IdDt;
 import ca.uhn.fhir.rest.annotation.IdParam;
 import ca.uhn.fhir.rest.annotation.Read;
@@ -36,6 +39,8 @@ import gov.hhs.cms.bluebutton.data.model.rif.Beneficiary_;
 @Component
 public final class PatientResourceProvider implements IResourceProvider {
 	private EntityManager entityManager;
+	private SingleFlight<String, Patient> readFlights;
+	private SingleFlight<String, Patient> searchByIdentifierFlights;
 
 	/**
 	 * @param entityManager
@@ -47,6 +52,18 @@ public final class PatientResourceProvider implements IResourceProvider {
 		this.entityManager = entityManager;
 	}
 
+	/**
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 */
+	@Autowired
+	public void setMetricRegistry(MetricRegistry metricRegistry) {
+		this.readFlights = new SingleFlight<>(Patient::copy,
+				metricRegistry.meter(MetricRegistry.name(getClass(), "read", "coalesced")));
+		this.searchByIdentifierFlights = new SingleFlight<>(Patient::copy,
+				metricRegistry.meter(MetricRegistry.name(getClass(), "searchByIdentifier", "coalesced")));
+	}
+
 	/**
 	 * @see ca.uhn.fhir.rest.server.IResourceProvider#getResourceType()
 	 */
@@ -84,6 +101,21 @@ public final class PatientResourceProvider implements IResourceProvider {
 		if (beneIdText == null || beneIdText.trim().isEmpty())
 			throw new IllegalArgumentException();
 
+		// Identical concurrent reads will share a single database query.
+		return readFlights.execute(beneIdText, () -> readFromDatabase(patientId));
+	}
+
+	/**
+	 * @param patientId
+	 *            the (already validated) {@link IdType} of the {@link Patient}
+	 *            to read
+	 * @return the matching {@link Patient}
+	 * @throws ResourceNotFoundException
+	 *             A {@link ResourceNotFoundException} will be thrown if no
+	 *             matching {@link Beneficiary} can be found.
+	 */
+	private Patient readFromDatabase(IdType patientId) {
+		String beneIdText = patientId.getIdPart();
 		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
 
 		CriteriaQuery<Beneficiary> criteria = builder.createQuery(Beneficiary.class);
@@ -93,7 +125,8 @@ public final class PatientResourceProvider implements IResourceProvider {
 
 		Beneficiary beneficiary = null;
 		try {
-			beneficiary = entityManager.createQuery(criteria).getSingleResult();
+			beneficiary = SecondLevelCache
+					.cacheable(QueryDeadline.apply(entityManager.createQuery(criteria))).getSingleResult();
 		} catch (NoResultException e) {
 			throw new ResourceNotFoundException(patientId);
 		}
@@ -173,7 +206,8 @@ public final class PatientResourceProvider implements IResourceProvider {
 			throw new InvalidRequestException("Unsupported identifier system: " + identifier.getSystem());
 
 		try {
-			return Arrays.asList(queryDatabaseByHicnHash(identifier.getValue()));
+			return Arrays.asList(searchByIdentifierFlights.execute(identifier.getValue(),
+					() -> queryDatabaseByHicnHash(identifier.getValue())));
 		} catch (NoResultException e) {
 			return new LinkedList<>();
 		}
@@ -199,7 +233,8 @@ public final class PatientResourceProvider implements IResourceProvider {
 		criteria.select(root);
 		criteria.where(builder.equal(root.get(Beneficiary_.hicn), hicnHash));
 
-		Beneficiary beneficiary = entityManager.createQuery(criteria).getSingleResult();
+		Beneficiary beneficiary = SecondLevelCache
+				.cacheable(QueryDeadline.apply(entityManager.createQuery(criteria))).getSingleResult();
 
 		Patient patient = BeneficiaryTransformer.transform(beneficiary);
 		return patient;
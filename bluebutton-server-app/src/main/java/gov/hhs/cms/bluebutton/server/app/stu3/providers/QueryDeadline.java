@@ -0,0 +1,159 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.sql.SQLTimeoutException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.QueryTimeoutException;
+import javax.persistence.TypedQuery;
+
+/**
+ * <p>
+ * The deadline for the request being processed by the current thread: once
+ * it's passed, there's no point in running any more database queries for the
+ * request, as the client will have given up on it.
+ * </p>
+ * <p>
+ * The providers apply the time remaining before the deadline to every query
+ * they run (as a JPA query timeout, which is ultimately enforced by the JDBC
+ * driver cancelling the statement), so that a pathological search can only
+ * hold its database connection for so long. Queries that would start after
+ * the deadline has passed are skipped entirely. In both cases, a
+ * {@link QueryTimeoutException} is thrown.
+ * </p>
+ * <p>
+ * Threads that aren't processing a request (e.g. the {@link ServerWarmup})
+ * have no deadline, and their queries are left unbounded.
+ * </p>
+ */
+public final class QueryDeadline {
+	/**
+	 * The JPA query hint for query timeouts, which is specified in
+	 * milliseconds.
+	 */
+	static final String HINT_QUERY_TIMEOUT = "javax.persistence.query.timeout";
+
+	private static final ThreadLocal<QueryDeadline> CURRENT_DEADLINE = new ThreadLocal<>();
+
+	private final long deadlineNanos;
+
+	/**
+	 * Constructs a new {@link QueryDeadline}.
+	 *
+	 * @param timeoutMillis
+	 *            how long (in milliseconds) from now the deadline should be
+	 */
+	private QueryDeadline(long timeoutMillis) {
+		this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+	}
+
+	/**
+	 * Sets a new {@link QueryDeadline} as the current thread's deadline. Each
+	 * call must be followed by a call to {@link #clear()}.
+	 *
+	 * @param timeoutMillis
+	 *            how long (in milliseconds) from now the deadline should be
+	 */
+	public static void start(long timeoutMillis) {
+		if (timeoutMillis < 1)
+			throw new IllegalArgumentException();
+
+		CURRENT_DEADLINE.set(new QueryDeadline(timeoutMillis));
+	}
+
+	/**
+	 * Clears the current thread's {@link QueryDeadline}, if any.
+	 */
+	public static void clear() {
+		CURRENT_DEADLINE.remove();
+	}
+
+	/**
+	 * @return the current thread's {@link QueryDeadline}, or
+	 *         {@link Optional#empty()} if it doesn't have one
+	 */
+	public static Optional<QueryDeadline> getCurrent() {
+		return Optional.ofNullable(CURRENT_DEADLINE.get());
+	}
+
+	/**
+	 * Sets the current thread's {@link QueryDeadline}. This is used to carry a
+	 * request's deadline over to any other threads that do work for it.
+	 *
+	 * @param deadline
+	 *            the {@link QueryDeadline} for the request being processed by
+	 *            the current thread, or {@link Optional#empty()} to clear it
+	 */
+	public static void setCurrent(Optional<QueryDeadline> deadline) {
+		if (deadline.isPresent())
+			CURRENT_DEADLINE.set(deadline.get());
+		else
+			CURRENT_DEADLINE.remove();
+	}
+
+	/**
+	 * @return the number of milliseconds remaining before this
+	 *         {@link QueryDeadline}, which will be <code>0</code> or less if
+	 *         it has passed
+	 */
+	public long getRemainingMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+	}
+
+	/**
+	 * Applies the time remaining before the current thread's
+	 * {@link QueryDeadline} (if any) to the specified query, as its timeout.
+	 *
+	 * @param query
+	 *            the {@link TypedQuery} that's about to be run
+	 * @return the same {@link TypedQuery}, for chaining
+	 * @throws QueryTimeoutException
+	 *             A {@link QueryTimeoutException} will be thrown if the
+	 *             deadline has already passed.
+	 */
+	static <T> TypedQuery<T> apply(TypedQuery<T> query) {
+		QueryDeadline deadline = CURRENT_DEADLINE.get();
+		if (deadline == null)
+			return query;
+
+		/*
+		 * JDBC statement timeouts only have a resolution of whole seconds, and
+		 * Hibernate truncates the (millisecond) hint down to that. Round up
+		 * instead, so that a deadline less than a second away doesn't turn
+		 * into no timeout at all.
+		 */
+		long remainingSeconds = TimeUnit.MILLISECONDS.toSeconds(deadline.remainingMillisOrFail() + 999);
+		query.setHint(HINT_QUERY_TIMEOUT, (int) Math.min(Integer.MAX_VALUE / 1000, remainingSeconds) * 1000);
+		return query;
+	}
+
+	/**
+	 * @param exception
+	 *            the {@link Throwable} that a request (or query) failed with
+	 * @return <code>true</code> if the specified {@link Throwable} (or any of
+	 *         its causes) indicates that a query was cancelled by its timeout,
+	 *         <code>false</code> if not
+	 */
+	public static boolean isTimeout(Throwable exception) {
+		for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+			if (cause instanceof QueryTimeoutException || cause instanceof org.hibernate.QueryTimeoutException
+					|| cause instanceof SQLTimeoutException)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the (positive) number of milliseconds remaining before this
+	 *         {@link QueryDeadline}
+	 * @throws QueryTimeoutException
+	 *             A {@link QueryTimeoutException} will be thrown if the
+	 *             deadline has already passed.
+	 */
+	private long remainingMillisOrFail() {
+		long remainingMillis = getRemainingMillis();
+		if (remainingMillis <= 0)
+			throw new QueryTimeoutException("Request deadline exceeded: remaining queries cancelled.");
+		return remainingMillis;
+	}
+}
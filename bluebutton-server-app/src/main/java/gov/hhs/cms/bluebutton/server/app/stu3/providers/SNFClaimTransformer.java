@@ -1,9 +1,5 @@
 package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Optional;
-import java.util.function.Consumer;
 
 import org.hl7.fhir.dstu3.model.Address;
 import org.hl7.fhir.dstu3.model.DateType;
@@ -29,6 +25,115 @@ import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel
  * {@link ExplanationOfBenefit} resources.
  */
 final class SNFClaimTransformer {
+	/**
+	 * The {@link IcdCodeSlots} for the diagnosis codes in each
+	 * {@link SNFClaim}.
+	 */
+	static final IcdCodeSlots<SNFClaim, Diagnosis> DIAGNOSES = IcdCodeSlots
+			.<SNFClaim, Diagnosis> builder()
+			.add(Diagnosis.slot(SNFClaim::getDiagnosisAdmittingCode,
+					SNFClaim::getDiagnosisAdmittingCodeVersion, DiagnosisLabel.ADMITTING))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosisPrincipalCode,
+					SNFClaim::getDiagnosisPrincipalCodeVersion, DiagnosisLabel.PRINCIPAL))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis1Code, SNFClaim::getDiagnosis1CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis2Code, SNFClaim::getDiagnosis2CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis3Code, SNFClaim::getDiagnosis3CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis4Code, SNFClaim::getDiagnosis4CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis5Code, SNFClaim::getDiagnosis5CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis6Code, SNFClaim::getDiagnosis6CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis7Code, SNFClaim::getDiagnosis7CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis8Code, SNFClaim::getDiagnosis8CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis9Code, SNFClaim::getDiagnosis9CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis10Code, SNFClaim::getDiagnosis10CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis11Code, SNFClaim::getDiagnosis11CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis12Code, SNFClaim::getDiagnosis12CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis13Code, SNFClaim::getDiagnosis13CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis14Code, SNFClaim::getDiagnosis14CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis15Code, SNFClaim::getDiagnosis15CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis16Code, SNFClaim::getDiagnosis16CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis17Code, SNFClaim::getDiagnosis17CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis18Code, SNFClaim::getDiagnosis18CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis19Code, SNFClaim::getDiagnosis19CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis20Code, SNFClaim::getDiagnosis20CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis21Code, SNFClaim::getDiagnosis21CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis22Code, SNFClaim::getDiagnosis22CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis23Code, SNFClaim::getDiagnosis23CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis24Code, SNFClaim::getDiagnosis24CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosis25Code, SNFClaim::getDiagnosis25CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosisExternalFirstCode,
+					SNFClaim::getDiagnosisExternalFirstCodeVersion, DiagnosisLabel.FIRSTEXTERNAL))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosisExternal1Code, SNFClaim::getDiagnosisExternal1CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosisExternal2Code, SNFClaim::getDiagnosisExternal2CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosisExternal3Code, SNFClaim::getDiagnosisExternal3CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosisExternal4Code, SNFClaim::getDiagnosisExternal4CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosisExternal5Code, SNFClaim::getDiagnosisExternal5CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosisExternal6Code, SNFClaim::getDiagnosisExternal6CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosisExternal7Code, SNFClaim::getDiagnosisExternal7CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosisExternal8Code, SNFClaim::getDiagnosisExternal8CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosisExternal9Code, SNFClaim::getDiagnosisExternal9CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosisExternal10Code, SNFClaim::getDiagnosisExternal10CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosisExternal11Code, SNFClaim::getDiagnosisExternal11CodeVersion))
+			.add(Diagnosis.slot(SNFClaim::getDiagnosisExternal12Code, SNFClaim::getDiagnosisExternal12CodeVersion))
+			.build();
+
+	/**
+	 * The {@link IcdCodeSlots} for the procedure codes in each
+	 * {@link SNFClaim}.
+	 */
+	static final IcdCodeSlots<SNFClaim, CCWProcedure> PROCEDURES = IcdCodeSlots
+			.<SNFClaim, CCWProcedure> builder()
+			.add(CCWProcedure.slot(SNFClaim::getProcedure1Code,
+					SNFClaim::getProcedure1CodeVersion, SNFClaim::getProcedure1Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure2Code,
+					SNFClaim::getProcedure2CodeVersion, SNFClaim::getProcedure2Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure3Code,
+					SNFClaim::getProcedure3CodeVersion, SNFClaim::getProcedure3Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure4Code,
+					SNFClaim::getProcedure4CodeVersion, SNFClaim::getProcedure4Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure5Code,
+					SNFClaim::getProcedure5CodeVersion, SNFClaim::getProcedure5Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure6Code,
+					SNFClaim::getProcedure6CodeVersion, SNFClaim::getProcedure6Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure7Code,
+					SNFClaim::getProcedure7CodeVersion, SNFClaim::getProcedure7Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure8Code,
+					SNFClaim::getProcedure8CodeVersion, SNFClaim::getProcedure8Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure9Code,
+					SNFClaim::getProcedure9CodeVersion, SNFClaim::getProcedure9Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure10Code,
+					SNFClaim::getProcedure10CodeVersion, SNFClaim::getProcedure10Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure11Code,
+					SNFClaim::getProcedure11CodeVersion, SNFClaim::getProcedure11Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure12Code,
+					SNFClaim::getProcedure12CodeVersion, SNFClaim::getProcedure12Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure13Code,
+					SNFClaim::getProcedure13CodeVersion, SNFClaim::getProcedure13Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure14Code,
+					SNFClaim::getProcedure14CodeVersion, SNFClaim::getProcedure14Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure15Code,
+					SNFClaim::getProcedure15CodeVersion, SNFClaim::getProcedure15Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure16Code,
+					SNFClaim::getProcedure16CodeVersion, SNFClaim::getProcedure16Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure17Code,
+					SNFClaim::getProcedure17CodeVersion, SNFClaim::getProcedure17Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure18Code,
+					SNFClaim::getProcedure18CodeVersion, SNFClaim::getProcedure18Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure19Code,
+					SNFClaim::getProcedure19CodeVersion, SNFClaim::getProcedure19Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure20Code,
+					SNFClaim::getProcedure20CodeVersion, SNFClaim::getProcedure20Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure21Code,
+					SNFClaim::getProcedure21CodeVersion, SNFClaim::getProcedure21Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure22Code,
+					SNFClaim::getProcedure22CodeVersion, SNFClaim::getProcedure22Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure23Code,
+					SNFClaim::getProcedure23CodeVersion, SNFClaim::getProcedure23Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure24Code,
+					SNFClaim::getProcedure24CodeVersion, SNFClaim::getProcedure24Date))
+			.add(CCWProcedure.slot(SNFClaim::getProcedure25Code,
+					SNFClaim::getProcedure25CodeVersion, SNFClaim::getProcedure25Date))
+			.build();
+
 	/**
 	 * @param claim
 	 *            the CCW {@link SNFClaim} to transform
@@ -367,11 +472,9 @@ final class SNFClaimTransformer {
 				TransformerUtils.createCodeableConcept(TransformerConstants.CODING_SYSTEM_ADMISSION_TYPE_CD,
 						String.valueOf(claimGroup.getAdmissionTypeCd())));
 
-		for (Diagnosis diagnosis : extractDiagnoses(claimGroup))
-			TransformerUtils.addDiagnosisCode(eob, diagnosis);
+		DIAGNOSES.forEach(claimGroup, diagnosis -> TransformerUtils.addDiagnosisCode(eob, diagnosis));
 
-		for (CCWProcedure procedure : extractCCWProcedures(claimGroup))
-			TransformerUtils.addProcedureCode(eob, procedure);
+		PROCEDURES.forEach(claimGroup, procedure -> TransformerUtils.addProcedureCode(eob, procedure));
 
 		for (SNFClaimLine claimLine : claimGroup.getLines()) {
 			ItemComponent item = eob.addItem();
@@ -451,157 +554,4 @@ final class SNFClaimTransformer {
 		return eob;
 	}
 
-	/**
-	 * @param claim
-	 *            the {@link SNFClaim} to extract the {@link Diagnosis}es from
-	 * @return the {@link Diagnosis}es that can be extracted from the specified
-	 *         {@link SNFClaim}
-	 */
-	private static List<Diagnosis> extractDiagnoses(SNFClaim claim) {
-		List<Diagnosis> diagnoses = new LinkedList<>();
-
-		/*
-		 * Seems silly, but allows the block below to be simple one-liners,
-		 * rather than requiring if-blocks.
-		 */
-		Consumer<Optional<Diagnosis>> diagnosisAdder = d -> {
-			if (d.isPresent())
-				diagnoses.add(d.get());
-		};
-
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisAdmittingCode(),
-				claim.getDiagnosisAdmittingCodeVersion(), DiagnosisLabel.ADMITTING));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisPrincipalCode(),
-				claim.getDiagnosisPrincipalCodeVersion(), DiagnosisLabel.PRINCIPAL));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis1Code(), claim.getDiagnosis1CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis2Code(), claim.getDiagnosis2CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis3Code(), claim.getDiagnosis3CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis4Code(), claim.getDiagnosis4CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis5Code(), claim.getDiagnosis5CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis6Code(), claim.getDiagnosis6CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis7Code(), claim.getDiagnosis7CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis8Code(), claim.getDiagnosis8CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis9Code(), claim.getDiagnosis9CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis10Code(), claim.getDiagnosis10CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis11Code(), claim.getDiagnosis11CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis12Code(), claim.getDiagnosis12CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis13Code(), claim.getDiagnosis13CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis14Code(), claim.getDiagnosis14CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis15Code(), claim.getDiagnosis15CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis16Code(), claim.getDiagnosis16CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis17Code(), claim.getDiagnosis17CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis18Code(), claim.getDiagnosis18CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis19Code(), claim.getDiagnosis19CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis20Code(), claim.getDiagnosis20CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis21Code(), claim.getDiagnosis21CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis22Code(), claim.getDiagnosis22CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis23Code(), claim.getDiagnosis23CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis24Code(), claim.getDiagnosis24CodeVersion()));
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosis25Code(), claim.getDiagnosis25CodeVersion()));
-
-		diagnosisAdder.accept(Diagnosis.from(claim.getDiagnosisExternalFirstCode(),
-				claim.getDiagnosisExternalFirstCodeVersion(), DiagnosisLabel.FIRSTEXTERNAL));
-
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal1Code(), claim.getDiagnosisExternal1CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal2Code(), claim.getDiagnosisExternal2CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal3Code(), claim.getDiagnosisExternal3CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal4Code(), claim.getDiagnosisExternal4CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal5Code(), claim.getDiagnosisExternal5CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal6Code(), claim.getDiagnosisExternal6CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal7Code(), claim.getDiagnosisExternal7CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal8Code(), claim.getDiagnosisExternal8CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal9Code(), claim.getDiagnosisExternal9CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal10Code(), claim.getDiagnosisExternal10CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal11Code(), claim.getDiagnosisExternal11CodeVersion()));
-		diagnosisAdder
-				.accept(Diagnosis.from(claim.getDiagnosisExternal12Code(), claim.getDiagnosisExternal12CodeVersion()));
-
-		return diagnoses;
-	}
-
-	/**
-	 * @param claim
-	 *            the {@link SNFClaim} to extract the {@link CCWProcedure}es
-	 *            from
-	 * @return the {@link CCWProcedure}es that can be extracted from the
-	 *         specified {@link SNFClaim}
-	 */
-	private static List<CCWProcedure> extractCCWProcedures(SNFClaim claim) {
-		List<CCWProcedure> ccwProcedures = new LinkedList<>();
-
-		/*
-		 * Seems silly, but allows the block below to be simple one-liners,
-		 * rather than requiring if-blocks.
-		 */
-		Consumer<Optional<CCWProcedure>> ccwProcedureAdder = p -> {
-			if (p.isPresent())
-				ccwProcedures.add(p.get());
-		};
-
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure1Code(), claim.getProcedure1CodeVersion(),
-				claim.getProcedure1Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure2Code(), claim.getProcedure2CodeVersion(),
-				claim.getProcedure2Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure3Code(), claim.getProcedure3CodeVersion(),
-				claim.getProcedure3Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure4Code(), claim.getProcedure4CodeVersion(),
-				claim.getProcedure4Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure5Code(), claim.getProcedure5CodeVersion(),
-				claim.getProcedure5Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure6Code(), claim.getProcedure6CodeVersion(),
-				claim.getProcedure6Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure7Code(), claim.getProcedure7CodeVersion(),
-				claim.getProcedure7Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure8Code(), claim.getProcedure8CodeVersion(),
-				claim.getProcedure8Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure9Code(), claim.getProcedure9CodeVersion(),
-				claim.getProcedure9Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure10Code(), claim.getProcedure10CodeVersion(),
-				claim.getProcedure10Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure11Code(), claim.getProcedure11CodeVersion(),
-				claim.getProcedure11Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure12Code(), claim.getProcedure12CodeVersion(),
-				claim.getProcedure12Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure13Code(), claim.getProcedure13CodeVersion(),
-				claim.getProcedure13Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure14Code(), claim.getProcedure14CodeVersion(),
-				claim.getProcedure14Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure15Code(), claim.getProcedure15CodeVersion(),
-				claim.getProcedure15Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure16Code(), claim.getProcedure16CodeVersion(),
-				claim.getProcedure16Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure17Code(), claim.getProcedure17CodeVersion(),
-				claim.getProcedure17Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure18Code(), claim.getProcedure18CodeVersion(),
-				claim.getProcedure18Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure19Code(), claim.getProcedure19CodeVersion(),
-				claim.getProcedure19Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure20Code(), claim.getProcedure20CodeVersion(),
-				claim.getProcedure20Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure21Code(), claim.getProcedure21CodeVersion(),
-				claim.getProcedure21Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure22Code(), claim.getProcedure22CodeVersion(),
-				claim.getProcedure22Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure23Code(), claim.getProcedure23CodeVersion(),
-				claim.getProcedure23Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure24Code(), claim.getProcedure24CodeVersion(),
-				claim.getProcedure24Date().get()));
-		ccwProcedureAdder.accept(CCWProcedure.from(claim.getProcedure25Code(), claim.getProcedure25CodeVersion(),
-				claim.getProcedure25Date().get()));
-
-		return ccwProcedures;
-	}
-
 }
-
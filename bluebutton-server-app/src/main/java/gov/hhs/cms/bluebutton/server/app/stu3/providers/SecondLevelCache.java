@@ -0,0 +1,411 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+
+import gov.hhs.cms.bluebutton.data.model.rif.Beneficiary;
+import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaimLine;
+import gov.hhs.cms.bluebutton.data.model.rif.DMEClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.DMEClaimLine;
+import gov.hhs.cms.bluebutton.data.model.rif.HHAClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.HHAClaimLine;
+import gov.hhs.cms.bluebutton.data.model.rif.HospiceClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.HospiceClaimLine;
+import gov.hhs.cms.bluebutton.data.model.rif.InpatientClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.InpatientClaimLine;
+import gov.hhs.cms.bluebutton.data.model.rif.OutpatientClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.OutpatientClaimLine;
+import gov.hhs.cms.bluebutton.data.model.rif.PartDEvent;
+import gov.hhs.cms.bluebutton.data.model.rif.SNFClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.SNFClaimLine;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+
+/**
+ * <p>
+ * Manages Hibernate's second-level (entity and collection) cache and query
+ * cache for the application's {@link Beneficiary} and claim entities (and the
+ * claims' <code>lines</code>), which allows repeated reads of the same records
+ * to skip the database entirely.
+ * </p>
+ * <p>
+ * The application never writes to those entities: they're only changed by
+ * the ETL pipeline's load runs, which Hibernate can't see. Accordingly, every
+ * region is read-only, bounded in size, and expires its entries after a
+ * configurable time-to-live, which bounds how stale they can get after a load
+ * run. As a {@link BeneficiaryChangeListener}, it also invalidates the
+ * entries for changed beneficiaries as soon as the
+ * {@link BeneficiaryChangeMonitor} sees a load run's changes, and
+ * {@link #evictAll()} can be used to drop everything.
+ * </p>
+ * <p>
+ * Only the {@link Beneficiary} queries use the query cache. The claim queries
+ * fetch each claim's <code>lines</code> along with it, and the query cache
+ * would only keep the claims' IDs, leaving the <code>lines</code> to be
+ * loaded lazily after the query's session had closed. Instead, claim searches
+ * always query the database (writing their results over whatever was cached),
+ * and only reads of individual claims are served from the entity and
+ * collection regions, via {@link #contains(Class, Object)} and
+ * {@link javax.persistence.EntityManager#find(Class, Object)}.
+ * </p>
+ * <p>
+ * Claims are cached by claim ID, so a changed beneficiary's cached claims
+ * can't be looked up and evicted directly. Instead, each changed beneficiary
+ * is remembered for one time-to-live (which is as long as any of their stale
+ * entries could survive), and reads of their claims go to the database during
+ * that time (see {@link #hasChangedRecently(String)}). Every other
+ * beneficiary's claims stay cached.
+ * </p>
+ */
+public final class SecondLevelCache implements BeneficiaryChangeListener {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SecondLevelCache.class);
+
+	/**
+	 * The Hibernate {@link org.hibernate.cache.spi.RegionFactory} used for the
+	 * cache regions, which will use the Ehcache {@link CacheManager} started by
+	 * {@link #configure(Properties, long, long)}.
+	 */
+	static final String REGION_FACTORY = "org.hibernate.cache.ehcache.SingletonEhCacheRegionFactory";
+
+	/**
+	 * The JPA/Hibernate concurrency strategy for all of the cache regions.
+	 */
+	static final String CONCURRENCY_STRATEGY = "read-only";
+
+	/**
+	 * The name of the claim entities' collection attribute for their lines.
+	 */
+	static final String ATTRIBUTE_LINES = "lines";
+
+	/**
+	 * The cached claim entity {@link Class}es, along with the entity
+	 * {@link Class}es of their <code>lines</code> (if any). Note that
+	 * {@link ClaimType} can't be used for this, as it relies on the JPA
+	 * metamodel, which won't be populated until after
+	 * {@link #createJpaProperties()} has been used.
+	 */
+	private static final Map<Class<?>, Optional<Class<?>>> CLAIM_CLASSES = createClaimClasses();
+
+	private static final String CLASS_CACHE_PREFIX = org.hibernate.jpa.AvailableSettings.CLASS_CACHE_PREFIX;
+	private static final String COLLECTION_CACHE_PREFIX = org.hibernate.jpa.AvailableSettings.COLLECTION_CACHE_PREFIX;
+
+	private final boolean enabled;
+	private final long maxChangedBeneficiaries;
+	private final long timeToLiveMillis;
+	private final SessionFactory sessionFactory;
+
+	/**
+	 * The time that each recently-changed beneficiary's change was seen at
+	 * (from {@link System#currentTimeMillis()}), keyed by beneficiary ID, in
+	 * the order they were seen. Guarded by itself.
+	 */
+	private final Map<String, Long> changedBeneficiaries;
+
+	/**
+	 * Constructs a new {@link SecondLevelCache}, and registers its hit ratio
+	 * metrics.
+	 *
+	 * @param enabled
+	 *            <code>true</code> if the JPA {@link Properties} were
+	 *            {@link #configure(Properties, long, long)}'d to enable the
+	 *            cache, <code>false</code> if not (in which case this
+	 *            {@link SecondLevelCache} will do nothing)
+	 * @param maxEntries
+	 *            the maximum number of entries kept in each cache region,
+	 *            which is also the maximum number of recently-changed
+	 *            beneficiaries that will be remembered (past that, everything
+	 *            is evicted instead)
+	 * @param timeToLiveSeconds
+	 *            how long (in seconds) each entry may be kept for, which is
+	 *            also how long changed beneficiaries will be remembered for
+	 * @param entityManagerFactory
+	 *            the application's {@link EntityManagerFactory}
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} for the application
+	 */
+	public SecondLevelCache(boolean enabled, long maxEntries, long timeToLiveSeconds,
+			EntityManagerFactory entityManagerFactory, MetricRegistry metricRegistry) {
+		this.enabled = enabled;
+		this.maxChangedBeneficiaries = maxEntries;
+		this.timeToLiveMillis = TimeUnit.SECONDS.toMillis(timeToLiveSeconds);
+		this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+		this.changedBeneficiaries = new LinkedHashMap<>();
+
+		if (!enabled)
+			return;
+
+		Statistics statistics = sessionFactory.getStatistics();
+		for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+			metricRegistry.register(MetricRegistry.name(getClass(), "regions", regionName, "hitRatio"),
+					new RatioGauge() {
+						@Override
+						protected Ratio getRatio() {
+							SecondLevelCacheStatistics regionStatistics = statistics
+									.getSecondLevelCacheStatistics(regionName);
+							return Ratio.of(regionStatistics.getHitCount(),
+									regionStatistics.getHitCount() + regionStatistics.getMissCount());
+						}
+					});
+		}
+		metricRegistry.register(MetricRegistry.name(getClass(), "queries", "hitRatio"), new RatioGauge() {
+			@Override
+			protected Ratio getRatio() {
+				return Ratio.of(statistics.getQueryCacheHitCount(),
+						statistics.getQueryCacheHitCount() + statistics.getQueryCacheMissCount());
+			}
+		});
+	}
+
+	/**
+	 * Evicts everything from all of the cache regions, e.g. after an ETL
+	 * pipeline load run, so that the new and updated records are seen
+	 * immediately.
+	 */
+	public void evictAll() {
+		if (!enabled)
+			return;
+
+		synchronized (changedBeneficiaries) {
+			changedBeneficiaries.clear();
+		}
+		sessionFactory.getCache().evictAllRegions();
+		LOGGER.info("Evicted all second-level and query cache regions.");
+	}
+
+	/**
+	 * Evicts the specified beneficiaries' {@link Beneficiary} entities and
+	 * the (cheap to re-run) {@link Beneficiary} queries, and remembers the
+	 * beneficiaries so that reads of their claims will skip the cache (see
+	 * {@link #hasChangedRecently(String)}). If too many beneficiaries have
+	 * changed recently to remember them all, everything is evicted instead.
+	 *
+	 * @see gov.hhs.cms.bluebutton.server.app.stu3.providers.BeneficiaryChangeListener#beneficiariesChanged(java.util.Collection)
+	 */
+	@Override
+	public void beneficiariesChanged(Collection<String> beneficiaryIds) {
+		if (!enabled)
+			return;
+
+		long now = System.currentTimeMillis();
+		synchronized (changedBeneficiaries) {
+			removeExpiredChanges(now);
+			for (String beneficiaryId : beneficiaryIds) {
+				// Re-inserting keeps the map in the order the changes were seen.
+				changedBeneficiaries.remove(beneficiaryId);
+				changedBeneficiaries.put(beneficiaryId, now);
+			}
+			if (changedBeneficiaries.size() > maxChangedBeneficiaries) {
+				evictAll();
+				return;
+			}
+		}
+
+		Cache cache = sessionFactory.getCache();
+		for (String beneficiaryId : beneficiaryIds)
+			cache.evictEntity(Beneficiary.class, beneficiaryId);
+		cache.evictDefaultQueryRegion();
+		LOGGER.debug("Evicted the cache entries for {} changed beneficiaries.", beneficiaryIds.size());
+	}
+
+	/**
+	 * @see gov.hhs.cms.bluebutton.server.app.stu3.providers.BeneficiaryChangeListener#allBeneficiariesChanged()
+	 */
+	@Override
+	public void allBeneficiariesChanged() {
+		evictAll();
+	}
+
+	/**
+	 * @param beneficiaryId
+	 *            the ID of the beneficiary to check
+	 * @return <code>true</code> if the specified beneficiary's data changed
+	 *         recently enough that some of their cache entries may still be
+	 *         stale, <code>false</code> if not
+	 */
+	boolean hasChangedRecently(String beneficiaryId) {
+		if (!enabled)
+			return false;
+
+		synchronized (changedBeneficiaries) {
+			Long changed = changedBeneficiaries.get(beneficiaryId);
+			return changed != null && System.currentTimeMillis() - changed < timeToLiveMillis;
+		}
+	}
+
+	/**
+	 * Forgets the changes that were seen more than one time-to-live ago, as
+	 * all of the entries that they made stale have since expired. Must be
+	 * called while holding the {@link #changedBeneficiaries} lock.
+	 *
+	 * @param now
+	 *            the current time, from {@link System#currentTimeMillis()}
+	 */
+	private void removeExpiredChanges(long now) {
+		Iterator<Long> changedTimes = changedBeneficiaries.values().iterator();
+		while (changedTimes.hasNext() && now - changedTimes.next() >= timeToLiveMillis)
+			changedTimes.remove();
+	}
+
+	/**
+	 * Adds the settings needed to enable the cache to the specified JPA
+	 * {@link Properties}, and starts the (bounded) Ehcache {@link CacheManager}
+	 * that the cache regions will be stored in.
+	 *
+	 * @param jpaProperties
+	 *            the JPA {@link Properties} that will be used to create the
+	 *            application's {@link EntityManagerFactory}
+	 * @param maxEntries
+	 *            the maximum number of entries to keep in each cache region
+	 * @param timeToLiveSeconds
+	 *            how long (in seconds) each entry may be kept for
+	 */
+	public static void configure(Properties jpaProperties, long maxEntries, long timeToLiveSeconds) {
+		if (maxEntries < 1)
+			throw new IllegalArgumentException();
+		if (timeToLiveSeconds < 1)
+			throw new IllegalArgumentException();
+
+		/*
+		 * Every region that isn't explicitly configured gets the default cache
+		 * settings, and there's no need to configure any of them differently.
+		 */
+		CacheManager.create(new Configuration().name("bbfhir").updateCheck(false).defaultCache(
+				new CacheConfiguration().maxEntriesLocalHeap(maxEntries).timeToLiveSeconds(timeToLiveSeconds)));
+
+		jpaProperties.putAll(createJpaProperties());
+	}
+
+	/**
+	 * @return the JPA {@link Properties} that enable the cache for the
+	 *         {@link Beneficiary} and claim entities, along with the claims'
+	 *         <code>lines</code> collections (and their entities)
+	 */
+	static Properties createJpaProperties() {
+		Properties cacheProperties = new Properties();
+		cacheProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true");
+		cacheProperties.put(AvailableSettings.USE_QUERY_CACHE, "true");
+		cacheProperties.put(AvailableSettings.CACHE_REGION_FACTORY, REGION_FACTORY);
+		cacheProperties.put(AvailableSettings.DEFAULT_CACHE_CONCURRENCY_STRATEGY, CONCURRENCY_STRATEGY);
+		cacheProperties.put(AvailableSettings.GENERATE_STATISTICS, "true");
+
+		/*
+		 * Otherwise, entries that are already cached wouldn't be overwritten
+		 * when claims are queried from the database again.
+		 */
+		cacheProperties.put(AvailableSettings.USE_MINIMAL_PUTS, "false");
+
+		/*
+		 * The entities are defined in another project, so they can't be
+		 * annotated as cacheable. Instead, the cache regions are defined here.
+		 */
+		cacheProperties.put(getClassCacheKey(Beneficiary.class), CONCURRENCY_STRATEGY);
+		for (Map.Entry<Class<?>, Optional<Class<?>>> claimClasses : CLAIM_CLASSES.entrySet())
+			addClaimRegions(cacheProperties, claimClasses.getKey(), claimClasses.getValue());
+
+		return cacheProperties;
+	}
+
+	/**
+	 * @return the value for {@link #CLAIM_CLASSES}
+	 */
+	private static Map<Class<?>, Optional<Class<?>>> createClaimClasses() {
+		Map<Class<?>, Optional<Class<?>>> claimClasses = new LinkedHashMap<>();
+		claimClasses.put(CarrierClaim.class, Optional.of(CarrierClaimLine.class));
+		claimClasses.put(DMEClaim.class, Optional.of(DMEClaimLine.class));
+		claimClasses.put(HHAClaim.class, Optional.of(HHAClaimLine.class));
+		claimClasses.put(HospiceClaim.class, Optional.of(HospiceClaimLine.class));
+		claimClasses.put(InpatientClaim.class, Optional.of(InpatientClaimLine.class));
+		claimClasses.put(OutpatientClaim.class, Optional.of(OutpatientClaimLine.class));
+		claimClasses.put(PartDEvent.class, Optional.empty());
+		claimClasses.put(SNFClaim.class, Optional.of(SNFClaimLine.class));
+		return Collections.unmodifiableMap(claimClasses);
+	}
+
+	/**
+	 * Adds the JPA properties that enable caching for the specified claim
+	 * entity {@link Class}, and its <code>lines</code> (if any).
+	 *
+	 * @param cacheProperties
+	 *            the JPA {@link Properties} to add to
+	 * @param claimClass
+	 *            the claim entity {@link Class} to be cached
+	 * @param lineClass
+	 *            the entity {@link Class} of the claim's <code>lines</code>
+	 *            collection, or {@link Optional#empty()} if it has none
+	 */
+	private static void addClaimRegions(Properties cacheProperties, Class<?> claimClass,
+			Optional<Class<?>> lineClass) {
+		cacheProperties.put(getClassCacheKey(claimClass), CONCURRENCY_STRATEGY);
+		if (!lineClass.isPresent())
+			return;
+
+		/*
+		 * The collection regions only store their elements' IDs, so the
+		 * elements themselves have to be cached, too.
+		 */
+		cacheProperties.put(String.format("%s.%s.%s", COLLECTION_CACHE_PREFIX, claimClass.getName(), ATTRIBUTE_LINES),
+				CONCURRENCY_STRATEGY);
+		cacheProperties.put(getClassCacheKey(lineClass.get()), CONCURRENCY_STRATEGY);
+	}
+
+	/**
+	 * @param entityClass
+	 *            the entity {@link Class} to be cached
+	 * @return the JPA property key that enables caching for the specified
+	 *         entity {@link Class}
+	 */
+	private static String getClassCacheKey(Class<?> entityClass) {
+		return String.format("%s.%s", CLASS_CACHE_PREFIX, entityClass.getName());
+	}
+
+	/**
+	 * Marks the specified {@link Beneficiary} query as cacheable, so that its
+	 * results will be stored in (and, if possible, read from) the query cache.
+	 * This has no effect if the cache isn't enabled. Note that this must not
+	 * be used for queries that fetch collections (e.g. the claim queries), as
+	 * those collections aren't stored in the query cache.
+	 *
+	 * @param query
+	 *            the {@link TypedQuery} that's about to be run
+	 * @return the same {@link TypedQuery}, for chaining
+	 */
+	static <T> TypedQuery<T> cacheable(TypedQuery<T> query) {
+		return query.setHint(QueryHints.CACHEABLE, true);
+	}
+
+	/**
+	 * @param entityClass
+	 *            the {@link Class} of the entity to check for
+	 * @param id
+	 *            the ID of the entity to check for
+	 * @return <code>true</code> if the specified entity is cached, and so can
+	 *         be loaded without querying the database, <code>false</code> if
+	 *         not (or if the cache isn't enabled)
+	 */
+	boolean contains(Class<?> entityClass, Object id) {
+		return enabled && sessionFactory.getCache().contains(entityClass, id);
+	}
+}
@@ -0,0 +1,392 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.OneToMany;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Bundle.BundleType;
+import org.hl7.fhir.dstu3.model.Coverage;
+import org.hl7.fhir.dstu3.model.Coverage.CoverageStatus;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.ExplanationOfBenefitStatus;
+import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.Money;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.Reference;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+
+/**
+ * <p>
+ * Warms up the application before it starts serving requests, so that the
+ * first real requests after a deploy aren't dramatically slower than the rest.
+ * Otherwise, those first requests would pay for HAPI's {@link FhirContext}
+ * lazily scanning the model classes, Hibernate compiling each Criteria query,
+ * and the (cold) JIT.
+ * </p>
+ * <p>
+ * Each provider operation is run against a beneficiary ID. By default, that's
+ * a synthetic ID that won't match any records, which still exercises the query
+ * and database paths. Separately, each {@link ClaimType}'s transformer is run
+ * against a synthetic claim (with one line, where the claim type has lines),
+ * and the results are encoded along with everything else, so that the
+ * transformers are warmed up either way. Each warm-up step is timed via the
+ * application's {@link MetricRegistry}.
+ * </p>
+ */
+public final class ServerWarmup {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ServerWarmup.class);
+
+	/**
+	 * The default beneficiary ID to warm up with, which shouldn't match any
+	 * records.
+	 */
+	public static final String SYNTHETIC_BENEFICIARY_ID = "warmup";
+
+	/**
+	 * The values to use for the required fields of the synthetic claims, by
+	 * field type. These are chosen to pass the transformers' own consistency
+	 * checks, e.g. the <code>BigDecimal</code> lab result that must be zero
+	 * when there's no lab test type, or the Part D prescriber ID qualifier
+	 * that must be <code>"01"</code>.
+	 */
+	private static final Map<Class<?>, Object> SYNTHETIC_VALUES = createSyntheticValues();
+
+	private final int iterations;
+	private final String beneficiaryId;
+	private final PatientResourceProvider patientResourceProvider;
+	private final CoverageResourceProvider coverageResourceProvider;
+	private final ExplanationOfBenefitResourceProvider eobResourceProvider;
+	private final MetricRegistry metricRegistry;
+
+	/**
+	 * Constructs a new {@link ServerWarmup} instance.
+	 *
+	 * @param iterations
+	 *            the number of times to run each warm-up step, where
+	 *            <code>0</code> disables the warm-up
+	 * @param beneficiaryId
+	 *            the beneficiary ID to run the provider operations against
+	 * @param patientResourceProvider
+	 *            the application's {@link PatientResourceProvider}
+	 * @param coverageResourceProvider
+	 *            the application's {@link CoverageResourceProvider}
+	 * @param eobResourceProvider
+	 *            the application's {@link ExplanationOfBenefitResourceProvider}
+	 * @param metricRegistry
+	 *            the {@link MetricRegistry} to record the warm-up step timings
+	 *            in
+	 */
+	public ServerWarmup(int iterations, String beneficiaryId, PatientResourceProvider patientResourceProvider,
+			CoverageResourceProvider coverageResourceProvider, ExplanationOfBenefitResourceProvider eobResourceProvider,
+			MetricRegistry metricRegistry) {
+		if (iterations < 0)
+			throw new IllegalArgumentException();
+		if (beneficiaryId == null || beneficiaryId.trim().isEmpty())
+			throw new IllegalArgumentException();
+
+		this.iterations = iterations;
+		this.beneficiaryId = beneficiaryId;
+		this.patientResourceProvider = patientResourceProvider;
+		this.coverageResourceProvider = coverageResourceProvider;
+		this.eobResourceProvider = eobResourceProvider;
+		this.metricRegistry = metricRegistry;
+	}
+
+	/**
+	 * Runs the warm-up. Failures are logged, but otherwise ignored, as a cold
+	 * server is still better than no server.
+	 *
+	 * @param fhirContext
+	 *            the {@link FhirContext} that the application will use to
+	 *            encode its responses
+	 */
+	public void warmUp(FhirContext fhirContext) {
+		if (iterations == 0) {
+			LOGGER.info("Server warm-up disabled.");
+			return;
+		}
+
+		LOGGER.info("Warming up server ({} iterations, with beneficiary ID '{}')...", iterations, beneficiaryId);
+		long startNanos = System.nanoTime();
+
+		Map<ClaimType, Object> syntheticClaims = createSyntheticClaims();
+
+		List<IBaseResource> resources = new ArrayList<>();
+		resources.addAll(runStep("patient", this::warmUpPatients));
+		resources.addAll(runStep("coverage", this::warmUpCoverages));
+		resources.addAll(runStep("eob", this::warmUpEobs));
+		resources.addAll(runStep("transform", () -> warmUpTransformers(syntheticClaims)));
+		runStep("encode", () -> warmUpEncoding(fhirContext, resources));
+
+		LOGGER.info("Warmed up server in {} ms.", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+	}
+
+	/**
+	 * @param stepName
+	 *            the name of the warm-up step, as will be used for its
+	 *            {@link Timer}
+	 * @param step
+	 *            the warm-up step to run {@link #iterations} times
+	 * @return the resources produced by the last run of the warm-up step, or
+	 *         an empty {@link List} if it failed
+	 */
+	private List<? extends IBaseResource> runStep(String stepName, Supplier<List<? extends IBaseResource>> step) {
+		Timer timer = metricRegistry.timer(MetricRegistry.name(getClass(), stepName));
+		long startNanos = System.nanoTime();
+		try {
+			List<? extends IBaseResource> resources = Collections.emptyList();
+			for (int i = 0; i < iterations; i++) {
+				try (Timer.Context timerContext = timer.time()) {
+					resources = step.get();
+				}
+			}
+			LOGGER.info("Warm-up step '{}' completed in {} ms.", stepName,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+			return resources;
+		} catch (RuntimeException e) {
+			LOGGER.warn(String.format("Warm-up step '%s' failed.", stepName), e);
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * Runs each of the {@link PatientResourceProvider} operations.
+	 *
+	 * @return the resulting resources
+	 */
+	private List<? extends IBaseResource> warmUpPatients() {
+		List<IBaseResource> resources = new ArrayList<>();
+		try {
+			resources.add(patientResourceProvider.read(new IdType(Patient.class.getSimpleName(), beneficiaryId)));
+		} catch (ResourceNotFoundException e) {
+			// Expected, for the synthetic beneficiary ID.
+		}
+		patientResourceProvider.searchByLogicalId(new TokenParam(null, beneficiaryId));
+		return resources;
+	}
+
+	/**
+	 * Runs each of the {@link CoverageResourceProvider} operations.
+	 *
+	 * @return the resulting resources
+	 */
+	private List<? extends IBaseResource> warmUpCoverages() {
+		List<IBaseResource> resources = new ArrayList<>();
+		for (MedicareSegment segment : MedicareSegment.values()) {
+			try {
+				resources.add(coverageResourceProvider.read(new IdType(Coverage.class.getSimpleName(),
+						String.format("%s-%s", segment.getUrlPrefix(), beneficiaryId))));
+			} catch (ResourceNotFoundException e) {
+				// Expected, for the synthetic beneficiary ID.
+			}
+		}
+		coverageResourceProvider.searchByBeneficiary(new ReferenceParam(beneficiaryId));
+		return resources;
+	}
+
+	/**
+	 * Runs each of the {@link ExplanationOfBenefitResourceProvider} operations,
+	 * for each {@link ClaimType}.
+	 *
+	 * @return the resulting resources
+	 */
+	private List<? extends IBaseResource> warmUpEobs() {
+		for (ClaimType claimType : ClaimType.values()) {
+			try {
+				eobResourceProvider.read(new IdType(ExplanationOfBenefit.class.getSimpleName(),
+						String.format("%s-%s", claimType.name().toLowerCase(), beneficiaryId)));
+			} catch (ResourceNotFoundException e) {
+				// Expected: that's a beneficiary ID, not a claim ID.
+			}
+		}
+
+		eobResourceProvider.findByPatient(new ReferenceParam(beneficiaryId),
+				new DateRangeParam(new Date(0L), new Date()));
+		return eobResourceProvider.findByPatient(new ReferenceParam(beneficiaryId), null);
+	}
+
+	/**
+	 * Runs each {@link ClaimType}'s transformer against its synthetic claim.
+	 *
+	 * @param syntheticClaims
+	 *            the synthetic claims to transform, as created by
+	 *            {@link #createSyntheticClaims()}
+	 * @return the resulting resources
+	 */
+	private static List<? extends IBaseResource> warmUpTransformers(Map<ClaimType, Object> syntheticClaims) {
+		List<IBaseResource> resources = new ArrayList<>();
+		for (Map.Entry<ClaimType, Object> syntheticClaim : syntheticClaims.entrySet())
+			resources.add(syntheticClaim.getKey().getTransformer().apply(syntheticClaim.getValue()));
+		return resources;
+	}
+
+	/**
+	 * Creates a synthetic claim for each {@link ClaimType}, and checks that
+	 * its transformer accepts it. Claim types whose synthetic claims can't be
+	 * created or transformed are logged and left out, rather than failing the
+	 * whole transform step.
+	 *
+	 * @return the synthetic claims that were created and transformed
+	 *         successfully, by {@link ClaimType}
+	 */
+	private static Map<ClaimType, Object> createSyntheticClaims() {
+		Map<ClaimType, Object> syntheticClaims = new EnumMap<>(ClaimType.class);
+		for (ClaimType claimType : ClaimType.values()) {
+			try {
+				Object syntheticClaim = createSyntheticEntity(claimType.getEntityClass(), null);
+				claimType.getTransformer().apply(syntheticClaim);
+				syntheticClaims.put(claimType, syntheticClaim);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				LOGGER.warn(String.format("Unable to warm up the '%s' transformer.", claimType), e);
+			}
+		}
+		return syntheticClaims;
+	}
+
+	/**
+	 * Creates a synthetic instance of the specified JPA entity {@link Class},
+	 * which has {@link #SYNTHETIC_VALUES} for all of its required
+	 * ({@link Id} and non-nullable {@link Column}) fields, and (for claims)
+	 * one synthetic line.
+	 *
+	 * @param entityClass
+	 *            the JPA entity {@link Class} to create an instance of
+	 * @param parent
+	 *            the synthetic claim that the new entity is a line of, or
+	 *            <code>null</code> if it's a claim itself
+	 * @return a new synthetic instance of the specified JPA entity
+	 *         {@link Class}
+	 * @throws ReflectiveOperationException
+	 *             Any {@link ReflectiveOperationException}s encountered will
+	 *             be bubbled up.
+	 */
+	private static Object createSyntheticEntity(Class<?> entityClass, Object parent)
+			throws ReflectiveOperationException {
+		Object entity = entityClass.getDeclaredConstructor().newInstance();
+		for (Field field : entityClass.getDeclaredFields()) {
+			if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive())
+				continue;
+			field.setAccessible(true);
+
+			if (parent != null && field.getType().isInstance(parent)) {
+				field.set(entity, parent);
+			} else if (field.isAnnotationPresent(OneToMany.class) && List.class.isAssignableFrom(field.getType())) {
+				Class<?> lineClass = (Class<?>) ((ParameterizedType) field.getGenericType())
+						.getActualTypeArguments()[0];
+				List<Object> lines = new ArrayList<>();
+				lines.add(createSyntheticEntity(lineClass, entity));
+				field.set(entity, lines);
+			} else if (field.isAnnotationPresent(Id.class)
+					|| (field.isAnnotationPresent(Column.class) && !field.getAnnotation(Column.class).nullable())) {
+				field.set(entity, SYNTHETIC_VALUES.get(field.getType()));
+			}
+		}
+		return entity;
+	}
+
+	/**
+	 * @return the value to use for {@link #SYNTHETIC_VALUES}
+	 */
+	private static Map<Class<?>, Object> createSyntheticValues() {
+		Map<Class<?>, Object> syntheticValues = new HashMap<>();
+		syntheticValues.put(String.class, "01");
+		syntheticValues.put(Character.class, 'C');
+		syntheticValues.put(Short.class, (short) 0);
+		syntheticValues.put(Integer.class, 0);
+		syntheticValues.put(Long.class, 0L);
+		syntheticValues.put(BigDecimal.class, BigDecimal.ZERO);
+		syntheticValues.put(LocalDate.class, LocalDate.of(2000, 1, 1));
+		return Collections.unmodifiableMap(syntheticValues);
+	}
+
+	/**
+	 * Encodes the specified resources (along with some representative
+	 * synthetic ones) as both JSON and XML, and then parses them back.
+	 *
+	 * @param fhirContext
+	 *            the {@link FhirContext} to use
+	 * @param resources
+	 *            the resources produced by the other warm-up steps
+	 * @return an empty {@link List}, as this step doesn't produce any new
+	 *         resources
+	 */
+	private List<? extends IBaseResource> warmUpEncoding(FhirContext fhirContext, List<IBaseResource> resources) {
+		Bundle bundle = new Bundle();
+		bundle.setType(BundleType.SEARCHSET);
+		for (IBaseResource resource : createSyntheticResources())
+			bundle.addEntry().setResource((Resource) resource);
+		for (IBaseResource resource : resources)
+			bundle.addEntry().setResource((Resource) resource);
+		bundle.setTotal(bundle.getEntry().size());
+
+		for (IParser parser : new IParser[] { fhirContext.newJsonParser(), fhirContext.newXmlParser() }) {
+			String encodedBundle = parser.encodeResourceToString(bundle);
+			parser.parseResource(Bundle.class, encodedBundle);
+		}
+
+		return Collections.emptyList();
+	}
+
+	/**
+	 * @return some synthetic resources that are representative of (though much
+	 *         smaller than) what the application produces
+	 */
+	private List<IBaseResource> createSyntheticResources() {
+		List<IBaseResource> resources = new ArrayList<>();
+
+		Patient patient = new Patient();
+		patient.setId(beneficiaryId);
+		patient.addIdentifier().setSystem(BeneficiaryTransformer.CODING_SYSTEM_CCW_BENE_HICN_HASH).setValue("0");
+		patient.addName().setFamily("Warmup").addGiven("Synthetic");
+		patient.setBirthDate(new Date(0L));
+		resources.add(patient);
+
+		Coverage coverage = new Coverage();
+		coverage.setId(String.format("%s-%s", MedicareSegment.PART_A.getUrlPrefix(), beneficiaryId));
+		coverage.setStatus(CoverageStatus.ACTIVE);
+		coverage.setBeneficiary(new Reference(patient));
+		resources.add(coverage);
+
+		for (ClaimType claimType : ClaimType.values()) {
+			ExplanationOfBenefit eob = new ExplanationOfBenefit();
+			eob.setId(String.format("%s-%s", claimType.name().toLowerCase(), beneficiaryId));
+			eob.setStatus(ExplanationOfBenefitStatus.ACTIVE);
+			eob.setPatient(new Reference(patient));
+			eob.getBillablePeriod().setStart(new Date(0L)).setEnd(new Date());
+			eob.addDiagnosis().setSequence(1);
+			eob.addItem().setSequence(1).setNet((Money) new Money().setValue(BigDecimal.ONE));
+			resources.add(eob);
+		}
+
+		return resources;
+	}
+}
@@ -0,0 +1,250 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import javax.persistence.QueryTimeoutException;
+
+import com.codahale.metrics.Meter;
+
+/**
+ * <p>
+ * Coalesces identical concurrent operations: while an operation for a given
+ * key is in flight, any other callers asking for that same key will just wait
+ * for it to complete and share its result, rather than running the operation
+ * again. Partner applications frequently fire off identical requests at the
+ * same time (e.g. the same beneficiary's claims, from several browser tabs or
+ * from retries), and there's no sense in querying the database for each.
+ * </p>
+ * <p>
+ * The results of each operation are only shared with the callers that were
+ * waiting on it: nothing is cached once the operation completes. As the HAPI
+ * framework may modify the resources returned by the providers, whenever an
+ * operation's result is shared, each caller gets its own copy of it (results
+ * that aren't shared aren't copied). Failures are shared, too: each waiting
+ * caller will get the same exception that the original caller did.
+ * </p>
+ * <p>
+ * Each caller's {@link QueryDeadline} still applies to it alone. A shared
+ * operation runs under the deadline of the caller that started it, and the
+ * others only wait for it until their own deadlines pass. If the operation
+ * instead fails because the caller that started it ran out of time, the
+ * others don't share that failure: they each try again, under their own
+ * deadlines. That way, a client asking for a short deadline can't cut short
+ * everyone else's identical requests.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @param <K>
+ *            the type of the keys that identify identical operations, which
+ *            must have appropriate {@link Object#equals(Object)} and
+ *            {@link Object#hashCode()} implementations
+ * @param <V>
+ *            the type of the operations' results
+ */
+final class SingleFlight<K, V> {
+	private final ConcurrentMap<K, Flight<V>> inFlight;
+	private final UnaryOperator<V> copier;
+	private final Meter coalesced;
+
+	/**
+	 * Constructs a new {@link SingleFlight}.
+	 *
+	 * @param copier
+	 *            the {@link UnaryOperator} that will be used to copy the result
+	 *            of each shared operation for each caller
+	 * @param coalesced
+	 *            the {@link Meter} to mark every time a call is coalesced into
+	 *            an already in-flight operation
+	 */
+	SingleFlight(UnaryOperator<V> copier, Meter coalesced) {
+		this.inFlight = new ConcurrentHashMap<>();
+		this.copier = copier;
+		this.coalesced = coalesced;
+	}
+
+	/**
+	 * @param key
+	 *            the key that identifies the operation
+	 * @param operation
+	 *            the operation to run, if there isn't already one in flight
+	 *            for the specified key
+	 * @return the result of the operation (or a copy of it, if it was shared)
+	 * @throws QueryTimeoutException
+	 *             A {@link QueryTimeoutException} will be thrown if the
+	 *             current thread's {@link QueryDeadline} passes while it's
+	 *             waiting on an identical operation.
+	 */
+	V execute(K key, Supplier<V> operation) {
+		Optional<QueryDeadline> deadline = QueryDeadline.getCurrent();
+		while (true) {
+			Flight<V> flight = new Flight<>();
+			Flight<V> existingFlight = inFlight.putIfAbsent(key, flight);
+			if (existingFlight == null)
+				return lead(key, flight, operation);
+
+			/*
+			 * If the existing Flight has already finished (without anyone
+			 * waiting on it), it's about to be removed: just start over. The
+			 * same goes for Flights that ran out of their own time.
+			 */
+			if (existingFlight.join()) {
+				coalesced.mark();
+				if (existingFlight.await(deadline))
+					return copier.apply(existingFlight.getResult());
+			}
+		}
+	}
+
+	/**
+	 * Runs the specified operation, sharing its result with any callers that
+	 * join its {@link Flight} while it's running.
+	 *
+	 * @param key
+	 *            the key that identifies the operation
+	 * @param flight
+	 *            the {@link Flight} for the operation, which has already been
+	 *            added to {@link #inFlight}
+	 * @param operation
+	 *            the operation to run
+	 * @return the result of the operation (or a copy of it, if it was shared)
+	 */
+	private V lead(K key, Flight<V> flight, Supplier<V> operation) {
+		V result;
+		try {
+			result = operation.get();
+		} catch (RuntimeException | Error e) {
+			inFlight.remove(key, flight);
+			flight.deadlineExceeded = QueryDeadline.isTimeout(e);
+			flight.result.completeExceptionally(e);
+			throw e;
+		}
+
+		inFlight.remove(key, flight);
+		flight.result.complete(result);
+
+		/*
+		 * The original result must not be handed back (where it might be
+		 * modified) while other callers might still be copying it.
+		 */
+		if (flight.close())
+			return result;
+		return copier.apply(result);
+	}
+
+	/**
+	 * Tracks an in-flight operation, and the callers waiting on it.
+	 *
+	 * @param <V>
+	 *            the type of the operation's result
+	 */
+	private static final class Flight<V> {
+		/**
+		 * The number of callers that have joined this {@link Flight}, or
+		 * <code>-1</code> if it was closed before any joined.
+		 */
+		private final AtomicInteger waiters;
+		private final CompletableFuture<V> result;
+
+		/**
+		 * Whether the operation failed because its caller's
+		 * {@link QueryDeadline} passed, which is only read once
+		 * {@link #result} has completed.
+		 */
+		private volatile boolean deadlineExceeded;
+
+		/**
+		 * Constructs a new {@link Flight}.
+		 */
+		Flight() {
+			this.waiters = new AtomicInteger(0);
+			this.result = new CompletableFuture<>();
+		}
+
+		/**
+		 * @return <code>true</code> if the caller has joined this
+		 *         {@link Flight}, and should {@link #await()} its result,
+		 *         <code>false</code> if it was already closed
+		 */
+		boolean join() {
+			while (true) {
+				int currentWaiters = waiters.get();
+				if (currentWaiters < 0)
+					return false;
+				if (waiters.compareAndSet(currentWaiters, currentWaiters + 1))
+					return true;
+			}
+		}
+
+		/**
+		 * @return <code>true</code> if this {@link Flight} was closed with no
+		 *         callers having joined it, <code>false</code> if some did
+		 */
+		boolean close() {
+			return waiters.compareAndSet(0, -1);
+		}
+
+		/**
+		 * Waits for the operation to complete, though not past the specified
+		 * {@link QueryDeadline}.
+		 *
+		 * @param deadline
+		 *            the waiting caller's own {@link QueryDeadline}, if any
+		 * @return <code>true</code> if the caller should share the
+		 *         operation's {@link #getResult()}, <code>false</code> if the
+		 *         operation ran out of its own caller's time, and the caller
+		 *         should try again
+		 * @throws QueryTimeoutException
+		 *             A {@link QueryTimeoutException} will be thrown if the
+		 *             waiting caller's deadline passes first.
+		 */
+		boolean await(Optional<QueryDeadline> deadline) {
+			if (deadline.isPresent()) {
+				try {
+					result.get(Math.max(0L, deadline.get().getRemainingMillis()), TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					throw new QueryTimeoutException("Request deadline exceeded: identical request still running.");
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException(e);
+				} catch (ExecutionException e) {
+					// Handled below.
+				}
+			} else {
+				try {
+					result.join();
+				} catch (CompletionException e) {
+					// Handled below.
+				}
+			}
+
+			return !deadlineExceeded;
+		}
+
+		/**
+		 * @return the result of the (completed) operation
+		 */
+		V getResult() {
+			try {
+				return result.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				if (e.getCause() instanceof Error)
+					throw (Error) e.getCause();
+				throw e;
+			}
+		}
+	}
+}
@@ -206,14 +206,12 @@ final class TransformerUtils {
 
 		Optional<ProcedureComponent> existingProcedure = eob.getProcedure().stream()
 				.filter(pc -> pc.getProcedure() instanceof CodeableConcept)
-				.filter(pc -> isCodeInConcept((CodeableConcept) pc.getProcedure(), procedure.getFhirSystem(),
-						procedure.getCode()))
-				.findAny();
+				.filter(pc -> procedure.isContainedIn((CodeableConcept) pc.getProcedure())).findAny();
 		if (existingProcedure.isPresent())
 			return existingProcedure.get().getSequenceElement().getValue();
 
 		ProcedureComponent procedureComponent = new ProcedureComponent().setSequence(eob.getProcedure().size() + 1);
-		procedureComponent.setProcedure(createCodeableConcept(procedure.getFhirSystem(), procedure.getCode()));
+		procedureComponent.setProcedure(procedure.toCodeableConcept());
 		procedureComponent.setDate(convertToDate(procedure.getProcedureDate()));
 
 		eob.getProcedure().add(procedureComponent);
@@ -496,7 +494,7 @@ final class TransformerUtils {
 		// We are seeing this scenario in production where the from date is
 		// after the through date so we are just logging the error for now.
 		if (dateFrom.isAfter(dateThrough))
-			LOGGER.debug(String.format("Error - From Date '%s' is after the Through Date '%s'", dateFrom, dateThrough));
+			LOGGER.debug("Error - From Date '{}' is after the Through Date '{}'", dateFrom, dateThrough);
 	}
 
 	/**
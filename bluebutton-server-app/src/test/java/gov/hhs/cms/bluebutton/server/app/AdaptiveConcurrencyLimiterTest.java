@@ -0,0 +1,81 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link AdaptiveConcurrencyLimiter}.
+ */
+public final class AdaptiveConcurrencyLimiterTest {
+	/**
+	 * Verifies that {@link AdaptiveConcurrencyLimiter#acquire()} rejects
+	 * requests once its limit has been reached, and admits them again once
+	 * permits have been released.
+	 */
+	@Test
+	public void rejectsAtLimit() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 2, 10);
+
+		Assert.assertTrue(limiter.acquire());
+		Assert.assertTrue(limiter.acquire());
+		Assert.assertFalse(limiter.acquire());
+		Assert.assertEquals(2, limiter.getInFlight());
+
+		limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+		Assert.assertTrue(limiter.acquire());
+	}
+
+	/**
+	 * Verifies that {@link AdaptiveConcurrencyLimiter} lowers its limit when
+	 * latencies climb, and raises it again once they recover (but only if
+	 * there's demand for it).
+	 */
+	@Test
+	public void adaptsToLatency() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 100, 0);
+		Assert.assertEquals(100, limiter.getLimit());
+
+		// Establish the "no load" latency.
+		runWindows(limiter, 1, 10, TimeUnit.MILLISECONDS.toNanos(10));
+		Assert.assertEquals(100, limiter.getLimit());
+
+		// Latency spikes: the limit should come down, a lot.
+		runWindows(limiter, 10, 10, TimeUnit.MILLISECONDS.toNanos(100));
+		int reducedLimit = limiter.getLimit();
+		Assert.assertTrue("Limit: " + reducedLimit, reducedLimit < 50);
+
+		// Latency recovers, but with very little demand: the limit holds.
+		runWindows(limiter, 10, 1, TimeUnit.MILLISECONDS.toNanos(10));
+		Assert.assertEquals(reducedLimit, limiter.getLimit());
+
+		// Latency recovers, and there's demand: the limit goes back up.
+		runWindows(limiter, 10, reducedLimit, TimeUnit.MILLISECONDS.toNanos(10));
+		Assert.assertTrue("Limit: " + limiter.getLimit(), limiter.getLimit() > reducedLimit);
+	}
+
+	/**
+	 * @param limiter
+	 *            the {@link AdaptiveConcurrencyLimiter} to run the simulated
+	 *            requests through
+	 * @param windows
+	 *            the number of full windows' worth of requests to simulate
+	 * @param concurrency
+	 *            the number of requests to simulate being in flight at once
+	 * @param rttNanos
+	 *            the simulated latency of each request
+	 */
+	private static void runWindows(AdaptiveConcurrencyLimiter limiter, int windows, int concurrency,
+			long rttNanos) {
+		int requests = windows * AdaptiveConcurrencyLimiter.WINDOW_SAMPLES;
+		while (requests > 0) {
+			int batch = Math.min(requests, concurrency);
+			for (int i = 0; i < batch; i++)
+				Assert.assertTrue(limiter.acquire());
+			for (int i = 0; i < batch; i++)
+				limiter.release(rttNanos);
+			requests -= batch;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Unit tests for {@link AsyncRequestExecutor}.
+ */
+public final class AsyncRequestExecutorTest {
+	/**
+	 * Verifies that {@link AsyncRequestExecutor} hands
+	 * <code>ExplanationOfBenefit</code> searches off to a worker thread, runs
+	 * their completion tasks there (in reverse order), and then completes
+	 * them.
+	 *
+	 * @throws Exception
+	 *             (indicates a test error)
+	 */
+	@Test
+	public void dispatchesEobSearches() throws Exception {
+		MetricRegistry metricRegistry = new MetricRegistry();
+		AsyncRequestExecutor executor = new AsyncRequestExecutor(true, ExecutorMode.PLATFORM, 1,
+				new Bulkheads(true, 4, 0, metricRegistry), metricRegistry);
+		try {
+			CompletableFuture<Void> completed = new CompletableFuture<>();
+			HttpServletRequest request = createRequest("/ExplanationOfBenefit", completed);
+			List<String> events = new CopyOnWriteArrayList<>();
+			AsyncRequestExecutor.addCompletionTask(request, () -> events.add("outer"));
+			AsyncRequestExecutor.addCompletionTask(request, () -> events.add("inner"));
+
+			Thread callerThread = Thread.currentThread();
+			boolean dispatched = executor.dispatch(request, createResponse(), () -> {
+				Assert.assertNotSame(callerThread, Thread.currentThread());
+				events.add("handled");
+			});
+
+			Assert.assertTrue(dispatched);
+			Assert.assertTrue(AsyncRequestExecutor.isDispatched(request));
+			completed.get(10, TimeUnit.SECONDS);
+			Assert.assertEquals(Arrays.asList("handled", "inner", "outer"), events);
+		} finally {
+			executor.close();
+		}
+	}
+
+	/**
+	 * Verifies that {@link AsyncRequestExecutor} leaves other requests (and
+	 * everything, when disabled) to be processed synchronously.
+	 */
+	@Test
+	public void leavesOtherRequestsAlone() {
+		MetricRegistry metricRegistry = new MetricRegistry();
+		Bulkheads bulkheads = new Bulkheads(true, 4, 0, metricRegistry);
+
+		AsyncRequestExecutor enabledExecutor = new AsyncRequestExecutor(true, ExecutorMode.PLATFORM, 1, bulkheads,
+				metricRegistry);
+		try {
+			HttpServletRequest request = createRequest("/ExplanationOfBenefit/carrier-123", null);
+			Assert.assertFalse(enabledExecutor.dispatch(request, createResponse(), () -> Assert.fail()));
+			Assert.assertFalse(AsyncRequestExecutor.isDispatched(request));
+		} finally {
+			enabledExecutor.close();
+		}
+
+		AsyncRequestExecutor disabledExecutor = new AsyncRequestExecutor(false, ExecutorMode.PLATFORM, 1, bulkheads,
+				new MetricRegistry());
+		try {
+			HttpServletRequest request = createRequest("/ExplanationOfBenefit", null);
+			Assert.assertFalse(disabledExecutor.dispatch(request, createResponse(), () -> Assert.fail()));
+		} finally {
+			disabledExecutor.close();
+		}
+	}
+
+	/**
+	 * @param pathInfo
+	 *            the {@link HttpServletRequest#getPathInfo()} value to use
+	 * @param completed
+	 *            the {@link CompletableFuture} to complete when
+	 *            {@link AsyncContext#complete()} is called, or
+	 *            <code>null</code> if async processing isn't expected
+	 * @return a minimal fake {@link HttpServletRequest}
+	 */
+	private static HttpServletRequest createRequest(String pathInfo, CompletableFuture<Void> completed) {
+		Map<String, Object> attributes = new HashMap<>();
+		AsyncContext asyncContext = (AsyncContext) Proxy.newProxyInstance(AsyncContext.class.getClassLoader(),
+				new Class<?>[] { AsyncContext.class }, (proxy, method, args) -> {
+					if (method.getName().equals("complete"))
+						completed.complete(null);
+					return null;
+				});
+
+		return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getPathInfo":
+						return pathInfo;
+					case "isAsyncSupported":
+						return true;
+					case "startAsync":
+						Assert.assertNotNull(completed);
+						return asyncContext;
+					case "getAttribute":
+						return attributes.get(args[0]);
+					case "setAttribute":
+						attributes.put((String) args[0], args[1]);
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	/**
+	 * @return a minimal fake {@link HttpServletResponse}
+	 */
+	private static HttpServletResponse createResponse() {
+		return (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(),
+				new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+					throw new UnsupportedOperationException(method.getName());
+				});
+	}
+}
@@ -0,0 +1,104 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.sql.Connection;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Unit tests for {@link BulkheadDataSource}.
+ */
+public final class BulkheadDataSourceTest {
+	/**
+	 * Verifies that {@link BulkheadDataSource} limits each {@link Bulkhead} to
+	 * its own share of connections, without affecting the other
+	 * {@link Bulkhead}s.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void isolatesBulkheads() throws Exception {
+		// With 2 connections total, each Bulkhead gets just 1.
+		Bulkheads bulkheads = new Bulkheads(true, 2, 0, new MetricRegistry());
+		BulkheadDataSource dataSource = new BulkheadDataSource(
+				new DriverManagerDataSource("jdbc:hsqldb:mem:bulkheadDataSource", "SA", ""), bulkheads);
+
+		Assert.assertTrue(bulkheads.enter(Bulkhead.EOB));
+		try (Connection eobConnection = dataSource.getConnection()) {
+			try (Connection extraConnection = dataSource.getConnection()) {
+				Assert.fail();
+			} catch (SQLTransientConnectionException e) {
+				// Expected: the EOB bulkhead is full.
+			}
+
+			// The EOB requests being stuck shouldn't affect Patient lookups.
+			CompletableFuture.runAsync(() -> {
+				Assert.assertTrue(bulkheads.enter(Bulkhead.PATIENT_IDENTIFIER));
+				try (Connection patientConnection = dataSource.getConnection()) {
+					Assert.assertTrue(patientConnection.isValid(1));
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				} finally {
+					bulkheads.exit(Bulkhead.PATIENT_IDENTIFIER);
+				}
+			}).get(10, TimeUnit.SECONDS);
+		}
+
+		// Once the connection is closed, its permit should be available again.
+		try (Connection eobConnection = dataSource.getConnection()) {
+			Assert.assertTrue(eobConnection.isValid(1));
+		}
+		bulkheads.exit(Bulkhead.EOB);
+		Assert.assertFalse(bulkheads.getCurrent().isPresent());
+	}
+
+	/**
+	 * Verifies that {@link Bulkheads} never hands out more connection permits
+	 * in total than there are connections, other than for pools too small to
+	 * give every {@link Bulkhead} one.
+	 */
+	@Test
+	public void neverOversubscribes() {
+		double sharesTotal = 0.0;
+		for (Bulkhead bulkhead : Bulkhead.values())
+			sharesTotal += bulkhead.getConnectionsShare();
+		Assert.assertTrue(sharesTotal <= 1.0);
+
+		for (int connectionsMax = 7; connectionsMax <= 200; connectionsMax++) {
+			MetricRegistry metricRegistry = new MetricRegistry();
+			new Bulkheads(true, connectionsMax, 0, metricRegistry);
+
+			int permitsTotal = 0;
+			for (Bulkhead bulkhead : Bulkhead.values()) {
+				Gauge<?> permits = metricRegistry.getGauges().get(MetricRegistry.name(Bulkheads.class,
+						bulkhead.getMetricName(), "connections", "available"));
+				permitsTotal += (Integer) permits.getValue();
+			}
+			Assert.assertTrue(String.format("%d permits for %d connections.", permitsTotal, connectionsMax),
+					permitsTotal <= connectionsMax);
+		}
+	}
+
+	/**
+	 * Verifies that {@link BulkheadDataSource#getConnection(String, String)}
+	 * reports that it's unsupported in the standard JDBC way.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test(expected = SQLFeatureNotSupportedException.class)
+	public void getConnectionWithCredentials() throws Exception {
+		Bulkheads bulkheads = new Bulkheads(true, 2, 0, new MetricRegistry());
+		new BulkheadDataSource(new DriverManagerDataSource("jdbc:hsqldb:mem:bulkheadDataSource", "SA", ""), bulkheads)
+				.getConnection("SA", "");
+	}
+}
@@ -0,0 +1,110 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.hl7.fhir.dstu3.model.CapabilityStatement;
+import org.junit.Assert;
+import org.junit.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.server.EncodingEnum;
+import ca.uhn.fhir.rest.server.IServerConformanceProvider;
+import ca.uhn.fhir.rest.server.RestfulServer;
+import gov.hhs.cms.bluebutton.server.app.CapabilityStatementCacheInterceptor.EncodedStatement;
+
+/**
+ * Unit tests for {@link CapabilityStatementCacheInterceptor}.
+ */
+public final class CapabilityStatementCacheInterceptorTest {
+	/**
+	 * Verifies that {@link CapabilityStatementCacheInterceptor} caches a
+	 * separate {@link CapabilityStatement} for each server base URL, so that
+	 * clients never get one that was generated for another client's base URL.
+	 */
+	@Test
+	public void cachePerServerBase() {
+		RestfulServer server = new RestfulServer(FhirContext.forDstu3()) {
+			private static final long serialVersionUID = 1L;
+
+			/**
+			 * @see ca.uhn.fhir.rest.server.RestfulServer#getServerBaseForRequest(javax.servlet.http.HttpServletRequest)
+			 */
+			@Override
+			public String getServerBaseForRequest(HttpServletRequest request) {
+				return request.getRequestURL().toString();
+			}
+		};
+		server.setServerConformanceProvider(new IServerConformanceProvider<CapabilityStatement>() {
+			/**
+			 * @see ca.uhn.fhir.rest.server.IServerConformanceProvider#getServerConformance(javax.servlet.http.HttpServletRequest)
+			 */
+			@Override
+			public CapabilityStatement getServerConformance(HttpServletRequest request) {
+				CapabilityStatement capabilityStatement = new CapabilityStatement();
+				capabilityStatement.getImplementation().setUrl(request.getRequestURL().toString());
+				return capabilityStatement;
+			}
+
+			/**
+			 * @see ca.uhn.fhir.rest.server.IServerConformanceProvider#setRestfulServer(ca.uhn.fhir.rest.server.RestfulServer)
+			 */
+			@Override
+			public void setRestfulServer(RestfulServer restfulServer) {
+				// Nothing to do here.
+			}
+		});
+		CapabilityStatementCacheInterceptor interceptor = new CapabilityStatementCacheInterceptor(server);
+
+		Map<EncodingEnum, EncodedStatement> firstStatements = interceptor
+				.getEncodedStatements(createRequest("https://first.example.com/baseDstu3"));
+		Map<EncodingEnum, EncodedStatement> secondStatements = interceptor
+				.getEncodedStatements(createRequest("https://second.example.com/baseDstu3"));
+		Assert.assertTrue(decode(firstStatements).contains("first.example.com"));
+		Assert.assertTrue(decode(secondStatements).contains("second.example.com"));
+		Assert.assertFalse(decode(secondStatements).contains("first.example.com"));
+
+		// Repeat requests for the same base URL should be served from the cache.
+		Assert.assertSame(firstStatements,
+				interceptor.getEncodedStatements(createRequest("https://first.example.com/baseDstu3")));
+
+		// Past the cache's limit, statements are still correct, just not cached.
+		for (int i = 0; i < CapabilityStatementCacheInterceptor.MAX_CACHED_BASE_URLS; i++)
+			interceptor.getEncodedStatements(createRequest("https://other" + i + ".example.com/baseDstu3"));
+		Map<EncodingEnum, EncodedStatement> uncachedStatements = interceptor
+				.getEncodedStatements(createRequest("https://uncached.example.com/baseDstu3"));
+		Assert.assertTrue(decode(uncachedStatements).contains("uncached.example.com"));
+		Assert.assertNotSame(uncachedStatements,
+				interceptor.getEncodedStatements(createRequest("https://uncached.example.com/baseDstu3")));
+	}
+
+	/**
+	 * @param requestUrl
+	 *            the value to use for
+	 *            {@link HttpServletRequest#getRequestURL()}
+	 * @return a minimal fake {@link HttpServletRequest}
+	 */
+	private static HttpServletRequest createRequest(String requestUrl) {
+		return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getRequestURL":
+						return new StringBuffer(requestUrl);
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	/**
+	 * @param statements
+	 *            the {@link EncodedStatement}s to decode the JSON one of
+	 * @return the JSON-encoded {@link CapabilityStatement}, as text
+	 */
+	private static String decode(Map<EncodingEnum, EncodedStatement> statements) {
+		return new String(statements.get(EncodingEnum.JSON).getBytes(), StandardCharsets.UTF_8);
+	}
+}
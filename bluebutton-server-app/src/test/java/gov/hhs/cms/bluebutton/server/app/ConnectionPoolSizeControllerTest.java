@@ -0,0 +1,148 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.MetricRegistry;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Unit tests for {@link ConnectionPoolSizeController}.
+ */
+public final class ConnectionPoolSizeControllerTest {
+	/**
+	 * Verifies that {@link ConnectionPoolSizeController} grows a pool that
+	 * has threads waiting on it, and then shrinks it back down once the load
+	 * goes away.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void growsAndShrinks() throws Exception {
+		MetricRegistry metricRegistry = new MetricRegistry();
+		AtomicLong tickNanos = new AtomicLong(System.nanoTime());
+		Clock clock = createClock(tickNanos);
+		try (HikariDataSource dataSource = new HikariDataSource()) {
+			dataSource.setJdbcUrl("jdbc:hsqldb:mem:connectionPoolSizeController");
+			dataSource.setUsername("SA");
+			dataSource.setPassword("");
+			dataSource.setMaximumPoolSize(2);
+			dataSource.setMetricsTrackerFactory(
+					ConnectionPoolSizeController.createMetricsTrackerFactory(metricRegistry, clock));
+
+			try (ConnectionPoolSizeController controller = new ConnectionPoolSizeController(
+					Arrays.asList(dataSource), 1, 4, 0, metricRegistry, clock)) {
+				// Start the pool and establish the controller's baseline.
+				dataSource.getConnection().close();
+				controller.adjustPools();
+				Assert.assertEquals(2, dataSource.getMaximumPoolSize());
+
+				// Exhaust the pool, and then queue up another thread on it.
+				CompletableFuture<Void> waiter;
+				try (Connection connection1 = dataSource.getConnection();
+						Connection connection2 = dataSource.getConnection()) {
+					waiter = CompletableFuture.runAsync(() -> {
+						try (Connection connection3 = dataSource.getConnection()) {
+							// Nothing to do here.
+						} catch (Exception e) {
+							throw new IllegalStateException(e);
+						}
+					});
+					while (dataSource.getHikariPoolMXBean().getThreadsAwaitingConnection() < 1)
+						Thread.sleep(10);
+
+					tickNanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+					controller.adjustPools();
+					Assert.assertEquals(3, dataSource.getMaximumPoolSize());
+				}
+				waiter.get(10, TimeUnit.SECONDS);
+
+				// With no load at all, it should shrink back down.
+				tickNanos.addAndGet(TimeUnit.SECONDS.toNanos(ConnectionPoolSizeController.INTERVAL_SECONDS * 2));
+				controller.adjustPools();
+				Assert.assertEquals(2, dataSource.getMaximumPoolSize());
+				Assert.assertEquals(1L, metricRegistry.meter(MetricRegistry.name(ConnectionPoolSizeController.class,
+						dataSource.getPoolName(), "increases")).getCount());
+				Assert.assertEquals(1L, metricRegistry.meter(MetricRegistry.name(ConnectionPoolSizeController.class,
+						dataSource.getPoolName(), "decreases")).getCount());
+			}
+		}
+	}
+
+	/**
+	 * Verifies that {@link ConnectionPoolSizeController} only considers the
+	 * connection acquire times from its last interval, and so doesn't grow a
+	 * pool because of waits that have long since passed.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void ignoresStaleWaits() throws Exception {
+		MetricRegistry metricRegistry = new MetricRegistry();
+		AtomicLong tickNanos = new AtomicLong(System.nanoTime());
+		Clock clock = createClock(tickNanos);
+		try (HikariDataSource dataSource = new HikariDataSource()) {
+			dataSource.setJdbcUrl("jdbc:hsqldb:mem:connectionPoolSizeControllerStale");
+			dataSource.setUsername("SA");
+			dataSource.setPassword("");
+			dataSource.setMaximumPoolSize(1);
+			dataSource.setMetricsTrackerFactory(
+					ConnectionPoolSizeController.createMetricsTrackerFactory(metricRegistry, clock));
+
+			try (ConnectionPoolSizeController controller = new ConnectionPoolSizeController(
+					Arrays.asList(dataSource), 1, 4, 0, metricRegistry, clock)) {
+				dataSource.getConnection().close();
+				controller.adjustPools();
+
+				// Leave all of the pool's acquire times behind, in the past.
+				tickNanos.addAndGet(TimeUnit.SECONDS.toNanos(ConnectionPoolSizeController.INTERVAL_SECONDS + 1));
+
+				CompletableFuture<Void> waiter;
+				try (Connection connection1 = dataSource.getConnection()) {
+					waiter = CompletableFuture.runAsync(() -> {
+						try (Connection connection2 = dataSource.getConnection()) {
+							// Nothing to do here.
+						} catch (Exception e) {
+							throw new IllegalStateException(e);
+						}
+					});
+					while (dataSource.getHikariPoolMXBean().getThreadsAwaitingConnection() < 1)
+						Thread.sleep(10);
+
+					// That acquire just now was immediate, so shouldn't grow it.
+					tickNanos.addAndGet(TimeUnit.SECONDS.toNanos(ConnectionPoolSizeController.INTERVAL_SECONDS + 1));
+					controller.adjustPools();
+					Assert.assertEquals(1, dataSource.getMaximumPoolSize());
+				}
+				waiter.get(10, TimeUnit.SECONDS);
+			}
+		}
+	}
+
+	/**
+	 * @param tickNanos
+	 *            the value for the {@link Clock#getTick()} to return, which the
+	 *            test can advance as needed
+	 * @return a {@link Clock} that only moves when the test moves it
+	 */
+	private static Clock createClock(AtomicLong tickNanos) {
+		return new Clock() {
+			/**
+			 * @see com.codahale.metrics.Clock#getTick()
+			 */
+			@Override
+			public long getTick() {
+				return tickNanos.get();
+			}
+		};
+	}
+}
@@ -0,0 +1,73 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Arrays;
+
+import javax.persistence.PersistenceException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+
+/**
+ * Unit tests for {@link ConnectionUnavailableInterceptor}.
+ */
+public final class ConnectionUnavailableInterceptorTest {
+	/**
+	 * Verifies that {@link ConnectionUnavailableInterceptor} turns requests
+	 * that couldn't get a database connection into a
+	 * <code>503 Service Unavailable</code> with a <code>Retry-After</code>
+	 * header, no matter how deeply HAPI and Hibernate have wrapped the
+	 * failure.
+	 */
+	@Test
+	public void rejectsUnavailableConnections() {
+		ConnectionUnavailableInterceptor interceptor = new ConnectionUnavailableInterceptor(new MetricRegistry());
+
+		BaseServerResponseException response = interceptor.preProcessOutgoingException(null,
+				new InternalErrorException("oops", new PersistenceException(
+						new SQLTransientConnectionException("No database connections available for bulkhead 'eob'."))),
+				createRequest());
+		Assert.assertNotNull(response);
+		Assert.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatusCode());
+		Assert.assertEquals(Arrays.asList(String.valueOf(LoadSheddingFilter.RETRY_AFTER_SECONDS)),
+				response.getResponseHeaders().get(LoadSheddingFilter.HEADER_RETRY_AFTER));
+	}
+
+	/**
+	 * Verifies that {@link ConnectionUnavailableInterceptor} leaves other
+	 * failures alone.
+	 */
+	@Test
+	public void ignoresOtherFailures() {
+		ConnectionUnavailableInterceptor interceptor = new ConnectionUnavailableInterceptor(new MetricRegistry());
+
+		Assert.assertNull(
+				interceptor.preProcessOutgoingException(null, new IllegalArgumentException(), createRequest()));
+		Assert.assertNull(interceptor.preProcessOutgoingException(null,
+				new InternalErrorException("oops", new PersistenceException(new SQLException())), createRequest()));
+	}
+
+	/**
+	 * @return a minimal fake {@link HttpServletRequest}
+	 */
+	private static HttpServletRequest createRequest() {
+		return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getRequestURI":
+						return "/baseDstu3/ExplanationOfBenefit";
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+}
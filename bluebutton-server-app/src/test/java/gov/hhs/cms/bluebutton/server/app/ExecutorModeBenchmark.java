@@ -0,0 +1,138 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * A rough benchmark that compares the {@link ExecutorMode}s under a large
+ * number of concurrent clients, each of which runs a simulated
+ * <code>ExplanationOfBenefit</code> search: one blocking "query" per claim
+ * type, with a {@link Semaphore} standing in for the database connection
+ * pool.
+ * </p>
+ * <p>
+ * This isn't run as part of the build. Run it manually, e.g.:
+ * </p>
+ *
+ * <pre>
+ * java -cp ... gov.hhs.cms.bluebutton.server.app.ExecutorModeBenchmark [clients] [connections] [queryMillis]
+ * </pre>
+ */
+public final class ExecutorModeBenchmark {
+	private static final int CLAIM_TYPES = 8;
+
+	/**
+	 * The benchmark's entry point.
+	 *
+	 * @param args
+	 *            (optional) the number of concurrent clients, the number of
+	 *            database connections, and the simulated query latency (in
+	 *            milliseconds)
+	 * @throws Exception
+	 *             (indicates a benchmark error)
+	 */
+	public static void main(String[] args) throws Exception {
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int connections = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+		long queryMillis = args.length > 2 ? Long.parseLong(args[2]) : 5;
+		int platformThreads = Runtime.getRuntime().availableProcessors() * 2;
+
+		System.out.printf("%d clients, %d connections, %d ms per query%n", clients, connections, queryMillis);
+
+		ExecutorService platformExecutor = Executors.newFixedThreadPool(platformThreads);
+		try {
+			run(String.format("platform (%d threads)", platformThreads), platformExecutor, Runnable::run, clients,
+					connections, queryMillis);
+		} finally {
+			platformExecutor.shutdown();
+		}
+
+		if (ExecutorMode.resolve(ExecutorMode.VIRTUAL.name()) != ExecutorMode.VIRTUAL) {
+			System.out.println("virtual: not supported by this JVM");
+			return;
+		}
+		ExecutorService virtualExecutor = ExecutorMode.newVirtualThreadExecutor();
+		try {
+			run("virtual", virtualExecutor, virtualExecutor, clients, connections, queryMillis);
+		} finally {
+			virtualExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * Runs one round of the benchmark, and prints its results.
+	 *
+	 * @param label
+	 *            the label to print the results with
+	 * @param requestExecutor
+	 *            the {@link ExecutorService} to run each client's request on
+	 * @param queryExecutor
+	 *            the {@link Executor} to run each request's per-claim-type
+	 *            queries via
+	 * @param clients
+	 *            the number of concurrent clients to simulate
+	 * @param connections
+	 *            the number of database connections to simulate
+	 * @param queryMillis
+	 *            how long each simulated query should take
+	 * @throws Exception
+	 *             (indicates a benchmark error)
+	 */
+	private static void run(String label, ExecutorService requestExecutor, Executor queryExecutor, int clients,
+			int connections, long queryMillis) throws Exception {
+		Semaphore connectionPool = new Semaphore(connections, true);
+		long[] latencies = new long[clients];
+
+		long start = System.nanoTime();
+		List<CompletableFuture<Void>> requests = new ArrayList<>(clients);
+		for (int i = 0; i < clients; i++) {
+			int client = i;
+			long submitted = System.nanoTime();
+			requests.add(CompletableFuture.runAsync(() -> {
+				List<CompletableFuture<Void>> queries = new ArrayList<>(CLAIM_TYPES);
+				for (int claimType = 0; claimType < CLAIM_TYPES; claimType++)
+					queries.add(CompletableFuture.runAsync(() -> query(connectionPool, queryMillis), queryExecutor));
+				queries.forEach(CompletableFuture::join);
+				latencies[client] = System.nanoTime() - submitted;
+			}, requestExecutor));
+		}
+		CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[requests.size()])).get(10,
+				TimeUnit.MINUTES);
+		long elapsed = System.nanoTime() - start;
+
+		Arrays.sort(latencies);
+		System.out.printf("%s: %.1f requests/s, p50 %d ms, p99 %d ms%n", label,
+				clients / (elapsed / 1_000_000_000.0), TimeUnit.NANOSECONDS.toMillis(latencies[clients / 2]),
+				TimeUnit.NANOSECONDS.toMillis(latencies[(int) (clients * 0.99)]));
+	}
+
+	/**
+	 * Simulates a single database query.
+	 *
+	 * @param connectionPool
+	 *            the {@link Semaphore} standing in for the connection pool
+	 * @param queryMillis
+	 *            how long the query should take
+	 */
+	private static void query(Semaphore connectionPool, long queryMillis) {
+		try {
+			connectionPool.acquire();
+			try {
+				Thread.sleep(queryMillis);
+			} finally {
+				connectionPool.release();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ExecutorMode}.
+ */
+public final class ExecutorModeTest {
+	/**
+	 * Verifies that {@link ExecutorMode#resolveAdmissionControl(String, boolean)}
+	 * leaves load shedding and the bulkheads as configured in
+	 * {@link ExecutorMode#PLATFORM} mode, but always disables them in
+	 * {@link ExecutorMode#VIRTUAL} mode.
+	 */
+	@Test
+	public void resolveAdmissionControl() {
+		Assert.assertTrue(
+				ExecutorMode.PLATFORM.resolveAdmissionControl(SpringConfiguration.PROP_BULKHEADS_ENABLED, true));
+		Assert.assertFalse(
+				ExecutorMode.PLATFORM.resolveAdmissionControl(SpringConfiguration.PROP_BULKHEADS_ENABLED, false));
+		Assert.assertFalse(
+				ExecutorMode.VIRTUAL.resolveAdmissionControl(SpringConfiguration.PROP_BULKHEADS_ENABLED, true));
+		Assert.assertFalse(
+				ExecutorMode.VIRTUAL.resolveAdmissionControl(SpringConfiguration.PROP_LOAD_SHEDDING_ENABLED, false));
+	}
+}
@@ -0,0 +1,239 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Unit tests for {@link ReplicaRoutingDataSource}.
+ */
+public final class ReplicaRoutingDataSourceTest {
+	private static final String URL_PRIMARY = "jdbc:hsqldb:mem:replicaRoutingPrimary";
+	private static final String URL_REPLICA_A = "jdbc:hsqldb:mem:replicaRoutingA";
+	private static final String URL_REPLICA_B = "jdbc:hsqldb:mem:replicaRoutingB";
+	private static final String URL_REPLICA_DOWN = "jdbc:hsqldb:hsql://localhost:1/replicaRoutingDown";
+
+	/**
+	 * Verifies that {@link ReplicaRoutingDataSource} spreads connections
+	 * across all of its healthy replicas.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void spreadsAcrossReplicas() throws Exception {
+		try (ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(createDataSource(URL_PRIMARY),
+				Arrays.asList(createDataSource(URL_REPLICA_A), createDataSource(URL_REPLICA_B)), 30, 60,
+				new MetricRegistry())) {
+			Set<String> urlsUsed = new HashSet<>();
+			for (int i = 0; i < 4; i++)
+				urlsUsed.add(getUrl(dataSource));
+
+			Assert.assertEquals(new HashSet<>(Arrays.asList(URL_REPLICA_A, URL_REPLICA_B)), urlsUsed);
+		}
+	}
+
+	/**
+	 * Verifies that {@link ReplicaRoutingDataSource} ejects replicas that fail
+	 * their health check, and falls back to the primary once there are no
+	 * healthy replicas left.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void ejectsUnhealthyReplicasAndFallsBack() throws Exception {
+		try (ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(createDataSource(URL_PRIMARY),
+				Arrays.asList(createDataSource(URL_REPLICA_A), createDataSource(URL_REPLICA_DOWN)), 30, 60,
+				new MetricRegistry())) {
+			for (int i = 0; i < 4; i++)
+				Assert.assertEquals(URL_REPLICA_A, getUrl(dataSource));
+		}
+
+		MetricRegistry metricRegistry = new MetricRegistry();
+		try (ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(createDataSource(URL_PRIMARY),
+				Arrays.asList(createDataSource(URL_REPLICA_DOWN)), 30, 60, metricRegistry)) {
+			Assert.assertEquals(URL_PRIMARY, getUrl(dataSource));
+			Assert.assertEquals(1L, metricRegistry
+					.meter(MetricRegistry.name(ReplicaRoutingDataSource.class, "primaryFallbacks")).getCount());
+		}
+	}
+
+	/**
+	 * Verifies that {@link ReplicaRoutingDataSource} sends all of the
+	 * connections for a request with a {@link ReplicaPin} to the same replica,
+	 * including those from other threads that share the {@link ReplicaPin}.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void pinsRequestsToOneReplica() throws Exception {
+		try (ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(createDataSource(URL_PRIMARY),
+				Arrays.asList(createDataSource(URL_REPLICA_A), createDataSource(URL_REPLICA_B)), 30, 60,
+				new MetricRegistry())) {
+			ReplicaPin.start();
+			try {
+				String pinnedUrl = getUrl(dataSource);
+				for (int i = 0; i < 4; i++)
+					Assert.assertEquals(pinnedUrl, getUrl(dataSource));
+
+				Optional<ReplicaPin> pin = ReplicaPin.getCurrent();
+				String[] otherThreadUrl = new String[1];
+				Thread otherThread = new Thread(() -> {
+					ReplicaPin.setCurrent(pin);
+					try {
+						otherThreadUrl[0] = getUrl(dataSource);
+					} catch (SQLException e) {
+						throw new IllegalStateException(e);
+					} finally {
+						ReplicaPin.clear();
+					}
+				});
+				otherThread.start();
+				otherThread.join();
+				Assert.assertEquals(pinnedUrl, otherThreadUrl[0]);
+
+				// Each request gets its own pin.
+				Set<String> urlsUsed = new HashSet<>();
+				for (int i = 0; i < 4; i++) {
+					ReplicaPin.start();
+					urlsUsed.add(getUrl(dataSource));
+				}
+				Assert.assertEquals(new HashSet<>(Arrays.asList(URL_REPLICA_A, URL_REPLICA_B)), urlsUsed);
+			} finally {
+				ReplicaPin.clear();
+			}
+		}
+	}
+
+	/**
+	 * Verifies that {@link ReplicaRoutingDataSource} doesn't eject a replica
+	 * just because its connection pool was too busy to provide a connection,
+	 * but does eject it when it can't be connected to.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void ejectsOnlyOnConnectionFailures() throws Exception {
+		AtomicBoolean poolExhausted = new AtomicBoolean(false);
+		AtomicBoolean replicaDown = new AtomicBoolean(false);
+		DataSource replica = createFailingDataSource(createDataSource(URL_REPLICA_A), () -> {
+			if (poolExhausted.get())
+				throw new SQLTransientConnectionException("Connection is not available, request timed out.");
+			if (replicaDown.get())
+				throw new SQLTransientConnectionException("Connection is not available, request timed out.",
+						"08001", new SQLException("Connection refused."));
+		});
+
+		try (ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(createDataSource(URL_PRIMARY),
+				Arrays.asList(replica), 30, 60, new MetricRegistry())) {
+			poolExhausted.set(true);
+			try {
+				getUrl(dataSource);
+				Assert.fail("Expected the pool timeout to be passed along.");
+			} catch (SQLTransientConnectionException e) {
+				// Expected.
+			}
+			poolExhausted.set(false);
+			Assert.assertEquals(URL_REPLICA_A, getUrl(dataSource));
+
+			replicaDown.set(true);
+			Assert.assertEquals(URL_PRIMARY, getUrl(dataSource));
+			replicaDown.set(false);
+			Assert.assertEquals(URL_PRIMARY, getUrl(dataSource));
+
+			// Ejected replicas are only restored by a health check.
+			dataSource.checkReplicas();
+			Assert.assertEquals(URL_REPLICA_A, getUrl(dataSource));
+		}
+	}
+
+	/**
+	 * Verifies that {@link ReplicaRoutingDataSource#getConnection(String, String)}
+	 * reports that it's unsupported in the standard JDBC way.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test(expected = SQLFeatureNotSupportedException.class)
+	public void getConnectionWithCredentials() throws Exception {
+		try (ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(createDataSource(URL_PRIMARY),
+				Arrays.asList(createDataSource(URL_REPLICA_A)), 30, 60, new MetricRegistry())) {
+			dataSource.getConnection("SA", "");
+		}
+	}
+
+	/**
+	 * @param url
+	 *            the JDBC URL to connect to
+	 * @return a new, non-pooling {@link DataSource} for the specified URL
+	 */
+	private static DataSource createDataSource(String url) {
+		return new DriverManagerDataSource(url, "SA", "");
+	}
+
+	/**
+	 * @param dataSource
+	 *            the {@link DataSource} to wrap
+	 * @param failure
+	 *            run before each {@link DataSource#getConnection()} call, to
+	 *            (maybe) fail it
+	 * @return a {@link DataSource} that wraps the specified one, but fails
+	 *         as directed
+	 */
+	private static DataSource createFailingDataSource(DataSource dataSource, ConnectionFailure failure) {
+		return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+				new Class<?>[] { DataSource.class }, (proxy, method, args) -> {
+					if ("getConnection".equals(method.getName()))
+						failure.maybeFail();
+					try {
+						return method.invoke(dataSource, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+	}
+
+	/**
+	 * @param dataSource
+	 *            the {@link DataSource} to get a {@link Connection} from
+	 * @return the JDBC URL of the database that the {@link Connection} was for
+	 * @throws SQLException
+	 *             (indicates test failure)
+	 */
+	private static String getUrl(DataSource dataSource) throws SQLException {
+		try (Connection connection = dataSource.getConnection()) {
+			return connection.getMetaData().getURL();
+		}
+	}
+
+	/**
+	 * Simulates {@link DataSource#getConnection()} failures.
+	 */
+	@FunctionalInterface
+	private static interface ConnectionFailure {
+		/**
+		 * @throws SQLException
+		 *             Thrown to simulate a failure.
+		 */
+		void maybeFail() throws SQLException;
+	}
+}
@@ -0,0 +1,347 @@
+package gov.hhs.cms.bluebutton.server.app;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import gov.hhs.cms.bluebutton.server.app.ResponseCompressionFilter.ContentEncoding;
+
+/**
+ * Unit tests for {@link ResponseCompressionFilter}.
+ */
+public final class ResponseCompressionFilterTest {
+	/**
+	 * Verifies that {@link ContentEncoding#negotiate(String)} works as expected
+	 * for a variety of <code>Accept-Encoding</code> header values.
+	 */
+	@Test
+	public void negotiateContentEncoding() {
+		Assert.assertEquals(Optional.empty(), ContentEncoding.negotiate(null));
+		Assert.assertEquals(Optional.empty(), ContentEncoding.negotiate(""));
+		Assert.assertEquals(Optional.empty(), ContentEncoding.negotiate("identity"));
+		Assert.assertEquals(Optional.empty(), ContentEncoding.negotiate("gzip;q=0, deflate;q=0"));
+
+		Assert.assertEquals(Optional.of(ContentEncoding.GZIP), ContentEncoding.negotiate("gzip"));
+		Assert.assertEquals(Optional.of(ContentEncoding.GZIP), ContentEncoding.negotiate("deflate, gzip"));
+		Assert.assertEquals(Optional.of(ContentEncoding.GZIP), ContentEncoding.negotiate("*"));
+		Assert.assertEquals(Optional.of(ContentEncoding.DEFLATE), ContentEncoding.negotiate("DEFLATE"));
+		Assert.assertEquals(Optional.of(ContentEncoding.DEFLATE),
+				ContentEncoding.negotiate("gzip;q=0.5, deflate;q=0.8"));
+		Assert.assertEquals(Optional.of(ContentEncoding.DEFLATE), ContentEncoding.negotiate("gzip;q=0, deflate"));
+	}
+
+	/**
+	 * Verifies that {@link ContentEncoding#negotiate(String)} lets explicitly
+	 * listed codings override the <code>*</code> wildcard, regardless of the
+	 * order they're listed in.
+	 */
+	@Test
+	public void negotiateContentEncodingWithWildcard() {
+		Assert.assertEquals(Optional.of(ContentEncoding.DEFLATE), ContentEncoding.negotiate("*;q=1, gzip;q=0"));
+		Assert.assertEquals(Optional.of(ContentEncoding.DEFLATE), ContentEncoding.negotiate("gzip;q=0, *"));
+		Assert.assertEquals(Optional.of(ContentEncoding.GZIP), ContentEncoding.negotiate("*;q=0.5, gzip;q=0.6"));
+		Assert.assertEquals(Optional.of(ContentEncoding.DEFLATE),
+				ContentEncoding.negotiate("*;q=0.5, gzip;q=0.4"));
+		Assert.assertEquals(Optional.empty(), ContentEncoding.negotiate("gzip;q=0, *;q=0"));
+		Assert.assertEquals(Optional.empty(), ContentEncoding.negotiate("*;q=0, identity"));
+	}
+
+	/**
+	 * Verifies that {@link ResponseCompressionFilter} gzips a response body
+	 * that's past its threshold, and sets the <code>Content-Encoding</code>
+	 * and <code>Vary</code> headers to match.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void compressLargeResponse() throws Exception {
+		String body = repeat("{\"resourceType\":\"ExplanationOfBenefit\"}", 100);
+		FakeResponse response = new FakeResponse();
+		filter(100, "gzip, deflate", body, response);
+
+		Assert.assertEquals(ContentEncoding.GZIP.getHeaderValue(),
+				response.getHeader(ResponseCompressionFilter.HEADER_CONTENT_ENCODING));
+		Assert.assertEquals(ResponseCompressionFilter.HEADER_ACCEPT_ENCODING,
+				response.getHeader(ResponseCompressionFilter.HEADER_VARY));
+		Assert.assertTrue(response.body.size() < body.length());
+		Assert.assertEquals(body, gunzip(response.body.toByteArray()));
+	}
+
+	/**
+	 * Verifies that {@link ResponseCompressionFilter} passes small response
+	 * bodies (and bodies for clients that don't accept any compression)
+	 * through unchanged, but still sets the <code>Vary</code> header.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void passThroughResponses() throws Exception {
+		FakeResponse smallResponse = new FakeResponse();
+		filter(100, "gzip", "{}", smallResponse);
+		Assert.assertNull(smallResponse.getHeader(ResponseCompressionFilter.HEADER_CONTENT_ENCODING));
+		Assert.assertEquals(ResponseCompressionFilter.HEADER_ACCEPT_ENCODING,
+				smallResponse.getHeader(ResponseCompressionFilter.HEADER_VARY));
+		Assert.assertEquals("{}", new String(smallResponse.body.toByteArray(), StandardCharsets.UTF_8));
+
+		String body = repeat("{\"resourceType\":\"ExplanationOfBenefit\"}", 100);
+		FakeResponse uncompressedResponse = new FakeResponse();
+		filter(100, "gzip;q=0, *;q=1, deflate;q=0", body, uncompressedResponse);
+		Assert.assertNull(uncompressedResponse.getHeader(ResponseCompressionFilter.HEADER_CONTENT_ENCODING));
+		Assert.assertEquals(ResponseCompressionFilter.HEADER_ACCEPT_ENCODING,
+				uncompressedResponse.getHeader(ResponseCompressionFilter.HEADER_VARY));
+		Assert.assertEquals(body, new String(uncompressedResponse.body.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Verifies that {@link ResponseCompressionFilter} only sends the
+	 * application's <code>Content-Length</code> for response bodies that it
+	 * doesn't compress.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void contentLengthOnlyIfUncompressed() throws Exception {
+		FakeResponse smallResponse = new FakeResponse();
+		filter(100, "gzip", "{}", smallResponse);
+		Assert.assertEquals("2", smallResponse.getHeader(ResponseCompressionFilter.HEADER_CONTENT_LENGTH));
+
+		String body = repeat("{\"resourceType\":\"ExplanationOfBenefit\"}", 100);
+		FakeResponse uncompressedResponse = new FakeResponse();
+		filter(100, "identity", body, uncompressedResponse);
+		Assert.assertEquals(String.valueOf(body.length()),
+				uncompressedResponse.getHeader(ResponseCompressionFilter.HEADER_CONTENT_LENGTH));
+
+		FakeResponse compressedResponse = new FakeResponse();
+		filter(100, "gzip", body, compressedResponse);
+		Assert.assertNull(compressedResponse.getHeader(ResponseCompressionFilter.HEADER_CONTENT_LENGTH));
+	}
+
+	/**
+	 * Verifies that {@link ResponseCompressionFilter} still sends whatever the
+	 * application had written when the rest of the chain fails.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void finishFailedResponse() throws Exception {
+		FakeResponse response = new FakeResponse();
+		FilterChain chain = (request, filteredResponse) -> {
+			filteredResponse.getWriter().write("{}");
+			throw new IllegalStateException();
+		};
+
+		try {
+			new ResponseCompressionFilter(100, new MetricRegistry()).doFilter(createRequest("gzip"),
+					response.createProxy(), chain);
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			// Expected.
+		}
+		Assert.assertEquals("{}", new String(response.body.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Verifies that {@link ResponseCompressionFilter}'s output stream hands
+	 * {@link WriteListener}s on to the container's.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void delegateWriteListener() throws Exception {
+		FakeResponse response = new FakeResponse();
+		WriteListener writeListener = new WriteListener() {
+			@Override
+			public void onWritePossible() throws IOException {
+				// Nothing to do here.
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				// Nothing to do here.
+			}
+		};
+		FilterChain chain = (request, filteredResponse) -> filteredResponse.getOutputStream()
+				.setWriteListener(writeListener);
+
+		new ResponseCompressionFilter(100, new MetricRegistry()).doFilter(createRequest("gzip"),
+				response.createProxy(), chain);
+		Assert.assertSame(writeListener, response.writeListener);
+	}
+
+	/**
+	 * Runs the specified response body through a
+	 * {@link ResponseCompressionFilter}.
+	 *
+	 * @param thresholdBytes
+	 *            the compression threshold to use
+	 * @param acceptEncoding
+	 *            the <code>Accept-Encoding</code> request header to use
+	 * @param body
+	 *            the response body for the application to write
+	 * @param response
+	 *            the {@link FakeResponse} to write the response to
+	 * @throws Exception
+	 *             Any {@link Exception}s encountered will be bubbled up.
+	 */
+	private static void filter(int thresholdBytes, String acceptEncoding, String body, FakeResponse response)
+			throws Exception {
+		FilterChain chain = (request, filteredResponse) -> {
+			// The application itself shouldn't be tempted to compress, too.
+			HttpServletRequest httpRequest = (HttpServletRequest) request;
+			Assert.assertNull(httpRequest.getHeader(ResponseCompressionFilter.HEADER_ACCEPT_ENCODING));
+			filteredResponse.setContentLength(body.getBytes(StandardCharsets.UTF_8).length);
+			filteredResponse.getWriter().write(body);
+		};
+		new ResponseCompressionFilter(thresholdBytes, new MetricRegistry()).doFilter(createRequest(acceptEncoding),
+				response.createProxy(), chain);
+	}
+
+	/**
+	 * @param acceptEncoding
+	 *            the <code>Accept-Encoding</code> header value to use
+	 * @return a minimal fake {@link HttpServletRequest}
+	 */
+	private static HttpServletRequest createRequest(String acceptEncoding) {
+		Map<String, Object> attributes = new HashMap<>();
+		return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getHeader":
+						return ResponseCompressionFilter.HEADER_ACCEPT_ENCODING.equalsIgnoreCase((String) args[0])
+								? acceptEncoding : null;
+					case "getAttribute":
+						return attributes.get(args[0]);
+					case "setAttribute":
+						attributes.put((String) args[0], args[1]);
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	/**
+	 * @param text
+	 *            the text to repeat
+	 * @param count
+	 *            the number of times to repeat it
+	 * @return the specified text, repeated the specified number of times
+	 */
+	private static String repeat(String text, int count) {
+		StringBuilder repeated = new StringBuilder();
+		for (int i = 0; i < count; i++)
+			repeated.append(text);
+		return repeated.toString();
+	}
+
+	/**
+	 * @param compressed
+	 *            the gzipped bytes to decompress
+	 * @return the decompressed bytes, as UTF-8 text
+	 * @throws IOException
+	 *             Any {@link IOException}s encountered will be bubbled up.
+	 */
+	private static String gunzip(byte[] compressed) throws IOException {
+		ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+		try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = input.read(buffer)) >= 0)
+				decompressed.write(buffer, 0, read);
+		}
+		return new String(decompressed.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Backs a minimal fake {@link HttpServletResponse}, which records its
+	 * headers and body.
+	 */
+	private static final class FakeResponse {
+		private final Map<String, List<String>> headers = new HashMap<>();
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		private WriteListener writeListener;
+
+		/**
+		 * @param name
+		 *            the name of the header to get
+		 * @return the first value of the specified header, or
+		 *         <code>null</code> if it wasn't set
+		 */
+		String getHeader(String name) {
+			List<String> values = headers.get(name);
+			return values != null ? values.get(0) : null;
+		}
+
+		/**
+		 * @return a new {@link HttpServletResponse} backed by this
+		 *         {@link FakeResponse}
+		 */
+		HttpServletResponse createProxy() {
+			ServletOutputStream outputStream = new ServletOutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					body.write(b);
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setWriteListener(WriteListener listener) {
+					writeListener = listener;
+				}
+			};
+
+			return (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(),
+					new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+						switch (method.getName()) {
+						case "getOutputStream":
+							return outputStream;
+						case "getCharacterEncoding":
+							return StandardCharsets.UTF_8.name();
+						case "isCommitted":
+							return false;
+						case "setHeader":
+							headers.put((String) args[0], new ArrayList<>());
+							headers.get(args[0]).add((String) args[1]);
+							return null;
+						case "setContentLengthLong":
+							headers.put(ResponseCompressionFilter.HEADER_CONTENT_LENGTH, new ArrayList<>());
+							headers.get(ResponseCompressionFilter.HEADER_CONTENT_LENGTH).add(String.valueOf(args[0]));
+							return null;
+						case "addHeader":
+							headers.computeIfAbsent((String) args[0], k -> new ArrayList<>()).add((String) args[1]);
+							return null;
+						default:
+							throw new UnsupportedOperationException(method.getName());
+						}
+					});
+		}
+	}
+}
@@ -1,5 +1,10 @@
 package gov.hhs.cms.bluebutton.server.app;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import org.hl7.fhir.dstu3.model.CapabilityStatement;
 import org.hl7.fhir.dstu3.model.CapabilityStatement.CapabilityStatementRestComponent;
 import org.hl7.fhir.dstu3.model.CapabilityStatement.CapabilityStatementRestResourceComponent;
@@ -12,7 +17,11 @@ import org.hl7.fhir.dstu3.model.Patient;
 import org.junit.Assert;
 import org.junit.Test;
 
+import ca.uhn.fhir.rest.client.IClientInterceptor;
 import ca.uhn.fhir.rest.client.IGenericClient;
+import ca.uhn.fhir.rest.client.api.IHttpRequest;
+import ca.uhn.fhir.rest.client.api.IHttpResponse;
+import ca.uhn.fhir.rest.server.exceptions.NotModifiedException;
 import ca.uhn.fhir.util.VersionUtil;
 
 /**
@@ -25,9 +34,10 @@ import ca.uhn.fhir.util.VersionUtil;
  * </p>
  * <p>
  * Note that our application code doesn't directly provide this functionality.
- * Instead, it comes "for free" with our use of the HAPI framework. These tests
- * are just here to verify that it works as expected, since it's so critical for
- * clients.
+ * Instead, it comes "for free" with our use of the HAPI framework (though we do
+ * cache the encoded result, via {@link CapabilityStatementCacheInterceptor}).
+ * These tests are just here to verify that it works as expected, since it's so
+ * critical for clients.
  * </p>
  */
 public final class ServerCapabilityStatementIT {
@@ -87,4 +97,70 @@ public final class ServerCapabilityStatementIT {
 		Assert.assertFalse(restCapabilities.getResource().stream()
 				.filter(r -> r.getType().equals(DiagnosticReport.class.getSimpleName())).findAny().isPresent());
 	}
+
+	/**
+	 * Verifies that the server returns a strong <code>ETag</code> for the
+	 * <code>GET [base]/_metadata</code> endpoint, and honors it in
+	 * <code>If-None-Match</code> requests, as provided by
+	 * {@link CapabilityStatementCacheInterceptor}.
+	 */
+	@Test
+	public void getCapabilitiesWithETag() {
+		IGenericClient fhirClient = ServerTestUtils.createFhirClient();
+		ETagCapturingInterceptor eTagInterceptor = new ETagCapturingInterceptor();
+		fhirClient.registerInterceptor(eTagInterceptor);
+
+		// Two fetches in the same encoding should return the same ETag.
+		fhirClient.fetchConformance().ofType(CapabilityStatement.class).encodedJson().execute();
+		fhirClient.fetchConformance().ofType(CapabilityStatement.class).encodedJson().execute();
+		Assert.assertEquals(2, eTagInterceptor.eTags.size());
+		String eTag = eTagInterceptor.eTags.get(0);
+		Assert.assertNotNull(eTag);
+		Assert.assertTrue(eTag.startsWith("\""));
+		Assert.assertEquals(eTag, eTagInterceptor.eTags.get(1));
+
+		// A different encoding has different bytes, and so a different ETag.
+		fhirClient.fetchConformance().ofType(CapabilityStatement.class).encodedXml().execute();
+		Assert.assertNotEquals(eTag, eTagInterceptor.eTags.get(2));
+
+		// Clients that already have the statement shouldn't get it again.
+		eTagInterceptor.ifNoneMatch = eTag;
+		try {
+			fhirClient.fetchConformance().ofType(CapabilityStatement.class).encodedJson().execute();
+			Assert.fail("Expected a 304 Not Modified response.");
+		} catch (NotModifiedException e) {
+			// Expected.
+		}
+	}
+
+	/**
+	 * An {@link IClientInterceptor} that records the <code>ETag</code> of
+	 * each response, and can optionally add an <code>If-None-Match</code>
+	 * header to each request.
+	 */
+	private static final class ETagCapturingInterceptor implements IClientInterceptor {
+		private final List<String> eTags = new ArrayList<>();
+		private String ifNoneMatch = null;
+
+		/**
+		 * @see ca.uhn.fhir.rest.client.IClientInterceptor#interceptRequest(ca.uhn.fhir.rest.client.api.IHttpRequest)
+		 */
+		@Override
+		public void interceptRequest(IHttpRequest request) {
+			if (ifNoneMatch != null)
+				request.addHeader("If-None-Match", ifNoneMatch);
+		}
+
+		/**
+		 * @see ca.uhn.fhir.rest.client.IClientInterceptor#interceptResponse(ca.uhn.fhir.rest.client.api.IHttpResponse)
+		 */
+		@Override
+		public void interceptResponse(IHttpResponse response) throws IOException {
+			String eTag = null;
+			for (Map.Entry<String, List<String>> header : response.getAllHeaders().entrySet())
+				if ("ETag".equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty())
+					eTag = header.getValue().get(0);
+			eTags.add(eTag);
+		}
+	}
 }
@@ -0,0 +1,144 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Unit tests for {@link BeneficiaryChangeMonitor}, which use
+ * {@link BeneficiaryChangeLog} to stand in for the ETL pipeline.
+ */
+public final class BeneficiaryChangeMonitorTest {
+	/**
+	 * Verifies that {@link BeneficiaryChangeMonitor} publishes each load run's
+	 * changed beneficiaries just once, and tracks their data versions.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void beneficiariesChanged() throws Exception {
+		DataSource dataSource = new DriverManagerDataSource("jdbc:hsqldb:mem:changeMonitorChanged", "SA", "");
+		BeneficiaryChangeLog.createTableIfNeeded(dataSource);
+		BeneficiaryChangeLog.createTableIfNeeded(dataSource);
+		RecordingListener listener = new RecordingListener();
+
+		try (BeneficiaryChangeMonitor monitor = new BeneficiaryChangeMonitor(dataSource, 0, 100,
+				Arrays.asList(listener), new MetricRegistry())) {
+			Assert.assertFalse(monitor.isPolling());
+			monitor.poll();
+			Assert.assertTrue(listener.events.isEmpty());
+			Assert.assertEquals(0L, monitor.getDataVersion("1"));
+
+			BeneficiaryChangeLog.recordChanges(dataSource, Arrays.asList("1", "2"));
+			long firstChangeId = BeneficiaryChangeLog.getLatestChangeId(dataSource);
+			monitor.poll();
+			Assert.assertEquals(Arrays.asList("[1, 2]"), listener.events);
+			Assert.assertEquals(firstChangeId, monitor.getDataVersion("1"));
+			Assert.assertEquals(firstChangeId, monitor.getDataVersion("2"));
+			Assert.assertEquals(0L, monitor.getDataVersion("3"));
+
+			monitor.poll();
+			Assert.assertEquals(1, listener.events.size());
+
+			BeneficiaryChangeLog.recordChanges(dataSource, Arrays.asList("2"));
+			long secondChangeId = BeneficiaryChangeLog.getLatestChangeId(dataSource);
+			monitor.poll();
+			Assert.assertEquals(Arrays.asList("[1, 2]", "[2]"), listener.events);
+			Assert.assertTrue(secondChangeId > firstChangeId);
+			Assert.assertEquals(firstChangeId, monitor.getDataVersion("1"));
+			Assert.assertEquals(secondChangeId, monitor.getDataVersion("2"));
+		}
+	}
+
+	/**
+	 * Verifies that {@link BeneficiaryChangeMonitor} treats every beneficiary
+	 * as changed when the change log says so, or when there are too many
+	 * changed beneficiaries to track individually.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void allBeneficiariesChanged() throws Exception {
+		DataSource dataSource = new DriverManagerDataSource("jdbc:hsqldb:mem:changeMonitorAllChanged", "SA", "");
+		BeneficiaryChangeLog.createTableIfNeeded(dataSource);
+		RecordingListener listener = new RecordingListener();
+
+		try (BeneficiaryChangeMonitor monitor = new BeneficiaryChangeMonitor(dataSource, 0, 2,
+				Arrays.asList(listener), new MetricRegistry())) {
+			BeneficiaryChangeLog.recordChanges(dataSource, Arrays.asList("1"));
+			BeneficiaryChangeLog.recordAllChanged(dataSource);
+			long allChangeId = BeneficiaryChangeLog.getLatestChangeId(dataSource);
+			monitor.poll();
+			Assert.assertEquals(Arrays.asList("all"), listener.events);
+			Assert.assertEquals(allChangeId, monitor.getDataVersion("1"));
+			Assert.assertEquals(allChangeId, monitor.getDataVersion("3"));
+
+			BeneficiaryChangeLog.recordChanges(dataSource, Arrays.asList("1", "2", "3"));
+			long overflowChangeId = BeneficiaryChangeLog.getLatestChangeId(dataSource);
+			monitor.poll();
+			Assert.assertEquals(Arrays.asList("all", "all"), listener.events);
+			Assert.assertEquals(overflowChangeId, monitor.getDataVersion("4"));
+		}
+	}
+
+	/**
+	 * Verifies that {@link BeneficiaryChangeMonitor} tolerates a missing
+	 * change log table, and picks up changes once it's been created.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void missingTable() throws Exception {
+		DataSource dataSource = new DriverManagerDataSource("jdbc:hsqldb:mem:changeMonitorMissing", "SA", "");
+		RecordingListener listener = new RecordingListener();
+
+		try (BeneficiaryChangeMonitor monitor = new BeneficiaryChangeMonitor(dataSource, 0, 100,
+				Arrays.asList(listener), new MetricRegistry())) {
+			monitor.poll();
+			monitor.poll();
+			Assert.assertTrue(listener.events.isEmpty());
+			Assert.assertEquals(0L, monitor.getDataVersion("1"));
+
+			BeneficiaryChangeLog.createTableIfNeeded(dataSource);
+			BeneficiaryChangeLog.recordChanges(dataSource, Arrays.asList("1"));
+			monitor.poll();
+			Assert.assertEquals(Arrays.asList("[1]"), listener.events);
+		}
+	}
+
+	/**
+	 * A {@link BeneficiaryChangeListener} that records the notifications it
+	 * receives.
+	 */
+	private static final class RecordingListener implements BeneficiaryChangeListener {
+		private final List<String> events = new ArrayList<>();
+
+		/**
+		 * @see gov.hhs.cms.bluebutton.server.app.stu3.providers.BeneficiaryChangeListener#beneficiariesChanged(java.util.Collection)
+		 */
+		@Override
+		public void beneficiariesChanged(Collection<String> beneficiaryIds) {
+			events.add(beneficiaryIds.toString());
+		}
+
+		/**
+		 * @see gov.hhs.cms.bluebutton.server.app.stu3.providers.BeneficiaryChangeListener#allBeneficiariesChanged()
+		 */
+		@Override
+		public void allBeneficiariesChanged() {
+			events.add("all");
+		}
+	}
+}
@@ -1,8 +1,11 @@
 package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.AdjudicationComponent;
@@ -10,12 +13,15 @@ import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.CareTeamComponent;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.ItemComponent;
 import org.hl7.fhir.dstu3.model.Extension;
 import org.hl7.fhir.dstu3.model.Observation;
+import org.hl7.fhir.dstu3.model.PositiveIntType;
 import org.hl7.fhir.dstu3.model.Reference;
 import org.hl7.fhir.dstu3.model.ReferralRequest;
 import org.hl7.fhir.exceptions.FHIRException;
 import org.junit.Assert;
 import org.junit.Test;
 
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
 import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaim;
 import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaimLine;
 import gov.hhs.cms.bluebutton.data.model.rif.samples.StaticRifResource;
@@ -45,6 +51,70 @@ public final class CarrierClaimTransformerTest {
 		assertMatches(claim, eob);
 	}
 
+	/**
+	 * Verifies that {@link CarrierClaimTransformer#transform(Object,
+	 * ClaimLineItems)} produces exactly the same {@link ExplanationOfBenefit}
+	 * for a many-lined {@link CarrierClaim} whether its lines are transformed
+	 * one after the other or in parallel, including the care team and
+	 * diagnosis entries that the lines are linked to, and the link IDs.
+	 */
+	@Test
+	public void transformLinesInParallel() {
+		CarrierClaim claim = null;
+		List<CarrierClaimLine> claimLines = new ArrayList<>();
+		for (int i = 0; i < ClaimLineItems.MIN_CHUNK_SIZE * 4; i++) {
+			/*
+			 * Each parse gives us a fresh copy of the sample line, which is
+			 * then tweaked so that the lines share some, but not all, of their
+			 * care team and diagnosis entries.
+			 */
+			List<Object> parsedRecords = ServerTestUtils
+					.parseData(Arrays.asList(StaticRifResourceGroup.SAMPLE_A.getResources()));
+			CarrierClaim parsedClaim = parsedRecords.stream().filter(r -> r instanceof CarrierClaim)
+					.map(r -> (CarrierClaim) r).findFirst().get();
+			if (claim == null)
+				claim = parsedClaim;
+
+			CarrierClaimLine claimLine = parsedClaim.getLines().get(0);
+			claimLine.setLineNumber(new BigDecimal(i + 1));
+			claimLine.setPerformingPhysicianNpi(Optional.of(String.format("%010d", i % 7)));
+			claimLine.setDiagnosisCode(Optional.of(String.format("A%02d", i % 5)));
+			claimLines.add(claimLine);
+		}
+		claim.getLines().clear();
+		claim.getLines().addAll(claimLines);
+
+		ExplanationOfBenefit sequentialEob = CarrierClaimTransformer.transform(claim, ClaimLineItems.SEQUENTIAL);
+		ExplanationOfBenefit parallelEob;
+		try (ClaimLineItems claimLineItems = new ClaimLineItems(1, 4)) {
+			parallelEob = CarrierClaimTransformer.transform(claim, claimLineItems);
+		}
+
+		Assert.assertEquals(claimLines.size(), parallelEob.getItem().size());
+		Assert.assertEquals(7, parallelEob.getCareTeam().size());
+		for (int i = 0; i < claimLines.size(); i++) {
+			ItemComponent sequentialItem = sequentialEob.getItem().get(i);
+			ItemComponent parallelItem = parallelEob.getItem().get(i);
+			Assert.assertEquals(i + 1, parallelItem.getSequence());
+			Assert.assertEquals(toValues(sequentialItem.getCareTeamLinkId()),
+					toValues(parallelItem.getCareTeamLinkId()));
+			Assert.assertEquals(toValues(sequentialItem.getDiagnosisLinkId()),
+					toValues(parallelItem.getDiagnosisLinkId()));
+		}
+
+		IParser parser = FhirContext.forDstu3().newJsonParser();
+		Assert.assertEquals(parser.encodeResourceToString(sequentialEob), parser.encodeResourceToString(parallelEob));
+	}
+
+	/**
+	 * @param linkIds
+	 *            the {@link PositiveIntType} link IDs to convert
+	 * @return the values of the specified link IDs, in order
+	 */
+	private static List<Integer> toValues(List<PositiveIntType> linkIds) {
+		return linkIds.stream().map(PositiveIntType::getValue).collect(Collectors.toList());
+	}
+
 	/**
 	 * Verifies that the {@link ExplanationOfBenefit} "looks like" it should, if
 	 * it were produced from the specified {@link CarrierClaim}.
@@ -0,0 +1,93 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaimLine;
+import gov.hhs.cms.bluebutton.data.model.rif.samples.StaticRifResourceGroup;
+import gov.hhs.cms.bluebutton.server.app.ServerTestUtils;
+
+/**
+ * <p>
+ * A rough benchmark for finding the crossover point of {@link ClaimLineItems}'
+ * parallel line transforms: times {@link CarrierClaimTransformer} against
+ * copies of the {@link StaticRifResourceGroup#SAMPLE_A} {@link CarrierClaim}
+ * with increasing numbers of lines, both with and without parallel line
+ * transforms. The smallest line count where the parallel times come out
+ * ahead is a reasonable value for the
+ * <code>bbfhir.lines.parallelThreshold</code> setting on the machine it's run
+ * on (though it should be nudged upwards for servers that are expected to be
+ * busy, as the parallel transforms compete with other requests for the same
+ * processors).
+ * </p>
+ * <p>
+ * This isn't run as part of the build. Run it manually, e.g.:
+ * </p>
+ *
+ * <pre>
+ * java -cp ... gov.hhs.cms.bluebutton.server.app.stu3.providers.ClaimLineItemsBenchmark [parallelism]
+ * </pre>
+ */
+public final class ClaimLineItemsBenchmark {
+	/**
+	 * The line counts to time the transforms for.
+	 */
+	private static final int[] LINE_COUNTS = { 8, 16, 32, 64, 128, 256, 512, 1024 };
+
+	/**
+	 * The benchmark's entry point.
+	 *
+	 * @param args
+	 *            (optional) the parallelism to use for the parallel line
+	 *            transforms
+	 */
+	public static void main(String[] args) {
+		int parallelism = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		List<Object> records = ServerTestUtils.parseData(Arrays.asList(StaticRifResourceGroup.SAMPLE_A.getResources()));
+		CarrierClaim claim = records.stream().filter(r -> r instanceof CarrierClaim).map(r -> (CarrierClaim) r)
+				.findFirst().get();
+		List<CarrierClaimLine> sampleLines = new ArrayList<>(claim.getLines());
+
+		// A threshold of 1 transforms every claim's lines in parallel.
+		try (ClaimLineItems parallelLineItems = new ClaimLineItems(1, parallelism)) {
+			for (int lineCount : LINE_COUNTS) {
+				claim.getLines().clear();
+				for (int i = 0; i < lineCount; i++)
+					claim.getLines().add(sampleLines.get(i % sampleLines.size()));
+
+				// Scale the iterations so that each line count takes roughly as long to run.
+				int iterations = Math.max(100, 200000 / lineCount);
+
+				double sequentialNanos = time(claim, ClaimLineItems.SEQUENTIAL, iterations);
+				double parallelNanos = time(claim, parallelLineItems, iterations);
+
+				System.out.printf("%d lines: sequential %.0f ns/op, parallel (%d) %.0f ns/op%n", lineCount,
+						sequentialNanos, parallelism, parallelNanos);
+			}
+		}
+	}
+
+	/**
+	 * @param claim
+	 *            the {@link CarrierClaim} to transform
+	 * @param claimLineItems
+	 *            the {@link ClaimLineItems} to transform the claim's lines
+	 *            via
+	 * @param iterations
+	 *            the number of (timed) iterations to run
+	 * @return the average time taken (in nanoseconds) to transform the
+	 *         specified {@link CarrierClaim}
+	 */
+	private static double time(CarrierClaim claim, ClaimLineItems claimLineItems, int iterations) {
+		// Warm up, so that the JIT has had a chance to compile everything.
+		for (int i = 0; i < iterations; i++)
+			CarrierClaimTransformer.transform(claim, claimLineItems);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			CarrierClaimTransformer.transform(claim, claimLineItems);
+		return (double) (System.nanoTime() - start) / iterations;
+	}
+}
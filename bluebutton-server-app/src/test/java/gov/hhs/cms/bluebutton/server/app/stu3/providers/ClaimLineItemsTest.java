@@ -0,0 +1,49 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.List;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.ItemComponent;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ClaimLineItems}.
+ */
+public final class ClaimLineItemsTest {
+	/**
+	 * Verifies that {@link ClaimLineItems#transform(List, java.util.function.Function)}
+	 * returns the {@link ItemComponent}s in line order, whether or not the
+	 * lines are transformed in parallel.
+	 */
+	@Test
+	public void preservesLineOrder() {
+		List<Integer> lines = OrderedTransformTestUtils.createNumbers(ClaimLineItems.MIN_CHUNK_SIZE * 10);
+
+		OrderedTransformTestUtils.assertInLineOrder(lines,
+				ClaimLineItems.SEQUENTIAL.transform(lines, OrderedTransformTestUtils::transformLine));
+
+		try (ClaimLineItems claimLineItems = new ClaimLineItems(lines.size(), 4)) {
+			OrderedTransformTestUtils.assertInLineOrder(lines,
+					claimLineItems.transform(lines, OrderedTransformTestUtils::transformLine));
+
+			List<Integer> fewerLines = lines.subList(0, lines.size() - 1);
+			OrderedTransformTestUtils.assertInLineOrder(fewerLines,
+					claimLineItems.transform(fewerLines, OrderedTransformTestUtils::transformLine));
+		}
+	}
+
+	/**
+	 * Verifies that {@link ClaimLineItems#transform(List, java.util.function.Function)}
+	 * passes along the exceptions thrown by parallel line transforms.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void propagatesFailures() {
+		List<Integer> lines = OrderedTransformTestUtils.createNumbers(100);
+		try (ClaimLineItems claimLineItems = new ClaimLineItems(1, 4)) {
+			claimLineItems.transform(lines, line -> {
+				if (line == 99)
+					throw new IllegalStateException();
+				return OrderedTransformTestUtils.transformLine(line);
+			});
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.List;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Unit tests for {@link ClaimTransformExecutor}.
+ */
+public final class ClaimTransformExecutorTest {
+	/**
+	 * Verifies that {@link ClaimTransformExecutor#transform(List, java.util.function.Function)}
+	 * returns the {@link ExplanationOfBenefit}s in claim order, whether or not
+	 * parallel transforms are enabled.
+	 */
+	@Test
+	public void preservesClaimOrder() {
+		List<Integer> claims = OrderedTransformTestUtils.createNumbers(ClaimTransformExecutor.MIN_CHUNK_SIZE * 10);
+
+		try (ClaimTransformExecutor executor = new ClaimTransformExecutor(1, 4, ClaimLineItems.SEQUENTIAL,
+				new MetricRegistry())) {
+			OrderedTransformTestUtils.assertInClaimOrder(claims,
+					executor.transform(claims, OrderedTransformTestUtils::transformClaim));
+		}
+
+		MetricRegistry metricRegistry = new MetricRegistry();
+		try (ClaimTransformExecutor executor = new ClaimTransformExecutor(4, 4, ClaimLineItems.SEQUENTIAL,
+				metricRegistry)) {
+			OrderedTransformTestUtils.assertInClaimOrder(claims,
+					executor.transform(claims, OrderedTransformTestUtils::transformClaim));
+			Assert.assertTrue(metricRegistry.getGauges().keySet().stream().anyMatch(n -> n.endsWith("queueDepth")));
+			Assert.assertTrue(metricRegistry.getGauges().keySet().stream().anyMatch(n -> n.endsWith("utilization")));
+		}
+	}
+
+	/**
+	 * Verifies that {@link ClaimTransformExecutor#transform(List, java.util.function.Function)}
+	 * runs the transforms on the caller's own thread once its queue is full.
+	 */
+	@Test
+	public void callerRunsWhenQueueIsFull() {
+		List<Integer> claims = OrderedTransformTestUtils.createNumbers(ClaimTransformExecutor.MIN_CHUNK_SIZE * 10);
+		MetricRegistry metricRegistry = new MetricRegistry();
+		Thread caller = Thread.currentThread();
+
+		try (ClaimTransformExecutor executor = new ClaimTransformExecutor(4, 0, ClaimLineItems.SEQUENTIAL,
+				metricRegistry)) {
+			OrderedTransformTestUtils.assertInClaimOrder(claims, executor.transform(claims, claim -> {
+				Assert.assertSame(caller, Thread.currentThread());
+				return OrderedTransformTestUtils.transformClaim(claim);
+			}));
+		}
+		Assert.assertEquals(1, metricRegistry.meter(MetricRegistry.name(ClaimTransformExecutor.class, "callerRuns"))
+				.getCount());
+	}
+}
@@ -0,0 +1,132 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.codahale.metrics.MetricRegistry;
+
+import ca.uhn.fhir.rest.param.DateParam;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.param.ParamPrefixEnum;
+
+/**
+ * Unit tests for {@link EobSegmentFile}.
+ */
+public final class EobSegmentFileTest {
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/**
+	 * Verifies that an {@link EobSegmentFile} returns each of its
+	 * beneficiaries' {@link ExplanationOfBenefit}s, sorted by service date,
+	 * and can filter them by date range.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void writeAndFind() throws IOException {
+		SortedMap<String, List<ExplanationOfBenefit>> eobsByBeneficiary = new TreeMap<>();
+		eobsByBeneficiary.put("567834",
+				Arrays.asList(EobTestFixtures.createClaimEob("567834", "carrier-1", LocalDate.of(2016, 3, 1)),
+						EobTestFixtures.createClaimEob("567834", "dme-2", LocalDate.of(2016, 1, 1)),
+						EobTestFixtures.createClaimEob("567834", "pde-3", null)));
+		eobsByBeneficiary.put("1",
+				Arrays.asList(EobTestFixtures.createClaimEob("1", "carrier-4", LocalDate.of(2016, 2, 1))));
+		eobsByBeneficiary.put("999", Collections.emptyList());
+		Path path = tempFolder.getRoot().toPath().resolve("eobs.segment");
+		EobSegmentFile.write(path, 0L, eobsByBeneficiary);
+
+		EobSegmentFile segmentFile = EobSegmentFile.open(path, beneficiaryId -> 0L, new MetricRegistry());
+		Assert.assertEquals(3, segmentFile.getBeneficiaryCount());
+
+		Assert.assertEquals(Arrays.asList("pde-3", "dme-2", "carrier-1"),
+				EobTestFixtures.getIds(segmentFile.findByBeneficiary("567834", null)));
+		Assert.assertEquals(Arrays.asList("carrier-4"),
+				EobTestFixtures.getIds(segmentFile.findByBeneficiary("1", null)));
+		Assert.assertEquals(Collections.emptyList(),
+				EobTestFixtures.getIds(segmentFile.findByBeneficiary("999", null)));
+
+		DateRangeParam dateRange = new DateRangeParam(
+				new DateParam(ParamPrefixEnum.GREATERTHAN_OR_EQUALS, "2016-02-01"), null);
+		Assert.assertEquals(Arrays.asList("carrier-1"),
+				EobTestFixtures.getIds(segmentFile.findByBeneficiary("567834", dateRange)));
+		dateRange = new DateRangeParam(null, new DateParam(ParamPrefixEnum.LESSTHAN_OR_EQUALS, "2016-02-01"));
+		Assert.assertEquals(Arrays.asList("dme-2"),
+				EobTestFixtures.getIds(segmentFile.findByBeneficiary("567834", dateRange)));
+
+		// Beneficiaries that aren't in the file should fall back to the database.
+		Assert.assertFalse(segmentFile.findByBeneficiary("2", null).isPresent());
+		Assert.assertFalse(segmentFile.findByBeneficiary("12345678901234567", null).isPresent());
+		Assert.assertFalse(EobSegmentFile.empty(new MetricRegistry()).findByBeneficiary("1", null).isPresent());
+	}
+
+	/**
+	 * Verifies that an {@link EobSegmentFile} treats beneficiaries whose data
+	 * has changed since it was built as though they weren't in it, so that
+	 * their searches will fall back to the database.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void staleBeneficiaries() throws IOException {
+		SortedMap<String, List<ExplanationOfBenefit>> eobsByBeneficiary = new TreeMap<>();
+		eobsByBeneficiary.put("1",
+				Arrays.asList(EobTestFixtures.createClaimEob("1", "carrier-1", LocalDate.of(2016, 2, 1))));
+		eobsByBeneficiary.put("2",
+				Arrays.asList(EobTestFixtures.createClaimEob("2", "carrier-2", LocalDate.of(2016, 2, 1))));
+		Path path = tempFolder.getRoot().toPath().resolve("eobs.segment");
+		EobSegmentFile.write(path, 42L, eobsByBeneficiary);
+
+		Map<String, Long> dataVersions = new HashMap<>();
+		dataVersions.put("1", 42L);
+		dataVersions.put("2", 43L);
+		EobSegmentFile segmentFile = EobSegmentFile.open(path,
+				beneficiaryId -> dataVersions.getOrDefault(beneficiaryId, 0L), new MetricRegistry());
+
+		Assert.assertEquals(Arrays.asList("carrier-1"),
+				EobTestFixtures.getIds(segmentFile.findByBeneficiary("1", null)));
+		Assert.assertFalse(segmentFile.findByBeneficiary("2", null).isPresent());
+	}
+
+	/**
+	 * Verifies that
+	 * {@link EobSegmentFile#open(Path, java.util.function.ToLongFunction, MetricRegistry)}
+	 * rejects files that aren't segment files, and that
+	 * {@link EobSegmentFile#openOrEmpty(Path, java.util.function.ToLongFunction, MetricRegistry)}
+	 * falls back to an empty one.
+	 *
+	 * @throws IOException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void invalidFile() throws IOException {
+		Path path = tempFolder.newFile("invalid.segment").toPath();
+		Files.write(path, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 });
+
+		try {
+			EobSegmentFile.open(path, beneficiaryId -> 0L, new MetricRegistry());
+			Assert.fail();
+		} catch (IOException e) {
+			// Expected.
+		}
+		Assert.assertEquals(0,
+				EobSegmentFile.openOrEmpty(path, beneficiaryId -> 0L, new MetricRegistry()).getBeneficiaryCount());
+	}
+}
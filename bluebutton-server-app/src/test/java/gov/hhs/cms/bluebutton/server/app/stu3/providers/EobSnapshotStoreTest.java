@@ -0,0 +1,144 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.sql.DataSource;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.codahale.metrics.MetricRegistry;
+
+import ca.uhn.fhir.rest.param.DateParam;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.param.ParamPrefixEnum;
+
+/**
+ * Unit tests for {@link EobSnapshotStore}.
+ */
+public final class EobSnapshotStoreTest {
+	/**
+	 * Verifies that {@link EobSnapshotStore} returns the
+	 * {@link ExplanationOfBenefit}s that were stored, in the same order, and
+	 * can filter them by service date.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void storeAndFind() throws Exception {
+		DataSource dataSource = new DriverManagerDataSource("jdbc:hsqldb:mem:eobSnapshotStoreFind", "SA", "");
+		EobSnapshotStore store = new EobSnapshotStore(true, dataSource, dataSource,
+				beneficiaryId -> 0L, new MetricRegistry());
+		store.createTableIfNeeded();
+		store.createTableIfNeeded();
+
+		store.replace("567834",
+				Arrays.asList(EobTestFixtures.createClaimEob("567834", "carrier-1", LocalDate.of(2016, 3, 1)),
+						EobTestFixtures.createClaimEob("567834", "dme-2", LocalDate.of(2016, 1, 1)),
+						EobTestFixtures.createPdeEob("567834", "pde-3", LocalDate.of(2016, 2, 1))),
+				0L);
+
+		Optional<List<ExplanationOfBenefit>> eobs = store.findByBeneficiary("567834", null);
+		Assert.assertEquals(Arrays.asList("carrier-1", "dme-2", "pde-3"), EobTestFixtures.getIds(eobs));
+
+		DateRangeParam dateRange = new DateRangeParam(
+				new DateParam(ParamPrefixEnum.GREATERTHAN_OR_EQUALS, "2016-02-01"), null);
+		Assert.assertEquals(Arrays.asList("carrier-1", "pde-3"),
+				EobTestFixtures.getIds(store.findByBeneficiary("567834", dateRange)));
+		dateRange = new DateRangeParam(null, new DateParam(ParamPrefixEnum.LESSTHAN_OR_EQUALS, "2016-02-01"));
+		Assert.assertEquals(Arrays.asList("dme-2", "pde-3"),
+				EobTestFixtures.getIds(store.findByBeneficiary("567834", dateRange)));
+
+		Optional<ExplanationOfBenefit> eob = store.read("dme-2");
+		Assert.assertTrue(eob.isPresent());
+		Assert.assertEquals("dme-2", eob.get().getIdElement().getIdPart());
+		Assert.assertEquals("Patient/567834", eob.get().getPatient().getReference());
+
+		Assert.assertFalse(store.read("dme-4").isPresent());
+		Assert.assertFalse(store.findByBeneficiary("other", null).isPresent());
+	}
+
+	/**
+	 * Verifies that {@link EobSnapshotStore#replace(String, List, long)} replaces
+	 * all of the beneficiary's previous snapshots.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void replace() throws Exception {
+		DataSource dataSource = new DriverManagerDataSource("jdbc:hsqldb:mem:eobSnapshotStoreReplace", "SA", "");
+		EobSnapshotStore store = new EobSnapshotStore(true, dataSource, dataSource,
+				beneficiaryId -> 0L, new MetricRegistry());
+		store.createTableIfNeeded();
+
+		store.replace("567834",
+				Arrays.asList(EobTestFixtures.createClaimEob("567834", "carrier-1", LocalDate.of(2016, 3, 1)),
+						EobTestFixtures.createClaimEob("567834", "dme-2", LocalDate.of(2016, 1, 1))),
+				0L);
+		store.replace("567834",
+				Arrays.asList(EobTestFixtures.createClaimEob("567834", "dme-2", LocalDate.of(2016, 1, 1))), 0L);
+		Assert.assertEquals(Arrays.asList("dme-2"), EobTestFixtures.getIds(store.findByBeneficiary("567834", null)));
+		Assert.assertFalse(store.read("carrier-1").isPresent());
+
+		store.replace("567834", Collections.emptyList(), 0L);
+		Assert.assertFalse(store.findByBeneficiary("567834", null).isPresent());
+	}
+
+	/**
+	 * Verifies that {@link EobSnapshotStore} ignores a beneficiary's snapshots
+	 * once their data version has moved past the <code>changeId</code> that
+	 * the snapshots were built as of.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void staleSnapshots() throws Exception {
+		Map<String, Long> dataVersions = new HashMap<>();
+		DataSource dataSource = new DriverManagerDataSource("jdbc:hsqldb:mem:eobSnapshotStoreStale", "SA", "");
+		EobSnapshotStore store = new EobSnapshotStore(true, dataSource, dataSource,
+				beneficiaryId -> dataVersions.getOrDefault(beneficiaryId, 0L), new MetricRegistry());
+		store.createTableIfNeeded();
+
+		store.replace("567834",
+				Arrays.asList(EobTestFixtures.createClaimEob("567834", "carrier-1", LocalDate.of(2016, 3, 1))), 5L);
+		dataVersions.put("567834", 5L);
+		Assert.assertEquals(Arrays.asList("carrier-1"),
+				EobTestFixtures.getIds(store.findByBeneficiary("567834", null)));
+		Assert.assertTrue(store.read("carrier-1").isPresent());
+
+		dataVersions.put("567834", 6L);
+		Assert.assertFalse(store.findByBeneficiary("567834", null).isPresent());
+		Assert.assertFalse(store.read("carrier-1").isPresent());
+
+		store.replace("567834",
+				Arrays.asList(EobTestFixtures.createClaimEob("567834", "carrier-1", LocalDate.of(2016, 3, 1))), 6L);
+		Assert.assertEquals(Arrays.asList("carrier-1"),
+				EobTestFixtures.getIds(store.findByBeneficiary("567834", null)));
+	}
+
+	/**
+	 * Verifies that {@link EobSnapshotStore} lookups just find nothing when
+	 * the snapshots table hasn't been created, so that callers will fall back
+	 * to the claim tables.
+	 */
+	@Test
+	public void missingTable() {
+		DataSource dataSource = new DriverManagerDataSource("jdbc:hsqldb:mem:eobSnapshotStoreMissing", "SA", "");
+		EobSnapshotStore store = new EobSnapshotStore(true, dataSource, dataSource,
+				beneficiaryId -> 0L, new MetricRegistry());
+
+		Assert.assertFalse(store.read("carrier-1").isPresent());
+		Assert.assertFalse(store.findByBeneficiary("567834", null).isPresent());
+	}
+}
@@ -0,0 +1,70 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.hl7.fhir.dstu3.model.DateType;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.dstu3.model.Period;
+import org.hl7.fhir.dstu3.model.TemporalPrecisionEnum;
+import org.junit.Assert;
+
+/**
+ * Contains the (minimal) {@link ExplanationOfBenefit}s and related utility
+ * methods used to test the classes that store precomputed
+ * {@link ExplanationOfBenefit}s, e.g. {@link EobSnapshotStore} and
+ * {@link EobSegmentFile}.
+ */
+final class EobTestFixtures {
+	/**
+	 * @param beneficiaryId
+	 *            the ID of the beneficiary that the new
+	 *            {@link ExplanationOfBenefit} is for
+	 * @param id
+	 *            the ID for the new {@link ExplanationOfBenefit}
+	 * @param dateFrom
+	 *            the start of the new {@link ExplanationOfBenefit}'s billable
+	 *            period, or <code>null</code>
+	 * @return a new (minimal) claim {@link ExplanationOfBenefit}
+	 */
+	static ExplanationOfBenefit createClaimEob(String beneficiaryId, String id, LocalDate dateFrom) {
+		ExplanationOfBenefit eob = new ExplanationOfBenefit();
+		eob.setId(id);
+		eob.getPatient().setReference("Patient/" + beneficiaryId);
+		if (dateFrom != null)
+			eob.setBillablePeriod(new Period().setStart(TransformerUtils.convertToDate(dateFrom),
+					TemporalPrecisionEnum.DAY));
+		return eob;
+	}
+
+	/**
+	 * @param beneficiaryId
+	 *            the ID of the beneficiary that the new
+	 *            {@link ExplanationOfBenefit} is for
+	 * @param id
+	 *            the ID for the new {@link ExplanationOfBenefit}
+	 * @param fillDate
+	 *            the fill date of the new {@link ExplanationOfBenefit}'s item
+	 * @return a new (minimal) Part D event {@link ExplanationOfBenefit}
+	 */
+	static ExplanationOfBenefit createPdeEob(String beneficiaryId, String id, LocalDate fillDate) {
+		ExplanationOfBenefit eob = new ExplanationOfBenefit();
+		eob.setId(id);
+		eob.getPatient().setReference("Patient/" + beneficiaryId);
+		eob.addItem().setServiced(new DateType(TransformerUtils.convertToDate(fillDate)));
+		return eob;
+	}
+
+	/**
+	 * @param eobs
+	 *            the {@link ExplanationOfBenefit}s to get the IDs of, which
+	 *            must be present
+	 * @return the {@link ExplanationOfBenefit}s' IDs, in order
+	 */
+	static List<String> getIds(Optional<List<ExplanationOfBenefit>> eobs) {
+		Assert.assertTrue(eobs.isPresent());
+		return eobs.get().stream().map(eob -> eob.getIdElement().getIdPart()).collect(Collectors.toList());
+	}
+}
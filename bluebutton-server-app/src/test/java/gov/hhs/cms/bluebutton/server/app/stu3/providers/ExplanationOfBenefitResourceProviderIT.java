@@ -2,6 +2,8 @@ package gov.hhs.cms.bluebutton.server.app.stu3.providers;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.hl7.fhir.dstu3.model.Bundle;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
@@ -443,6 +445,61 @@ public final class ExplanationOfBenefitResourceProviderIT {
 		SNFClaimTransformerTest.assertMatches(snfClaim, snfClaimFromSearchResult);
 	}
 
+	/**
+	 * Verifies that
+	 * {@link ExplanationOfBenefitResourceProvider#findByPatient(ca.uhn.fhir.rest.param.ReferenceParam)}
+	 * and
+	 * {@link ExplanationOfBenefitResourceProvider#read(org.hl7.fhir.dstu3.model.IdType)}
+	 * return the same results when they're repeated, e.g. once the claims are
+	 * in the {@link SecondLevelCache} (which the test server enables).
+	 * 
+	 * @throws FHIRException
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void searchForEobsByExistingPatientTwice() throws FHIRException {
+		List<Object> loadedRecords = ServerTestUtils
+				.loadData(Arrays.asList(StaticRifResourceGroup.SAMPLE_A.getResources()));
+		IGenericClient fhirClient = ServerTestUtils.createFhirClient();
+
+		Beneficiary beneficiary = loadedRecords.stream().filter(r -> r instanceof Beneficiary).map(r -> (Beneficiary) r)
+				.findFirst().get();
+		Map<String, ExplanationOfBenefit> firstSearchResults = searchForEobsById(fhirClient, beneficiary);
+		Map<String, ExplanationOfBenefit> secondSearchResults = searchForEobsById(fhirClient, beneficiary);
+
+		Assert.assertFalse(firstSearchResults.isEmpty());
+		Assert.assertEquals(firstSearchResults.keySet(), secondSearchResults.keySet());
+		for (String eobId : firstSearchResults.keySet())
+			Assert.assertTrue(firstSearchResults.get(eobId).equalsDeep(secondSearchResults.get(eobId)));
+
+		CarrierClaim carrierClaim = loadedRecords.stream().filter(r -> r instanceof CarrierClaim)
+				.map(r -> (CarrierClaim) r).findFirst().get();
+		for (int i = 0; i < 2; i++) {
+			ExplanationOfBenefit eob = fhirClient.read(ExplanationOfBenefit.class,
+					TransformerUtils.buildEobId(ClaimType.CARRIER, carrierClaim.getClaimId()));
+			CarrierClaimTransformerTest.assertMatches(carrierClaim, eob);
+		}
+	}
+
+	/**
+	 * @param fhirClient
+	 *            the {@link IGenericClient} to search via
+	 * @param beneficiary
+	 *            the {@link Beneficiary} to search for the
+	 *            {@link ExplanationOfBenefit}s of
+	 * @return the {@link ExplanationOfBenefit}s found for the specified
+	 *         {@link Beneficiary}, keyed by their IDs
+	 */
+	private static Map<String, ExplanationOfBenefit> searchForEobsById(IGenericClient fhirClient,
+			Beneficiary beneficiary) {
+		Bundle searchResults = fhirClient.search().forResource(ExplanationOfBenefit.class)
+				.where(ExplanationOfBenefit.PATIENT.hasId(TransformerUtils.buildPatientId(beneficiary)))
+				.returnBundle(Bundle.class).execute();
+		return searchResults.getEntry().stream().filter(e -> e.getResource() instanceof ExplanationOfBenefit)
+				.map(e -> (ExplanationOfBenefit) e.getResource())
+				.collect(Collectors.toMap(e -> e.getIdElement().getIdPart(), e -> e));
+	}
+
 	/**
 	 * Verifies that
 	 * {@link ExplanationOfBenefitResourceProvider#findByPatient(ca.uhn.fhir.rest.param.ReferenceParam)}
@@ -0,0 +1,135 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gov.hhs.cms.bluebutton.server.app.stu3.providers.Diagnosis.DiagnosisLabel;
+
+/**
+ * Unit tests for {@link IcdCodeSlots}.
+ */
+public final class IcdCodeSlotsTest {
+	/**
+	 * Verifies that {@link IcdCodeSlots#forEach(Object, java.util.function.Consumer)}
+	 * yields a {@link Diagnosis} for each populated slot, in order, and skips
+	 * the empty ones.
+	 */
+	@Test
+	public void diagnoses() {
+		IcdCodeSlots<SampleClaim, Diagnosis> slots = IcdCodeSlots.<SampleClaim, Diagnosis> builder()
+				.add(Diagnosis.slot(SampleClaim::getCode1, SampleClaim::getVersion1, DiagnosisLabel.PRINCIPAL))
+				.add(Diagnosis.slot(SampleClaim::getCode2, SampleClaim::getVersion2))
+				.add(Diagnosis.slot(SampleClaim::getCode3, SampleClaim::getVersion3,
+						SampleClaim::getPresentOnAdmission3))
+				.build();
+		Assert.assertEquals(3, slots.size());
+
+		SampleClaim claim = new SampleClaim();
+		claim.code1 = Optional.of("A01");
+		claim.version1 = Optional.of('0');
+		claim.code3 = Optional.of("C03");
+		claim.presentOnAdmission3 = Optional.of('Y');
+
+		List<Diagnosis> diagnoses = new ArrayList<>();
+		slots.forEach(claim, diagnoses::add);
+
+		Assert.assertEquals(2, diagnoses.size());
+		Assert.assertEquals("A01", diagnoses.get(0).getCode());
+		Assert.assertEquals(Character.valueOf('0'), diagnoses.get(0).getVersion());
+		Assert.assertEquals(EnumSet.of(DiagnosisLabel.PRINCIPAL), diagnoses.get(0).getLabels());
+		Assert.assertEquals("C03", diagnoses.get(1).getCode());
+		Assert.assertNull(diagnoses.get(1).getVersion());
+		Assert.assertEquals(Optional.of('Y'), diagnoses.get(1).getPresentOnAdmission());
+	}
+
+	/**
+	 * Verifies that {@link IcdCodeSlots#forEach(Object, java.util.function.Consumer)}
+	 * yields a {@link CCWProcedure} for each populated slot, and doesn't read
+	 * the procedure dates of empty slots.
+	 */
+	@Test
+	public void procedures() {
+		IcdCodeSlots<SampleClaim, CCWProcedure> slots = IcdCodeSlots.<SampleClaim, CCWProcedure> builder()
+				.add(CCWProcedure.slot(SampleClaim::getCode1, SampleClaim::getVersion1, SampleClaim::getDate1))
+				.add(CCWProcedure.slot(SampleClaim::getCode2, SampleClaim::getVersion2, SampleClaim::getDate2))
+				.build();
+
+		SampleClaim claim = new SampleClaim();
+		claim.code1 = Optional.of("0TY00Z0");
+		claim.version1 = Optional.of('0');
+		claim.date1 = Optional.of(LocalDate.of(2016, 1, 16));
+
+		List<CCWProcedure> procedures = new ArrayList<>();
+		slots.forEach(claim, procedures::add);
+
+		Assert.assertEquals(1, procedures.size());
+		Assert.assertEquals("0TY00Z0", procedures.get(0).getCode());
+		Assert.assertEquals(LocalDate.of(2016, 1, 16), procedures.get(0).getProcedureDate());
+	}
+
+	/**
+	 * Verifies that {@link IcdCodeSlots.Builder#add(java.util.function.Function)}
+	 * rejects <code>null</code> slots.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void nullSlot() {
+		IcdCodeSlots.<Object, Diagnosis> builder().add(null);
+	}
+
+	/**
+	 * A stand-in for a claim entity, with a few ICD code slots.
+	 */
+	private static final class SampleClaim {
+		private Optional<String> code1 = Optional.empty();
+		private Optional<Character> version1 = Optional.empty();
+		private Optional<LocalDate> date1 = Optional.empty();
+		private Optional<String> code2 = Optional.empty();
+		private Optional<Character> version2 = Optional.empty();
+		private Optional<LocalDate> date2 = Optional.empty();
+		private Optional<String> code3 = Optional.empty();
+		private Optional<Character> version3 = Optional.empty();
+		private Optional<Character> presentOnAdmission3 = Optional.empty();
+
+		Optional<String> getCode1() {
+			return code1;
+		}
+
+		Optional<Character> getVersion1() {
+			return version1;
+		}
+
+		Optional<LocalDate> getDate1() {
+			return date1;
+		}
+
+		Optional<String> getCode2() {
+			return code2;
+		}
+
+		Optional<Character> getVersion2() {
+			return version2;
+		}
+
+		Optional<LocalDate> getDate2() {
+			return date2;
+		}
+
+		Optional<String> getCode3() {
+			return code3;
+		}
+
+		Optional<Character> getVersion3() {
+			return version3;
+		}
+
+		Optional<Character> getPresentOnAdmission3() {
+			return presentOnAdmission3;
+		}
+	}
+}
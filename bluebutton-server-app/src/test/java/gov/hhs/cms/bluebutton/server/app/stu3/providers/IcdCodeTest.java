@@ -0,0 +1,57 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import org.hl7.fhir.dstu3.model.CodeableConcept;
+import org.hl7.fhir.dstu3.model.Coding;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link IcdCode}.
+ */
+public final class IcdCodeTest {
+	/**
+	 * Verifies that {@link IcdCode#getFhirSystem()} maps each CCW ICD version
+	 * code to the expected FHIR Coding system.
+	 */
+	@Test
+	public void fhirSystems() {
+		Assert.assertEquals("http://hl7.org/fhir/sid/icd-9-cm",
+				Diagnosis.from(Optional.of("A01"), Optional.empty()).get().getFhirSystem());
+		Assert.assertEquals("http://hl7.org/fhir/sid/icd-9-cm",
+				Diagnosis.from(Optional.of("A01"), Optional.of('9')).get().getFhirSystem());
+		Assert.assertEquals("http://hl7.org/fhir/sid/icd-10",
+				Diagnosis.from(Optional.of("A01"), Optional.of('0')).get().getFhirSystem());
+		Assert.assertEquals("http://hl7.org/fhir/sid/unknown-icd-version/U",
+				Diagnosis.from(Optional.of("A01"), Optional.of('U')).get().getFhirSystem());
+		Assert.assertEquals("http://hl7.org/fhir/sid/unknown-icd-version/\u00e9", IcdCode.resolveSystem('\u00e9'));
+	}
+
+	/**
+	 * Verifies that {@link IcdCode#toCodeableConcept()} gives each
+	 * {@link CodeableConcept} its own {@link Coding}, and that
+	 * {@link IcdCode#isContainedIn(CodeableConcept)} matches it.
+	 */
+	@Test
+	public void codings() {
+		Diagnosis diagnosis = Diagnosis.from(Optional.of("R69"), Optional.of('0')).get();
+		CCWProcedure procedure = new CCWProcedure(Optional.of("R69"), Optional.of('0'), LocalDate.now());
+		CodeableConcept diagnosisConcept = diagnosis.toCodeableConcept();
+		CodeableConcept procedureConcept = procedure.toCodeableConcept();
+
+		Assert.assertNotSame(diagnosisConcept.getCodingFirstRep(), procedureConcept.getCodingFirstRep());
+		Assert.assertEquals("http://hl7.org/fhir/sid/icd-10", diagnosisConcept.getCodingFirstRep().getSystem());
+		Assert.assertEquals("R69", diagnosisConcept.getCodingFirstRep().getCode());
+
+		// Modifying one resource's Coding mustn't affect any others.
+		diagnosisConcept.getCodingFirstRep().setDisplay("Illness, unspecified");
+		Assert.assertFalse(procedureConcept.getCodingFirstRep().hasDisplay());
+		Assert.assertFalse(diagnosis.toCodeableConcept().getCodingFirstRep().hasDisplay());
+
+		Assert.assertTrue(diagnosis.isContainedIn(procedureConcept));
+		Assert.assertFalse(Diagnosis.from(Optional.of("R69"), Optional.of('9')).get().isContainedIn(diagnosisConcept));
+		Assert.assertFalse(diagnosis.isContainedIn(new CodeableConcept()));
+	}
+}
@@ -0,0 +1,91 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit.ItemComponent;
+import org.junit.Assert;
+
+/**
+ * Contains utility methods useful for testing the classes that transform
+ * claims or claim lines in parallel chunks, and must still return the results
+ * in order (e.g. {@link ClaimLineItems} and {@link ClaimTransformExecutor}).
+ * The (fake) claims and lines are just numbers, which the fake transforms
+ * record in their results.
+ */
+final class OrderedTransformTestUtils {
+	/**
+	 * @param count
+	 *            the number of (fake) claims or lines to create
+	 * @return the numbers from <code>1</code> through the specified count, in
+	 *         order
+	 */
+	static List<Integer> createNumbers(int count) {
+		return IntStream.rangeClosed(1, count).boxed().collect(Collectors.toList());
+	}
+
+	/**
+	 * @param line
+	 *            the (fake) claim line number to transform
+	 * @return an {@link ItemComponent} with the specified line number as its
+	 *         {@link ItemComponent#getSequence()}
+	 */
+	static ItemComponent transformLine(Integer line) {
+		return new ItemComponent().setSequence(line);
+	}
+
+	/**
+	 * @param claim
+	 *            the (fake) claim number to transform
+	 * @return an {@link ExplanationOfBenefit} with the specified claim number
+	 *         as its {@link ExplanationOfBenefit#getId()}
+	 */
+	static ExplanationOfBenefit transformClaim(Integer claim) {
+		ExplanationOfBenefit eob = new ExplanationOfBenefit();
+		eob.setId(String.valueOf(claim));
+		return eob;
+	}
+
+	/**
+	 * Verifies that the specified {@link ItemComponent}s were transformed from
+	 * the specified (fake) claim lines, in the same order.
+	 *
+	 * @param lines
+	 *            the (fake) claim line numbers that were transformed
+	 * @param items
+	 *            the {@link ItemComponent}s that they were transformed into
+	 */
+	static void assertInLineOrder(List<Integer> lines, List<ItemComponent> items) {
+		assertInOrder(lines, items, ItemComponent::getSequence);
+	}
+
+	/**
+	 * Verifies that the specified {@link ExplanationOfBenefit}s were
+	 * transformed from the specified (fake) claims, in the same order.
+	 *
+	 * @param claims
+	 *            the (fake) claim numbers that were transformed
+	 * @param eobs
+	 *            the {@link ExplanationOfBenefit}s that they were transformed
+	 *            into
+	 */
+	static void assertInClaimOrder(List<Integer> claims, List<ExplanationOfBenefit> eobs) {
+		assertInOrder(claims, eobs, eob -> Integer.valueOf(eob.getIdElement().getIdPart()));
+	}
+
+	/**
+	 * @param numbers
+	 *            the (fake) claim or line numbers that were transformed
+	 * @param results
+	 *            the results that they were transformed into
+	 * @param numberGetter
+	 *            the {@link Function} that gets the number that each result
+	 *            was transformed from
+	 */
+	private static <R> void assertInOrder(List<Integer> numbers, List<R> results, Function<R, Integer> numberGetter) {
+		Assert.assertEquals(numbers, results.stream().map(numberGetter).collect(Collectors.toList()));
+	}
+}
@@ -0,0 +1,42 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+import javax.persistence.PersistenceException;
+import javax.persistence.QueryTimeoutException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+
+/**
+ * Unit tests for {@link QueryDeadline}.
+ */
+public final class QueryDeadlineTest {
+	/**
+	 * Verifies that {@link QueryDeadline#isTimeout(Throwable)}
+	 * recognizes query timeouts, no matter how deeply HAPI and Hibernate have
+	 * wrapped them.
+	 */
+	@Test
+	public void recognizesWrappedTimeouts() {
+		Assert.assertTrue(QueryDeadline.isTimeout(new QueryTimeoutException()));
+		Assert.assertTrue(QueryDeadline.isTimeout(new InternalErrorException("oops",
+				new PersistenceException(new org.hibernate.QueryTimeoutException("canceled", null, "select")))));
+		Assert.assertTrue(QueryDeadline.isTimeout(
+				new InternalErrorException("oops", new PersistenceException(new SQLTimeoutException()))));
+	}
+
+	/**
+	 * Verifies that {@link QueryDeadline#isTimeout(Throwable)}
+	 * leaves other failures alone.
+	 */
+	@Test
+	public void ignoresOtherFailures() {
+		Assert.assertFalse(QueryDeadline.isTimeout(new IllegalArgumentException()));
+		Assert.assertFalse(QueryDeadline.isTimeout(
+				new InternalErrorException("oops", new PersistenceException(new SQLException()))));
+	}
+}
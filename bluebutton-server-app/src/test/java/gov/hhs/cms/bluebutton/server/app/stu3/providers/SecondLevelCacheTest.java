@@ -0,0 +1,50 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.Properties;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.Assert;
+import org.junit.Test;
+
+import gov.hhs.cms.bluebutton.data.model.rif.Beneficiary;
+import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaim;
+import gov.hhs.cms.bluebutton.data.model.rif.CarrierClaimLine;
+import gov.hhs.cms.bluebutton.data.model.rif.PartDEvent;
+
+/**
+ * Unit tests for {@link SecondLevelCache}.
+ */
+public final class SecondLevelCacheTest {
+	/**
+	 * Verifies that {@link SecondLevelCache#createJpaProperties()} enables the
+	 * caches, and defines read-only regions for the entities and their
+	 * <code>lines</code>.
+	 */
+	@Test
+	public void createJpaProperties() {
+		Properties cacheProperties = SecondLevelCache.createJpaProperties();
+
+		Assert.assertEquals("true", cacheProperties.get(AvailableSettings.USE_SECOND_LEVEL_CACHE));
+		Assert.assertEquals("true", cacheProperties.get(AvailableSettings.USE_QUERY_CACHE));
+		Assert.assertEquals(SecondLevelCache.REGION_FACTORY,
+				cacheProperties.get(AvailableSettings.CACHE_REGION_FACTORY));
+		Assert.assertEquals("false", cacheProperties.get(AvailableSettings.USE_MINIMAL_PUTS));
+
+		String classCachePrefix = org.hibernate.jpa.AvailableSettings.CLASS_CACHE_PREFIX + ".";
+		String collectionCachePrefix = org.hibernate.jpa.AvailableSettings.COLLECTION_CACHE_PREFIX + ".";
+		Assert.assertEquals(SecondLevelCache.CONCURRENCY_STRATEGY,
+				cacheProperties.get(classCachePrefix + Beneficiary.class.getName()));
+		Assert.assertEquals(SecondLevelCache.CONCURRENCY_STRATEGY,
+				cacheProperties.get(classCachePrefix + CarrierClaim.class.getName()));
+		Assert.assertEquals(SecondLevelCache.CONCURRENCY_STRATEGY, cacheProperties
+				.get(collectionCachePrefix + CarrierClaim.class.getName() + "." + SecondLevelCache.ATTRIBUTE_LINES));
+		Assert.assertEquals(SecondLevelCache.CONCURRENCY_STRATEGY,
+				cacheProperties.get(classCachePrefix + CarrierClaimLine.class.getName()));
+
+		// Part D events don't have any lines.
+		Assert.assertEquals(SecondLevelCache.CONCURRENCY_STRATEGY,
+				cacheProperties.get(classCachePrefix + PartDEvent.class.getName()));
+		Assert.assertFalse(cacheProperties.containsKey(
+				collectionCachePrefix + PartDEvent.class.getName() + "." + SecondLevelCache.ATTRIBUTE_LINES));
+	}
+}
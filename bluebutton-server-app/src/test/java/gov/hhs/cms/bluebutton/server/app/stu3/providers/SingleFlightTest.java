@@ -0,0 +1,191 @@
+package gov.hhs.cms.bluebutton.server.app.stu3.providers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.QueryTimeoutException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.Meter;
+
+/**
+ * Unit tests for {@link SingleFlight}.
+ */
+public final class SingleFlightTest {
+	/**
+	 * Verifies that {@link SingleFlight} runs identical concurrent operations
+	 * only once, and gives each caller its own copy of the shared result.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void coalescesConcurrentCalls() throws Exception {
+		Meter coalesced = new Meter();
+		SingleFlight<String, StringBuilder> singleFlight = new SingleFlight<>(r -> new StringBuilder(r), coalesced);
+
+		AtomicInteger operationRuns = new AtomicInteger(0);
+		CountDownLatch operationStarted = new CountDownLatch(1);
+		CountDownLatch operationMayFinish = new CountDownLatch(1);
+		CompletableFuture<StringBuilder> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("a", () -> {
+			operationRuns.incrementAndGet();
+			operationStarted.countDown();
+			awaitQuietly(operationMayFinish);
+			return new StringBuilder("result");
+		}));
+		operationStarted.await(10, TimeUnit.SECONDS);
+
+		List<CompletableFuture<StringBuilder>> followers = new ArrayList<>();
+		for (int i = 0; i < 3; i++)
+			followers.add(CompletableFuture.supplyAsync(() -> singleFlight.execute("a", () -> {
+				operationRuns.incrementAndGet();
+				return new StringBuilder("duplicate");
+			})));
+		while (coalesced.getCount() < 3)
+			Thread.sleep(10);
+		operationMayFinish.countDown();
+
+		StringBuilder leaderResult = leader.get(10, TimeUnit.SECONDS);
+		Assert.assertEquals("result", leaderResult.toString());
+		for (CompletableFuture<StringBuilder> follower : followers) {
+			StringBuilder followerResult = follower.get(10, TimeUnit.SECONDS);
+			Assert.assertEquals("result", followerResult.toString());
+			Assert.assertNotSame(leaderResult, followerResult);
+		}
+		Assert.assertEquals(1, operationRuns.get());
+
+		// Once it's complete, the next call should run the operation again.
+		Assert.assertEquals("again", singleFlight.execute("a", () -> new StringBuilder("again")).toString());
+	}
+
+	/**
+	 * Verifies that {@link SingleFlight} shares failures with all of the
+	 * coalesced callers.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void sharesFailures() throws Exception {
+		Meter coalesced = new Meter();
+		SingleFlight<String, String> singleFlight = new SingleFlight<>(r -> r, coalesced);
+
+		CountDownLatch operationStarted = new CountDownLatch(1);
+		CountDownLatch operationMayFinish = new CountDownLatch(1);
+		CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("a", () -> {
+			operationStarted.countDown();
+			awaitQuietly(operationMayFinish);
+			throw new IllegalStateException("boom");
+		}));
+		operationStarted.await(10, TimeUnit.SECONDS);
+		CompletableFuture<String> follower = CompletableFuture
+				.supplyAsync(() -> singleFlight.execute("a", () -> "unexpected"));
+		while (coalesced.getCount() < 1)
+			Thread.sleep(10);
+		operationMayFinish.countDown();
+
+		for (CompletableFuture<String> caller : new CompletableFuture[] { leader, follower }) {
+			try {
+				caller.get(10, TimeUnit.SECONDS);
+				Assert.fail();
+			} catch (ExecutionException e) {
+				Assert.assertEquals("boom", e.getCause().getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Verifies that {@link SingleFlight} only makes coalesced callers wait for
+	 * as long as their own {@link QueryDeadline} allows.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void followersKeepTheirOwnDeadlines() throws Exception {
+		Meter coalesced = new Meter();
+		SingleFlight<String, String> singleFlight = new SingleFlight<>(r -> r, coalesced);
+
+		CountDownLatch operationStarted = new CountDownLatch(1);
+		CountDownLatch operationMayFinish = new CountDownLatch(1);
+		CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("a", () -> {
+			operationStarted.countDown();
+			awaitQuietly(operationMayFinish);
+			return "result";
+		}));
+		operationStarted.await(10, TimeUnit.SECONDS);
+
+		CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> {
+			QueryDeadline.start(50L);
+			try {
+				return singleFlight.execute("a", () -> "unexpected");
+			} finally {
+				QueryDeadline.clear();
+			}
+		});
+		try {
+			follower.get(10, TimeUnit.SECONDS);
+			Assert.fail();
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof QueryTimeoutException);
+		}
+
+		operationMayFinish.countDown();
+		Assert.assertEquals("result", leader.get(10, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Verifies that {@link SingleFlight} doesn't share a failure caused by
+	 * the original caller's {@link QueryDeadline}: the coalesced callers run
+	 * the operation again, under their own deadlines.
+	 *
+	 * @throws Exception
+	 *             (indicates test failure)
+	 */
+	@Test
+	public void retriesAfterLeaderDeadline() throws Exception {
+		Meter coalesced = new Meter();
+		SingleFlight<String, String> singleFlight = new SingleFlight<>(r -> r, coalesced);
+
+		CountDownLatch operationStarted = new CountDownLatch(1);
+		CountDownLatch operationMayFinish = new CountDownLatch(1);
+		CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("a", () -> {
+			operationStarted.countDown();
+			awaitQuietly(operationMayFinish);
+			throw new QueryTimeoutException("Request deadline exceeded.");
+		}));
+		operationStarted.await(10, TimeUnit.SECONDS);
+		CompletableFuture<String> follower = CompletableFuture
+				.supplyAsync(() -> singleFlight.execute("a", () -> "retried"));
+		while (coalesced.getCount() < 1)
+			Thread.sleep(10);
+		operationMayFinish.countDown();
+
+		try {
+			leader.get(10, TimeUnit.SECONDS);
+			Assert.fail();
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof QueryTimeoutException);
+		}
+		Assert.assertEquals("retried", follower.get(10, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * @param latch
+	 *            the {@link CountDownLatch} to wait on
+	 */
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}